@@ -29,6 +29,7 @@ public class TSTimeStorage implements Serializable {
      * History:
      * 1L - initial
      * 2L - added countMovesPerEpisode and tmpEpisodeMoveCounter and the accompanying methods
+     *      (iterationsPerSec was added later without a new ID, it is null in older objects)
      */
     private static final long serialVersionUID = 2L;
 
@@ -37,6 +38,7 @@ public class TSTimeStorage implements Serializable {
     private ArrayList<Long> tmpRoundTimesInNS = new ArrayList<>(); // every move time just of the current round
     private ArrayList<Integer> countMovesPerEpisode = new ArrayList<>(); // number of moves per episode
     private int tmpEpisodeMoveCounter = 0; // counter for moves per episode, must be reset when episode finishes
+    private ArrayList<Double> iterationsPerSec = new ArrayList<>(); // search iterations per second of every move (only agents with iterative search)
 
     /**
      * convert nanosecond vale to millisecond
@@ -66,6 +68,42 @@ public class TSTimeStorage implements Serializable {
         tmpEpisodeMoveCounter++;
     }
 
+    /**
+     * add the number of search iterations of a move, if the agent performs an iterative search
+     * (see {@link PlayAgent#getLastIterations()})
+     * @param iterations number of search iterations of the move (nothing is recorded if it is 0)
+     * @param timeNS time measurement of the move in nanosecond resolution
+     */
+    public void addIterations(int iterations, long timeNS) {
+        if (iterations <= 0 || timeNS <= 0)
+            return;
+        if (iterationsPerSec == null) // in objects stored before this field was added
+            iterationsPerSec = new ArrayList<>();
+        iterationsPerSec.add(iterations / nanoToS(timeNS));
+    }
+
+    /**
+     * @return average number of search iterations per second (average over all moves in all episodes),
+     * -1 if no iterations were recorded
+     */
+    public double getAverageIterationsPerSec() {
+        if (iterationsPerSec == null || iterationsPerSec.size()==0)
+            return -1;
+        double avg = 0;
+        for (double val : iterationsPerSec)
+            avg += val;
+        return avg / iterationsPerSec.size();
+    }
+
+    /**
+     * @return minimum number of search iterations per second of a move, -1 if no iterations were recorded
+     */
+    public double getMinIterationsPerSec() {
+        if (iterationsPerSec == null || iterationsPerSec.size()==0)
+            return -1;
+        return Collections.min(iterationsPerSec);
+    }
+
     /**
      * get the total time of all episodes moves from this agent in this match
      * @return amount of time in nanoseconds
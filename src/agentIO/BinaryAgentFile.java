@@ -0,0 +1,302 @@
+package agentIO;
+
+import controllers.PlayAgent;
+import controllers.TD.ntuple2.WeightStore;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact binary agent file format {@code .agt.bin}, an alternative to the gzipped Java serialization {@code .agt.zip}
+ * of {@link LoadSaveGBG}. The LUT weights (all {@link WeightStore}s of the agent) are not pushed through
+ * {@link ObjectOutputStream} and GZIP, but stored as raw little-endian blocks, which can be memory-mapped on loading.
+ * This makes loading of large agents (2048, Othello) fast and avoids the second copy of all weights on the heap.
+ * <p>
+ * File layout (all numbers little-endian):
+ * <pre>
+ *   int     MAGIC ("GBGA")
+ *   int     VERSION
+ *   int     number of blocks n
+ *   n x     block entry: int mode, int length, long offset, long bytes (see {@link WeightStore})
+ *   int     header length h
+ *   h bytes header: the agent in Java serialization, each WeightStore replaced by a reference to its block
+ *   ...     padding to a multiple of 8
+ *   blocks  the weights, each block starts at a multiple of 8
+ * </pre>
+ * The header holds everything except the weights (parameters, n-tuple layout, ...) and is small.
+ * <p>
+ * Use {@link #main(String[])} to convert between {@code .agt.zip} and {@code .agt.bin}.
+ */
+public class BinaryAgentFile {
+	public static final String EXTENSION = ".agt.bin";
+	public static final int MAGIC = 0x41474247;		// "GBGA" little-endian
+	/**
+	 * increase the version if the file layout changes. Older versions have to stay readable.
+	 */
+	public static final int VERSION = 1;
+
+	private static final int BLOCK_ENTRY_BYTES = 24;
+
+	/**
+	 * Save agent {@code pa} to {@code filePath} in binary format. The file is written to a temporary file in the
+	 * same directory, which then replaces {@code filePath}. Thus an agent memory-mapped from {@code filePath} (see
+	 * {@link #load(String, boolean)}) can be saved onto its own file.
+	 */
+	public static void save(PlayAgent pa, String filePath) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ArrayList<WeightStore> blocks;
+		try (HeaderOutputStream hos = new HeaderOutputStream(bos)) {
+			hos.writeObject(pa);
+			hos.flush();
+			blocks = hos.blocks;
+		}
+		byte[] header = bos.toByteArray();
+
+		long prefix = 12 + (long) BLOCK_ENTRY_BYTES * blocks.size() + 4 + header.length;
+		ByteBuffer buf = ByteBuffer.allocate((int) align8(prefix)).order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(MAGIC).putInt(VERSION).putInt(blocks.size());
+		long offset = align8(prefix);
+		for (WeightStore ws : blocks) {
+			buf.putInt(ws.getMode()).putInt(ws.length()).putLong(offset).putLong(ws.binaryBytes());
+			offset = align8(offset + ws.binaryBytes());
+		}
+		buf.putInt(header.length).put(header);
+		buf.position(buf.capacity());		// padding
+		buf.flip();
+
+		Path path = Paths.get(filePath).toAbsolutePath();
+		Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+				while (buf.hasRemaining()) ch.write(buf);
+				ByteBuffer pad = ByteBuffer.allocate(8);
+				for (WeightStore ws : blocks) {
+					ws.writeBinary(ch);
+					pad.clear().limit((int) (align8(ws.binaryBytes()) - ws.binaryBytes()));
+					while (pad.hasRemaining()) ch.write(pad);
+				}
+			}
+			try {
+				Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Load an agent saved with {@link #save(PlayAgent, String)} and prepare it for use
+	 * ({@link PlayAgent#instantiateAfterLoading()}), without the GUI messages of {@link LoadSaveGBG}.
+	 *
+	 * @param filePath	the file
+	 * @param map		see {@link #openHeader(String, boolean)}
+	 * @return the agent
+	 * @throws IOException if the file is no binary agent file, has an unknown version or cannot be read
+	 */
+	public static PlayAgent load(String filePath, boolean map) throws IOException {
+		return readAgent(openHeader(filePath, map), filePath);
+	}
+
+	/**
+	 * Read the weight blocks of a file saved with {@link #save(PlayAgent, String)} and open its header. Reading
+	 * the agent from the returned stream resolves the block references to the weight blocks.
+	 *
+	 * @param filePath	the file
+	 * @param map		if true, memory-map the double weights (read-only) instead of reading them, see
+	 * 					{@link WeightStore#readBinary(int, int, FileChannel, long, boolean)}. Mapped
+	 * 					{@link WeightStore#DOUBLE} stores are loaded as {@link WeightStore#OFFHEAP} stores.
+	 * @return the stream to read the agent from
+	 * @throws IOException if the file is no binary agent file, has an unknown version or cannot be read
+	 */
+	static ObjectInputStream openHeader(String filePath, boolean map) throws IOException {
+		Path path = Paths.get(filePath);
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buf = readFully(ch, 0, 12);
+			if (buf.getInt() != MAGIC)
+				throw new IOException("[BinaryAgentFile] " + filePath + " is no binary agent file");
+			int version = buf.getInt();
+			if (version > VERSION)
+				throw new IOException("[BinaryAgentFile] " + filePath + " has version " + version
+						+ ", only versions up to " + VERSION + " are supported");
+			int n = buf.getInt();
+			buf = readFully(ch, 12, (long) BLOCK_ENTRY_BYTES * n + 4);
+			WeightStore[] blocks = new WeightStore[n];
+			for (int b = 0; b < n; b++) {
+				int mode = buf.getInt();
+				int length = buf.getInt();
+				long offset = buf.getLong();
+				buf.getLong();					// bytes
+				blocks[b] = WeightStore.readBinary(mode, length, ch, offset, map);
+			}
+			int headerLength = buf.getInt();
+			ByteBuffer header = readFully(ch, 12 + (long) BLOCK_ENTRY_BYTES * n + 4, headerLength);
+			return new HeaderInputStream(new ByteArrayInputStream(header.array()), blocks);
+		}
+	}
+
+	/**
+	 * @return true, if {@code f} starts with {@link #MAGIC}
+	 */
+	public static boolean isBinaryAgentFile(File f) {
+		if (!f.isFile() || f.length() < 4) return false;
+		try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+			return readFully(ch, 0, 4).getInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Load an agent from an {@code .agt.zip} file (without the GUI messages of {@link LoadSaveGBG}). The stream
+	 * stack is the same as in {@link LoadSaveGBG#loadGBGAgent(String)}.
+	 */
+	public static PlayAgent loadZip(String filePath) throws IOException {
+		FileInputStream fis = new FileInputStream(filePath);
+		ObjectInputStream ois;
+		try {
+			ois = LoadSaveGBG.openAgentZip(fis, new File(filePath));
+		} catch (IOException e) {
+			fis.close();
+			throw e;
+		}
+		return readAgent(ois, filePath);
+	}
+
+	/**
+	 * Save an agent to an {@code .agt.zip} file (with the same stream stack as
+	 * {@link LoadSaveGBG#saveGBGAgent(PlayAgent, String)})
+	 */
+	public static void saveZip(PlayAgent pa, String filePath) throws IOException {
+		GZIPOutputStream gz = new GZIPOutputStream(new FileOutputStream(filePath)) {
+			{
+				def.setLevel(Deflater.BEST_COMPRESSION);
+			}
+		};
+		try (ObjectOutputStream oos = new ObjectOutputStream(new ProgressTrackingOutputStream(gz, new IOProgress(0)))) {
+			oos.writeObject(pa);
+		}
+	}
+
+	/**
+	 * Convert an agent file from {@code .agt.zip} to {@code .agt.bin} or vice versa. The direction is given by the
+	 * format of {@code srcPath}.
+	 */
+	public static void convert(String srcPath, String dstPath) throws IOException {
+		if (isBinaryAgentFile(new File(srcPath))) {
+			saveZip(load(srcPath, false), dstPath);
+		} else {
+			save(loadZip(srcPath), dstPath);
+		}
+	}
+
+	/**
+	 * Converter: {@code java agentIO.BinaryAgentFile <src> [<dst>]}. If {@code dst} is missing, it is {@code src}
+	 * with the other suffix ({@code .agt.zip} &lt;-&gt; {@code .agt.bin}).
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: java agentIO.BinaryAgentFile <src.agt.zip|src.agt.bin> [<dst>]");
+			return;
+		}
+		String src = args[0];
+		String dst;
+		if (args.length > 1) {
+			dst = args[1];
+		} else if (isBinaryAgentFile(new File(src))) {
+			dst = src.replaceAll("\\.agt\\.bin$", "") + ".agt.zip";
+		} else {
+			dst = src.replaceAll("\\.agt\\.zip$", "") + EXTENSION;
+		}
+		long startTime = System.currentTimeMillis();
+		convert(src, dst);
+		System.out.println("[BinaryAgentFile] " + src + " (" + new File(src).length() + " bytes) --> " + dst + " ("
+				+ new File(dst).length() + " bytes) in " + (System.currentTimeMillis() - startTime) + " ms");
+	}
+
+	private static PlayAgent readAgent(ObjectInputStream ois, String filePath) throws IOException {
+		Object obj;
+		try (ObjectInputStream in = ois) {
+			obj = in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("[BinaryAgentFile] Class not found: " + e.getMessage());
+		}
+		if (!(obj instanceof PlayAgent))
+			throw new IOException("[BinaryAgentFile] Agent class " + obj.getClass().getName() + " loaded from "
+					+ filePath + " not processable");
+		return LoadSaveGBG.prepareAfterLoading((PlayAgent) obj);
+	}
+
+	private static long align8(long pos) {
+		return (pos + 7) & ~7L;
+	}
+
+	private static ByteBuffer readFully(FileChannel ch, long pos, long bytes) throws IOException {
+		if (pos + bytes > ch.size())
+			throw new EOFException("[BinaryAgentFile] unexpected end of file");
+		ByteBuffer buf = ByteBuffer.allocate((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+		while (buf.hasRemaining()) {
+			if (ch.read(buf, pos + buf.position()) < 0) throw new EOFException("[BinaryAgentFile] unexpected end of file");
+		}
+		buf.flip();
+		return buf;
+	}
+
+	/**
+	 * reference to block {@code block} in the header, replaces a {@link WeightStore}
+	 */
+	private static final class BlockRef implements Serializable {
+		private final int block;
+
+		private static final long serialVersionUID = 1L;
+
+		BlockRef(int block) {
+			this.block = block;
+		}
+	}
+
+	private static final class HeaderOutputStream extends ObjectOutputStream {
+		private final ArrayList<WeightStore> blocks = new ArrayList<>();
+
+		HeaderOutputStream(OutputStream out) throws IOException {
+			super(out);
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) {
+			if (obj instanceof WeightStore) {
+				blocks.add((WeightStore) obj);
+				return new BlockRef(blocks.size() - 1);
+			}
+			return obj;
+		}
+	}
+
+	private static final class HeaderInputStream extends ObjectInputStream {
+		private final WeightStore[] blocks;
+
+		HeaderInputStream(InputStream in, WeightStore[] blocks) throws IOException {
+			super(in);
+			this.blocks = blocks;
+			enableResolveObject(true);
+		}
+
+		@Override
+		protected Object resolveObject(Object obj) {
+			return (obj instanceof BlockRef) ? blocks[((BlockRef) obj).block] : obj;
+		}
+	}
+}
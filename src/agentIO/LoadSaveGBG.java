@@ -27,6 +27,7 @@ import java.util.zip.GZIPOutputStream;
 public class LoadSaveGBG {
 	private JFileChooserApprove fc = null;
 	private final FileFilter tdAgentExt = new ExtensionFilter("agt.zip", "TD-Agents");
+	private final FileFilter tdAgentBinExt = new ExtensionFilter("agt.bin", "TD-Agents (binary, see BinaryAgentFile)");
 	private final FileFilter tdTSRExt = new ExtensionFilter("tsr.zip", "Tournament-Result");
 	private final FileFilter txtExt = new ExtensionFilter(".txt.zip", "Compressed Text-Files (.txt.zip)");
 	private final Arena arenaGame;
@@ -102,7 +103,8 @@ public class LoadSaveGBG {
 	 * Save agent to disk without file chooser dialog
 	 * 
 	 * @param pa	the agent
-	 * @param filePath the location on disk
+	 * @param filePath the location on disk. If it ends with {@code .agt.bin}, the agent is saved in the binary
+	 * 				format of {@link BinaryAgentFile}, else as gzipped Java serialization.
 	 * @throws IOException
 	 */
 	public void saveGBGAgent(PlayAgent pa, String filePath) throws IOException {
@@ -112,6 +114,17 @@ public class LoadSaveGBG {
 			throw new IOException("ERROR: pa=null, there is no agent to save to disk");
 		}
 		
+		if (filePath.toLowerCase().endsWith(BinaryAgentFile.EXTENSION)) {
+			try {
+				BinaryAgentFile.save(pa, filePath);
+			} catch (IOException e) {
+				arenaGame.setStatusMessage("[ERROR: Could not write to file " + filePath + " !]");
+				throw new IOException("ERROR: Could not write binary agent file! ["+e.getMessage()+"]");
+			}
+			arenaGame.setStatusMessage("Done.");
+			return;
+		}
+
 		try {
 			fos = new FileOutputStream(filePath);
 		} catch (FileNotFoundException e2) {
@@ -230,8 +243,11 @@ public class LoadSaveGBG {
 		if (fc==null) throw new IOException("No JFileChooser present!");
 
 		fc.removeChoosableFileFilter(txtExt);
-		if (pa != null)
+		fc.removeChoosableFileFilter(tdAgentBinExt);
+		if (pa != null) {
+			fc.addChoosableFileFilter(tdAgentBinExt);
 			fc.setFileFilter(tdAgentExt);
+		}
 		if (tsr != null)
 			fc.setFileFilter(tdTSRExt);
 		fc.setCurrentDirectory(new File(strDir));
@@ -257,8 +273,13 @@ public class LoadSaveGBG {
 				path = fc.getSelectedFile().getPath();
 
 			if (pa != null) {
-				if (!path.toLowerCase().endsWith(".agt.zip")) {
-					path += ".agt.zip";
+				if (!path.toLowerCase().endsWith(".agt.zip") && !path.toLowerCase().endsWith(BinaryAgentFile.EXTENSION)) {
+					path += (fc.getFileFilter()==tdAgentBinExt) ? BinaryAgentFile.EXTENSION : ".agt.zip";
+				}
+				if (path.toLowerCase().endsWith(BinaryAgentFile.EXTENSION)) {
+					saveGBGAgent(pa, path);
+					fc.rescanCurrentDirectory();
+					return;
 				}
 			}
 			if (tsr != null) {
@@ -377,7 +398,7 @@ public class LoadSaveGBG {
 		fc.rescanCurrentDirectory();
 	}
 
-	public int estimateGZIPLength(File f) {
+	public static int estimateGZIPLength(File f) {
 		RandomAccessFile raf;
 		int fileSize = 0;
 		try {
@@ -399,9 +420,12 @@ public class LoadSaveGBG {
 	/**
 	 * Load a GBG agent from disk and update it, if necessary (older agents on disk might 
 	 * not yet have certain elements, which are then filled in from defaults)
+	 * <p>
+	 * Files in the binary format of {@link BinaryAgentFile} are recognized by their content; their weights are
+	 * memory-mapped.
 	 * 
 	 * @param filePath		if null, open a file choose dialog. If not null, open this fully 
-	 * 						qualified file with suffix .agt.zip.
+	 * 						qualified file with suffix .agt.zip (or .agt.bin).
 	 * @return				the agent loaded
 	 * @throws IOException
 	 */
@@ -422,6 +446,8 @@ public class LoadSaveGBG {
 			if (fc==null) throw new IOException("No JFileChooser present!");
 			
 			fc.removeChoosableFileFilter(txtExt);
+			fc.removeChoosableFileFilter(tdAgentBinExt);
+			fc.addChoosableFileFilter(tdAgentBinExt);
 			fc.setFileFilter(tdAgentExt);
 			fc.setCurrentDirectory(new File(strDir));
 			fc.setAcceptAllFileFilterUsed(false);
@@ -452,23 +478,25 @@ public class LoadSaveGBG {
 			}
 		}
 		
-		if (fis != null) {
-			GZIPInputStream gs;
+		if (fis != null && BinaryAgentFile.isBinaryAgentFile(file)) {
 			try {
-				gs = new GZIPInputStream(fis);
-			} catch (IOException e1) {
-				arenaGame.setStatusMessage("[ERROR: Could not create ZIP-InputStream for" + filePath + " !]");
-				throw e1;
+				ois = BinaryAgentFile.openHeader(filePath, true);
+			} catch (IOException e) {
+				fis.close();
+				arenaGame.showMessage("ERROR: " + e.getMessage(),
+						e.getClass().getName(), JOptionPane.ERROR_MESSAGE);
+				arenaGame.setStatusMessage("[ERROR: Could not open file " + filePath + " !]");
+				return null;
 			}
 
-			long fileLength = estimateGZIPLength(file);
-			final ProgressTrackingObjectInputStream ptis = new ProgressTrackingObjectInputStream(
-					gs, new agentIO.IOProgress(fileLength));
+			pa = transformObjectToPlayAgent(ois, fis, filePath);
+
+		} else if (fis != null) {
 			try {
-				ois = new ObjectInputStream(ptis);
+				ois = openAgentZip(fis, file);
 			} catch (IOException e1) {
-				ptis.close();
-				arenaGame.setStatusMessage("[ERROR: Could not create ObjectInputStream for" + filePath + " !]");
+				fis.close();
+				arenaGame.setStatusMessage("[ERROR: Could not create ZIP-InputStream for" + filePath + " !]");
 				throw e1;
 			}
 
@@ -714,9 +742,7 @@ public class LoadSaveGBG {
 		try {
 			Object obj = ois.readObject();
 			if (obj instanceof PlayAgent) {
-				pa = (PlayAgent) obj;
-				pa.instantiateAfterLoading();	// special treatment of agents after loading (if necessary)
-				// [instantiateAfterLoading replaces completely the long and complicated switch statement we had here before (!)]
+				pa = prepareAfterLoading((PlayAgent) obj);
 			} else {
 //				disposeProgressDialog(dlg);
 				arenaGame.showMessage("ERROR: Agent class "+obj.getClass().getName()+" loaded from "
@@ -725,12 +751,6 @@ public class LoadSaveGBG {
 								+ filePath + "!]");
 				throw new ClassNotFoundException("ERROR: Unknown agent class");
 			}
-				
-			// Some older agents on disk might not have ParOther m_oPar.
-			// If this is the case, replace the null value with a default ParOther.
-			if (pa.getParOther() == null) {
-				((AgentBase) pa).setDefaultParOther();
-			}						
 
 //			disposeProgressDialog(dlg);
 //			arenaGame.setProgress(null);
@@ -770,6 +790,45 @@ public class LoadSaveGBG {
 	}
 
 
+	/**
+	 * Special treatment of agents after loading, common to all agent file formats
+	 *
+	 * @param pa	the agent just read from disk
+	 * @return	{@code pa}, instantiated
+	 */
+	static PlayAgent prepareAfterLoading(PlayAgent pa) {
+		pa.instantiateAfterLoading();	// special treatment of agents after loading (if necessary)
+		// [instantiateAfterLoading replaces completely the long and complicated switch statement we had here before (!)]
+
+		// Some older agents on disk might not have ParOther m_oPar.
+		// If this is the case, replace the null value with a default ParOther.
+		if (pa.getParOther() == null) {
+			((AgentBase) pa).setDefaultParOther();
+		}
+		return pa;
+	}
+
+	/**
+	 * The stream stack for reading {@code .agt.zip} files
+	 *
+	 * @param fis	the opened file
+	 * @param file	the same file, to estimate the uncompressed length for the progress
+	 * @return	an {@link ObjectInputStream} on the uncompressed content
+	 * @throws IOException if {@code fis} is no GZIP stream
+	 */
+	static ObjectInputStream openAgentZip(FileInputStream fis, File file) throws IOException {
+		GZIPInputStream gs = new GZIPInputStream(fis);
+		long fileLength = estimateGZIPLength(file);
+		final ProgressTrackingObjectInputStream ptis = new ProgressTrackingObjectInputStream(
+				gs, new agentIO.IOProgress(fileLength));
+		try {
+			return new ObjectInputStream(ptis);
+		} catch (IOException e1) {
+			ptis.close();
+			throw e1;
+		}
+	}
+
 	public String getZipContentFiles(ZipFile zipFile,
 			ZipArchiveEntry zipArchiveEntry) {
 		String txtFileContent = null;
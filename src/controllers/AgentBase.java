@@ -303,6 +303,8 @@ abstract public class AgentBase implements PlayAgent, Serializable {
 		m_oPar.setWrapperNPly(otherPar.getWrapperNPly());
 		m_oPar.setWrapperMCTS_PUCT(otherPar.getWrapperMCTS_PUCT());
 		m_oPar.setWrapperMCTSIterations(otherPar.getWrapperMCTSIterations());
+		m_oPar.setWrapperMCTSThreads(otherPar.getWrapperMCTSThreads());
+		m_oPar.setWrapperMCTSTimeMS(otherPar.getWrapperMCTSTimeMS());
 	}
 
     @Override
@@ -400,6 +402,16 @@ abstract public class AgentBase implements PlayAgent, Serializable {
 		return stochasticPolicy;
 	}
 
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
+
+	@Override
+	public int getLastIterations() {
+		return 0;
+	}
+
 	@Override
 	public void setStochastic(boolean hasStochasticPolicy) {
 		stochasticPolicy = hasStochasticPolicy;
@@ -130,11 +130,24 @@ public class MCTSAgentT extends AgentBase implements PlayAgent, Serializable
      */
     public Types.ACTIONS act(StateObservation stateObs, ElapsedCpuTimer elapsedTimer
     						, double[] vtable) {
+    	return act(stateObs, elapsedTimer, vtable, false);
+    }
+
+    /**
+     * Same as {@link #act(StateObservation, ElapsedCpuTimer, double[])}, but if {@code reuse==true}, continue 
+     * the search in the subtree of the last tree that belongs to {@code stateObs} (if there is any), see
+     * {@link SingleMCTSPlayer#initReuse(StateObservation)}.
+     */
+    private Types.ACTIONS act(StateObservation stateObs, ElapsedCpuTimer elapsedTimer
+    						, double[] vtable, boolean reuse) {
 
     	//Set the available actions for stateObs.
     	mctsPlayer.initActions(stateObs);				// /WK/ needed to get always the right 'actions'
-        //Set the state observation object as the new root of the tree.
-        mctsPlayer.init(stateObs);
+        //Set the state observation object as the new root of the tree (or the root of the reused subtree).
+    	if (reuse) 
+    		mctsPlayer.initReuse(stateObs);
+    	else
+    		mctsPlayer.init(stateObs);
 
         //Determine the action using MCTS...
         int action = mctsPlayer.run(elapsedTimer, vtable);
@@ -225,14 +238,10 @@ public class MCTSAgentT extends AgentBase implements PlayAgent, Serializable
 	
 		assert so.isLegalState() 
 			: "Not a legal state"; // e.g. player to move does not fit to Table
-		if (m_Timer==null) {
-			m_Timer = new ElapsedCpuTimer(TimerType.CPU_TIME);
-			m_Timer.setMaxTimeMillis(40);
-		}
-		m_Timer.reset();
+		resetTimer();
 		
 		// Ask MCTS for the best action ...
-		actBest = act(so,m_Timer,VTable);
+		actBest = act(so,m_Timer,VTable,getParMCTS().getReuseTree());
 		
 		double bestScore = VTable[actions.size()];
 		System.arraycopy(VTable, 0, vtable, 0, vtable.length);
@@ -241,6 +250,35 @@ public class MCTSAgentT extends AgentBase implements PlayAgent, Serializable
         return actBestVT;
 	}
 
+	/**
+	 * When starting a new episode, a new tree has to be built (relevant if {@link ParMCTS#getReuseTree()} is true)
+	 */
+	@Override
+	public void resetAgent() {
+		mctsPlayer.resetTree();
+	}
+
+	/**
+	 * Start the timer {@link #m_Timer} for the next search. Its maximum time is the time budget 
+	 * {@link ParMCTS#getTimeBudgetMS()}, if this is &gt; 0.
+	 * <p>
+	 * The timer measures wall time if a time budget is set or the search runs in several threads (ensemble 
+	 * or leaf-parallel), since the CPU time of the calling thread does not capture the work of the other 
+	 * threads. Otherwise it measures CPU time as before.
+	 */
+	private void resetTimer() {
+		if (m_Timer==null) {
+			m_Timer = new ElapsedCpuTimer(TimerType.CPU_TIME);
+			m_Timer.setMaxTimeMillis(40);
+		}
+		ParMCTS par = getParMCTS();
+		m_Timer.type = (par.getTimeBudgetMS() > 0 || par.getNumTrees() > 1 || par.getNumRollouts() > 1)
+				? TimerType.WALL_TIME : TimerType.CPU_TIME;
+		if (par.getTimeBudgetMS() > 0) 
+			m_Timer.setMaxTimeMillis(par.getTimeBudgetMS());
+		m_Timer.reset();
+	}
+
 
 	@Override
 	public double getScore(StateObservation so) {
@@ -260,6 +298,7 @@ public class MCTSAgentT extends AgentBase implements PlayAgent, Serializable
         } else {
         	
     		// Ask MCTS for the best action ...
+    		resetTimer();
     		act(so,m_Timer,vtable);
 
             return vtable[nAct];
@@ -315,13 +354,35 @@ public class MCTSAgentT extends AgentBase implements PlayAgent, Serializable
 		return cs + ": iterations:" + getParMCTS().getNumIter()
 				+ ", rollout depth:" + getParMCTS().getRolloutDepth()
 				+ ", K_UCT:"+ getParMCTS().getK_UCT()
-				+ ", tree depth:" + getParMCTS().getTreeDepth();
+				+ ", tree depth:" + getParMCTS().getTreeDepth()
+				+ ((getParMCTS().getTimeBudgetMS() > 0) ? ", time budget:" + getParMCTS().getTimeBudgetMS() + " ms" : "")
+				+ (getParMCTS().getReuseTree() ? ", reuse tree" : "")
+				+ ((getParMCTS().getNumTrees() > 1) ? ", trees:" + getParMCTS().getNumTrees() : "")
+				+ ((getParMCTS().getMaxNodes() > 0) ? ", max nodes:" + getParMCTS().getMaxNodes() : "")
+				+ (getParMCTS().getStoreStates() ? "" : ", states not stored")
+				+ ((getParMCTS().getNumRollouts() > 1) ? ", rollouts:" + getParMCTS().getNumRollouts() : "");
 	}
 
 	public ParMCTS getParMCTS() {
 		return mctsPlayer.getParMCTS();
 	}
 	
+    /**
+     * @return the number of nodes reused from the last tree in the last call of getNextAction2 (0 if
+     * 		   {@link ParMCTS#getReuseTree()} is false or the last tree could not be reused)
+     */
+    public int getLastReusedNodes() {
+        return mctsPlayer.getLastReusedNodes();
+    }
+
+    /**
+     * @return the number of nodes in the tree of the last call of getNextAction2 (at most 
+     * 		   {@link ParMCTS#getMaxNodes()}, if this is greater than zero)
+     */
+    public int getNumTreeNodes() {
+        return mctsPlayer.getNumTreeNodes();
+    }
+
     public int getNRolloutFinished() {
         return mctsPlayer.getNRolloutFinished();
     }
@@ -329,6 +390,15 @@ public class MCTSAgentT extends AgentBase implements PlayAgent, Serializable
     public int getNIterations() {
         return mctsPlayer.getNUM_ITERS();
     }
+
+    /**
+     * @return the number of iterations of the last search (less than {@link #getNIterations()}, if the search
+     * 		   was stopped by the time budget {@link ParMCTS#getTimeBudgetMS()})
+     */
+    @Override
+    public int getLastIterations() {
+        return mctsPlayer.getLastIterations();
+    }
 	public double getK() {
 		return mctsPlayer.getK();
 	}
@@ -1,5 +1,6 @@
 package controllers.MCTS;
 
+import games.ObserverBase;
 import games.StateObservation;
 import params.ParMCTS;
 import params.ParOther;
@@ -8,7 +9,13 @@ import tools.Types;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This is adapted from Diego Perez MCTS reference implementation<br>
@@ -40,6 +47,21 @@ public class SingleMCTSPlayer implements Serializable
 //    private double K = DEFAULT_K;
 //    private int verbose = DEFAULT_VERBOSITY; 
     int nRolloutFinished = 0;		// counts the number of rollouts ending with isGameOver==true
+    private transient int lastIterations = 0;	// the number of iterations of the last call to run
+    private transient int lastMovesSize = -1;	// size of getLastMoves() of the root state of the last tree, -1: no tree to reuse
+    private transient int lastReusedNodes = 0;	// the number of nodes reused by the last call to initReuse
+    private static ExecutorService executorService;		// the pool for the root-parallel ensemble of all players, created on demand
+    private static ExecutorService rolloutService;		// the pool for the leaf-parallel rollouts of all players, created on demand
+
+    /**
+     * The maximum number of nodes of a subtree that {@link #initReuse(StateObservation)} keeps. A larger subtree is
+     * dropped (and a new tree is built) to cap the memory of the tree.
+     */
+    public static int MAX_REUSE_NODES = 1000000;
+    /**
+     * {@link #initReuse(StateObservation)} drops the old tree if more than this fraction of the maximum heap is in use.
+     */
+    public static double MAX_REUSE_HEAP_FRACTION = 0.8;
 	
 	/**
 	 * Member {@code m_parMCTS} is only needed for saving and loading the agent
@@ -124,6 +146,68 @@ public class SingleMCTSPlayer implements Serializable
         //m_root.state = so;
     	m_root = new SingleTreeNode(so,null,null,m_rnd,this);// /WK/ bug fix: needed if a_gameState  
     														 // allows fewer actions than MCTSAgentT.NUM_ACTIONS 
+    	lastMovesSize = -1;
+    	lastReusedNodes = 0;
+    }
+
+    /**
+     * Initializes the tree for state {@code so} like {@link #init(StateObservation)}, but reuses the tree of the
+     * last call: The moves played since then (from {@link ObserverBase#getLastMoves()}) are followed from the last
+     * root. If the node reached has the state {@code so}, it becomes the new root and the search continues with
+     * its statistics. Otherwise (moves not in the tree, a new episode, a non-deterministic game, or a subtree
+     * exceeding {@link #MAX_REUSE_NODES} or {@link #MAX_REUSE_HEAP_FRACTION}) a new tree is built.
+     * 
+     * @param so current state of the game.
+     */
+    public void initReuse(StateObservation so) {
+    	SingleTreeNode node = null;
+    	if (m_root != null && m_root.m_state != null && lastMovesSize >= 0 
+    			&& so instanceof ObserverBase && so.isDeterministicGame()) {
+    		ArrayList<Integer> lastMoves = ((ObserverBase) so).getLastMoves();
+    		if (lastMoves != null && lastMoves.size() >= lastMovesSize) {
+    			node = m_root;
+    			for (int i = lastMovesSize; i < lastMoves.size() && node != null; i++)
+    				node = node.getChildForAction(lastMoves.get(i));
+    		}
+    	}
+    	if (node != null && node.m_state == null && node.fits(so))
+    		node.m_state = so;		// a node of a tree without stored states: it reached so by replaying lastMoves
+    	if (node != null && node.m_state != null && node.m_state.getHash64() == so.getHash64()) {
+    		Runtime rt = Runtime.getRuntime();
+    		double heapUsed = (double) (rt.totalMemory() - rt.freeMemory()) / rt.maxMemory();
+    		int numNodes = node.makeRoot();
+    		if (numNodes <= MAX_REUSE_NODES && heapUsed <= MAX_REUSE_HEAP_FRACTION) {
+    			m_root = node;
+    			lastMovesSize = ((ObserverBase) so).getLastMoves().size();
+    			lastReusedNodes = numNodes;
+    			return;
+    		}
+    	}
+    	init(so);
+    	if (so instanceof ObserverBase && ((ObserverBase) so).getLastMoves() != null)
+    		lastMovesSize = ((ObserverBase) so).getLastMoves().size();
+    }
+
+    /**
+     * Drop the tree, the next {@link #initReuse(StateObservation)} builds a new one (e.g. at the start of an episode).
+     */
+    public void resetTree() {
+    	lastMovesSize = -1;
+    	lastReusedNodes = 0;
+    }
+
+    /**
+     * @return the number of nodes that the last {@link #initReuse(StateObservation)} kept from the previous tree
+     */
+    public int getLastReusedNodes() {
+    	return lastReusedNodes;
+    }
+
+    /**
+     * @return the number of nodes in the current tree (see {@link #getMaxNodes()})
+     */
+    public int getNumTreeNodes() {
+    	return (m_root == null) ? 0 : m_root.getNumTreeNodes();
     }
 
     /**
@@ -136,9 +220,11 @@ public class SingleMCTSPlayer implements Serializable
     public int run(ElapsedCpuTimer elapsedTimer, double[] vtable)
     {
     	this.nRolloutFinished=0;
+    	if (getNumTrees() > 1)
+    		return runEnsemble(elapsedTimer, vtable);
     	
         //Do the search within the available time.
-        m_root.mctsSearch(elapsedTimer, vtable);
+        lastIterations = m_root.mctsSearch(elapsedTimer, vtable);
 
         //Determine the best action to take and return it.
         //(Choose one of the following two lines)
@@ -148,6 +234,74 @@ public class SingleMCTSPlayer implements Serializable
         return action;
     }
 
+    /**
+     * Root-parallel ensemble: Search {@link #getNumTrees()} independent trees for the state of {@link #m_root}
+     * (the first tree is {@link #m_root} itself), each with its own random generator and with 
+     * {@link #getNUM_ITERS()} iterations (or within the time budget), in parallel on a work-stealing pool. 
+     * Then merge for each action the visits and the total values of the root children of all trees. The 
+     * merged values {@code U(i)} are returned in {@code vtable} (as in 
+     * {@link SingleTreeNode#mctsSearch(ElapsedCpuTimer, double[])}), the action with the highest merged 
+     * value is returned.
+     * 
+     * @param elapsedTimer Timer when the action returned is due.
+	 * @param vtable		the score for each available action (corresponding
+	 * 						to sob.getAvailableActions())
+     * @return the action to execute in the game.
+     */
+    private int runEnsemble(ElapsedCpuTimer elapsedTimer, double[] vtable) {
+    	StateObservation so = m_root.m_state;
+    	int nTrees = getNumTrees();
+    	List<Callable<Integer>> callables = new ArrayList<>();
+    	SingleTreeNode[] roots = new SingleTreeNode[nTrees];
+    	for (int t = 0; t < nTrees; t++) {
+    		roots[t] = (t==0) ? m_root 
+    				: new SingleTreeNode(so.copy(), null, null, new Random(m_rnd.nextLong()), this);
+    		final SingleTreeNode root = roots[t];
+    		callables.add(() -> root.mctsSearch(elapsedTimer, new double[vtable.length]));
+    	}
+    	lastIterations = 0;
+    	try {
+    		for (Future<Integer> f : getEnsembleService().invokeAll(callables))
+    			lastIterations += f.get();
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new RuntimeException("[SingleMCTSPlayer.runEnsemble] interrupted", e);
+    	} catch (ExecutionException e) {
+    		throw new RuntimeException("[SingleMCTSPlayer.runEnsemble] search failed: " + e.getCause(), e.getCause());
+    	}
+
+    	// merge the root children of all trees
+    	int K = so.getNumAvailableActions();
+    	double deltaGS = (so.getMaxGameScore()-so.getMinGameScore());
+    	double minGS = so.getMinGameScore();
+    	double bestValue = -Double.MAX_VALUE;
+    	int action = 0;
+    	for (int k = 0; k < K; k++) {
+    		double totValue = 0;
+    		int nVisits = 0;
+    		for (SingleTreeNode root : roots) {
+    			SingleTreeNode child = (k < root.children.length) ? root.children[k] : null;
+    			if (child != null) {
+    				totValue += child.totValue;
+    				nVisits += child.getNVisits();
+    			}
+    		}
+    		if (nVisits == 0) continue;
+    		double v = totValue / nVisits;
+    		vtable[k] = getNormalize() ? v*deltaGS + minGS : v;	// map back to interval [minGS,maxGS]
+    		if (vtable[k] > bestValue) {
+    			bestValue = vtable[k];
+    			action = k;
+    		}
+    	}
+    	vtable[K] = bestValue;
+    	return action;
+    }
+
+    synchronized void incRolloutFinished() {
+    	nRolloutFinished++;
+    }
+
     public int getNUM_ACTIONS() {
 		return NUM_ACTIONS;
 	}
@@ -164,6 +318,70 @@ public class SingleMCTSPlayer implements Serializable
 		return m_parMCTS.getNumIter();
 	}
 
+    /**
+     * @return the time budget per move in milliseconds (0: always {@link #getNUM_ITERS()} iterations)
+     */
+    public int getTimeBudgetMS() {
+		return m_parMCTS.getTimeBudgetMS();
+	}
+
+    /**
+     * @return the number of trees of the root-parallel ensemble (1: a single tree)
+     */
+    public int getNumTrees() {
+		return m_parMCTS.getNumTrees();
+	}
+
+    /**
+     * @return the number of rollouts per selected leaf, played in parallel (1: a single rollout in the search thread)
+     */
+    public int getNumRollouts() {
+		return m_parMCTS.getNumRollouts();
+	}
+
+    /**
+     * @return the pool for the root-parallel ensemble, shared by all players of the process. Its idle threads are 
+     * 		   daemon threads and are released after a keep-alive time, so the pool needs no shutdown.
+     */
+    private static synchronized ExecutorService getEnsembleService() {
+    	if (executorService == null)
+    		executorService = Executors.newWorkStealingPool();
+    	return executorService;
+    }
+
+    /**
+     * @return the pool for the leaf-parallel rollouts, shared by all players of the process (a separate pool, since
+     * 		   the trees of the root-parallel ensemble wait for their rollouts in the threads of {@code executorService}).
+     * 		   As for {@link #getEnsembleService()}, its idle threads are released without a shutdown.
+     */
+    static synchronized ExecutorService getRolloutService() {
+    	if (rolloutService == null)
+    		rolloutService = Executors.newWorkStealingPool();
+    	return rolloutService;
+    }
+
+    /**
+     * @return the maximum number of nodes in a tree (0: no limit)
+     */
+    public int getMaxNodes() {
+		return m_parMCTS.getMaxNodes();
+	}
+
+    /**
+     * @return whether all nodes store their state (if false, only the root stores it and the other states are
+     * 		   recomputed by replaying the actions from the root)
+     */
+    public boolean getStoreStates() {
+		return m_parMCTS.getStoreStates();
+	}
+
+    /**
+     * @return the number of iterations performed in the last call to {@link #run(ElapsedCpuTimer, double[])}
+     */
+    public int getLastIterations() {
+		return lastIterations;
+	}
+
 	public double getK() {
 		return m_parMCTS.getK_UCT();
 	}
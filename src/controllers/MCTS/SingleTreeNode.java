@@ -7,7 +7,14 @@ import tools.Types;
 
 import java.io.Serializable;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.IntUnaryOperator;
 
 //import controllers.MCTS0.SingleTreeNode0;
 
@@ -22,7 +29,13 @@ public class SingleTreeNode implements Serializable
 	public static double epsilon = 1e-6; // tiebreaker
 	public StateObservation m_state = null;
 	public SingleTreeNode parent = null;
-	public SingleTreeNode[] children = null;
+	/**
+	 * the children of {@code this}, indexed by the available actions of its state. The array is allocated at the 
+	 * first {@link #expand()}, before that it is the shared empty array {@link #NO_CHILDREN} (most nodes of a tree 
+	 * are leaves and never get expanded).
+	 */
+	public SingleTreeNode[] children = NO_CHILDREN;
+	private static final SingleTreeNode[] NO_CHILDREN = new SingleTreeNode[0];
 	public SingleMCTSPlayer m_player = null;
 	/**
 	 * the action which leads from parent's  state to this state
@@ -33,7 +46,35 @@ public class SingleTreeNode implements Serializable
 	 */
 	public double totValue;
 	private int nVisits=0;
-	public static Random m_rnd = null;
+	/**
+	 * whether the state of {@code this} is game over and the player to move in it (needed, since non-root nodes 
+	 * do not store their state if {@link SingleMCTSPlayer#getStoreStates()} is false)
+	 */
+	private boolean m_gameOver;
+	private int m_playerToMove;
+	/**
+	 * the {@link StateObservation#getHash64()} of the state of {@code this}, if the state is not stored (see 
+	 * {@link #fits(StateObservation)})
+	 */
+	private long m_hash;
+	/**
+	 * only for the root node: the number of nodes in the tree (see {@link SingleMCTSPlayer#getMaxNodes()})
+	 */
+	private int numTreeNodes = 1;
+	/**
+	 * only for the root node: the state of the leaf selected by the last {@link #treePolicy()}, if the nodes do 
+	 * not store their states (null otherwise)
+	 */
+	private transient StateObservation m_leafState = null;
+	/**
+	 * only for the root node: the source of the random generators of the leaf-parallel rollouts (see 
+	 * {@link SingleMCTSPlayer#getNumRollouts()}), created on demand from {@link #m_rnd}
+	 */
+	private transient SplittableRandom m_splitRnd = null;
+	/**
+	 * the random generator of the tree (each tree of the root-parallel ensemble has its own one)
+	 */
+	public transient Random m_rnd = null;
 	private int m_depth;
 //	private static double[] lastBounds = new double[] { 0, 1 };
 //	private static double[] curBounds = new double[] { 0, 1 };
@@ -86,12 +127,10 @@ public class SingleTreeNode implements Serializable
 		this.parent = parent;
 		this.m_player = mplay;
 		this.m_rnd = rnd;
-		if (state == null) {
-			children = new SingleTreeNode[m_player.getNUM_ACTIONS()];
-		} else {
-			children = new SingleTreeNode[state.getNumAvailableActions()]; // /WK/ NEW!
+		if (state != null) {
+			m_gameOver = state.isGameOver();
+			m_playerToMove = state.getPlayer();
 		}
-		assert (children != null ) : "Oops, children == null!";
 		
 		totValue = 0.0;
 		if (parent == null)
@@ -126,36 +165,49 @@ public class SingleTreeNode implements Serializable
 	 * U(i) = children[i].totValue / children[i].nVisits
 	 * </pre>
 	 * 
+	 * If {@link SingleMCTSPlayer#getTimeBudgetMS()} is &gt; 0, the search is <b>anytime</b>: It stops
+	 * after the time budget is used up, or as soon as the best action can no longer be overtaken
+	 * (see {@link #isDecided(double)}) by the iterations that are still possible. These are estimated 
+	 * from the iterations per second achieved so far. {@link SingleMCTSPlayer#getNUM_ITERS()} is then 
+	 * an upper bound for the number of iterations (no bound if it is &le; 0).
+	 * 
 	 * @param elapsedTimer
-	 *            currently not used
+	 *            the timer for the time budget, reset at the start of the move 
+	 *            (only used if {@link SingleMCTSPlayer#getTimeBudgetMS()} &gt; 0)
 	 * @param VTable
 	 *            on input an array of length K+1, where K is the number of
 	 *            available moves for the root state. Contains on output
 	 *            {@code U(i)} in the first K entries and the maximum of all
 	 *            {@code U(i)} in {@code VTable[K]}
 	 *            
+	 * @return the number of iterations performed
+	 *            
 	 * @see SingleMCTSPlayer#run(ElapsedCpuTimer, double[])
 	 */
-	public void mctsSearch(ElapsedCpuTimer elapsedTimer, double[] VTable) {
+	public int mctsSearch(ElapsedCpuTimer elapsedTimer, double[] VTable) {
 
 //		lastBounds[0] = curBounds[0];
 //		lastBounds[1] = curBounds[1];
 
 		double avgTimeTaken = 0;
 		double acumTimeTaken = 0;
-		long remaining = elapsedTimer.remainingTimeMillis();
 		int numIters = 0;
+		int startVisits = this.nVisits;		// > 0, if the tree is reused from the last move
+		long budgetNS = m_player.getTimeBudgetMS() * 1000000L;	// 0: no time budget
+		int maxIters = m_player.getNUM_ITERS();
+		if (budgetNS > 0 && maxIters <= 0) maxIters = Integer.MAX_VALUE;
 
-		int remainingLimit = 5;
-		while (numIters < m_player.getNUM_ITERS()) { // /WK/ fixed number of
-														// iterations while
-														// debugging
-			// while(remaining > 2*avgTimeTaken && remaining > remainingLimit){
+		int nRollouts = m_player.getNumRollouts();
+		if (nRollouts > 1 && m_splitRnd == null) m_splitRnd = new SplittableRandom(m_rnd.nextLong());
+
+		while (numIters < maxIters) { 
 			ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
 			SingleTreeNode selected = treePolicy();
 			
 			// NEW version: N-player unification
-			double [] delta = selected.rollOut();
+			double [] delta = (nRollouts > 1) 
+					? selected.rollOutParallel(m_leafState, nRollouts, m_splitRnd)
+					: selected.rollOut(m_leafState);
 			backUp(selected,delta);
 			
 			// OLD version:
@@ -183,9 +235,14 @@ public class SingleTreeNode implements Serializable
 			acumTimeTaken += (elapsedTimerIteration.elapsedMillis());
 
 			avgTimeTaken = acumTimeTaken / numIters;
-			remaining = elapsedTimer.remainingTimeMillis();
-			// System.out.println(elapsedTimerIteration.elapsedMillis() + " -->
-			// " + acumTimeTaken + " (" + remaining + ")");
+
+			if (budgetNS > 0) {
+				long elapsed = elapsedTimer.elapsed();
+				if (elapsed >= budgetNS) break;
+				// the iterations still possible in the remaining time, estimated from the iterations so far:
+				double remainingIters = Math.min(maxIters - numIters, (double) numIters * (budgetNS - elapsed) / elapsed);
+				if (isDecided(remainingIters)) break;
+			}
 		}
 
 		// fill VTable
@@ -197,7 +254,7 @@ public class SingleTreeNode implements Serializable
 		for (int k = 0; k < K; k++) {
 			for (int i = 0; i < children.length; i++) {
 				if (children[i]!=null) {	// needed for safety (RubiksCube & default start state)
-					if (children[i].m_act == m_state.getAction(k)) {
+					if (children[i].m_act.toInt() == m_state.getAction(k).toInt()) {
 						v = children[i].totValue / children[i].nVisits;
 						if (m_player.getNormalize()) {
 							VTable[k] = v*deltaGS + minGS;		// map back to interval [minGS,maxGS]
@@ -213,7 +270,7 @@ public class SingleTreeNode implements Serializable
 
 		// /WK/ here follow some diagnostic checks (not required for normal operation)
 		
-		assert this.nVisits == numIters : "mroot's visits do not match numIters!";
+		assert this.nVisits == startVisits + numIters : "mroot's visits do not match numIters!";
 		this.printChildInfo(0, true);
 
 		/*
@@ -244,6 +301,100 @@ public class SingleTreeNode implements Serializable
 			System.out.println("-- bestAction="+this.bestAction()+
 					   ", mostVisitedAction="+this.mostVisitedAction());
 		}
+		return numIters;
+	}
+
+	/**
+	 * @return the number of visits of {@code this}
+	 */
+	int getNVisits() {
+		return nVisits;
+	}
+
+	/**
+	 * @return the number of nodes in the tree of {@code this} (only valid for the root node)
+	 */
+	int getNumTreeNodes() {
+		return numTreeNodes;
+	}
+
+	/**
+	 * @param actionInt the action key ({@link Types.ACTIONS#toInt()})
+	 * @return the child of {@code this} reached by this action, {@code null} if it was not yet expanded
+	 */
+	public SingleTreeNode getChildForAction(int actionInt) {
+		for (SingleTreeNode c : children) 
+			if (c != null && c.m_act.toInt() == actionInt) 
+				return c;
+		return null;
+	}
+
+	/**
+	 * Make {@code this} the root of its subtree (to reuse it for the next move): detach it from its parent, 
+	 * shift the depth of all nodes in the subtree, so that {@code this} has depth 0, and set the visits of 
+	 * {@code this} to the sum of its children's visits (as for a root node, see {@link #backUp(SingleTreeNode, double[])}).
+	 * 
+	 * @return the number of nodes in the subtree
+	 */
+	int makeRoot() {
+		this.parent = null;
+		int cVisits = 0;
+		for (SingleTreeNode c : children) 
+			if (c != null) cVisits += c.nVisits;
+		this.nVisits = cVisits;
+		this.numTreeNodes = shiftDepth(this.m_depth);
+		return numTreeNodes;
+	}
+
+	/**
+	 * @return true, if {@code this} has the state hash, the player to move and (if already expanded) the number of 
+	 * 		   available actions of {@code so} (the check for a reused node that does not store its state)
+	 */
+	boolean fits(StateObservation so) {
+		return m_hash == so.getHash64() && m_playerToMove == so.getPlayer() 
+				&& (children.length == 0 || children.length == so.getNumAvailableActions());
+	}
+
+	private int shiftDepth(int shift) {
+		this.m_depth -= shift;
+		int N = 1;
+		for (SingleTreeNode c : children) 
+			if (c != null) N += c.shiftDepth(shift);
+		return N;
+	}
+
+	/**
+	 * Early termination test for the anytime search in {@link #mctsSearch(ElapsedCpuTimer, double[])}.
+	 * 
+	 * @param remainingIters the number of iterations the search can still perform
+	 * @return true, if the most visited child of {@code this} has also the highest value {@code U(i)} 
+	 * 		   and leads the second most visited child by more than {@code remainingIters} visits. Then no 
+	 * 		   other child can overtake it, neither in visits nor (as long as the values do not change too 
+	 * 		   much) in {@link #bestAction()}. Always true, if there is only one action.
+	 */
+	boolean isDecided(double remainingIters) {
+		if (children.length == 1) 
+			return children[0] != null;
+		int best = -1;
+		int first = 0, second = 0;
+		for (int i = 0; i < children.length; i++) {
+			if (children[i] == null) continue;
+			int n = children[i].nVisits;
+			if (n > first) {
+				second = first;
+				first = n;
+				best = i;
+			} else if (n > second) {
+				second = n;
+			}
+		}
+		if (best == -1 || first - second <= remainingIters) 
+			return false;
+		double bestValue = children[best].totValue / first;
+		for (SingleTreeNode c : children) 
+			if (c != null && c.nVisits > 0 && c.totValue / c.nVisits > bestValue) 
+				return false;
+		return true;
 	}
 
 	
@@ -267,13 +418,14 @@ public class SingleTreeNode implements Serializable
 							* Math.sqrt(2*Math.log(this.nVisits + 1) / (c.nVisits + this.epsilon));
 //							* Math.pow(Math.log(this.nVisits + 1) / (c.nVisits + this.epsilon),4.0);
 					double c_value = c.allChildrenValue();
-					if (c.m_state.getNumPlayers()==2) c_value = negate(c_value);
+					if (m_player.m_root.m_state.getNumPlayers()==2) c_value = negate(c_value);
 					// Why is uct_exploit=c.totValue/c.nVisits not the same as c.allChildrenvalue()? - 
 					// Because uct_exploit has one visit more (from the 'birth' of c, where it did not have 
 					// any children yet). If c has few visits, this value from the first visit might spoil the 
 					// result (it is from a less precise tree), but in the limit of many visits to c, both 
 					// values will approach.
-					System.out.println(indention + c.m_state.stringDescr() + ": " + ifor.format(c.nVisits) + ", "
+					String cDescr = (c.m_state != null) ? c.m_state.stringDescr() : "action " + c.m_act.toInt();
+					System.out.println(indention + cDescr + ": " + ifor.format(c.nVisits) + ", "
 							+ for2.format(uct_exploit) + " + " + form.format(uct_explore) + " = "
 							+ form.format(uct_exploit + uct_explore)
 							+ "  [c_value = " + form.format(c_value)+"]");
@@ -311,13 +463,30 @@ public class SingleTreeNode implements Serializable
 		return val/visits;
 	}
 
+	/**
+	 * Select a leaf, starting from {@code this} (the root node): descend with the select mode of 
+	 * {@link SingleMCTSPlayer#getParMCTS()} through fully expanded nodes and {@link #expand()} the first not fully 
+	 * expanded node. If the tree has already {@link SingleMCTSPlayer#getMaxNodes()} nodes, no node is expanded, 
+	 * the descent stops at the not fully expanded node.
+	 * <p>
+	 * If the nodes do not store their states ({@link SingleMCTSPlayer#getStoreStates()} is false), the state of 
+	 * the leaf is recomputed by replaying the actions from the root and left in {@code m_leafState} for the rollout.
+	 * 
+	 * @return the selected leaf
+	 */
 	public SingleTreeNode treePolicy() {
 
+		int maxNodes = m_player.getMaxNodes();
+		StateObservation curState = m_player.getStoreStates() ? null : m_state.copy();
 		SingleTreeNode cur = this;
-		while (!cur.m_state.isGameOver() && cur.m_depth < m_player.getTREE_DEPTH()) 
+		while (!cur.m_gameOver && cur.m_depth < m_player.getTREE_DEPTH()) 
 		{
 			if (cur.notFullyExpanded()) {
-				return cur.expand();
+				if (maxNodes > 0 && this.numTreeNodes >= maxNodes) 
+					break;		// node cap reached: roll out from cur
+				cur = cur.expand(curState);
+				this.numTreeNodes++;
+				break;
 
 			} else {
 				switch(m_player.getParMCTS().getSelectMode()) {
@@ -333,9 +502,11 @@ public class SingleTreeNode implements Serializable
 				default: 
 					throw new RuntimeException("this selectMode ("+m_player.getParMCTS().getSelectMode()+")is not implemented");
 				}
+				if (curState != null) curState.advance(cur.m_act);
 			}
 		}
 		
+		m_leafState = curState;
 		return cur;
 	}
 
@@ -348,10 +519,23 @@ public class SingleTreeNode implements Serializable
 	 * @return {@code children[i]}
 	 */
 	public SingleTreeNode expand() {
+		return expand(null);
+	}
+
+	/**
+	 * Same as {@link #expand()}, but if {@code curState} is not null, it is the state of {@code this} (which is 
+	 * not stored in the node). It is advanced in place and the new child does not store its state.
+	 */
+	private SingleTreeNode expand(StateObservation curState) {
 
 		int bestAction = 0;
 		double bestValue = -1;
 
+		StateObservation nextState = (curState != null) ? curState : m_state.copy();
+		assert nextState != null : "Warning: state is null!";
+		if (children.length == 0) 
+			children = new SingleTreeNode[nextState.getNumAvailableActions()];
+
 		//System.out.println("expand() for m_state.actions.length = "+m_state.getNumAvailableActions());
 
         for (int i = 0; i < children.length; i++) {
@@ -362,15 +546,17 @@ public class SingleTreeNode implements Serializable
             }
         }
 
-		assert m_state != null : "Warning: state is null!";
-		assert m_state.getNumAvailableActions() == children.length : "s.th. wrong with children.length";
-		Types.ACTIONS actBest = m_state.getAction(bestAction);
+		assert nextState.getNumAvailableActions() == children.length : "s.th. wrong with children.length";
+		Types.ACTIONS actBest = nextState.getAction(bestAction);
 
-		StateObservation nextState = m_state.copy();
 		// nextState.advance(m_player.actions[bestAction]);
 		nextState.advance(actBest); 		// /WK/ NEW!
 
 		SingleTreeNode tn = new SingleTreeNode(nextState, actBest, this, this.m_rnd, this.m_player);
+		if (curState != null) {
+			tn.m_state = null;	// the state is recomputed from the root when needed
+			tn.m_hash = nextState.getHash64();
+		}
 		children[bestAction] = tn;
 		return tn;
 
@@ -489,7 +675,7 @@ public class SingleTreeNode implements Serializable
         //		child_0: (0,0.2], child_1: (0.2,0.7], child_3: (0.7,1.0].
         // The LHS of the intervals are the cumulative probabilities child.cumProb. We select 
         // that child which is the first with its LHS >= rnd.
-		vMin = (m_player.getNormalize()) ? 0.0 : m_state.getMinGameScore();
+		vMin = (m_player.getNormalize()) ? 0.0 : m_player.m_root.m_state.getMinGameScore();
         for (SingleTreeNode child : this.children) {
         	if (child != null) {
             	vTotal += (child.totValue/child.nVisits)-vMin; 
@@ -528,7 +714,61 @@ public class SingleTreeNode implements Serializable
 	 */
 	public double[] rollOut()
 	{
-		StateObservation rollerState = m_state.copy();
+		return rollOut(null);
+	}
+
+	/**
+	 * Same as {@link #rollOut()}, but if {@code leafState} is not null, it is the state of {@code this} (which 
+	 * is not stored in the node), and the rollout is played on it.
+	 */
+	private double[] rollOut(StateObservation leafState)
+	{
+		StateObservation rollerState = (leafState != null) ? leafState : m_state.copy();
+		return playOut(rollerState, m_rnd::nextInt);
+	}
+
+	/**
+	 * Leaf-parallel rollouts: Play {@code nRollouts} rollouts from the state of {@code this} (or from 
+	 * {@code leafState}, if it is not null, see {@link #rollOut(StateObservation)}) in parallel on the pool of
+	 * {@link SingleMCTSPlayer#getRolloutService()}. Each rollout plays on its own copy of the state with its own 
+	 * random generator split from {@code rnd}, so that the threads share no mutable state.
+	 * 
+	 * @return the average of the value vectors of all rollouts
+	 */
+	private double[] rollOutParallel(StateObservation leafState, int nRollouts, SplittableRandom rnd)
+	{
+		StateObservation startState = (leafState != null) ? leafState : m_state;
+		List<Callable<double[]>> callables = new ArrayList<>(nRollouts);
+		for (int r = 0; r < nRollouts; r++) {
+			final SplittableRandom rolloutRnd = rnd.split();
+			callables.add(() -> playOut(startState.copy(), rolloutRnd::nextInt));
+		}
+		double[] delta = null;
+		try {
+			for (Future<double[]> f : SingleMCTSPlayer.getRolloutService().invokeAll(callables)) {
+				double[] d = f.get();
+				if (delta == null) delta = new double[d.length];
+				for (int i = 0; i < d.length; i++) delta[i] += d[i];
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("[SingleTreeNode.rollOutParallel] interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("[SingleTreeNode.rollOutParallel] rollout failed: " + e.getCause(), e.getCause());
+		}
+		for (int i = 0; i < delta.length; i++) delta[i] /= nRollouts;
+		return delta;
+	}
+
+	/**
+	 * Play random actions on {@code rollerState} (changed on return) until {@link #finishRollout(StateObservation, int)}.
+	 * 
+	 * @param rollerState	the state of {@code this}
+	 * @param nextInt		the random generator, returns a random int in [0,n) for argument n
+	 * @return {@link #value(StateObservation)} of the final state
+	 */
+	private double[] playOut(StateObservation rollerState, IntUnaryOperator nextInt)
+	{
 		int thisDepth = this.m_depth;
 
 		while (!finishRollout(rollerState, thisDepth)) {
@@ -539,12 +779,12 @@ public class SingleTreeNode implements Serializable
 			if (rollerState.getNumAvailableActions()==0) {
 				throw new RuntimeException("Oops, there are no available actions for current player!");
 			}
-			int action = m_rnd.nextInt(rollerState.getNumAvailableActions());
+			int action = nextInt.applyAsInt(rollerState.getNumAvailableActions());
 			rollerState.advance(rollerState.getAction(action));
 			thisDepth++;
 		}
 		if (rollerState.isGameOver())
-			m_player.nRolloutFinished++;
+			m_player.incRolloutFinished();
 		double[] delta = value(rollerState);
 		// // /WK/ not really clear what the following normalizations are for.
 		// // Is it part of MCTS or part of the special GVGP implementation?
@@ -815,7 +1055,7 @@ public class SingleTreeNode implements Serializable
 				// for nodes n being *children* of some other nodes (see bestAction() and uct()). And the root
 				// node is not the child of anyone.  
 				// [Note that uct() needs mroot.nVisits, that's why we increment nVisits for all n.]
-				pPlayer = n.parent.m_state.getPlayer();	// pPlayer: the player preceding n's player
+				pPlayer = n.parent.m_playerToMove;	// pPlayer: the player preceding n's player
 				n.totValue += delta[pPlayer];	// backup delta for pPlayer
 			}
 			// Why pPlayer? - This is for the same reason why we call in backUp2Player() negate *before* the  
@@ -917,6 +1157,8 @@ public class SingleTreeNode implements Serializable
 	}
 
 	public boolean notFullyExpanded() {
+		if (children.length == 0) 
+			return !m_gameOver;		// not yet expanded
 		for (SingleTreeNode tn : children) {
 			if (tn == null) {
 				return true;
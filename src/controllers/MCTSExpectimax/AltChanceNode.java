@@ -3,8 +3,6 @@ package controllers.MCTSExpectimax;
 import games.StateObsNondeterministic;
 import tools.Types;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -46,14 +44,13 @@ public class AltChanceNode extends MCTSEChanceNode
      * @return the selected child node
      */
     public AltTreeNode expand() {
-        Types.ACTIONS action = notExpandedActions.get(m_rnd.nextInt(notExpandedActions.size()));
-        notExpandedActions.remove(action);
+        Types.ACTIONS action = removeNotExpandedAction();
 
         StateObsNondeterministic childSo = so.copy();
         childSo.advanceDeterministic(action);
 
         AltTreeNode child = new AltTreeNode(childSo, action, this, m_rnd, m_player);
-        childrenNodes.add(child);
+        addChild(child);
         return child;
     }
 }
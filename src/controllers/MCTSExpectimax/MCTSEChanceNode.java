@@ -6,8 +6,6 @@ import games.ZweiTausendAchtundVierzig.StateObserver2048;
 import tools.Types;
 
 import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -32,13 +30,21 @@ public class MCTSEChanceNode
      */
     public Types.ACTIONS action = null;
     private MCTSETreeNode parentNode = null;
-    public List<MCTSETreeNode> childrenNodes = new ArrayList<>();
+    /**
+     * the expanded children in {@code childrenNodes[0,...,numChildren-1]} (in the order of expansion)
+     */
+    public MCTSETreeNode[] childrenNodes;
+    public int numChildren = 0;
     public MCTSEPlayer m_player = null;
 
-    public List<Types.ACTIONS> notExpandedActions = new ArrayList<>();         // Actions that are not represented by a node
+    /**
+     * the actions that are not represented by a node in {@code notExpandedActions[0,...,numNotExpanded-1]}
+     */
+    public Types.ACTIONS[] notExpandedActions;
+    public int numNotExpanded;
     public double value = 0;   				// total value
     public int visits = 0; 					// total number of visits
-    public static Random m_rnd;
+    public Random m_rnd;					// the random generator of the tree (not static, since trees may be searched in parallel)
     public int depth;
 
     public int iterations = 0;
@@ -65,7 +71,11 @@ public class MCTSEChanceNode
         this.m_player = player;
         this.m_rnd = random;
 
-        notExpandedActions = so.getAvailableActions();
+        numNotExpanded = so.getNumAvailableActions();
+        notExpandedActions = new Types.ACTIONS[numNotExpanded];
+        for (int i = 0; i < numNotExpanded; i++)
+        	notExpandedActions[i] = so.getAction(i);
+        childrenNodes = new MCTSETreeNode[numNotExpanded];
 
         if(player.getRootNode() != null) {
             player.getRootNode().numberChanceNodes++;
@@ -107,7 +117,16 @@ public class MCTSEChanceNode
      * 		  K entries and the maximum of all {@code U(i)} in {@code vTable[K]}
      */
     public void mctseSearch(double[] vTable) {
-    	while (iterations < m_player.getNUM_ITERS()) {
+    	mctseSearch(vTable, m_player.getNUM_ITERS());
+    }
+
+    /**
+     * Same as {@link #mctseSearch(double[])}, but with {@code numIters} iterations instead of 
+     * {@link MCTSEPlayer#getNUM_ITERS()} (so that the parameters, which may be shared by several 
+     * agents, are not changed for a short search).
+     */
+    void mctseSearch(double[] vTable, int numIters) {
+    	while (iterations < numIters) {
             //select a child node
             MCTSEChanceNode selected = treePolicy();
 
@@ -141,10 +160,9 @@ public class MCTSEChanceNode
 
         // fill vTable
         for (int i = 0; i < so.getNumAvailableActions(); i++) {
-            for (MCTSETreeNode child : childrenNodes) {
-                if (child.action.equals(so.getAction(i))) {
-                    vTable[i] = child.value / child.visits;
-                }
+            MCTSETreeNode child = getChild(so.getAction(i));
+            if (child != null) {
+                vTable[i] = child.value / child.visits;
             }
             if (m_player.getNormalize()) 
             	vTable[i] = vTable[i]*m_player.getRootNode().maxRolloutScore;
@@ -174,7 +192,7 @@ public class MCTSEChanceNode
         if(so.isGameOver() || depth >= m_player.getTREE_DEPTH()) {
             return this;
 
-        } else if(notExpandedActions.size() != 0) {
+        } else if(numNotExpanded != 0) {
             if(m_player.getRootNode().numberTreeNodes < m_player.getMaxNodes()) {
                 return expand().treePolicy();
             } else {
@@ -222,8 +240,9 @@ public class MCTSEChanceNode
         MCTSETreeNode selected = null;
         double selectedValue = -Double.MAX_VALUE;
 
-        for (MCTSETreeNode child : childrenNodes)
+        for (int i = 0; i < numChildren; i++)
         {
+            MCTSETreeNode child = childrenNodes[i];
             double uctValue = child.value / child.visits 
             		+ m_player.getK() * Math.sqrt(Math.log(visits + 1) / (child.visits + this.epsilon)) 
             		+ m_rnd.nextDouble() * epsilon; 
@@ -259,7 +278,8 @@ public class MCTSEChanceNode
             MCTSETreeNode selected = null;
             double selectedValue = -Double.MAX_VALUE;
 
-            for (MCTSETreeNode child : childrenNodes) {
+            for (int i = 0; i < numChildren; i++) {
+                MCTSETreeNode child = childrenNodes[i];
                 double uctValue = child.value * multiplier / child.visits 
                 		+ m_player.getK() * Math.sqrt(Math.log(visits + 1) / (child.visits + this.epsilon)) 
                 		+ m_rnd.nextDouble() * epsilon; 
@@ -297,13 +317,14 @@ public class MCTSEChanceNode
      */
     public MCTSETreeNode egreedy() {
         if (m_rnd.nextDouble() < ParMCTSE.DEFAULT_EPSILONGREEDY) {
-            return childrenNodes.get(m_rnd.nextInt(childrenNodes.size()));
+            return childrenNodes[m_rnd.nextInt(numChildren)];
         } else {
             MCTSETreeNode selected = null;
             double selectedValue = -Double.MAX_VALUE;
 
-            for (MCTSETreeNode childrenNode : childrenNodes)
+            for (int i = 0; i < numChildren; i++)
             {
+                MCTSETreeNode childrenNode = childrenNodes[i];
                 if (childrenNode.value > selectedValue) {
                     selected = childrenNode;
                     selectedValue = childrenNode.value;
@@ -347,10 +368,11 @@ public class MCTSEChanceNode
         // The LHS of the intervals are the cumulative probabilities child.cumProb. We select 
         // that child which is the first with its LHS >= rnd.
 		vMin = (m_player.getNormalize()) ? 0.0 : so.getMinGameScore();
-        for (MCTSETreeNode child : childrenNodes) {
-        	vTotal += child.value / child.visits - vMin;
+        for (int i = 0; i < numChildren; i++) {
+        	vTotal += childrenNodes[i].value / childrenNodes[i].visits - vMin;
         }
-        for (MCTSETreeNode child : childrenNodes) {
+        for (int i = 0; i < numChildren; i++) {
+        	MCTSETreeNode child = childrenNodes[i];
         	cumProb = cumProb + ((child.value/child.visits)-vMin)/vTotal;
         	child.cumProb = cumProb;
         	// We do not really need child.cumProb, we could just work with the local variable
@@ -370,17 +392,42 @@ public class MCTSEChanceNode
      * @return the selected child node
      */
     public MCTSETreeNode expand() {
-        Types.ACTIONS action = notExpandedActions.get(m_rnd.nextInt(notExpandedActions.size()));
-        notExpandedActions.remove(action);
+        Types.ACTIONS action = removeNotExpandedAction();
 
-//      StateObserver2048 childSo = (StateObserver2048) so.copy();		// /WK/ can be done w/o using StateObserver2048:
-        StateObservation childSo = so.copy();
-
-        MCTSETreeNode child = new MCTSETreeNode(childSo, action, this, m_rnd,m_player);
-        childrenNodes.add(child);
+        // The tree node needs only the (not advanced) state of this node and does not change it, so
+        // it can share 'so' (a copy is made in MCTSETreeNode::expand() before advancing)
+        MCTSETreeNode child = new MCTSETreeNode(so, action, this, m_rnd,m_player);
+        addChild(child);
         return child;
     }
 
+    /**
+     * Remove a random action from the not expanded actions
+     * 
+     * @return the removed action
+     */
+    protected Types.ACTIONS removeNotExpandedAction() {
+        int k = m_rnd.nextInt(numNotExpanded);
+        Types.ACTIONS action = notExpandedActions[k];
+        notExpandedActions[k] = notExpandedActions[--numNotExpanded];
+        notExpandedActions[numNotExpanded] = null;
+        return action;
+    }
+
+    protected void addChild(MCTSETreeNode child) {
+        childrenNodes[numChildren++] = child;
+    }
+
+    /**
+     * @return the child for {@code action} or {@code null}, if it is not expanded
+     */
+    public MCTSETreeNode getChild(Types.ACTIONS action) {
+        for (int i = 0; i < numChildren; i++)
+            if (childrenNodes[i].action.toInt() == action.toInt())
+                return childrenNodes[i];
+        return null;
+    }
+
     /**
      * Starting from this leaf node a game with random actions will be played until the game 
      * is over or the maximum rollout depth is reached.
@@ -608,7 +655,8 @@ public class MCTSEChanceNode
         double bestValue = -Double.MAX_VALUE;
         double currentValue;
 
-        for (MCTSETreeNode child: childrenNodes) {
+        for (int i = 0; i < numChildren; i++) {
+            MCTSETreeNode child = childrenNodes[i];
             currentValue = child.value / child.visits + m_rnd.nextDouble() * epsilon;
             if (currentValue > bestValue) {
                 bestValue = currentValue;
@@ -626,7 +674,8 @@ public class MCTSEChanceNode
 	 */
 	public int numDescendants(int depth) {
 		int N = 1; // include this
-		for (MCTSETreeNode c : this.childrenNodes) {			
+		for (int i = 0; i < numChildren; i++) {
+			MCTSETreeNode c = this.childrenNodes[i];
 			if (c != null)
 				N += c.numDescendants(depth+1);
 //			if (depth==0) {
@@ -654,7 +703,8 @@ public class MCTSEChanceNode
 		for (int n = 0; n < nIndention; n++)
 			indention += "  ";
 
-		for (MCTSETreeNode c : this.childrenNodes) {
+		for (int i = 0; i < numChildren; i++) {
+			MCTSETreeNode c = this.childrenNodes[i];
 			if (c != null) {
 				cVisits += c.visits;
 				if (verbose > 1) { 	// =2: print direct child info
@@ -13,6 +13,11 @@ import tools.Types;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import controllers.MCTS.SingleMCTSPlayer;
 import controllers.MCTS.SingleTreeNode;
@@ -30,6 +35,7 @@ public class MCTSEPlayer
     private Random random;
 
     public int nRolloutFinished = 0;		// counts the number of rollouts ending with isGameOver==true
+    private static ExecutorService executorService;		// the pool for the root-parallel trees of all players, created on demand
 
 	/**
 	 * Member {@link #mctsExpectimaxParams} is only needed for saving and loading the agent
@@ -64,6 +70,18 @@ public class MCTSEPlayer
         this.random = random;
     }
 
+    /**
+     * Creates a player for one more tree of the root-parallel ensemble of {@code other} (same parameters and
+     * parent, but its own root node and random number generator).
+     */
+    private MCTSEPlayer(MCTSEPlayer other, Random random)
+    {
+    	this.m_parent = other.m_parent;
+    	this.rgs = other.rgs;
+    	this.mctsExpectimaxParams = other.mctsExpectimaxParams;
+        this.random = random;
+    }
+
     /**
      * Initializes the tree with the new {@link StateObservation} {@code so} in the root.
 	 *
@@ -93,17 +111,16 @@ public class MCTSEPlayer
 		
     	if (this.getNormalize() && so instanceof StateObserver2048) {
     		// make a quick mctseSearch to establish a state-dependent estimate of maxRolloutScore
+    		// (with 100 iterations, but without changing the parameters, which may be shared by 
+    		// several agents running in parallel, e.g. in Evaluator2048)
     		rootNode.maxRolloutScore=1e-5;
-    		int numIters=this.getNUM_ITERS();
-    		this.mctsExpectimaxParams.setNumIter(100);
     		double[] VTable = new double[actions.size()+1];
-    		this.getRootNode().mctseSearch(VTable);
+    		this.getRootNode().mctseSearch(VTable, 100);
     		double maxRolloutScore = rootNode.maxRolloutScore;
     		
     		// generate a 'fresh' rootNode and set its maxRolloutScore:
 			rootNode = new MCTSEChanceNode(so, null, null, random, this);
 			rootNode.maxRolloutScore = maxRolloutScore;
-    		this.mctsExpectimaxParams.setNumIter(numIters);
     	}
 
     }
@@ -119,6 +136,9 @@ public class MCTSEPlayer
     public Types.ACTIONS run(double[] vtable)
     {
     	this.nRolloutFinished=0;
+    	if (getNumTrees() > 1)
+    		return runEnsemble(vtable);
+
 		//Do the search
         rootNode.mctseSearch(vtable);
 
@@ -128,6 +148,87 @@ public class MCTSEPlayer
         return action;
     }
 
+    /**
+     * @return the pool for the root-parallel trees, shared by all players of the process. Its idle threads are
+     * 		   daemon threads and are released after a keep-alive time, so the pool needs no shutdown.
+     */
+    private static synchronized ExecutorService getEnsembleService() {
+    	if (executorService == null)
+    		executorService = Executors.newWorkStealingPool();
+    	return executorService;
+    }
+
+    /**
+     * Root-parallel ensemble: Search {@link #getNumTrees()} independent trees for the state of the root node
+     * (the first tree is the one of {@code this}, the others belong to helper players with their own random 
+     * number generators and their own copy of the state), each with {@link #getNUM_ITERS()} iterations, in 
+     * parallel on a work-stealing pool.
+     * <p>
+     * Then the trees are merged: For each action, the children of the root's child (one for each chance outcome 
+     * reached) have summed up their values and visits in the root's child. So we merge per action the values 
+     * and visits of the root's children of all trees (each value mapped back with the tree's 
+     * {@code maxRolloutScore}, if normalized, as in MCTSEChanceNode#mctseSearch). The merged values {@code U(i)} are returned in {@code vtable} 
+     * (as in {@link MCTSEChanceNode#mctseSearch(double[])}), the action with the highest merged value is returned.
+     *
+	 * @param vtable		the score for each available action (corresponding
+	 * 						to sob.getAvailableActions())
+     * @return the action to execute in the game.
+     */
+    private Types.ACTIONS runEnsemble(double[] vtable)
+    {
+    	StateObservation so = rootNode.so;
+    	int nTrees = getNumTrees();
+    	MCTSEPlayer[] players = new MCTSEPlayer[nTrees];
+    	List<Callable<MCTSEPlayer>> callables = new ArrayList<>();
+    	for (int t = 0; t < nTrees; t++) {
+    		players[t] = (t==0) ? this : new MCTSEPlayer(this, new Random(random.nextLong()));
+    		final MCTSEPlayer p = players[t];
+    		final StateObservation pso = (t==0) ? null : so.copy();
+    		callables.add(() -> {
+    			if (pso != null) p.init(pso);
+    			p.getRootNode().mctseSearch(new double[vtable.length]);
+    			return p;
+    		});
+    	}
+    	try {
+    		for (Future<MCTSEPlayer> f : getEnsembleService().invokeAll(callables)) {
+    			MCTSEPlayer p = f.get();
+    			if (p != this) this.nRolloutFinished += p.nRolloutFinished;
+    		}
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new RuntimeException("[MCTSEPlayer.runEnsemble] interrupted", e);
+    	} catch (ExecutionException e) {
+    		throw new RuntimeException("[MCTSEPlayer.runEnsemble] search failed: " + e.getCause(), e.getCause());
+    	}
+
+    	// merge the root children of all trees
+    	int K = so.getNumAvailableActions();
+    	double bestValue = -Double.MAX_VALUE;
+    	Types.ACTIONS action = null;
+    	for (int k = 0; k < K; k++) {
+    		double value = 0;
+    		int visits = 0;
+    		for (MCTSEPlayer p : players) {
+    			MCTSETreeNode child = p.getRootNode().getChild(so.getAction(k));
+    			if (child != null) {
+    				// maxRolloutScore is only set for 2048, other games keep their normalized values
+    				double maxRolloutScore = p.getRootNode().maxRolloutScore;
+    				value += (getNormalize() && maxRolloutScore > 0) ? child.value*maxRolloutScore : child.value;
+    				visits += child.visits;
+    			}
+    		}
+    		if (visits == 0) continue;
+    		vtable[k] = value / visits;
+    		if (vtable[k] > bestValue) {
+    			bestValue = vtable[k];
+    			action = so.getAction(k);
+    		}
+    	}
+    	vtable[K] = bestValue;
+    	return action;
+    }
+
 	public int getROLLOUT_DEPTH() {
 		return this.mctsExpectimaxParams.getRolloutDepth();
 	}
@@ -143,6 +244,9 @@ public class MCTSEPlayer
     public int getMaxNodes() {
 		return this.mctsExpectimaxParams.getMaxNodes();
 	}
+    public int getNumTrees() {
+		return this.mctsExpectimaxParams.getNumTrees();
+	}
 	public int getVerbosity() {
 		return this.mctsExpectimaxParams.getVerbosity();
 	}
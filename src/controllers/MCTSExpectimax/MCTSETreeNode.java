@@ -6,8 +6,7 @@ import games.ZweiTausendAchtundVierzig.StateObserver2048;
 import tools.Types;
 
 import java.text.DecimalFormat;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Random;
 import java.util.TreeMap;
@@ -34,7 +33,11 @@ public class MCTSETreeNode {
      */
     public Types.ACTIONS action = null;		                
     private MCTSEChanceNode parentNode = null;
-    private HashSet<MCTSEChanceNode> childrenNodes = new HashSet<>();
+    /**
+     * the chance outcomes reached so far in {@code childrenNodes[0,...,numChildren-1]} (the array grows on demand)
+     */
+    private MCTSEChanceNode[] childrenNodes = new MCTSEChanceNode[2];
+    private int numChildren = 0;
     public MCTSEPlayer m_player = null;
     public double value = 0;                                   // total value
     public int visits = 0;                                     // total number of visits
@@ -91,16 +94,18 @@ public class MCTSETreeNode {
         StateObservation childSo = so.copy();
         childSo.advance(action);
     	
-        for (MCTSEChanceNode childrenNode : childrenNodes) {
-            if (childrenNode.so.equals(childSo)) {
+        for (int i = 0; i < numChildren; i++) {
+            if (childrenNodes[i].so.equals(childSo)) {
                 //a child node representing this state already exists
-                return childrenNode;
+                return childrenNodes[i];
             }
         }
 
         //create a new child node
         MCTSEChanceNode child = new MCTSEChanceNode(childSo, null, this, random, m_player);
-        childrenNodes.add(child);
+        if (numChildren == childrenNodes.length)
+        	childrenNodes = Arrays.copyOf(childrenNodes, 2*numChildren);
+        childrenNodes[numChildren++] = child;
 
         return child;
     }
@@ -189,9 +194,8 @@ public class MCTSETreeNode {
 	 */
 	public int numDescendants(int depth) {
 		int N = 1; // include this
-		Iterator<MCTSEChanceNode> it = childrenNodes.iterator();
-		while (it.hasNext()) {
-			MCTSEChanceNode c = it.next();
+		for (int i = 0; i < numChildren; i++) {
+			MCTSEChanceNode c = childrenNodes[i];
 			if (c != null)
 				N += c.numDescendants(depth+1);
 //			if (depth==1) {
@@ -219,7 +223,8 @@ public class MCTSETreeNode {
 		for (int n = 0; n < nIndention; n++)
 			indention += "  ";
 
-		for (MCTSEChanceNode c : this.childrenNodes) {
+		for (int i = 0; i < numChildren; i++) {
+			MCTSEChanceNode c = this.childrenNodes[i];
 			if (c != null) {
 				cVisits += c.visits;
 				if (verbose > 1) { 	// =2: print direct child info
@@ -234,7 +234,8 @@ public class MCTSExpectimaxAgt extends AgentBase implements PlayAgent
 		String str = cs + ": iterations:" + getParMCTSE().getNumIter() 
 				+ ", rollout depth:" + getParMCTSE().getRolloutDepth()
 				+ ", K_UCT:"+ getParMCTSE().getK_UCT()
-				+ ", tree depth:" + getParMCTSE().getTreeDepth();
+				+ ", tree depth:" + getParMCTSE().getTreeDepth()
+				+ ((getParMCTSE().getNumTrees() > 1) ? ", trees:" + getParMCTSE().getNumTrees() : "");
 		return str;
 	}
 
@@ -249,5 +250,9 @@ public class MCTSExpectimaxAgt extends AgentBase implements PlayAgent
 	public ParMCTSE getParMCTSE() {
 		return player.getParMCTSE();
 	}
+
+	MCTSEPlayer getPlayer() {
+		return player;
+	}
 	
 }
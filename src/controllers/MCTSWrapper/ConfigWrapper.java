@@ -45,4 +45,27 @@ public class ConfigWrapper {
      * </ul>
      */
     public static double EPS = 1e-8;  //1e-8; 0.0; -1e-8
+
+    /**
+     * The virtual loss for the tree-parallel search of {@link MCTSWrapperAgent} (number of threads &gt; 1, see
+     * {@link params.ParOther#getWrapperMCTSThreads()}): While a thread descends through an action, this action counts
+     * as one more visit with value {@code -VIRTUAL_LOSS} for the other threads. This keeps the threads apart, so that
+     * they explore different paths. It has no effect on the sequential search.
+     */
+    public static double VIRTUAL_LOSS = 1.0;
+
+    /**
+     * A switch for {@link MCTSWrapperAgent} with sequential search (one thread): If &gt; 1, the search evaluates its
+     * leaves in batches of this size with one call of
+     * {@link controllers.MCTSWrapper.stateApproximation.Approximator#predictBatch(java.util.List) predictBatch}
+     * (see {@link MCTS#searchBatch(MCTSNode, int, int)}). If 1, each leaf is evaluated on its own.
+     */
+    public static int BATCH_SIZE = 1;
+
+    /**
+     * A switch for {@link MCTSWrapperAgent}: If &gt; 0, the search shares the nodes of identical states reached by
+     * different move orders via a {@link TranspositionTable} with this capacity (number of nodes).
+     * If 0, no transpositions are used. Takes effect for agents constructed afterwards.
+     */
+    public static int TT_SIZE = 0;
 }
@@ -1,6 +1,20 @@
 package controllers.MCTSWrapper;
 
+import controllers.MCTSWrapper.passStates.GameStateIncludingPass;
 import controllers.MCTSWrapper.stateApproximation.Approximator;
+import controllers.MCTSWrapper.utils.Tuple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /***
  * A class that encapsulates the algorithm for a monte carlo tree search for 2-player games.
@@ -13,6 +27,9 @@ public final class MCTS {
     private final Approximator approximator;
     private final int maxDepth;
     public int largestDepth;    // the largest tree depth encountered during MCTS.search iterations
+    private TranspositionTable transpositionTable;  // null: no transpositions
+    private ExecutorService pool;   // the worker threads of searchParallel, created on demand
+    private int poolSize;
 
     /**
      * @param approximator A component that approximates the value of a given game state.
@@ -27,6 +44,18 @@ public final class MCTS {
         this.maxDepth = (maxDepth==-1) ? Integer.MAX_VALUE : maxDepth;
     }
 
+    /**
+     * @param tt the transposition table to share nodes of identical states in the search tree, {@code null} if
+     *           no transpositions are used. The table has to be cleared whenever a new search tree is started.
+     */
+    public void setTranspositionTable(final TranspositionTable tt) {
+        this.transpositionTable = tt;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
     /**
      * Recursive Monte Carlo tree search that is applicable to 1- and 2-player games
      * which have separate states for situations where a player has to pass.
@@ -54,35 +83,239 @@ public final class MCTS {
 
         // If a non expanded node is reached, return its negated value (2-player game) or its value (1-player game)
         // after it got expanded and its move probabilities were set.
+        // If several threads reach the same non expanded node, only the first one expands it, the others wait for
+        // the expansion and then continue their descent.
         if (!node.isExpanded()) {
-            final var valueAndMoveProbabilities = node.gameState.getApproximatedValueAndMoveProbabilities(approximator);
-            node.setMoveProbabilities(valueAndMoveProbabilities.element2);
-            node.setExpanded();
-            return sign * valueAndMoveProbabilities.element1;       // /WK/ sign
+            synchronized (node) {
+                if (!node.isExpanded()) {
+                    final var valueAndMoveProbabilities = approximate(node);
+                    node.setMoveProbabilities(valueAndMoveProbabilities.element2);
+                    node.setExpanded();
+                    return sign * valueAndMoveProbabilities.element1;       // /WK/ sign
+                }
+            }
         }
 
         // Here the node is already expanded and doesn't contain a terminating game state.
         // Next step is to select a child node based on the PUCT algorithm.
         // This child node will be expanded in the next recursive call of this method.
 
-        final var selected = node.selectChild(c_puct); // Returns a tuple containing the selected
-                                                       // node and the action that leads to it.
-        final var selectedAction = selected.element1;
-        final var selectedNode = selected.element2;
+        final var selected = node.selectChild(c_puct, transpositionTable); // Returns the slot of the selected action, the node
+                                                       // that it leads to is node.getChild(selected).
+        final var selectedNode = node.getChild(selected);
 
         final var childValue = search(selectedNode, depth+1); // Recursive call of the tree search for the child node
 
-        // Update the nodes mean value (Q) with the childValue.
-        final var visitCount = node.getN(selectedAction);
-        final var meanValue = node.getQ(selectedAction);
-        node.meanValues.put(
-            selectedAction.getId(),
-            (visitCount * meanValue + childValue) / (visitCount + 1)
-        );
-
-        // Increment the nodes visit count (N).
-        node.incrementVisitCount(selectedAction);
+        // Update the nodes mean value (Q) with the childValue and increment the nodes visit count (N).
+        node.update(selected, childValue);
 
         return sign * childValue;                   // /WK/ sign
     }
+
+    private Tuple<Double, double[]> approximate(final MCTSNode node) {
+        if (approximator.isThreadSafe())
+            return node.gameState.getApproximatedValueAndMoveProbabilities(approximator);
+        synchronized (approximator) {
+            return node.gameState.getApproximatedValueAndMoveProbabilities(approximator);
+        }
+    }
+
+    /**
+     * Tree-parallel search: {@code nThreads} threads perform together {@code iterations} calls of
+     * {@link #search(MCTSNode, int)} on the tree with root {@code node}. The threads are kept apart by virtual losses
+     * (see {@link ConfigWrapper#VIRTUAL_LOSS}). If the approximator is not thread-safe
+     * ({@link Approximator#isThreadSafe()}), its calls are serialized, only the tree descent runs in parallel.
+     * <p>
+     * With {@code nThreads==1} this is the same as calling {@link #search(MCTSNode, int)} {@code iterations} times.
+     *
+     * @param node       Node where the tree search starts.
+     * @param iterations Number of search iterations of all threads together.
+     * @param nThreads   Number of threads.
+     */
+    public void searchParallel(final MCTSNode node, final int iterations, final int nThreads) {
+        if (nThreads <= 1) {
+            for (int i = 0; i < iterations; i++)
+                search(node, 0);
+            return;
+        }
+        final AtomicInteger next = new AtomicInteger();
+        final Callable<Void> worker = () -> {
+            while (next.getAndIncrement() < iterations)
+                search(node, 0);
+            return null;
+        };
+        try {
+            for (Future<Void> f : getPool(nThreads).invokeAll(Collections.nCopies(nThreads, worker)))
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("[MCTS.searchParallel] interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("[MCTS.searchParallel] search failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Anytime search with a time budget: performs search iterations on the tree with root {@code node} (in chunks
+     * with {@link #searchParallel(MCTSNode, int, int)} if {@code nThreads > 1}, with
+     * {@link #searchBatch(MCTSNode, int, int)} if {@code batchSize > 1}, else with {@link #search(MCTSNode, int)})
+     * until
+     * <ul>
+     *  <li> {@code timeBudgetMS} milliseconds are elapsed, or
+     *  <li> {@code maxIterations} iterations are done, or
+     *  <li> the most visited action of {@code node} can no longer be overtaken by the iterations that are still
+     *       possible in the remaining time ({@link MCTSNode#isDecided(double)}). These are estimated from the
+     *       iterations per second achieved so far.
+     * </ul>
+     * The last chunk is always finished, so the budget may be exceeded by the time of one chunk.
+     *
+     * @param node          Node where the tree search starts.
+     * @param maxIterations Maximum number of search iterations ({@code <= 0}: no maximum).
+     * @param timeBudgetMS  Time budget in milliseconds.
+     * @param nThreads      Number of threads.
+     * @param batchSize     Number of descents per batch (only used if {@code nThreads==1}).
+     * @return the number of search iterations performed
+     */
+    public int searchAnytime(final MCTSNode node, final int maxIterations, final long timeBudgetMS,
+                             final int nThreads, final int batchSize) {
+        final int maxIter = (maxIterations <= 0) ? Integer.MAX_VALUE : maxIterations;
+        final int chunk = (nThreads > 1) ? 4 * nThreads : Math.max(1, batchSize);
+        final long start = System.nanoTime();
+        final long budget = timeBudgetMS * 1_000_000L;
+        int done = 0;
+        while (done < maxIter) {
+            final int k = Math.min(chunk, maxIter - done);
+            if (nThreads > 1)
+                searchParallel(node, k, nThreads);
+            else if (batchSize > 1)
+                searchBatch(node, k, batchSize);
+            else
+                search(node, 0);        // k==1
+            done += k;
+
+            final long elapsed = System.nanoTime() - start;
+            if (elapsed >= budget) break;
+            // the iterations still possible in the remaining time, estimated from the iterations so far:
+            final double remaining = Math.min(maxIter - done, (double) done * (budget - elapsed) / Math.max(1, elapsed));
+            if (node.isDecided(remaining)) break;
+        }
+        return done;
+    }
+
+    /**
+     * Search with batched leaf evaluation: Per batch, {@code batchSize} descents from {@code node} select their path
+     * with virtual losses (see {@link ConfigWrapper#VIRTUAL_LOSS}) down to a leaf. The non expanded leaves of all
+     * descents are evaluated together with one call of {@link Approximator#predictBatch(List)}, then they are
+     * expanded and the values of all descents are backed up. A leaf reached by several descents of the same batch is
+     * evaluated once. Terminal states and the depth limit are handled as in {@link #search(MCTSNode, int)}.
+     * <p>
+     * With {@code batchSize==1} this is the same as calling {@link #search(MCTSNode, int)} {@code iterations} times.
+     *
+     * @param node       Node where the tree search starts.
+     * @param iterations Number of descents (search iterations).
+     * @param batchSize  Number of descents per batch.
+     */
+    public void searchBatch(final MCTSNode node, final int iterations, final int batchSize) {
+        final List<Descent> descents = new ArrayList<>(batchSize);
+        final IdentityHashMap<MCTSNode, Integer> leafIndex = new IdentityHashMap<>();
+        final List<MCTSNode> leaves = new ArrayList<>();
+        final List<GameStateIncludingPass> leafStates = new ArrayList<>();
+
+        for (int done = 0; done < iterations; done += descents.size()) {
+            descents.clear();
+            leafIndex.clear();
+            leaves.clear();
+            leafStates.clear();
+
+            // 1) select the paths of the batch down to the leaves
+            final int k = Math.min(batchSize, iterations - done);
+            for (int j = 0; j < k; j++) {
+                final Descent d = descend(node);
+                descents.add(d);
+                if (d.pending && !leafIndex.containsKey(d.leaf)) {
+                    leafIndex.put(d.leaf, leaves.size());
+                    leaves.add(d.leaf);
+                    leafStates.add(d.leaf.gameState);
+                }
+            }
+
+            // 2) evaluate and expand the leaves
+            final double[] leafValue = new double[leaves.size()];
+            if (!leaves.isEmpty()) {
+                final var vp = GameStateIncludingPass.getApproximatedValuesAndMoveProbabilities(leafStates, approximator);
+                for (int i = 0; i < leaves.size(); i++) {
+                    final MCTSNode leaf = leaves.get(i);
+                    leaf.setMoveProbabilities(vp.get(i).element2);
+                    leaf.setExpanded();
+                    leafValue[i] = sign(leaf) * vp.get(i).element1;
+                }
+            }
+
+            // 3) back up (the same values as the recursion in search would return on each level)
+            for (final Descent d : descents) {
+                double value = d.pending ? leafValue[leafIndex.get(d.leaf)] : d.value;
+                for (int i = d.path.size() - 1; i >= 0; i--) {
+                    final MCTSNode n = d.path.get(i);
+                    n.update(d.slots[i], value);
+                    value = sign(n) * value;
+                }
+            }
+        }
+    }
+
+    /**
+     * One descent of {@link #searchBatch(MCTSNode, int, int)}: the nodes on the path, the selected slots and the
+     * leaf where the descent stopped.
+     */
+    private static final class Descent {
+        final List<MCTSNode> path = new ArrayList<>();
+        int[] slots = new int[8];
+        MCTSNode leaf;
+        boolean pending;    // true: the leaf has to be evaluated, false: value is known
+        double value;       // the value of the leaf (from the perspective of the player who moved into it)
+    }
+
+    private Descent descend(final MCTSNode root) {
+        final Descent d = new Descent();
+        MCTSNode node = root;
+        for (int depth = 0; ; depth++) {
+            if (node.gameState.isFinalGameState()) {
+                d.value = sign(node) * node.gameState.getFinalGameScore();
+                break;
+            }
+            if (depth > this.maxDepth) {
+                d.value = -1;       // see search
+                break;
+            }
+            if (depth > largestDepth) largestDepth = depth;
+            if (!node.isExpanded()) {
+                d.pending = true;
+                break;
+            }
+            final int slot = node.selectChild(c_puct, transpositionTable);
+            if (d.path.size() == d.slots.length) d.slots = Arrays.copyOf(d.slots, 2 * d.slots.length);
+            d.slots[d.path.size()] = slot;
+            d.path.add(node);
+            node = node.getChild(slot);
+        }
+        d.leaf = node;
+        return d;
+    }
+
+    private static int sign(final MCTSNode node) {
+        return node.gameState.getNumPlayers()==1 ? (+1) : (-1);   // /WK/ extension for 1-player games
+    }
+
+    private synchronized ExecutorService getPool(final int nThreads) {
+        if (pool == null || poolSize != nThreads) {
+            if (pool != null) pool.shutdown();
+            pool = Executors.newFixedThreadPool(nThreads, r -> {
+                Thread t = new Thread(r, "MCTSWrapper-worker");
+                t.setDaemon(true);      // do not keep the JVM alive
+                return t;
+            });
+            poolSize = nThreads;
+        }
+        return pool;
+    }
 }
@@ -2,16 +2,21 @@ package controllers.MCTSWrapper;
 
 import controllers.MCTSWrapper.passStates.ApplicableAction;
 import controllers.MCTSWrapper.passStates.GameStateIncludingPass;
-import controllers.MCTSWrapper.utils.Tuple;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Node of a monte carlo tree search.
  * This node is implemented as a linked list and thus also represents a search tree at the same time.
+ * <p>
+ * The statistics of the node's actions are kept in parallel primitive arrays, indexed by the action's slot, i.e. its
+ * position in {@link GameStateIncludingPass#getAvailableActionsIncludingPassActions()}. The arrays are allocated
+ * when the node is expanded (or when a child is selected), so that the many leaf nodes of a search tree cost only
+ * the node itself. The total visit count of the node is cached.
+ * <p>
+ * Several threads may search the same tree (see {@link MCTS#searchParallel(MCTSNode, int, int)}): The selection of a
+ * child, which also adds a virtual loss to the selected action, and the update of the statistics are synchronized on
+ * the node, so that threads only block each other when they work on the same node.
  */
 public final class MCTSNode {
     /**
@@ -21,20 +26,48 @@ public final class MCTSNode {
      */
     public final GameStateIncludingPass gameState;
 
-    public final Map<Integer, MCTSNode> childNodes;
-    public final Map<Integer, Double> moveProbabilities;
-    public final Map<Integer, Double> meanValues;
-    public final Map<Integer, Integer> visitCounts;
+    /**
+     * the available actions, {@code null} as long as the slot arrays are not allocated
+     */
+    private ApplicableAction[] actions;
+    private MCTSNode[] children;
+    /**
+     * the move probabilities P(s,a)
+     */
+    private double[] moveProbabilities;
+    /**
+     * the mean values Q(s,a)
+     */
+    private double[] meanValues;
+    /**
+     * the visit counts N(s,a)
+     */
+    private int[] visitCounts;
+    /**
+     * the sum of all {@link #visitCounts}, i.e. N(s)
+     */
+    private int totalVisits;
+    /**
+     * the number of threads currently descending through each action, see {@link ConfigWrapper#VIRTUAL_LOSS}
+     */
+    private int[] virtualLosses;
+    private int totalVirtualLosses;
 
-    private boolean expanded;
+    private volatile boolean expanded;
 
     public MCTSNode(final GameStateIncludingPass gameState) {
         this.gameState = gameState;
+    }
 
-        childNodes = new HashMap<>();
-        moveProbabilities = new HashMap<>();
-        meanValues = new HashMap<>();
-        visitCounts = new HashMap<>();
+    private void allocateSlots() {
+        if (actions == null) {
+            actions = gameState.getAvailableActionsIncludingPassActions();
+            children = new MCTSNode[actions.length];
+            moveProbabilities = new double[actions.length];
+            meanValues = new double[actions.length];
+            visitCounts = new int[actions.length];
+            virtualLosses = new int[actions.length];
+        }
     }
 
     public void setExpanded() {
@@ -51,135 +84,200 @@ public final class MCTSNode {
      * @param moveProps The new move probabilities.
      * @throws IllegalArgumentException If the moveProps array's size doesn't equal the count of available actions.
      */
-    public void setMoveProbabilities(final double[] moveProps) {
-        final var availableActions = gameState.getAvailableActionsIncludingPassActions();
+    public synchronized void setMoveProbabilities(final double[] moveProps) {
+        allocateSlots();
 
-        if (availableActions.length != moveProps.length)
+        if (actions.length != moveProps.length)
             throw new IllegalArgumentException("The length of moveProps array has to match the count of available actions");
 
-        for (int i = 0; i < moveProps.length; i++) {
-            moveProbabilities.put(availableActions[i].getId(), moveProps[i]);
-        }
+        System.arraycopy(moveProps, 0, moveProbabilities, 0, moveProps.length);
     }
 
+    /**
+     * Select the action slot with the highest PUCT value and create its child node, if not yet present.
+     * A virtual loss is added to the selected action, it is removed again by {@link #update(int, double)}.
+     * Actions without virtual loss are rated exactly as in the sequential search.
+     *
+     * @param c_puct A PUCT parameter that controls the importance of exploring new nodes instead of exploiting known ones.
+     * @return the slot of the selected action, see {@link #getAction(int)} and {@link #getChild(int)}
+     */
+    public int selectChild(final double c_puct) {
+        return selectChild(c_puct, null);
+    }
 
-    public Tuple<ApplicableAction, MCTSNode> selectChild(final double c_puct) {
-        final var availableActions = gameState.getAvailableActionsIncludingPassActions();
-
-//        // /WK/ debug check
-//        if (visitCounts.size()==0) {
-//            System.err.println("[selectChild] *** Warning: visitCounts.size==0 ! ***");
-//            System.err.println("sumVC="+sum(visitCounts.values())+", Q(a_0)="+getQ(availableActions[0])); // should be both 0
-//        }
-//        if (meanValues.size()==0) {
-//            System.err.println("[selectChild] *** Warning: meanValues.size==0 ! ***");
-//        }
+    /**
+     * Same as {@link #selectChild(double)}, but a new child is first looked up in the transposition table
+     * {@code tt}: If its state is already in the search tree, the existing node becomes the child.
+     *
+     * @param tt the transposition table, or {@code null} if no transpositions are used
+     */
+    public synchronized int selectChild(final double c_puct, final TranspositionTable tt) {
+        allocateSlots();
 
-        var vsz = visitCounts.size();       // how often this node been has visited
         var bestValue = Double.NEGATIVE_INFINITY;
-        ApplicableAction bestAction = null;
-        ApplicableAction bestP_act = null;
-        if (vsz==0 && ConfigWrapper.EPS<0) bestP_act = selectBestFromP(availableActions);
+        int best = -1;
+        int bestP = -1;
+        if (totalVisits==0 && ConfigWrapper.EPS<0) bestP = selectBestFromP();
 
-        for (final var a : availableActions) {
-            // In case visitCounst.size()>0, select according to the normal PUCT formula (EPS negligible, because |EPS| << 1)
-            // In case visitCounts.size()==0 && EPS>0, select bestAction = argmax(getP(a)).
+        // sum of all visit counts is the same for all actions, so the square root is computed only once
+        final var sqrtN = Math.sqrt(totalVisits + totalVirtualLosses + ConfigWrapper.EPS);
+        for (int i = 0; i < actions.length; i++) {
+            // In case totalVisits>0, select according to the normal PUCT formula (EPS negligible, because |EPS| << 1)
+            // In case totalVisits==0 && EPS>0, select bestAction = argmax(P(a)).
             // This is the solution from Surag Nair, however, it is suboptimal for Othello. Why?
-            var value = getQ(a) + c_puct * getP(a) * Math.sqrt(sum(visitCounts.values())+ConfigWrapper.EPS) / (1 + getN(a));
-            // In case visitCounts.size()==0 && EPS==0, select the 1st action. This is the case originally
+            var value = (virtualLosses[i] == 0)
+                    ? meanValues[i] + c_puct * moveProbabilities[i] * sqrtN / (1 + visitCounts[i])
+                    : virtualQ(i) + c_puct * moveProbabilities[i] * sqrtN / (1 + visitCounts[i] + virtualLosses[i]);
+            // In case totalVisits==0 && EPS==0, select the 1st action. This is the case originally
             // provided by JS, and it is better in the Othello-case.
 
-            // In case visitCounts.size()==0 && EPS <0, select a random action
-            // (experimental option: ... that is NOT argmax(getP(a))).
-            if (vsz==0 && ConfigWrapper.EPS<0) {    // is EPS<0 on average as good as (EPS==0)-solution?
+            // In case totalVisits==0 && EPS <0, select a random action
+            // (experimental option: ... that is NOT argmax(P(a))).
+            if (totalVisits==0 && ConfigWrapper.EPS<0) {    // is EPS<0 on average as good as (EPS==0)-solution?
                 value = Math.random();
-                //if (a.getId()==bestP_act.getId()) value = -1;   // experimental: avoid the action argmax(getP(a))
+                //if (i==bestP) value = -1;   // experimental: avoid the action argmax(P(a))
             }
 
             if (value > bestValue) {
                 bestValue = value;
-                bestAction = a;
+                best = i;
             }
         }
 
-        assert bestAction != null;
-
-//        // /WK/ debug check only
-//        var bestValue2 = Double.NEGATIVE_INFINITY;
-//        ApplyableAction bestAction2 = null;
-//        if (ConfigWrapper.EPS>0) {
-//            for (final var a : availableActions) {
-//                double value;
-//                // this variant is more closely to the Surag-Nair code. It should give exactly the same actions
-//                if (getN(a)==0) {
-//                    value = c_puct * getP(a) * Math.sqrt(sum(visitCounts.values()) + ConfigWrapper.EPS) ;
-//                } else {
-//                    value = getQ(a) + c_puct * getP(a) * Math.sqrt(sum(visitCounts.values())+ ConfigWrapper.EPS) / (1 + getN(a));
-//                }
-//                if (value > bestValue2) {
-//                    bestValue2 = value;
-//                    bestAction2 = a;
-//                }
-//            }
-//            if (bestAction.getId()!=bestAction2.getId()) {
-//                int dummy = 1;
-//            }
-//            assert (bestAction.getId()==bestAction2.getId()) : "Check bestAction2 failed!";
-//            if (vsz==0)
-//                assert (bestAction.getId()==selectBestFromP(availableActions).getId()) : "Check selectBestFromP failed!";
-//        }
-
-        final MCTSNode child;
-        if (childNodes.containsKey(bestAction.getId())) {
-            child = childNodes.get(bestAction.getId());
-        } else {
-            child = new MCTSNode(gameState.advance(bestAction));
-            childNodes.put(bestAction.getId(), child);
+        assert best != -1;
+
+        if (children[best] == null) {
+            final var childState = gameState.advance(actions[best]);
+            children[best] = (tt == null) ? new MCTSNode(childState)
+                                          : tt.getOrPut(childState.getHash64(), new MCTSNode(childState));
         }
 
-        return new Tuple<>(bestAction, child);
+        virtualLosses[best]++;
+        totalVirtualLosses++;
+        return best;
     }
 
     /**
-     * @param availableActions
-     * @return the action argmax(getP(a)) (the first maximizing action, if there are more than one with the same max)
+     * @return Q(s,a) of action slot {@code i}, where each pending virtual loss counts as a visit with value
+     * {@code -VIRTUAL_LOSS}
      */
-    private ApplicableAction selectBestFromP(ApplicableAction[] availableActions) {
+    private double virtualQ(final int i) {
+        return (visitCounts[i] * meanValues[i] - virtualLosses[i] * ConfigWrapper.VIRTUAL_LOSS)
+                / (visitCounts[i] + virtualLosses[i]);
+    }
+
+    /**
+     * @return the slot of action argmax(P(a)) (the first maximizing action, if there are more than one with the same max)
+     */
+    private int selectBestFromP() {
         var bestValue = Double.NEGATIVE_INFINITY;
-        ApplicableAction bestAction = null;
-        for (final var a : availableActions) {
-            var value = getP(a);
-            if (value > bestValue) {
-                bestValue = value;
-                bestAction = a;
+        int best = -1;
+        for (int i = 0; i < actions.length; i++) {
+            if (moveProbabilities[i] > bestValue) {
+                bestValue = moveProbabilities[i];
+                best = i;
             }
         }
-        return bestAction;
+        return best;
     }
 
-    private static double sum(final Collection<Integer> values) {
-        return values.stream().mapToInt(it -> it).sum();
+    /**
+     * Update Q(s,a) of action slot {@code slot} with a new value from the search, increment N(s,a) and remove the
+     * virtual loss added by {@link #selectChild(double)}.
+     */
+    synchronized void update(final int slot, final double value) {
+        final var visitCount = visitCounts[slot];
+        meanValues[slot] = (visitCount * meanValues[slot] + value) / (visitCount + 1);
+        visitCounts[slot]++;
+        totalVisits++;
+        virtualLosses[slot]--;
+        totalVirtualLosses--;
     }
 
-    double getQ(final ApplicableAction action) {
-        return meanValues.getOrDefault(action.getId(), 0.0);
+    /**
+     * @return the slot of the action with the highest visit count (the first one, if there are more than one with the
+     * same max), or -1 if the node was never visited
+     */
+    public int mostVisitedSlot() {
+        if (totalVisits == 0) return -1;
+        int best = 0;
+        for (int i = 1; i < visitCounts.length; i++) {
+            if (visitCounts[i] > visitCounts[best]) best = i;
+        }
+        return best;
     }
 
-    int getN(final ApplicableAction action) {
-        return visitCounts.getOrDefault(action.getId(), 0);
+    /**
+     * Early termination test for the anytime search {@link MCTS#searchAnytime(MCTSNode, int, long, int, int)}.
+     *
+     * @param remainingIterations the number of iterations the search can still perform
+     * @return true, if the most visited action leads the second most visited action by more than
+     * {@code remainingIterations} visits, so that {@link #mostVisitedSlot()} cannot change any more (always true
+     * for a visited node with only one action)
+     */
+    public synchronized boolean isDecided(final double remainingIterations) {
+        if (totalVisits == 0) return false;
+        if (visitCounts.length == 1) return true;
+        int first = 0, second = 0;
+        for (final int n : visitCounts) {
+            if (n > first) {
+                second = first;
+                first = n;
+            } else if (n > second) {
+                second = n;
+            }
+        }
+        return first - second > remainingIterations;
     }
 
-    double getP(final ApplicableAction action) {
-        return moveProbabilities.getOrDefault(action.getId(), 0.0);
+    /**
+     * @return the child node reached with the action with id {@code actionId}, or {@code null} if it was not yet
+     * created
+     */
+    public synchronized MCTSNode getChildForAction(final int actionId) {
+        if (actions == null) return null;
+        for (int i = 0; i < actions.length; i++) {
+            if (actions[i].getId() == actionId) return children[i];
+        }
+        return null;
     }
 
-    public ArrayList<Integer> getLastMoves() { return gameState.getLastMoves(); }
+    public synchronized ApplicableAction getAction(final int slot) {
+        allocateSlots();
+        return actions[slot];
+    }
+
+    public synchronized MCTSNode getChild(final int slot) {
+        return (children == null) ? null : children[slot];
+    }
+
+    double getQ(final int slot) {
+        return (meanValues == null) ? 0.0 : meanValues[slot];
+    }
+
+    public int getN(final int slot) {
+        return (visitCounts == null) ? 0 : visitCounts[slot];
+    }
 
-    void incrementVisitCount(final ApplicableAction action) {
-        visitCounts.put(
-            action.getId(),
-            getN(action) + 1
-        );
+    double getP(final int slot) {
+        return (moveProbabilities == null) ? 0.0 : moveProbabilities[slot];
     }
 
-}
\ No newline at end of file
+    /**
+     * @return the number of virtual losses of action slot {@code slot}, i.e. the number of threads currently
+     * descending through this action (0 when no search is running)
+     */
+    int getVirtualLoss(final int slot) {
+        return (virtualLosses == null) ? 0 : virtualLosses[slot];
+    }
+
+    /**
+     * @return N(s), the sum of the visit counts of all actions
+     */
+    public int getTotalVisits() {
+        return totalVisits;
+    }
+
+    public ArrayList<Integer> getLastMoves() { return gameState.getLastMoves(); }
+
+}
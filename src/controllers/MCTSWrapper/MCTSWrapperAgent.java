@@ -12,8 +12,7 @@ import games.StateObservation;
 import tools.Types;
 
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.Map;
+import java.util.stream.IntStream;
 
 /**
  * PlayAgent that performs a Monte Carlo Tree Search (MCTS) to calculate the next action to be selected.
@@ -21,8 +20,11 @@ import java.util.Map;
  */
 public final class MCTSWrapperAgent extends AgentBase {
     private final int iterations;
+    private final int nThreads;
     private final MCTS mcts;
     private final Approximator approximator;
+    private int timeBudgetMS = 0;       // 0: no time budget, always perform iterations iterations
+    private int lastIterations = 0;     // the number of iterations of the last call to getNextAction2
 
     /**
      * @param iterations   Number of monte carlo iterations to be performed before the next action is selected.
@@ -38,10 +40,31 @@ public final class MCTSWrapperAgent extends AgentBase {
         final Approximator approximator,
         final String name,
         final int maxDepth
+    ) {
+        this(iterations, c_puct, approximator, name, maxDepth, 1);
+    }
+
+    /**
+     * Same as {@link #MCTSWrapperAgent(int, double, Approximator, String, int)}, but with a tree-parallel search of
+     * {@code nThreads} threads, see {@link MCTS#searchParallel(MCTSNode, int, int)}.
+     *
+     * @param nThreads     Number of threads that perform the {@code iterations} search iterations together
+     *                     (1: sequential search).
+     */
+    public MCTSWrapperAgent(
+        final int iterations,
+        final double c_puct,
+        final Approximator approximator,
+        final String name,
+        final int maxDepth,
+        final int nThreads
     ) {
         this.iterations = iterations;
+        this.nThreads = Math.max(1, nThreads);
         this.approximator = approximator;
         mcts = new MCTS(approximator, c_puct, maxDepth);
+        if (ConfigWrapper.TT_SIZE > 0)
+            mcts.setTranspositionTable(new TranspositionTable(ConfigWrapper.TT_SIZE));
         setName(name);
         setAgentState(AgentState.TRAINED);
     }
@@ -80,7 +103,7 @@ public final class MCTSWrapperAgent extends AgentBase {
         if (lastSelectedNode == null || !ConfigWrapper.USELASTMCTS) {
             // There is no search tree yet.
             // So a new mcts node is created from the given game state sob.
-            mctsNode = new MCTSNode(new GameStateIncludingPass(sob));
+            mctsNode = newRoot(sob);
         } else {
             // There already exists a search-tree, which was built in a previous call to MCTSWrapper in this episode.
 
@@ -113,8 +136,7 @@ public final class MCTSWrapperAgent extends AgentBase {
             assert (sz>0) : "Wrongly sz=lastMoves.size()==0. [Probably advance does not call super.addToLastMoves.]";
             assert (pastActions.get(sz-1)==lastSelectedAction) : "Oops, action mismatch!";  // /WK/ general check
             for (int i = sz; i < pastActions.size(); i++) {
-                node = node.childNodes.get(pastActions.get(i));
-                //node = node.childNodes.getOrDefault(pastActions.get(i), null);   // alternative suggestion from JS
+                node = node.getChildForAction(pastActions.get(i));
 
 //              if (node!=null) {
 //                  if (node.gameState.isFinalGameState()) {        // /WK/ debug
@@ -126,7 +148,7 @@ public final class MCTSWrapperAgent extends AgentBase {
                     // In this case the current game state is not present in the previously expanded search tree,
                     // because it was not relevant enough in the MCTS to be expanded.
                     // In this case a new Monte Carlo search tree is created based on sob.
-                    node = new MCTSNode(new GameStateIncludingPass(sob));
+                    node = newRoot(sob);
 //                  if (node.gameState.isFinalGameState()) {        // /WK/ debug
 //                        System.err.println("*** Unexpected final state in (node==null)-branch!");
 //                  }
@@ -153,35 +175,42 @@ public final class MCTSWrapperAgent extends AgentBase {
         // /WK/ a possible assertion, which turns out to be violated from time to time in RubiksCube.
         //      It seems always true in the Othello case --> TODO: Clarify the RubiksCube case!
         //assert (mctsNode.gameState.stringDescr().equals(sob.stringDescr())) : "Oops, state mismatch!";
-        if (!mctsNode.gameState.stringDescr().equals(sob.stringDescr())) {
+        if (!mctsNode.gameState.isSameState(sob)) {
             System.err.println("Oops, state mismatch!");
             int dummy = 1;
         }
 
         mcts.largestDepth=0;
-        // Performs the given number of mcts iterations.
-        for (int i = 0; i < iterations; i++) {
-            mcts.search(mctsNode,0);
+        // Performs the given number of mcts iterations (with nThreads threads in parallel, if nThreads > 1,
+        // or with batched leaf evaluation, if ConfigWrapper.BATCH_SIZE > 1). With a time budget, the search
+        // stops earlier, if the time is up or if the best action is decided.
+        if (timeBudgetMS > 0) {
+            lastIterations = mcts.searchAnytime(mctsNode, iterations, timeBudgetMS, nThreads, ConfigWrapper.BATCH_SIZE);
+        } else {
+            if (nThreads == 1 && ConfigWrapper.BATCH_SIZE > 1)
+                mcts.searchBatch(mctsNode, iterations, ConfigWrapper.BATCH_SIZE);
+            else
+                mcts.searchParallel(mctsNode, iterations, nThreads);
+            lastIterations = iterations;
         }
 
         // Selects the int value of the action that leads to the child node that maximizes the visit count.
         // This value is also cached for further calls.
-        if (mctsNode.visitCounts.size()==0) {
+        final int bestSlot = mctsNode.mostVisitedSlot();
+        if (bestSlot == -1) {
             // As far as we see, this can only happen if iterations==1 (which is not a sensible choice),
             // but we leave it in as debug check for the moment
-            System.err.println("MCTSWrapperAgent.getNextAction2: *** Warning *** visitCounts.size = 0");
+            System.err.println("MCTSWrapperAgent.getNextAction2: *** Warning *** N(s) = 0");
             System.err.println(mctsNode.gameState.stringDescr());
             return new Types.ACTIONS_VT(0,false,new double[sob.getNumAvailableActions()],0.0);
         }
-        lastSelectedAction = mctsNode.visitCounts.entrySet().stream().max(
-            Comparator.comparingDouble(Map.Entry::getValue)
-        ).orElseThrow().getKey();
+        lastSelectedAction = mctsNode.getAction(bestSlot).getId();
         // Caches the child node belonging to the previously selected action.
-        lastSelectedNode = mctsNode.childNodes.get(lastSelectedAction);
+        lastSelectedNode = mctsNode.getChild(bestSlot);
 
         // Pass states should not be cached.
         while (lastSelectedNode != null && lastSelectedNode.gameState.lazyMustPass.value()) {
-            lastSelectedNode = lastSelectedNode.childNodes.get(new PassAction().getId());
+            lastSelectedNode = lastSelectedNode.getChildForAction(new PassAction().getId());
         }
 
         // --- debug info RubiksCube ---
@@ -197,6 +226,47 @@ public final class MCTSWrapperAgent extends AgentBase {
         );
     }   // getNextAction2
 
+    /**
+     * @return the root node of a new search tree for state {@code sob} (the transposition table, if any, is cleared)
+     */
+    private MCTSNode newRoot(final StateObservation sob) {
+        final var root = new MCTSNode(new GameStateIncludingPass(sob));
+        final var tt = mcts.getTranspositionTable();
+        if (tt != null) {
+            tt.clear();
+            tt.getOrPut(root.gameState.getHash64(), root);
+        }
+        return root;
+    }
+
+    /**
+     * Set a time budget per move: {@link #getNextAction2(StateObservation, boolean, boolean) getNextAction2} stops
+     * its search after {@code timeBudgetMS} milliseconds or as soon as the best action is decided, see
+     * {@link MCTS#searchAnytime(MCTSNode, int, long, int, int)}. The number of iterations given in the constructor
+     * is then an upper bound (no bound, if it is &le; 0).
+     *
+     * @param timeBudgetMS the time budget in milliseconds (0: no time budget, always perform all iterations)
+     */
+    public void setTimeBudgetMS(final int timeBudgetMS) {
+        this.timeBudgetMS = timeBudgetMS;
+    }
+
+    public int getTimeBudgetMS() {
+        return timeBudgetMS;
+    }
+
+    @Override
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * @return the transposition table of the search or {@code null}, see {@link ConfigWrapper#TT_SIZE}
+     */
+    public TranspositionTable getTranspositionTable() {
+        return mcts.getTranspositionTable();
+    }
+
     // just a check whether this is faster than getVTableFor --> see MCTSWrapperAgentTest::getVTableForTest.
     // getVTable2For is 5x faster than getVTableFor, but it it has only negligible effect on overall performance since
     // it is called seldom.
@@ -204,11 +274,10 @@ public final class MCTSWrapperAgent extends AgentBase {
         ApplicableAction[] arrAction = mctsNode.gameState.getAvailableActionsIncludingPassActions();
         double[] vTab = new double[arrAction.length];
         double v, sum = 0;
-        int i=0;
-        for (var action : arrAction) {
-            v = mctsNode.visitCounts.getOrDefault(action.getId(), 0);
+        for (int i=0; i<arrAction.length; i++) {
+            v = mctsNode.getN(i);
             sum += v;
-            vTab[i++] = v;
+            vTab[i] = v;
         }
         for (int j=0; j<vTab.length; j++) vTab[j] /= sum;
         return vTab;
@@ -216,9 +285,9 @@ public final class MCTSWrapperAgent extends AgentBase {
 
     public double[] getVTableFor(final MCTSNode mctsNode) {
         return getDistributionOver(
-            Arrays
-                .stream(mctsNode.gameState.getAvailableActionsIncludingPassActions())
-                .mapToDouble(action -> mctsNode.visitCounts.getOrDefault(action.getId(), 0))
+            IntStream
+                .range(0, mctsNode.gameState.getAvailableActionsIncludingPassActions().length)
+                .mapToDouble(mctsNode::getN)
                 .toArray()
         );
     }
@@ -246,7 +315,9 @@ public final class MCTSWrapperAgent extends AgentBase {
 
     @Override
     public String stringDescr2() {
-        return getClass().getSimpleName()+"["+approximator.getName()+  ", iter="+this.iterations+"]" ;
+        return getClass().getSimpleName()+"["+approximator.getName()+  ", iter="+this.iterations
+                + ((nThreads > 1) ? ", threads="+nThreads : "")
+                + ((timeBudgetMS > 0) ? ", time="+timeBudgetMS+"ms" : "") + "]" ;
     }
 
     // override AgentBase::getName()
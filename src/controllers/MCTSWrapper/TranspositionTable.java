@@ -0,0 +1,107 @@
+package controllers.MCTSWrapper;
+
+import java.util.Arrays;
+
+/**
+ * Transposition table for {@link MCTS}: maps the 64-bit hash of a game state (see
+ * {@link controllers.MCTSWrapper.passStates.GameStateIncludingPass#getHash64()}) to the {@link MCTSNode} of this
+ * state. If the same state is reached by different move orders, {@link MCTSNode#selectChild(double, TranspositionTable)}
+ * links the existing node instead of creating a new one. So the statistics of the state are shared and it is
+ * evaluated only once. The search tree becomes a directed acyclic graph.
+ * <p>
+ * The table has a fixed capacity (a power of 2) and is 2-way set-associative: a key may be stored in one of two
+ * neighbouring slots. If both are occupied by other states, the node with fewer visits is replaced. A replaced node
+ * stays in the search tree, it can only no longer be found as transposition.
+ * <p>
+ * All methods are synchronized, so that the table can be used by the tree-parallel search.
+ */
+public final class TranspositionTable {
+    private final long[] keys;
+    private final MCTSNode[] nodes;
+    private final int mask;
+    private long hits;
+    private long stores;
+    private long replacements;
+
+    /**
+     * @param capacity the maximum number of nodes in the table (rounded up to a power of 2, at least 2)
+     */
+    public TranspositionTable(final int capacity) {
+        int size = 2;
+        while (size < capacity && size < (1 << 30)) size <<= 1;
+        keys = new long[size];
+        nodes = new MCTSNode[size];
+        mask = size - 2;
+    }
+
+    private int slot(final long key) {
+        long h = key * 0x9e3779b97f4a7c15L;       // spread the bits of key
+        return (int) (h >>> 33) & mask;
+    }
+
+    /**
+     * @return the node stored for {@code key}, or {@code null} if there is none
+     */
+    public synchronized MCTSNode get(final long key) {
+        final int i = slot(key);
+        for (int j = i; j <= i + 1; j++)
+            if (nodes[j] != null && keys[j] == key) {
+                hits++;
+                return nodes[j];
+            }
+        return null;
+    }
+
+    /**
+     * Return the node stored for {@code key} or, if there is none, store {@code node} for {@code key} and return it.
+     *
+     * @param key  the hash of the node's state
+     * @param node the new node
+     * @return the node for {@code key} that is used in the search tree
+     */
+    public synchronized MCTSNode getOrPut(final long key, final MCTSNode node) {
+        final int i = slot(key);
+        for (int j = i; j <= i + 1; j++)
+            if (nodes[j] != null && keys[j] == key) {
+                hits++;
+                return nodes[j];
+            }
+        int j = i;
+        if (nodes[i] != null) {
+            if (nodes[i + 1] == null) {
+                j = i + 1;
+            } else {
+                if (nodes[i + 1].getTotalVisits() < nodes[i].getTotalVisits()) j = i + 1;
+                replacements++;
+            }
+        }
+        keys[j] = key;
+        nodes[j] = node;
+        stores++;
+        return node;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(nodes, null);
+        hits = stores = replacements = 0;
+    }
+
+    public int capacity() {
+        return nodes.length;
+    }
+
+    /**
+     * @return the number of lookups that found a node since the last {@link #clear()}
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getStores() {
+        return stores;
+    }
+
+    public synchronized long getReplacements() {
+        return replacements;
+    }
+}
@@ -8,6 +8,7 @@ import games.ObserverBase;
 import games.StateObservation;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents a game state where pass states are not skipped.
@@ -93,6 +94,8 @@ public final class GameStateIncludingPass {
 
     public int getMoveCounter() { return state.getMoveCounter(); }
     public String stringDescr() { return state.stringDescr(); }
+    public long getHash64() { return StateObservationExtensions.hash64(state); }
+    public boolean isSameState(final StateObservation so) { return state.getHash64() == so.getHash64(); }
     public ArrayList<Integer> getLastMoves() { return ((ObserverBase) state).getLastMoves(); }
 
     /**
@@ -113,6 +116,33 @@ public final class GameStateIncludingPass {
             : approximator.predict(state);
     }
 
+    /**
+     * Same as {@link #getApproximatedValueAndMoveProbabilities(Approximator)} for several game states, which are
+     * evaluated with one call of {@link Approximator#predictBatch(List)}.
+     *
+     * @param gameStates   The game states.
+     * @param approximator A component that is able to approximate the necessary values v and p for a Monte Carlo Tree Search.
+     * @return A list containing the tuples (v,p) in the order of {@code gameStates}.
+     */
+    public static List<Tuple<Double, double[]>> getApproximatedValuesAndMoveProbabilities(
+        final List<GameStateIncludingPass> gameStates,
+        final Approximator approximator
+    ) {
+        final List<StateObservation> states = new ArrayList<>(gameStates.size());
+        for (final var gs : gameStates)
+            states.add(gs.lazyMustPass.value() ? StateObservationExtensions.passToNextPlayer(gs.state) : gs.state);
+
+        final List<Tuple<Double, double[]>> results = new ArrayList<>(approximator.predictBatch(states));
+        for (int i = 0; i < gameStates.size(); i++) {
+            if (gameStates.get(i).lazyMustPass.value()) {
+                assert(gameStates.get(i).getNumPlayers()==2) : "Error in GameStateIncludingPass: Tuple creation is only valid for 2-player games!";
+                // see approximateValueAndMoveProbabilitiesForPassingState
+                results.set(i, new Tuple<>(-results.get(i).element1, new double[]{1.0}));
+            }
+        }
+        return results;
+    }
+
     /**
      * For a passing state the negated evaluation from the opposing player's point of view is used for the value v.
      * The vector of probabilities of possible actions p will then provide a 100% probability of a pass action,
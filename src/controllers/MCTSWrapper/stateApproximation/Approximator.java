@@ -3,6 +3,9 @@ package controllers.MCTSWrapper.stateApproximation;
 import controllers.MCTSWrapper.utils.Tuple;
 import games.StateObservation;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A component used to approximate the value v and
  * the vector of move probabilities p of a given StateObservation.
@@ -15,10 +18,31 @@ public interface Approximator {
      */
     Tuple<Double, double[]> predict(final StateObservation stateObservation);
 
+    /**
+     * Predicts the value v and the move probabilities p for several StateObservations at once.
+     * The results have to be the same as calling {@link #predict(StateObservation)} for each of them.
+     * Implementations may use this to evaluate the states together or in parallel.
+     *
+     * @return A list containing the tuples (v,p) in the order of {@code stateObservations}.
+     */
+    default List<Tuple<Double, double[]>> predictBatch(final List<StateObservation> stateObservations) {
+        final List<Tuple<Double, double[]>> results = new ArrayList<>(stateObservations.size());
+        for (final var so : stateObservations)
+            results.add(predict(so));
+        return results;
+    }
+
     /**
      * @return The approximator's estimate of the final score for that game state.
      */
     double getScore(final StateObservation sob);
 
     String getName();
+
+    /**
+     * @return true, if {@link #predict(StateObservation)} may be called from several threads at the same time
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
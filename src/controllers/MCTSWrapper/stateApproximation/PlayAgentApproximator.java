@@ -6,6 +6,8 @@ import controllers.PlayAgent;
 import games.StateObservation;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * A component that approximates the value v and the
@@ -44,6 +46,19 @@ public final class PlayAgentApproximator implements Approximator {
         );
     }
 
+    /**
+     * If the wrapped agent is thread-safe ({@link PlayAgent#isThreadSafe()}), the states are evaluated in parallel
+     * (in the common fork-join pool), otherwise one after the other.
+     *
+     * @return A list containing the tuples (v,p) in the order of {@code stateObservations}.
+     */
+    @Override
+    public List<Tuple<Double, double[]>> predictBatch(final List<StateObservation> stateObservations) {
+        if (stateObservations.size() < 2 || !agent.isThreadSafe())
+            return Approximator.super.predictBatch(stateObservations);
+        return stateObservations.parallelStream().map(this::predict).collect(Collectors.toList());
+    }
+
     private static double[] moveProbabilitiesForVTable(final double[] vTable, final StateObservation stateObservation) {
         assert (vTable.length == stateObservation.getNumAvailableActions()) : "Ooops, wrong size for vTable!";
         return optSoftmax(vTable);
@@ -72,4 +87,7 @@ public final class PlayAgentApproximator implements Approximator {
     }
 
     public String getName() { return agent.getName(); }
+
+    @Override
+    public boolean isThreadSafe() { return agent.isThreadSafe(); }
 }
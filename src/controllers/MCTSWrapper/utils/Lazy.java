@@ -5,12 +5,16 @@ import java.util.function.Supplier;
 /**
  * Provides support for delayed initialization.
  *
+ * <p>
+ * The value may be requested from several threads: Each thread sees either no value or the complete value.
+ * The supplier might be evaluated more than once, so it should be free of side effects.
+ *
  * @param <T> The lazy evaluated value's type.
  */
 public final class Lazy<T> {
     private final Supplier<T> valueSupplier;
 
-    private boolean valueLoaded;
+    private volatile boolean valueLoaded;
     private T value;
 
     /**
@@ -23,4 +23,16 @@ public final class StateObservationExtensions {
         stateCopy.setAvailableActions();
         return stateCopy;
     }
+
+    /**
+     * A 64-bit hash of a game state for {@link controllers.MCTSWrapper.TranspositionTable}:
+     * {@link StateObservation#getHash64()} (board and player to move), mixed with the move counter. Including the
+     * move counter means that only states at the same depth are transpositions, so the search graph stays acyclic
+     * also in games where a state can recur (e.g. RubiksCube).
+     */
+    public static long hash64(final StateObservation so) {
+        long h = so.getHash64() ^ (so.getMoveCounter() * 0x9E3779B97F4A7C15L);
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        return h ^ (h >>> 33);
+    }
 }
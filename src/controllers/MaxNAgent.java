@@ -49,7 +49,7 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
 	private Random rand;
 	protected int m_depth=10;
 	protected boolean m_useHashMap=false; //true;
-	private HashMap<String,ScoreTuple> hm;
+	private HashMap<Long,ScoreTuple> hm;		// key: StateObservation.getHash64()
 	
 	/**
 	 * change the version ID for serialization only if a newer version is no longer 
@@ -64,7 +64,7 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
 		super.setMaxGameNum(1000);		
 		super.setGameNum(0);
         rand = new Random(System.currentTimeMillis());
-		hm = new HashMap<String, ScoreTuple>();
+		hm = new HashMap<Long, ScoreTuple>();
 		super.setAgentState(AgentState.TRAINED);
 	}
 	
@@ -87,13 +87,23 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
 		super.setMaxGameNum(1000);		
 		super.setGameNum(0);
         rand = new Random(System.currentTimeMillis());
-		hm = new HashMap<String, ScoreTuple>();
+		hm = new HashMap<Long, ScoreTuple>();
 		super.setAgentState(AgentState.TRAINED);
 		m_depth = mPar.getMaxNDepth();
 		m_useHashMap = mPar.getMaxNUseHashmap();
 //		m_oPar = new ParOther(oPar);		// AgentBase::m_oPar
 	}
 		
+	/**
+	 * Agents saved before {@link StateObservation#getHash64()} became the key of {@code hm} have String keys in it,
+	 * which are never found again. So we start with an empty hash map after loading.
+	 */
+	@Override
+	public boolean instantiateAfterLoading() {
+		hm = new HashMap<Long, ScoreTuple>();
+		return super.instantiateAfterLoading();
+	}
+
 	/**
 	 * After loading an agent from disk fill the param tabs of {@link Arena} according to the
 	 * settings of this agent
@@ -170,7 +180,7 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
         ACTIONS actBest = null;
         ACTIONS_VT act_vt = null;
         ArrayList<ACTIONS> bestActions = new ArrayList<>();
-        String stringRep ="";
+        long hashKey;
 
         assert so.isLegalState() : "Not a legal state"; 
         
@@ -196,15 +206,15 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
     			currScoreTuple = NewSO.getRewardTuple(rgs);
     		} else {
     			if (depth<this.m_depth) {
-    				stringRep = NewSO.stringDescr();
-    	        	sc = retrieveFromHashMap(m_useHashMap,stringRep);
+    				hashKey = NewSO.getHash64();
+    	        	sc = retrieveFromHashMap(m_useHashMap,hashKey);
     				if (sc==null) {
     					// here is the recursion: getAllScores may call getBestAction back:
     					currScoreTuple = getAllScores(NewSO,refer,depth+1, currScoreTuple);	
     					
     					if (m_useHashMap) {
-    						hm.put(stringRep, currScoreTuple);
-    		    			//System.out.println(stringRep+":"+currScoreTuple);
+    						hm.put(hashKey, currScoreTuple);
+    		    			//System.out.println(NewSO.stringDescr()+":"+currScoreTuple);
     					}
     				} else {
     					currScoreTuple = sc;
@@ -262,13 +272,12 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
         return act_vt;         
 	}
 
-	private ScoreTuple retrieveFromHashMap(boolean m_useHashMap, String stringRep) {
+	private ScoreTuple retrieveFromHashMap(boolean m_useHashMap, long hashKey) {
 		ScoreTuple sc = null;
     	if (m_useHashMap) {
 			// speed up MaxNAgent for repeated calls by storing/retrieving the 
 			// scores of visited states in HashMap hm:
-			sc = hm.get(stringRep); 		// returns null if not in hm
-			//System.out.println(stringRep+":"+sc);
+			sc = hm.get(hashKey); 		// returns null if not in hm
     	} 
     	
     	return sc;
@@ -248,4 +248,19 @@ public interface PlayAgent {
 	boolean isStochastic();
 	void setStochastic(boolean hasStochasticPolicy);
 
+	/**
+	 * @return true, if {@link #getNextAction2(StateObservation, boolean, boolean) getNextAction2(sob,false,true)}
+	 * may be called from several threads at the same time (e.g. by the tree-parallel search of
+	 * {@link controllers.MCTSWrapper.MCTSWrapperAgent}). Default in {@link AgentBase}: false.
+	 */
+	boolean isThreadSafe();
+
+	/**
+	 * @return the number of search iterations performed in the last call of 
+	 * {@link #getNextAction2(StateObservation, boolean, boolean) getNextAction2}, if the agent performs an iterative 
+	 * (e.g. MCTS) search. 0 for other agents (default in {@link AgentBase}). Used to record the iterations per 
+	 * second in {@link TSTimeStorage}.
+	 */
+	int getLastIterations();
+
 }
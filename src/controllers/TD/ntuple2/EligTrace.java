@@ -0,0 +1,136 @@
+package controllers.TD.ntuple2;
+
+import controllers.TD.ntuple4.NTuple4ValueFunc;
+
+/**
+ * Ring buffer for the eligibility traces of {@link NTuple2ValueFunc} and {@link NTuple4ValueFunc} (TD(lambda) with
+ * finite horizon). Each entry holds for one past state
+ * <ul>
+ * <li> the LUT indices of all n-tuples for all equivalent (symmetric) boards, calculated once when the state
+ * 		is added,
+ * <li> the equivalent actions (only for Q-learning and Sarsa, else {@code null}),
+ * <li> the sigmoid derivative.
+ * </ul>
+ * The slots are allocated once and reused, so that a TD(lambda) update is a pure array walk without recalculation
+ * of LUT indices and without allocation.
+ */
+public class EligTrace {
+	private final int numTuples;
+	private int[][] index;			// index[slot][i*numEquiv[slot]+j]: LUT index of n-tuple i for equivalent board j
+	private int[][] equivAction;
+	private boolean[] hasAction;
+	private int[] numEquiv;
+	private double[] sigDeriv;
+	private int head = 0;			// slot of the newest entry
+	private int size = 0;
+
+	/**
+	 * @param numTuples	the number of n-tuples
+	 * @param capacity	the initial number of slots (the horizon), grows if needed
+	 */
+	public EligTrace(int numTuples, int capacity) {
+		this.numTuples = numTuples;
+		allocate(Math.max(capacity, 1));
+	}
+
+	private void allocate(int capacity) {
+		index = new int[capacity][];
+		equivAction = new int[capacity][];
+		hasAction = new boolean[capacity];
+		numEquiv = new int[capacity];
+		sigDeriv = new double[capacity];
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return the number of entries in this trace
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Add a new entry at the head of the trace. If the trace holds then more than {@code horizon} entries, the
+	 * oldest entry is dropped. The LUT indices of the new entry have to be set afterwards with
+	 * {@link #setIndex(int, int, int, int)}.
+	 *
+	 * @param nEquiv	number of equivalent boards
+	 * @param eqAction	the equivalent actions (may be {@code null})
+	 * @param sDeriv	the sigmoid derivative
+	 * @param horizon	the maximum number of entries
+	 * @return the slot of the new entry
+	 */
+	public int addFirst(int nEquiv, int[] eqAction, double sDeriv, int horizon) {
+		if (horizon > index.length) grow(horizon);
+		head = (head + 1) % index.length;
+		size = Math.min(size + 1, horizon);
+		int len = numTuples * nEquiv;
+		if (index[head] == null || index[head].length < len)
+			index[head] = new int[len];
+		hasAction[head] = (eqAction != null);
+		if (eqAction != null) {
+			if (equivAction[head] == null || equivAction[head].length < eqAction.length)
+				equivAction[head] = new int[eqAction.length];
+			System.arraycopy(eqAction, 0, equivAction[head], 0, eqAction.length);
+		}
+		numEquiv[head] = nEquiv;
+		sigDeriv[head] = sDeriv;
+		return head;
+	}
+
+	private void grow(int capacity) {
+		int[][] oldIndex = index;
+		int[][] oldAction = equivAction;
+		boolean[] oldHas = hasAction;
+		int[] oldNum = numEquiv;
+		double[] oldSig = sigDeriv;
+		int oldCap = oldIndex.length;
+		allocate(capacity);
+		// copy the entries, newest first, to slots oldCap-1, ..., 0 and let head point to slot oldCap-1
+		for (int k = 0; k < oldCap; k++) {
+			int from = ((head - k) % oldCap + oldCap) % oldCap;
+			int to = oldCap - 1 - k;
+			index[to] = oldIndex[from];
+			equivAction[to] = oldAction[from];
+			hasAction[to] = oldHas[from];
+			numEquiv[to] = oldNum[from];
+			sigDeriv[to] = oldSig[from];
+		}
+		head = oldCap - 1;
+	}
+
+	/**
+	 * @param k		0 for the newest entry, 1 for the one before and so on ({@code k < size()})
+	 * @return the slot of the k-th newest entry
+	 */
+	public int slot(int k) {
+		assert k < size : "k="+k+" is not smaller than size="+size;
+		return (head - k + index.length) % index.length;
+	}
+
+	public void setIndex(int slot, int i, int j, int lutIndex) {
+		index[slot][i * numEquiv[slot] + j] = lutIndex;
+	}
+
+	/**
+	 * @return the LUT index of n-tuple {@code i} for equivalent board {@code j} in entry {@code slot}
+	 */
+	public int getIndex(int slot, int i, int j) {
+		return index[slot][i * numEquiv[slot] + j];
+	}
+
+	public int getNumEquiv(int slot) {
+		return numEquiv[slot];
+	}
+
+	public int[] getEquivAction(int slot) {
+		return hasAction[slot] ? equivAction[slot] : null;
+	}
+
+	public double getSigDeriv(int slot) {
+		return sigDeriv[slot];
+	}
+}
@@ -0,0 +1,160 @@
+package controllers.TD.ntuple2;
+
+import games.StateObservation;
+import games.XNTupleFuncs;
+
+/**
+ * Incremental calculation of the LUT indices of sibling states (the afterstates of one parent state) for a set of
+ * {@link NTuple2} n-tuples and their symmetric variants.
+ * <p>
+ * The LUT index of n-tuple i under symmetry j is {@code sum_k posVals^k * board[pos(i,j,k)]}. If a move changes
+ * cell c from value v to v', only the indices of the (i,j) whose positions contain c change, namely by
+ * {@code (v'-v)*posVals^k}. The inverted index {@code cellRef[c]} lists these (i,j,k) for every cell c. So, once the
+ * indices of the parent state are known ({@link #setParent(int[])}), the indices of a child state are obtained by
+ * adjusting only the affected entries ({@link #child(StateObservation, XNTupleFuncs)}), which is much cheaper than
+ * the full calculation if a move changes only a few cells (one cell in ConnectFour and Hex, a few flips in Othello).
+ * <p>
+ * The changed cells and their new values come from {@link XNTupleFuncs#changedCells(StateObservation, int[], int[])},
+ * i.e. from the cells recorded by the game's {@code advance}, so the board vector of the child is not needed. If the
+ * game does not report them, the board vector of the child is built and compared with the parent's. If too many
+ * cells change (e.g. in 2048), the indices are calculated from scratch.
+ * <p>
+ * Objects of this class keep per-state buffers, so they must not be shared between threads.
+ *
+ * @see NTuple2ValueFunc#getAfterstateScores(games.StateObservation, java.util.List, boolean, games.StateObservation[])
+ */
+public class IncrementalIndex {
+	private final NTuple2[] tuples;
+	private final int numEquiv;
+	private final boolean usePerm;
+	private final int[][] cellRef;		// cellRef[c][r]: slot i*numEquiv+j of the r-th (n-tuple,symmetry) containing cell c
+	private final int[][] cellMul;		// cellMul[c][r]: the multiplier posVals^k of cell c in this slot
+	private final int numRefs;			// total number of n-tuple positions over all slots
+	private int[] parentBoard;
+	private final int[] parentIdx;
+	private final int[] childIdx;
+	private final int[] cells;			// buffers for XNTupleFuncs#changedCells
+	private final int[] vals;
+
+	/**
+	 * @param tuples	the n-tuples
+	 * @param numEquiv	the number of symmetries to use
+	 * @param usePerm	if true, the positions of symmetry j are {@link NTuple2#getSymPosition(int, int)} (requires
+	 * 					prior {@link NTuple2#setSymmetryPermutations(int[][])}), else the n-tuple's own positions
+	 * 					(then {@code numEquiv} has to be 1)
+	 * @param numCells	the number of cells of the board vector
+	 */
+	public IncrementalIndex(NTuple2[] tuples, int numEquiv, boolean usePerm, int numCells) {
+		assert usePerm || numEquiv == 1 : "without symmetry permutations only numEquiv=1 is possible";
+		this.tuples = tuples;
+		this.numEquiv = numEquiv;
+		this.usePerm = usePerm;
+		this.parentIdx = new int[tuples.length * numEquiv];
+		this.childIdx = new int[tuples.length * numEquiv];
+		this.cells = new int[numCells];
+		this.vals = new int[numCells];
+
+		int[] count = new int[numCells];
+		int total = 0;
+		for (NTuple2 tuple : tuples)
+			for (int j = 0; j < numEquiv; j++)
+				for (int k = 0; k < tuple.getLength(); k++, total++)
+					count[position(tuple, j, k)]++;
+		this.numRefs = total;
+		cellRef = new int[numCells][];
+		cellMul = new int[numCells][];
+		for (int c = 0; c < numCells; c++) {
+			cellRef[c] = new int[count[c]];
+			cellMul[c] = new int[count[c]];
+			count[c] = 0;
+		}
+		for (int i = 0; i < tuples.length; i++) {
+			for (int j = 0; j < numEquiv; j++) {
+				int P = 1;
+				for (int k = 0; k < tuples[i].getLength(); k++) {
+					int c = position(tuples[i], j, k);
+					cellRef[c][count[c]] = i * numEquiv + j;
+					cellMul[c][count[c]++] = P;
+					P = P * tuples[i].getPosVals();
+				}
+			}
+		}
+	}
+
+	private int position(NTuple2 tuple, int j, int k) {
+		return usePerm ? tuple.getSymPosition(j, k) : tuple.getPosition(k);
+	}
+
+	public int getNumEquiv() {
+		return numEquiv;
+	}
+
+	public boolean getUsePerm() {
+		return usePerm;
+	}
+
+	/**
+	 * Calculate the LUT indices of the parent state from scratch.
+	 *
+	 * @param board the board vector of the parent state
+	 */
+	public void setParent(int[] board) {
+		parentBoard = board;
+		fullIndices(board, parentIdx);
+	}
+
+	private void fullIndices(int[] board, int[] idx) {
+		for (int i = 0; i < tuples.length; i++)
+			for (int j = 0; j < numEquiv; j++)
+				idx[i * numEquiv + j] = usePerm ? tuples[i].getIndex(board, j) : tuples[i].getIndex(board);
+	}
+
+	/**
+	 * Get the LUT indices of a child of the parent state set with {@link #setParent(int[])}: from the parent's
+	 * indices and the cells changed by the move (see {@link XNTupleFuncs#changedCells(StateObservation, int[], int[])}).
+	 * Only if the game does not report them, the board vector of the child is built.
+	 *
+	 * @param next	the child state, directly after the move
+	 * @param xnf	the game-specific n-tuple functions
+	 * @return {@code idx[i*numEquiv+j]}, the LUT index of n-tuple i under symmetry j. The array is reused on the
+	 * 				next call.
+	 */
+	public int[] child(StateObservation next, XNTupleFuncs xnf) {
+		int n = xnf.changedCells(next, cells, vals);
+		if (n < 0) return child(xnf.getBoardVector(next).bvec);
+		System.arraycopy(parentIdx, 0, childIdx, 0, childIdx.length);
+		for (int r = 0; r < n; r++) {
+			int d = vals[r] - parentBoard[cells[r]];
+			if (d != 0) adjust(cells[r], d);
+		}
+		return childIdx;
+	}
+
+	/**
+	 * Get the LUT indices of a child of the parent state set with {@link #setParent(int[])} by comparing the board
+	 * vectors of parent and child.
+	 *
+	 * @param board	the board vector of the child state
+	 * @return {@code idx[i*numEquiv+j]}, the LUT index of n-tuple i under symmetry j. The array is reused on the
+	 * 				next call.
+	 */
+	public int[] child(int[] board) {
+		System.arraycopy(parentIdx, 0, childIdx, 0, childIdx.length);
+		int cost = 0;
+		for (int c = 0; c < board.length && cost <= numRefs / 2; c++) {
+			int d = board[c] - parentBoard[c];
+			if (d != 0) cost += adjust(c, d);
+		}
+		if (cost > numRefs / 2)			// too many changes, a full calculation is cheaper
+			fullIndices(board, childIdx);
+		return childIdx;
+	}
+
+	private int adjust(int c, int d) {
+		int[] ref = cellRef[c];
+		int[] mul = cellMul[c];
+		for (int r = 0; r < ref.length; r++)
+			childIdx[ref[r]] += d * mul[r];
+		return ref.length;
+	}
+}
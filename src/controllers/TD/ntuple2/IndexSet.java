@@ -0,0 +1,98 @@
+package controllers.TD.ntuple2;
+
+import java.util.Arrays;
+
+import controllers.TD.ntuple4.NTuple4;
+
+/**
+ * A small open-addressed set of {@code int} LUT indices, used by {@link NTuple2#updateNew(int[], double, double, double)}
+ * and {@link NTuple4#updateNew(int[], double, double, double)} to update each LUT index only once per state, even if
+ * several symmetric boards map to the same index.
+ * <p>
+ * The set is primitive and allocation-free in normal operation: Each slot carries an epoch stamp, and
+ * {@link #clear()} just starts a new epoch, so that all slots from earlier epochs count as empty.
+ */
+public class IndexSet {
+	private int[] keys;
+	private int[] stamps;		// stamps[h]==epoch: slot h is occupied in the current epoch
+	private int epoch = 1;
+	private int size = 0;
+	private int mask;
+
+	/**
+	 * @param expectedSize the expected number of indices between two calls to {@link #clear()} (the set grows
+	 * 		automatically, if more indices are added)
+	 */
+	public IndexSet(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, 2*expectedSize) - 1) << 1;
+		keys = new int[capacity];
+		stamps = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Remove all indices from the set
+	 */
+	public void clear() {
+		size = 0;
+		if (++epoch == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			epoch = 1;
+		}
+	}
+
+	/**
+	 * Add {@code key} to the set.
+	 *
+	 * @return true, if {@code key} was not yet in the set, false else
+	 */
+	public boolean add(int key) {
+		int h = hash(key) & mask;
+		while (stamps[h] == epoch) {
+			if (keys[h] == key) return false;
+			h = (h + 1) & mask;
+		}
+		keys[h] = key;
+		stamps[h] = epoch;
+		if (++size > (mask >> 1)) grow();
+		return true;
+	}
+
+	/**
+	 * @return true, if {@code key} is in the set
+	 */
+	public boolean contains(int key) {
+		int h = hash(key) & mask;
+		while (stamps[h] == epoch) {
+			if (keys[h] == key) return true;
+			h = (h + 1) & mask;
+		}
+		return false;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		int[] oldStamps = stamps;
+		int capacity = 2 * keys.length;
+		keys = new int[capacity];
+		stamps = new int[capacity];
+		mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldStamps[i] == epoch) {
+				int h = hash(oldKeys[i]) & mask;
+				while (stamps[h] == epoch) h = (h + 1) & mask;
+				keys[h] = oldKeys[i];
+				stamps[h] = epoch;
+			}
+		}
+	}
+}
@@ -2,10 +2,10 @@ package controllers.TD.ntuple2;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.Random;
 
 import controllers.TD.ntuple4.NTuple4;
@@ -56,21 +56,24 @@ public class NTuple2 implements Serializable {
 
 	private int[] nTuple;
 	private int posVals; // # of possible values for a field of the board
-	private double lut[];
-	private transient double tcN[] = null;
-	private transient double tcA[] = null;
-	private transient double tcFactorArray[] = null;
+	private transient int[][] symTuple = null;	// symTuple[s][i]: board cell which goes into position i under symmetry s
+	private double lut[];				// only needed to load agents saved before lutStore was introduced
+	private WeightStore lutStore;		// the LUT weights, see ParNT#getLutMode()
+	private transient WeightStore tcN = null;
+	private transient WeightStore tcA = null;
+	private transient WeightStore tcFactorArray = null;
 	//private transient double tcDampArray[] = null;   // currently not used
 	
 	// the following elements are needed in update(): if a certain index of the LUT is 
 	// invoked more than once during a weight update for state s_k (multiple calls to updateNew(), 
 	// if there are equivalent states (symmetric to s_k)), then it is updated only *once*. This 
-	// is realized by remembering the already visited indices in indexList.
+	// is realized by remembering the already visited indices in indexSet (an epoch-stamped
+	// primitive set, cleared in O(1) by clearIndices()).
 	// It ensures that an update with ALPHA=1.0 changes the LUT in such a way that a subsequent
 	// call getScoreI() returns a value identical to the target of that update.
-	private transient LinkedList indexList = new LinkedList();
+	private transient IndexSet indexSet = new IndexSet(8);
 //	private transient int trainCounter[] = null;
-//	private boolean useIndexList = true;	// true: use indexList in updateNew()
+//	private boolean useIndexList = true;	// true: use indexList (now indexSet) in updateNew()
 //											// false: use trainCounter in updateNew()
 //											// (useIndexList is now always true, since it is faster by a 
 //											// factor of 7 and it avoids the memory for trainCounter)
@@ -118,49 +121,82 @@ public class NTuple2 implements Serializable {
 		rand = new Random();
 		this.nTuple = nTuple.clone();
 		this.posVals = posVals;
-		lut = new double[(int) Math.pow(posVals, nTuple.length)];
+		lutStore = WeightStore.create(ntPar.getLutMode(), WeightStore.lutLength(posVals, nTuple.length));
 		if (TC) {
-			tcN = new double[lut.length]; // matrix N in TC
-			tcA = new double[lut.length]; // matrix A in TC
-			tcFactorArray = new double[lut.length]; // tcFactor=|N|/A
+			int mode = lutStore.getMode();
+			tcN = WeightStore.create(mode, lutStore.length()); // matrix N in TC
+			tcA = WeightStore.create(mode, lutStore.length()); // matrix A in TC
+			tcFactorArray = WeightStore.create(mode, lutStore.length()); // tcFactor=|N|/A
 			//tcDampArray = new double[lut.length]; // /WK/ for NEW_WK
 			//dWArray = new double[lut.length];	// for accumulating TC (tcImm==false)
 			
 			// initializing N and A matrices and tcFactor=|N|/A
-			for (int i = 0; i < lut.length; i++) {
-				tcN[i] = INIT;
-				tcA[i] = INIT;
-				tcFactorArray[i] = 1.0;
-				//tcDampArray[i] = 1.0;			
-			}
+			tcN.fill(INIT);
+			tcA.fill(INIT);
+			tcFactorArray.fill(1.0);
 		}
 		
 		if (DW_DBG) {
-			dWOld = new double[lut.length];
-			countP = new int[lut.length];
-			countM = new int[lut.length];
+			dWOld = new double[lutStore.length()];
+			countP = new int[lutStore.length()];
+			countM = new int[lutStore.length()];
 		}
 
 //		if (useIndexList==false)
 //			trainCounter = new int[lut.length];
 	}
 
+	/**
+	 * Construct a view of {@code other} which <b>shares</b> the LUT and the TC arrays with {@code other}, but has
+	 * its own {@code indexSet} and its own random number generator. Used for Hogwild-style parallel training
+	 * where several worker threads update the same weights without synchronization.
+	 *
+	 * @param other the n-tuple whose weights are shared
+	 *
+	 * @see NTuple2ValueFunc#sharedWeightsCopy(NTupleAgt)
+	 */
+	NTuple2(NTuple2 other) {
+		this.INIT = other.INIT;
+		this.TC = other.TC;
+		this.tcImm = other.tcImm;
+		this.tcAccRW = other.tcAccRW;
+		this.tcEXP = other.tcEXP;
+		this.tcBeta = other.tcBeta;
+		this.rand = new Random();
+		this.nTuple = other.nTuple;
+		this.posVals = other.posVals;
+		this.lutStore = other.lutStore;
+		this.tcN = other.tcN;
+		this.tcA = other.tcA;
+		this.tcFactorArray = other.tcFactorArray;
+		this.DW_DBG = false;
+	}
+
+	/**
+	 * Agents saved before {@link WeightStore} was introduced have their weights in {@code lut}: wrap them.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (lutStore==null) {
+			lutStore = WeightStore.wrap(lut);
+			lut = null;
+		}
+	}
+
 	public boolean instantiateAfterLoading() {
-		indexList = new LinkedList();
+		indexSet = new IndexSet(8);
 		if (TC) {
-			tcN = new double[lut.length]; // matrix N in TC
-			tcA = new double[lut.length]; // matrix A in TC
-			tcFactorArray = new double[lut.length]; // tcFactor=|N|/A
+			int mode = lutStore.getMode();
+			tcN = WeightStore.create(mode, lutStore.length()); // matrix N in TC
+			tcA = WeightStore.create(mode, lutStore.length()); // matrix A in TC
+			tcFactorArray = WeightStore.create(mode, lutStore.length()); // tcFactor=|N|/A
 			//tcDampArray = new double[lut.length]; // /WK/ for NEW_WK
 			//dWArray = new double[lut.length];	// for accumulating TC (tcImm==false)
 			
 			// initializing N and A matrices and tcFactor=|N|/A
-			for (int i = 0; i < lut.length; i++) {
-				tcN[i] = INIT;
-				tcA[i] = INIT;
-				tcFactorArray[i] = 1.0;
-				//tcDampArray[i] = 1.0;			
-			}
+			tcN.fill(INIT);
+			tcA.fill(INIT);
+			tcFactorArray.fill(1.0);
 		}
 		return true;
 	}
@@ -174,15 +210,57 @@ public class NTuple2 implements Serializable {
 	 * @return the corresponding index into the LUT
 	 */
 	public int getIndex(int[] board) {
+		return getIndex(board, nTuple);
+	}
+
+	/**
+	 * Same as {@link #getIndex(int[])} for the s-th symmetric board of {@code board}, but without constructing
+	 * the symmetric board. Requires a prior call to {@link #setSymmetryPermutations(int[][])}.
+	 *
+	 * @param board the original (untransformed) board
+	 * @param s		the symmetry index
+	 * @return the LUT index for the s-th symmetric board
+	 */
+	public int getIndex(int[] board, int s) {
+		return getIndex(board, symTuple[s]);
+	}
+
+	/**
+	 * @param s	the symmetry index
+	 * @param i the position in this n-tuple
+	 * @return the board cell which goes into position {@code i} under symmetry {@code s}. Requires a prior call
+	 * 		to {@link #setSymmetryPermutations(int[][])}.
+	 */
+	public int getSymPosition(int s, int i) {
+		return symTuple[s][i];
+	}
+
+	private int getIndex(int[] board, int[] positions) {
 		int index = 0;
 		int P=1; 		// P = (posVals)^i in i-loop below
-		for (int i = 0; i < nTuple.length; i++) {
-			index += P * ( board[nTuple[i]]);
+		for (int i = 0; i < positions.length; i++) {
+			index += P * ( board[positions[i]]);
 			P = P*posVals;
 		}
 		return index;
 	}
 
+	/**
+	 * Precompose the positions of this n-tuple with the symmetry permutations, such that the LUT index of the
+	 * s-th symmetric board can be calculated directly from the original board.
+	 *
+	 * @param perm the permutation tables from {@link XNTupleFuncs#symmetryPermutations()}
+	 *
+	 * @see #getScore(int[], int)
+	 * @see #getIndex(int[], int)
+	 */
+	void setSymmetryPermutations(int[][] perm) {
+		symTuple = new int[perm.length][nTuple.length];
+		for (int s = 0; s < perm.length; s++)
+			for (int i = 0; i < nTuple.length; i++)
+				symTuple[s][i] = perm[s][nTuple[i]];
+	}
+
 //	/**
 //	 * Get the game board corresponding to this LUT index for this NTuple.<br>
 //	 * (--- currently not used inside GBG [still specific to TTT] ---)
@@ -241,8 +319,8 @@ public class NTuple2 implements Serializable {
 	 *            If {@code false}, all weights are set to 0.0.
 	 */
 	public void initWeights(boolean random) {
-		for (int i = 0; i < lut.length; i++)
-			lut[i] = (random ? EPS * (rand.nextDouble() * 2 - 1) : 0.0);
+		for (int i = 0; i < lutStore.length(); i++)
+			lutStore.set(i, (random ? EPS * (rand.nextDouble() * 2 - 1) : 0.0));
 	}
 
     /**
@@ -258,7 +336,7 @@ public class NTuple2 implements Serializable {
 	 */
 	public double getScore(int[] board) {
 		int Index = getIndex(board);
-		double score = lut[Index];
+		double score = lutStore.get(Index);
 		
 //		final double MAXSCORE = 3932156; 
 //		System.out.println(Index + " ["+score*MAXSCORE+"]");  //debug
@@ -266,6 +344,18 @@ public class NTuple2 implements Serializable {
 		return score;
 	}
 
+	/**
+	 * Same as {@link #getScore(int[])} for the s-th symmetric board of {@code board}, but without constructing
+	 * the symmetric board. Requires a prior call to {@link #setSymmetryPermutations(int[][])}.
+	 *
+	 * @param board the original (untransformed) board
+	 * @param s		the symmetry index
+	 * @return the LUT weight for the s-th symmetric board
+	 */
+	public double getScore(int[] board, int s) {
+		return lutStore.get(getIndex(board, symTuple[s]));
+	}
+
 //	/**
 //	 * Update the weights of this NTuple for one specific board (not using
 //	 * symmetries)
@@ -338,9 +428,16 @@ public class NTuple2 implements Serializable {
 	 * @see NTuple2ValueFunc#update(StateObsWithBoardVector, int, int, double, double, boolean, boolean)
 	 */
 	public void updateNew(int[] board, double alphaM, double delta, double e /*, double LAMBDA*/) {
-		int index = getIndex(board);
-		Integer indexI = new Integer(index);
+		updateIndex(getIndex(board), alphaM, delta, e);
+	}
 
+	/**
+	 * Same as {@link #updateNew(int[], double, double, double)}, but for an already calculated LUT index
+	 * (e.g. cached in {@link EligTrace})
+	 *
+	 * @param index  the LUT index from {@link #getIndex(int[])} or {@link #getIndex(int[], int)}
+	 */
+	public void updateIndex(int index, double alphaM, double delta, double e) {
 		double tcFactor = getTcFactor(index);	// returns 1 if (!TC)
 				
 		double rW = delta * e;					// recommended weight change
@@ -356,10 +453,11 @@ public class NTuple2 implements Serializable {
 
 //		if (useIndexList) {		// useIndexList==true is the recommended choice
 			if (!TC || (TC && tcImm)) {
-				if (!indexList.contains(indexI)) 
-					lut[index] += dW;				
-			}		
-			indexList.add(indexI);
+				if (indexSet.add(index)) 
+					lutStore.add(index, dW);				
+			} else {
+				indexSet.add(index);
+			}
 //		} 
 
 //		if (TC)
@@ -376,17 +474,17 @@ public class NTuple2 implements Serializable {
 	 */
 	private double setTcFactor(int index, double accum) {
 		if (TC) {
-			tcN[index] += accum;
-			tcA[index] += Math.abs(accum);
+			tcN.add(index, accum);
+			tcA.add(index, Math.abs(accum));
 
 			if (tcImm) {
-				double arg = (double) Math.abs(tcN[index]) / tcA[index];
+				double arg = Math.abs(tcN.get(index)) / tcA.get(index);
 				if (tcEXP) {
 					arg = Math.exp(tcBeta*(arg-1));
 				}
-				tcFactorArray[index] = arg;
+				tcFactorArray.set(index, arg);
 			} 
-			return tcFactorArray[index];
+			return tcFactorArray.get(index);
 		} else {
 			return 1;
 		}
@@ -395,8 +493,8 @@ public class NTuple2 implements Serializable {
 	// currently not used
 	@Deprecated
 	public void weightDecay(double factor) {
-		for (int k=0; k<lut.length; k++)
-			lut[k] *= factor;
+		for (int k=0; k<lutStore.length(); k++)
+			lutStore.set(k, lutStore.get(k)*factor);
 	}
 	
 	/**
@@ -405,8 +503,8 @@ public class NTuple2 implements Serializable {
 	 * @return the kth weight for this NTuple
 	 */
 	public double getWeight(int k) {
-		assert (k >= 0 && k < lut.length) : " k is not a valid LUT index";
-		return lut[k];
+		assert (k >= 0 && k < lutStore.length()) : " k is not a valid LUT index";
+		return lutStore.get(k);
 	}
 
 //	/**
@@ -430,16 +528,30 @@ public class NTuple2 implements Serializable {
 //		return tcA[k];
 //	}
 
+	/**
+	 * @return the LUT weights. If the LUT mode is not {@link WeightStore#DOUBLE}, this is a copy.
+	 */
 	public double[] getWeights() {
-		return lut;
+		return lutStore.toArray();
 	}
 	
-	public double[] getTcFactorArray() {
+	public WeightStore getWeightStore() {
+		return lutStore;
+	}
+	
+	/**
+	 * @return the TC factors, null if not (yet) present (TC off or before {@link #instantiateAfterLoading()})
+	 */
+	public WeightStore getTcFactorStore() {
 		return tcFactorArray;
 	}
+
+	public double[] getTcFactorArray() {
+		return (tcFactorArray==null) ? null : tcFactorArray.toArray();
+	}
 	
 	public double getTcFactor(int Index) {
-		return (TC) ? tcFactorArray[Index] : 1.0;
+		return (TC) ? tcFactorArray.get(Index) : 1.0;
 	}
 	
 	public boolean getTc() {
@@ -452,7 +564,7 @@ public class NTuple2 implements Serializable {
 
 	public void clearIndices() {
 //		if (useIndexList) {
-			indexList.clear();			
+			indexSet.clear();			
 //		} else {
 //			// very slow!!!
 //			for (int k=0; k<trainCounter.length; k++)
@@ -462,13 +574,13 @@ public class NTuple2 implements Serializable {
 
 	public int getCountP(int k) {
 		if (!DW_DBG) return 0;
-		assert (k >= 0 && k < lut.length) : " k is not a valid LUT index";
+		assert (k >= 0 && k < lutStore.length()) : " k is not a valid LUT index";
 		return countP[k];
 	}
 
 	public int getCountM(int k) {
 		if (!DW_DBG) return 0;
-		assert (k >= 0 && k < lut.length) : " k is not a valid LUT index";
+		assert (k >= 0 && k < lutStore.length()) : " k is not a valid LUT index";
 		return countM[k];
 	}
 
@@ -488,7 +600,7 @@ public class NTuple2 implements Serializable {
 	 * @return the length of the LUT for this NTuple
 	 */
 	public int getLutLength() {
-		return lut.length;
+		return lutStore.length();
 	}
 
 	public int getPosVals() {
@@ -508,9 +620,9 @@ public class NTuple2 implements Serializable {
 			//for (int i = 0; i < lut.length; i++)
 			//	tcFactorArray[i] = (double) Math.abs(tcN[i]) / tcA[i];
 
-			for (int i = 0; i < lut.length; i++) {
-				tcFactorArray[i] = (double) Math.abs(tcN[i]) / tcA[i];
-				lut[i] += tcFactorArray[i]* dWArray[i];				// ??correct to update lut here?? TODO
+			for (int i = 0; i < lutStore.length(); i++) {
+				tcFactorArray.set(i, Math.abs(tcN.get(i)) / tcA.get(i));
+				lutStore.add(i, tcFactorArray.get(i)* dWArray[i]);	// ??correct to update lut here?? TODO
 				dWArray[i]=0.0;
 			}
 		}
@@ -534,10 +646,10 @@ public class NTuple2 implements Serializable {
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-		tableN.println("" +Arrays.toString(tcN));
+		tableN.println("" +Arrays.toString(tcN.toArray()));
 	    tableN.close();
 
-		tableA.println("" +Arrays.toString(tcA));
+		tableA.println("" +Arrays.toString(tcA.toArray()));
 		tableA.close();
 		
 	}
@@ -562,17 +674,17 @@ public class NTuple2 implements Serializable {
 
 	public int lutHashSum() {
 		int hs=0; 
-		for (int i=0; i<lut.length; i++) if (lut[i]>0) hs += i;
+		for (int i=0; i<lutStore.length(); i++) if (lutStore.get(i)>0) hs += i;
 		return (hs%100);
 	}
 	public double lutSum() {
 		double ls=0; 
-		for (int i=0; i<lut.length; i++) ls += lut[i];
+		for (int i=0; i<lutStore.length(); i++) ls += lutStore.get(i);
 		return ls;
 	}
 	public double lutSumAbs() {
 		double ls=0; 
-		for (int i=0; i<lut.length; i++) ls += Math.abs(lut[i]);
+		for (int i=0; i<lutStore.length(); i++) ls += Math.abs(lutStore.get(i));
 		return ls;
 	}
 }
@@ -8,8 +8,7 @@ import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.commons.math3.stat.descriptive.rank.Min;
@@ -82,7 +81,14 @@ public class NTuple2ValueFunc implements Serializable {
 	// elements needed for TD(lambda)-update with finite horizon, 
 	// see update(int[],int,double,double):
 	private int horizon=0;
-	private transient LinkedList<EligStates>[] eList;
+	private transient EligTrace[] eList;
+
+	// symmetries as cell permutations (null if the game has none), see getSymPerm():
+	private transient int[][] symPerm = null;
+	private transient volatile boolean symPermDone = false;
+	// the incremental LUT index calculation for getAfterstateScores (created on demand, one per thread, since it
+	// keeps per-state buffers):
+	private transient volatile ThreadLocal<IncrementalIndex> incIndex = null;
 
 	private final boolean PRINTNTUPLES = false;	// /WK/ control the file printout of n-tuples (when loading agents)
 	private final DecimalFormat frmS = new DecimalFormat("+0.00000;-0.00000");
@@ -128,18 +134,59 @@ public class NTuple2ValueFunc implements Serializable {
 		this.xnf = xnf;
 		this.numPlayers = xnf.getNumPlayers();
 		this.numOutputs = numOutputs;
-		this.eList = new LinkedList[this.numPlayers];
-		for (int ie=0; ie<eList.length; ie++) eList[ie] = new LinkedList<EligStates>();
 		this.tdAgt = parent;
 		
 		if (nTuplesI!=null) {
 			this.numTuples = nTuplesI.length;
+			this.eList = new EligTrace[this.numPlayers];
+			for (int ie=0; ie<eList.length; ie++) eList[ie] = new EligTrace(numTuples, horizon);
 			initNTuples(nTuplesI, posVals, randInitWeights, tcPar, numCells);
 		} else {
 			throw new RuntimeException("Error: nTuplesI not initialized");
 		}
 	}
 
+	/**
+	 * Construct a value function which <b>shares</b> all LUT weights with {@code other}, but has its own
+	 * eligibility lists {@code eList}, its own learn-action counter and its own {@code ALPHA}.
+	 *
+	 * @param other		the value function whose weights are shared
+	 * @param parent	the (worker) agent where the new object is part of
+	 */
+	private NTuple2ValueFunc(NTuple2ValueFunc other, NTupleAgt parent) {
+		this.xnf = other.xnf;
+		this.numPlayers = other.numPlayers;
+		this.numOutputs = other.numOutputs;
+		this.numTuples = other.numTuples;
+		this.ALPHA = other.ALPHA;
+		this.m_AlphaChangeRatio = other.m_AlphaChangeRatio;
+		this.epochMax = other.epochMax;
+		this.rpropLrn = other.rpropLrn;
+		this.horizon = other.horizon;
+		this.tdAgt = parent;
+		this.eList = new EligTrace[this.numPlayers];
+		for (int ie=0; ie<eList.length; ie++) eList[ie] = new EligTrace(numTuples, horizon);
+		this.nTuples = new NTuple2[numOutputs][numPlayers][numTuples];
+		for (int o=0; o<numOutputs; o++)
+			for (int k=0; k<numPlayers; k++)
+				for (int i = 0; i < numTuples; i++)
+					this.nTuples[o][k][i] = new NTuple2(other.nTuples[o][k][i]);
+	}
+
+	/**
+	 * Create a value function for a worker thread in Hogwild-style parallel training: The returned object shares
+	 * the weights of all n-tuples with {@code this} (updates through the copy are visible in {@code this} and vice
+	 * versa, they are done without any synchronization), but it has its own eligibility lists.
+	 *
+	 * @param parent	the (worker) agent where the copy is part of
+	 * @return the shared-weights copy
+	 *
+	 * @see TDNTuple3Agt#trainAgentParallel(java.util.List)
+	 */
+	NTuple2ValueFunc sharedWeightsCopy(NTupleAgt parent) {
+		return new NTuple2ValueFunc(this, parent);
+	}
+
 	void initNTuples(int[][] nTuplesI, int posVals, boolean randInitWeights,
 			ParNT ntPar, int numCells) {
 		if (numOutputs==0) 
@@ -163,8 +210,8 @@ public class NTuple2ValueFunc implements Serializable {
 	}
 
 	public boolean instantiateAfterLoading() {
-		this.eList = new LinkedList[this.numPlayers];
-		for (int ie=0; ie<eList.length; ie++) eList[ie] = new LinkedList<EligStates>();
+		this.eList = new EligTrace[this.numPlayers];
+		for (int ie=0; ie<eList.length; ie++) eList[ie] = new EligTrace(numTuples, horizon);
 		for (int i = 0; i < numTuples; i++) {
 			for (int o=0; o<numOutputs; o++) {
 				for (int k=0; k<numPlayers; k++) {
@@ -207,11 +254,13 @@ public class NTuple2ValueFunc implements Serializable {
 	public double getQFunc(StateObsWithBoardVector curSOWB, int player, Types.ACTIONS act) {
 		int i, j;
 		double score = 0.0;
-		BoardVector[] equiv;
+		BoardVector[] equiv = null;
 		int[] equivAction;
+		int[][] perm = getSymPerm();
 
-		// Get equivalent boards (including self)
-		equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
+		// Get equivalent boards (including self) - or, if the symmetries are cell permutations, 
+		// only the board itself
+		if (perm==null) equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
 		equivAction = xnf.symmetryActions(act.toInt());
 
 		for (i=0; i<equivAction.length; i++) {
@@ -222,9 +271,19 @@ public class NTuple2ValueFunc implements Serializable {
 			}
 		}
 		
-		for (i = 0; i < numTuples; i++) {
-			for (j = 0; j < equiv.length; j++) {
-				score += nTuples[equivAction[j]][player][i].getScore(equiv[j].bvec);
+		if (perm!=null) {
+			int[] board = curSOWB.getBoardVector().bvec;
+			int numEquiv = (getUSESYMMETRY() ? perm.length : 1);
+			for (i = 0; i < numTuples; i++) {
+				for (j = 0; j < numEquiv; j++) {
+					score += nTuples[equivAction[j]][player][i].getScore(board,j);
+				}
+			}
+		} else {
+			for (i = 0; i < numTuples; i++) {
+				for (j = 0; j < equiv.length; j++) {
+					score += nTuples[equivAction[j]][player][i].getScore(equiv[j].bvec);
+				}
 			}
 		}
 
@@ -244,6 +303,20 @@ public class NTuple2ValueFunc implements Serializable {
 		int i, j;
 		double score = 0.0; 
 		BoardVector[] equiv;
+		int[][] perm = getSymPerm();
+
+		if (perm!=null) {
+			// the symmetries are cell permutations: calculate the LUT indices of all symmetric
+			// boards directly from the board itself (same order of summation as below)
+			int[] board = curSOWB.getBoardVector().bvec;
+			int numEquiv = (getUSESYMMETRY() ? perm.length : 1);
+			for (i = 0; i < numTuples; i++) {
+				for (j = 0; j < numEquiv; j++) {
+					score += nTuples[0][player][i].getScore(board,j);
+				}
+			}
+			return (hasSigmoid() ? Math.tanh(score) : score);
+		}
 
 		// Get equivalent boards (including self)
 		equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
@@ -261,6 +334,125 @@ public class NTuple2ValueFunc implements Serializable {
 		return (hasSigmoid() ? Math.tanh(score) : score);
 	}
 
+	/**
+	 * Get the action-value function Q for all actions {@code acts} in state {@code curSOWB} in one call. Same as
+	 * calling {@link #getQFunc(StateObsWithBoardVector, int, Types.ACTIONS)} for each action, but the equivalent
+	 * boards (or the board itself, if the symmetries are cell permutations) are calculated only once.
+	 *
+	 * @param curSOWB	the state
+	 * @param player	the player who has to move in {@code curSOWB} (0,...,N-1)
+	 * @param acts		the actions
+	 * @return the Q values, one for each action in {@code acts}
+	 */
+	public double[] getQFuncs(StateObsWithBoardVector curSOWB, int player, List<Types.ACTIONS> acts) {
+		int i, j;
+		double[] qValues = new double[acts.size()];
+		BoardVector[] equiv = null;
+		int[] board = null;
+		int numEquiv;
+		int[][] perm = getSymPerm();
+		boolean sigmoid = hasSigmoid();
+
+		if (perm!=null) {
+			board = curSOWB.getBoardVector().bvec;
+			numEquiv = (getUSESYMMETRY() ? perm.length : 1);
+		} else {
+			equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
+			numEquiv = equiv.length;
+		}
+
+		for (int k = 0; k < acts.size(); k++) {
+			int[] equivAction = xnf.symmetryActions(acts.get(k).toInt());
+			double score = 0.0;
+			for (i = 0; i < numTuples; i++) {
+				for (j = 0; j < numEquiv; j++) {
+					NTuple2 ntuple = nTuples[equivAction[j]][player][i];
+					score += (board!=null) ? ntuple.getScore(board,j) : ntuple.getScore(equiv[j].bvec);
+				}
+			}
+			qValues[k] = (sigmoid ? Math.tanh(score) : score);
+		}
+		return qValues;
+	}
+
+	/**
+	 * Get the values V(s'|p) of all afterstates s' of state {@code so} in one call, where p is the player to
+	 * move in {@code so}. For each action {@code acts.get(k)} the afterstate is generated from a copy of {@code so}
+	 * and scored with the same summation as in {@link #getScoreI(StateObsWithBoardVector, int)}. The symmetry
+	 * setup, the n-tuples of player p and the other per-call lookups of {@link #getScoreI(StateObsWithBoardVector, int)}
+	 * are done only once for all siblings. If the symmetries are cell permutations (or no symmetries are used),
+	 * the LUT indices are calculated once for {@code so} and only adjusted for the cells changed by each action
+	 * (see {@link IncrementalIndex}).
+	 * <p>
+	 * Actions with {@link Types.ACTIONS#isEqualToInverseOfLastAction(StateObservation)} (only relevant for
+	 * RubiksCube) are skipped: Their {@code nextSO[k]} is null and their value is {@code Double.NaN}.
+	 * Game-over afterstates get the value 0 (no expected future rewards).
+	 *
+	 * @param so			the parent state
+	 * @param acts			the actions available in {@code so}
+	 * @param afterstate	if true, generate s' with {@link StateObservation#advanceDeterministic(Types.ACTIONS)}
+	 * 						(the caller has to call {@link StateObservation#advanceNondeterministic()} afterwards,
+	 * 						if needed), else with {@link StateObservation#advance(Types.ACTIONS)}
+	 * @param nextSO		on output, {@code nextSO[k]} holds the state generated by {@code acts.get(k)} (or null,
+	 * 						if skipped). Has to have at least {@code acts.size()} elements.
+	 * @return the values V(s'|p), one for each action in {@code acts}
+	 *
+	 * @see TDNTuple3Agt#getNextAction2(StateObservation, boolean, boolean)
+	 */
+	public double[] getAfterstateScores(StateObservation so, List<Types.ACTIONS> acts, boolean afterstate,
+										StateObservation[] nextSO) {
+		int i, j;
+		double[] scores = new double[acts.size()];
+		int[][] perm = getSymPerm();
+		boolean useSymmetry = getUSESYMMETRY();
+		int nSym = getNSym();
+		boolean sigmoid = hasSigmoid();
+		int numEquiv = (perm==null) ? 1 : (useSymmetry ? perm.length : 1);
+		NTuple2[] tuples = nTuples[0][so.getPlayer()];
+
+		// If the LUT indices can be calculated directly from the board (symmetries are cell permutations or
+		// no symmetries are used), calculate them once for the parent and adjust them incrementally for each
+		// afterstate:
+		IncrementalIndex inc = null;
+		if (perm!=null || !useSymmetry) {
+			inc = getIncrementalIndex(numEquiv, perm!=null);
+			inc.setParent(xnf.getBoardVector(so).bvec);
+		}
+
+		for (int k = 0; k < acts.size(); k++) {
+			Types.ACTIONS act = acts.get(k);
+			if (act.isEqualToInverseOfLastAction(so)) {
+				nextSO[k] = null;
+				scores[k] = Double.NaN;
+				continue;
+			}
+			StateObservation newSO = so.copy();
+			if (afterstate) {
+				newSO.advanceDeterministic(act);
+			} else {
+				newSO.advance(act);
+			}
+			nextSO[k] = newSO;
+			if (newSO.isGameOver())
+				continue;		// scores[k] = 0.0
+
+			double score = 0.0;
+			if (inc!=null) {
+				int[] idx = inc.child(newSO, xnf);
+				for (i = 0; i < numTuples; i++)
+					for (j = 0; j < numEquiv; j++)
+						score += tuples[i].getWeightStore().get(idx[i*numEquiv+j]);
+			} else {
+				BoardVector[] equiv = getSymBoards2(new StateObsWithBoardVector(newSO, xnf), useSymmetry, nSym);
+				for (i = 0; i < numTuples; i++)
+					for (j = 0; j < equiv.length; j++)
+						score += tuples[i].getScore(equiv[j].bvec);
+			}
+			scores[k] = (sigmoid ? Math.tanh(score) : score);
+		}
+		return scores;
+	}
+
 	/**
 	 * Get the equivalent positions to one board. The first one 
 	 * is the board itself. The other can be generated
@@ -299,6 +491,49 @@ public class NTuple2ValueFunc implements Serializable {
 		return equiv;
 	}
 
+	/**
+	 * @return an {@link IncrementalIndex} for {@code numEquiv} symmetries, created on first call or if the
+	 * 		symmetry setting has changed
+	 */
+	private IncrementalIndex getIncrementalIndex(int numEquiv, boolean usePerm) {
+		if (incIndex==null) {
+			synchronized (this) {
+				if (incIndex==null) incIndex = new ThreadLocal<>();
+			}
+		}
+		IncrementalIndex inc = incIndex.get();
+		if (inc==null || inc.getNumEquiv()!=numEquiv || inc.getUsePerm()!=usePerm) {
+			inc = new IncrementalIndex(nTuples[0][0], numEquiv, usePerm, xnf.getNumCells());
+			incIndex.set(inc);
+		}
+		return inc;
+	}
+
+	/**
+	 * @return the symmetry permutations {@link XNTupleFuncs#symmetryPermutations()} or null, if the game's
+	 * 		symmetries are no cell permutations. On first call, the n-tuples are prepared for the permutations.
+	 */
+	private int[][] getSymPerm() {
+		if (!symPermDone) {
+			synchronized (this) {
+				if (!symPermDone) initSymPerm();
+			}
+		}
+		return symPerm;
+	}
+
+	private void initSymPerm() {
+		symPerm = xnf.symmetryPermutations();
+		if (symPerm!=null) {
+			assert symPerm.length == xnf.getNumSymmetries() : "number of symmetry permutations differs from getNumSymmetries()";
+			for (int o=0; o<numOutputs; o++)
+				for (int k=0; k<numPlayers; k++)
+					for (int i=0; i<numTuples; i++)
+						nTuples[o][k][i].setSymmetryPermutations(symPerm);
+		}
+		symPermDone = true;
+	}
+
 	private int[] getSymActions(int output, boolean useSymmetry) {
 		int[] equivActions;
 		if (useSymmetry) {
@@ -548,45 +783,53 @@ public class NTuple2ValueFunc implements Serializable {
 		int i, j, out;
 		double alphaM, lamFactor;
 
-		// Get equivalent boards (including self) and corresponding actions
-		BoardVector[] equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
+		// Get equivalent boards (including self) and corresponding actions. If the symmetries are 
+		// cell permutations, keep only the board itself and the number of equivalent boards.
+		int[][] perm = getSymPerm();
+		BoardVector[] equiv = null;
+		int[] board = null;
+		int numEquiv;
+		if (perm!=null) {
+			board = curSOWB.getBoardVector().bvec;
+			numEquiv = (getUSESYMMETRY() ? perm.length : 1);
+		} else {
+			equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
+			numEquiv = equiv.length;
+		}
 		int[] equivAction = (QMODE ? getSymActions(output, getUSESYMMETRY()) : null); 
 		// equivAction only needed for QMODE==true
 
-		alphaM = ALPHA / (numTuples*equiv.length); 
+		alphaM = ALPHA / (numTuples*numEquiv); 
 
-		// construct new EligStates object, add it at head of LinkedList eList[ie] and remove 
-		// from the list the element 'beyond horizon' t_0 = t-horizon (if any).
-		// The LinkedList to use is either always the same one (ie=0, if ELIST_PP==false) or 
-		// the list kept for each specific player 'player' (if ELIST_PP==true):
+		// add a new entry at the head of ring buffer eList[ie] and drop the entry 'beyond horizon'
+		// t_0 = t-horizon (if any). The LUT indices of all n-tuples and all equivalent boards are
+		// calculated only here, once per state, and cached in the entry.
+		// The ring buffer to use is either always the same one (ie=0, if ELIST_PP==false) or
+		// the one kept for each specific player 'player' (if ELIST_PP==true):
 		int ie = (ELIST_PP ? player : 0);
-		EligStates elem = new EligStates(equiv,equivAction,e);
-		eList[ie].addFirst(elem);
 		assert (horizon>0) : "[NTuple2ValueFunc.update] Error: horizon is 0 !";
-		if (eList[ie].size()>horizon) eList[ie].pollLast();
-		
-		// iterate over all list elements in horizon  (at most h+1 elements from t down to t_0):
-		ListIterator<EligStates> iter = eList[ie].listIterator();		
-		lamFactor=1;  // holds 1, LAMBDA, LAMBDA^2,... in successive passes through while-loop
-		while(iter.hasNext()) {
-			elem=iter.next();
-			equiv=elem.equiv;
-			equivAction=elem.equivAction;
-//			printEquivs(equiv,equivAction);		// debug (TTT only)
-			//System.out.println(eList[ie].size()+" "+lamFactor+"   ["+ equiv[0]+"]");	// debug
+		EligTrace trace = eList[ie];
+		int slot = trace.addFirst(numEquiv, equivAction, e, horizon);
+		for (i = 0; i < numTuples; i++) {
+			NTuple2 ntuple = nTuples[0][0][i];	// LUT index is the same for all outputs and players
+			for (j = 0; j < numEquiv; j++)
+				trace.setIndex(slot, i, j, (board!=null) ? ntuple.getIndex(board, j) : ntuple.getIndex(equiv[j].bvec));
+		}
+
+		// iterate over all trace entries in horizon  (at most h+1 entries from t down to t_0):
+		lamFactor=1;  // holds 1, LAMBDA, LAMBDA^2,... in successive passes through for-loop
+		for (int k = 0; k < trace.size(); k++) {
+			slot = trace.slot(k);
+			numEquiv = trace.getNumEquiv(slot);
+			equivAction = trace.getEquivAction(slot);
 			assert (lamFactor >= tdAgt.getParTD().getHorizonCut()) 
 					: "Error: lamFactor < ParTD.getHorizonCut";
-			e = lamFactor*elem.sigDeriv;
+			e = lamFactor*trace.getSigDeriv(slot);
 			for (i = 0; i < numTuples; i++) {
 				nTuples[output][player][i].clearIndices();
-				for (j = 0; j < equiv.length; j++) {
-					// this assertion is only valid for TicTacToe, where each action should be 
-					// on an empty field which is coded as '1' here:
-					//assert (equiv[j][equivAction[j]]==1) : "Oops, action TicTacToe not viable";
-					
+				for (j = 0; j < numEquiv; j++) {
 					out = (QMODE ? equivAction[j] : output);
-//					System.out.print("(i,j)=("+i+","+j+"):  ");		//debug
-					nTuples[out][player][i].updateNew(equiv[j].bvec, alphaM, delta, e);
+					nTuples[out][player][i].updateIndex(trace.getIndex(slot, i, j), alphaM, delta, e);
 				}
 			}
 			lamFactor *= getLambda(); 
@@ -695,6 +938,10 @@ public class NTuple2ValueFunc implements Serializable {
 		this.numLearnActions = 0L;
 	}
 
+	void addNumLearnActions(long incr) {
+		this.numLearnActions += incr;
+	}
+
 
 	public void clearEligList() {
 		for (int ie=0; ie<eList.length; ie++)
@@ -713,19 +960,6 @@ public class NTuple2ValueFunc implements Serializable {
 	}
 
 	
-	// class EligStates is needed in update(int[],int,int,double,double,boolean)
-	private class EligStates implements Serializable {
-		BoardVector[] equiv;
-		int[] equivAction;
-		double sigDeriv;
-		
-		EligStates(BoardVector[] equiv, int[] equivAction, double sigDeriv) {
-			this.equiv=equiv.clone();
-			this.equivAction=(equivAction==null ? null : equivAction.clone());
-			this.sigDeriv=sigDeriv;
-		}
-	}
-
 	//
 	// Debug only: 
 	//
@@ -856,53 +1090,35 @@ public class NTuple2ValueFunc implements Serializable {
 														// res[2]: quantiles of tcdat;
 		System.arraycopy(per, 0, res[0], 0, per.length);
 		
-		int count = 0;
+		long count = 0;
 		NTuple2[] ntuples = this.getNTuples();
 		for (int i=0; i<ntuples.length; i++) {
 			count += ntuples[i].getLutLength();
 		}
 		
-		// data is an array big enough to hold all LUT data. It will be filled below with all 
-		// active LUT weights (i.e. LUT  != 0.0). This distinction between active and 
-		// inactive weights works of course only, if LUTs are initialized with 0.0.
-		double[] data = new double[count];		
-		double[] tcdat = new double[count];
-		double[] lut;
-		double[] tcf=null;
-		int i, pos=0;
-		
-		// --- this is fast, but has the disadvantage that many zeros are included --> 
-		// --- 25%- 50%- and 75%-quantiles tend to be exactly zero
-		// --- (the zeros come from the fact that many weights are never visited in training)
-//		for (i=0,len=0; i<ntuples.length; i++) {
-//			len = ntuples[i].getLutLength();
-//			lut = ntuples[i].getWeights();
-//			assert lut.length==len : "length assertion error";
-//			System.arraycopy(lut, 0, data, pos, len);
-//			pos += len; 
-//		}
-
-		// --- this is slower, but quantiles for active weights are more meaningful
-		// --- and not always 0.0 (!)
+		// --- only the active weights (i.e. LUT != 0.0) are collected, since the quantiles of all weights
+		// --- tend to be exactly zero (many weights are never visited in training). This distinction between
+		// --- active and inactive weights works of course only, if LUTs are initialized with 0.0.
+		// --- WeightStore.nonZeroIndices() visits for sparse LUTs only the allocated pages.
+		int[][] active = new int[ntuples.length][];
+		int i, pos=0, nActive=0;
+		boolean hasTc = false;
 		for (i=0; i<ntuples.length; i++) {
-			lut = ntuples[i].getWeights();
-			tcf = ntuples[i].getTcFactorArray();
-			for (int j=0; j<lut.length; j++) {
-				if (lut[j]!=0) {
-					 if (tcf!=null) tcdat[pos] = tcf[j];
-					data[pos++] = lut[j];
-				}
+			active[i] = ntuples[i].getWeightStore().nonZeroIndices();
+			nActive += active[i].length;
+			hasTc = hasTc || (ntuples[i].getTcFactorStore()!=null);
+		}
+		double[] data = new double[nActive];	// data is an array holding all *active* LUT data.
+		double[] tcdat = new double[nActive];
+		for (i=0; i<ntuples.length; i++) {
+			WeightStore lut = ntuples[i].getWeightStore();
+			WeightStore tcf = ntuples[i].getTcFactorStore();
+			for (int j : active[i]) {
+				if (tcf!=null) tcdat[pos] = tcf.get(j);
+				data[pos++] = lut.get(j);
 			}
 		}
-		int nActive=pos;
 		int pActive = (int) Math.round(((double)nActive)/count*100);
-		  
-		double[] data2 = new double[nActive];	// data2 is an array holding all *active* LUT data.
-		double[] tcdat2 = new double[nActive];
-		System.arraycopy(data, 0, data2, 0, nActive);
-		System.arraycopy(tcdat, 0, tcdat2, 0, nActive);
-		data = data2;
-		tcdat = tcdat2;
 
 		// --- only testing / debug ---
 //		double[] data = {0,1,2,3,4,5,6,7,8,9};
@@ -934,13 +1150,12 @@ public class NTuple2ValueFunc implements Serializable {
 		df.applyPattern("+0.0000000;-0.0000000");  
 		System.out.println("[NTuple2ValueFunc.weightAnalysis] " + tdAgt.getClass().getSimpleName() + " ("
 				+count+" weights, "+nActive+" active ("+pActive+"%)): ");
-		//if (tcf==null) System.out.println("WARNING: tcFactorArray is null");
 		System.out.print("             per       LUT    ");
-		System.out.println((tcf==null) ? "" : " / tcFactor");
+		System.out.println((!hasTc) ? "" : " / tcFactor");
 		for (i=0; i<per.length; i++) {
 			System.out.print("   Quantile [" + form.format(per[i]) + "] = "	
 					+df.format(res[1][i]) );			
-			System.out.println((tcf==null) ? "" : " / " +df.format(res[2][i]));
+			System.out.println((!hasTc) ? "" : " / " +df.format(res[2][i]));
 		}
 
 		// print the n-tuple layout to file
@@ -959,9 +1174,8 @@ public class NTuple2ValueFunc implements Serializable {
 	 * @return  res[0]: number of weights, res[1]: number of active weights
 	 */
 	public int[] activeWeights() {
-		int count = 0;
+		long count = 0;
 		NTuple2[] ntuples = this.getNTuples();
-		double[] lut;
 		int i, pos;
 		
 		for (i=0; i<ntuples.length; i++) {
@@ -969,12 +1183,7 @@ public class NTuple2ValueFunc implements Serializable {
 		}
 		
 		for (i=0,pos=0; i<ntuples.length; i++) {
-			lut = ntuples[i].getWeights();
-			for (int j=0; j<lut.length; j++) {
-				if (lut[j]!=0) {
-					pos++;
-				}
-			}
+			pos += ntuples[i].getWeightStore().nonZeroIndices().length;
 		}
 		int nActive=pos;
 		int pActive = (int) Math.round(((double)nActive)/count*100);
@@ -982,7 +1191,7 @@ public class NTuple2ValueFunc implements Serializable {
 		System.out.println("[NTuple2ValueFunc.activeWeights] " + tdAgt.getClass().getSimpleName() + " ("
 				+count+" weights, "+nActive+" active ("+pActive+"%)): ");
 		
-		int[] res = {count,nActive}; //new int[2];
+		int[] res = {(int) Math.min(count, Integer.MAX_VALUE),nActive}; //new int[2];
 		return res;
 	}
 
@@ -264,6 +264,11 @@ public class SarsaAgt extends NTupleBase implements PlayAgent,NTupleAgt,Serializ
         VTable = new double[acts.size()];  
         
         assert acts.size()>0 : "Oops, no available action";
+
+        // the Q values of all actions in one call (the board and its symmetries are calculated only once)
+        double[] qValues = (randomSelect) ? null
+        		: m_Net.getQFuncs(new StateObsWithBoardVector(so, m_Net.xnf), so.getPlayer(), acts);
+
         for(i = 0; i < acts.size(); ++i)
         {
     		if (randomSelect) {
@@ -273,8 +278,7 @@ public class SarsaAgt extends NTupleBase implements PlayAgent,NTupleAgt,Serializ
     			// TODO: currently we cannot mirror in Q-learning the afterstate logic 
     			// that we have optionally in TDNTuple3Agt
     			
-        		StateObsWithBoardVector curSOWB = new StateObsWithBoardVector(so, m_Net.xnf);
-            	qValue = m_Net.getQFunc(curSOWB,so.getPlayer(),acts.get(i));
+            	qValue = qValues[i];
             	
             	// It is a bit funny, that the decision is made based only on qValue, not 
             	// on the reward we might receive for action a=acts.get(i). So an action leading to 
@@ -5,6 +5,11 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import agentIO.LoadSaveGBG;
 import controllers.TD.ntuple4.TDNTuple4Agt;
@@ -108,6 +113,11 @@ public class TDNTuple3Agt extends NTupleBase implements PlayAgent,NTupleAgt,Seri
 	private final boolean FINALADAPT_PART2=true; //false;
 	
 	private int acount=0;	// just for debug: counter to stop debugger after every X adaptation steps
+
+	// thread pool for trainAgentParallel, shared by all agents of the process (only constructed if 
+	// ParNT.getNumTrainThreads() > 1, see getTrainExecutor)
+	private static ExecutorService trainExecutor = null;
+	private static int trainExecutorThreads = 0;
 	
 	/**
 	 * Default constructor for {@link TDNTuple3Agt}, needed for loading a serialized version
@@ -139,6 +149,32 @@ public class TDNTuple3Agt extends NTupleBase implements PlayAgent,NTupleAgt,Seri
 		initNet(ntPar,tdPar,oPar, nTuples, xnf, maxGameNum);			
 	}
 
+	/**
+	 * Create a worker agent for {@link #trainAgentParallel(List)}. The worker shares the n-tuple weights and all
+	 * parameter objects with {@code master}, but has its own eligibility lists, its own random number generator,
+	 * its own epsilon and its own episode state ({@code sLast, randLast, rLast, m_counter, ...}).
+	 *
+	 * @param master	the agent whose n-tuple network is trained
+	 * @param seed		seed for the worker's random number generator
+	 */
+	private TDNTuple3Agt(TDNTuple3Agt master, long seed) {
+		super(master.getName());
+		this.numPlayers = master.numPlayers;
+		this.sLast = new StateObservation[numPlayers];
+		this.randLast = new boolean[numPlayers];
+		this.m_tdPar = master.m_tdPar;
+		this.m_ntPar = master.m_ntPar;
+		this.m_oPar = master.m_oPar;
+		this.m_elig = master.m_elig;
+		this.TERNARY = master.TERNARY;
+		this.rand = new Random(seed);
+		this.m_Net = master.m_Net.sharedWeightsCopy(this);
+		this.m_epsilon = master.m_epsilon;
+		this.m_EpsilonChangeDelta = master.m_EpsilonChangeDelta;
+		this.setMaxGameNum(master.getMaxGameNum());
+		this.setAgentState(master.getAgentState());
+	}
+
 	/**
 	 * 
 	 * @param tdPar			temporal difference parameters
@@ -242,6 +278,12 @@ public class TDNTuple3Agt extends NTupleBase implements PlayAgent,NTupleAgt,Seri
         VTable = new double[acts.size()];  
         
         assert acts.size()>0 : "Oops, no available action";
+
+        // generate and score all afterstates in one call (V(s') resp. V(s'') from so-perspective, see below)
+        StateObservation[] nextSO = new StateObservation[acts.size()];
+        double[] afterVal = (randomSelect) ? null
+        		: m_Net.getAfterstateScores(so, acts, this.getAFTERSTATE(), nextSO);
+
         for(i = 0; i < acts.size(); ++i)
         {
 			thisAct = acts.get(i);
@@ -257,23 +299,16 @@ public class TDNTuple3Agt extends NTupleBase implements PlayAgent,NTupleAgt,Seri
 			if (thisAct.isEqualToInverseOfLastAction(so))
 				continue;	// with next for-pass
 
-        	NewSO = so.copy();
-
     		if (randomSelect) {
     			value = rand.nextDouble();
     		} else {
+    			NewSO = nextSO[i];
+    			value = afterVal[i];
     	        if (this.getAFTERSTATE()) {
     	        	// if parameter "AFTERSTATE" is checked in ParNT, i.e. we use afterstate logic:
-    	        	//
-    	        	NewSO.advanceDeterministic(thisAct); 	// generate the afterstate
-    	        	value = this.getScore(NewSO,so); // this is V(s') from so-perspective
+    	        	// value is V(s') of the afterstate s' from so-perspective
     	            NewSO.advanceNondeterministic(); 
-    	        } else { 
-    	        	// the non-afterstate logic for the case of single moves:
-    	        	//System.out.println("NewSO: "+NewSO.stringDescr()+", act: "+act.toInt()); // DEBUG
-    	            NewSO.advance(acts.get(i));
-    	            value = this.getScore(NewSO,so); // this is V(s'') from the perspective of so
-    	        }
+    	        }	// else: the non-afterstate logic for the case of single moves, value is V(s'') from so-perspective
     	        // both ways of calculating the agent score are the same for deterministic games (s'=s''),
     	        // but they usually differ for nondeterministic games.
 
@@ -331,6 +366,16 @@ public class TDNTuple3Agt extends NTupleBase implements PlayAgent,NTupleAgt,Seri
 		return actBestVT;
 	}
 
+	/**
+	 * {@link #getNextAction2(StateObservation, boolean, boolean)} only reads the weights, the per-call buffers of
+	 * {@link NTuple2ValueFunc#getAfterstateScores(StateObservation, List, boolean, StateObservation[])} are
+	 * thread-local. So several threads may evaluate states concurrently (but not while the agent is trained).
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	// helper for getNextAction2
 	private void printDebugInfo(StateObservation so, StateObservation NewSO, double bestValue, double[] VTable){
 		System.out.println("---Best Move: " + NewSO.stringDescr() + ", " + (bestValue));
@@ -795,6 +840,90 @@ public class TDNTuple3Agt extends NTupleBase implements PlayAgent,NTupleAgt,Seri
 	} // trainAgent
 
 
+	/**
+	 * Train the agent for {@code soList.size()} episodes <b>in parallel</b>, using {@link ParNT#getNumTrainThreads()}
+	 * worker threads which play self-play episodes concurrently. 
+	 * <p>
+	 * The workers share one n-tuple network and update its LUTs Hogwild-style, i.e. without any synchronization
+	 * (an occasional lost update is tolerated in favor of lock-free speed). Each worker has its own eligibility 
+	 * lists, its own random number generator and its own episode state. Episode k of this call (counted over all 
+	 * workers) is trained with the learning rate ALPHA and the exploration rate epsilon that the sequential 
+	 * training would have in episode k. On return, ALPHA, epsilon, the game counter and the move and learn-action
+	 * counters of {@code this} are advanced as if the episodes had been trained sequentially.
+	 * <p>
+	 * Side effects: Increment m_GameNum by {@code soList.size()}. Change the agent's weights.
+	 *
+	 * @param soList	the start states of the episodes (usually from {@link GameBoard#chooseStartState(PlayAgent)}).
+	 * 					They are selected beforehand in the calling thread, because game boards are not thread-safe.
+	 *
+	 * @see #trainAgent(StateObservation)
+	 */
+	public void trainAgentParallel(List<StateObservation> soList) {
+		int numThreads = Math.min(m_ntPar.getNumTrainThreads(), soList.size());
+		if (numThreads <= 1) {
+			for (StateObservation so : soList) trainAgent(so);
+			return;
+		}
+
+		final int gameNum0 = this.getGameNum();
+		final double alpha0 = m_Net.getAlpha();
+		final double alphaRatio = m_Net.getAlphaChangeRatio();
+		final double epsilon0 = m_epsilon;
+		final AtomicInteger nextEpisode = new AtomicInteger(0);
+
+		TDNTuple3Agt[] workers = new TDNTuple3Agt[numThreads];
+		List<Callable<TDNTuple3Agt>> callables = new ArrayList<>();
+		for (int w=0; w<numThreads; w++) {
+			TDNTuple3Agt worker = new TDNTuple3Agt(this, rand.nextLong());
+			workers[w] = worker;
+			callables.add(() -> {
+				int k;
+				while ((k = nextEpisode.getAndIncrement()) < soList.size()) {
+					// the learn params of the k-th episode in the sequential schedule:
+					worker.m_Net.setAlpha(alpha0 * Math.pow(alphaRatio, k));
+					worker.m_epsilon = epsilon0 - k * m_EpsilonChangeDelta;
+					worker.setGameNum(gameNum0 + k);
+					worker.trainAgent(soList.get(k));
+				}
+				return worker;
+			});
+		}
+
+		try {
+			for (Future<TDNTuple3Agt> future : getTrainExecutor(numThreads).invokeAll(callables))
+				future.get();		// re-throws any exception from a worker
+		} catch (Exception e) {
+			throw new RuntimeException("[TDNTuple3Agt.trainAgentParallel] worker failed: "+e.getMessage(), e);
+		}
+
+		// advance ALPHA and m_epsilon as the sequential training would have done it:
+		for (int k=0; k<soList.size(); k++)
+			this.finishUpdateWeights();
+		this.setGameNum(gameNum0 + soList.size());
+		for (TDNTuple3Agt worker : workers) {
+			this.m_numTrnMoves += worker.m_numTrnMoves;
+			this.m_Net.addNumLearnActions(worker.getNumLrnActions());
+			this.tieCounter += worker.tieCounter;
+			this.winXCounter += worker.winXCounter;
+			this.winOCounter += worker.winOCounter;
+		}
+	}
+
+	/**
+	 * @param numThreads	the number of worker threads
+	 * @return the thread pool for {@link #trainAgentParallel(List)}. There is at most one pool per process: If 
+	 * 		   the number of threads changes, the old pool is shut down and replaced. The idle threads of the pool 
+	 * 		   are daemon threads and are released after a keep-alive time, so the pool needs no explicit shutdown.
+	 */
+	private static synchronized ExecutorService getTrainExecutor(int numThreads) {
+		if (trainExecutor==null || trainExecutorThreads!=numThreads) {
+			if (trainExecutor!=null) trainExecutor.shutdown();
+			trainExecutor = Executors.newWorkStealingPool(numThreads);
+			trainExecutorThreads = numThreads;
+		}
+		return trainExecutor;
+	}
+
 	@Override
 	public String stringDescr() {
 		m_Net.setHorizon();
@@ -0,0 +1,605 @@
+package controllers.TD.ntuple2;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import controllers.TD.ntuple4.NTuple4;
+import params.ParNT;
+
+/**
+ * Storage for the LUT weights (and the TC arrays) of an n-tuple. The storage mode is selected per agent via
+ * {@link ParNT#getLutMode()}:
+ * <ul>
+ * <li> {@link #DOUBLE}: {@code double[]} on the Java heap (the classic storage, default)
+ * <li> {@link #FLOAT}: {@code float[]} on the Java heap (half the memory, single precision)
+ * <li> {@link #OFFHEAP}: direct {@link ByteBuffer} outside the Java heap (double precision, but the weights are
+ *      neither copied nor scanned by the garbage collector)
+ * <li> {@link #SPARSE}: two-level paged table, a page of {@link #PAGE_SIZE} weights is only allocated when one of
+ *      its weights is written (double precision)
+ * </ul>
+ * The large LUTs of e.g. 2048 (4 six-tuples with about 11e6 weights each) make the heap big and every full GC slow.
+ * {@link #FLOAT} and {@link #OFFHEAP} reduce this burden. For long n-tuples most of the posVals^length weights are
+ * never visited, so {@link #create(int, int)} chooses {@link #SPARSE} automatically for LUTs with more than
+ * {@link #SPARSE_THRESHOLD} weights. All modes are serializable, so that agents can be saved and loaded with any
+ * of them.
+ * <p>
+ * Besides Java serialization, each store can be written as a raw little-endian block
+ * ({@link #writeBinary(WritableByteChannel)}) and read back from a file, optionally memory-mapped
+ * ({@link #readBinary(int, int, FileChannel, long, boolean)}). This is used by the binary agent file format
+ * {@code agentIO.BinaryAgentFile}.
+ *
+ * @see NTuple2
+ * @see NTuple4
+ */
+public abstract class WeightStore implements Serializable {
+
+	public static final int DOUBLE = 0;
+	public static final int FLOAT = 1;
+	public static final int OFFHEAP = 2;
+	public static final int SPARSE = 3;
+
+	/**
+	 * the names of the storage modes, index is the mode
+	 */
+	public static final String[] MODE_NAMES = {"double", "float", "off-heap", "sparse"};
+
+	/**
+	 * LUTs with more weights than this are stored in mode {@link #SPARSE}, whatever mode is requested
+	 * (2^24 weights are 128 MB as dense {@code double[]})
+	 */
+	public static int SPARSE_THRESHOLD = 1 << 24;
+
+	/**
+	 * number of weights per page in mode {@link #SPARSE}
+	 */
+	public static final int PAGE_SIZE = 1 << PagedStore.PAGE_BITS;
+
+	/**
+	 * change the version ID for serialization only if a newer version is no longer
+	 * compatible with an older one (older .agt.zip will become unreadable or you have
+	 * to provide a special version transformation)
+	 */
+	private static final long serialVersionUID = 12L;
+
+	/**
+	 * @param mode		one of {@link #DOUBLE}, {@link #FLOAT}, {@link #OFFHEAP}, {@link #SPARSE}. If
+	 * 					{@code length > SPARSE_THRESHOLD}, {@link #SPARSE} is used in any case.
+	 * @param length	number of weights
+	 * @return a new store with all weights set to 0.0
+	 */
+	public static WeightStore create(int mode, int length) {
+		if (length > SPARSE_THRESHOLD) mode = SPARSE;
+		switch (mode) {
+			case DOUBLE: return new DoubleStore(new double[length]);
+			case FLOAT: return new FloatStore(length);
+			case OFFHEAP: return new OffHeapStore(length);
+			case SPARSE: return new PagedStore(length);
+			default: throw new RuntimeException("[WeightStore] Unknown LUT mode "+mode);
+		}
+	}
+
+	/**
+	 * @param posVals	number of position values per cell
+	 * @param tupleLen	number of cells of the n-tuple
+	 * @return the LUT length posVals^tupleLen
+	 * @throws RuntimeException if the LUT length does not fit into an {@code int}
+	 */
+	public static int lutLength(int posVals, int tupleLen) {
+		long len = 1;
+		for (int k=0; k<tupleLen; k++) {
+			len *= posVals;
+			if (len > Integer.MAX_VALUE)
+				throw new RuntimeException("[WeightStore] n-tuple of length "+tupleLen+" with "+posVals
+						+" position values is too long (LUT has more than "+Integer.MAX_VALUE+" weights)");
+		}
+		return (int) len;
+	}
+
+	/**
+	 * @param cellPosVals	number of position values for each cell of the n-tuple
+	 * @return the LUT length, the product of all {@code cellPosVals}
+	 * @throws RuntimeException if the LUT length does not fit into an {@code int}
+	 */
+	public static int lutLength(int[] cellPosVals) {
+		long len = 1;
+		for (int pv : cellPosVals) {
+			len *= pv;
+			if (len > Integer.MAX_VALUE)
+				throw new RuntimeException("[WeightStore] n-tuple of length "+cellPosVals.length
+						+" is too long (LUT has more than "+Integer.MAX_VALUE+" weights)");
+		}
+		return (int) len;
+	}
+
+	/**
+	 * Wrap an existing {@code double[]} (e.g. the LUT of an agent saved before {@link WeightStore} was introduced).
+	 * The store shares the array, it does not copy it.
+	 */
+	public static WeightStore wrap(double[] arr) {
+		return new DoubleStore(arr);
+	}
+
+	/**
+	 * @return the kth weight
+	 */
+	public abstract double get(int k);
+
+	public abstract void set(int k, double val);
+
+	/**
+	 * Add {@code dW} to the kth weight
+	 */
+	public abstract void add(int k, double dW);
+
+	/**
+	 * @return the number of weights in this store
+	 */
+	public abstract int length();
+
+	/**
+	 * @return one of {@link #DOUBLE}, {@link #FLOAT}, {@link #OFFHEAP}, {@link #SPARSE}
+	 */
+	public abstract int getMode();
+
+	/**
+	 * @return the (approximate) number of bytes occupied by the weights
+	 */
+	public abstract long memoryBytes();
+
+	/**
+	 * Set all weights to {@code val}
+	 */
+	public void fill(double val) {
+		for (int k=0, n=length(); k<n; k++) set(k, val);
+	}
+
+	/**
+	 * @return the indices of all weights which are not 0.0, in ascending order. Mode {@link #SPARSE} visits
+	 * 		only the allocated pages.
+	 */
+	public int[] nonZeroIndices() {
+		int count = 0;
+		for (int k=0, n=length(); k<n; k++)
+			if (get(k) != 0.0) count++;
+		int[] res = new int[count];
+		for (int k=0, n=length(), pos=0; k<n; k++)
+			if (get(k) != 0.0) res[pos++] = k;
+		return res;
+	}
+
+	/**
+	 * @return the number of bytes written by {@link #writeBinary(WritableByteChannel)}
+	 */
+	public long binaryBytes() {
+		return 8L * length();
+	}
+
+	/**
+	 * Write the weights as raw little-endian block of {@link #binaryBytes()} bytes: {@code length()} doubles (for
+	 * {@link #FLOAT}: floats, for {@link #SPARSE}: only the allocated pages, see {@link PagedStore}).
+	 */
+	public void writeBinary(WritableByteChannel ch) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		for (int k=0, n=length(); k<n; k++) {
+			if (!buf.hasRemaining()) flush(ch, buf);
+			buf.putDouble(get(k));
+		}
+		flush(ch, buf);
+	}
+
+	private static final int CHUNK_BYTES = 1 << 16;
+
+	private static void flush(WritableByteChannel ch, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) ch.write(buf);
+		buf.clear();
+	}
+
+	/**
+	 * Read a block written by {@link #writeBinary(WritableByteChannel)}.
+	 *
+	 * @param mode		the mode of the store that wrote the block
+	 * @param length	the number of weights
+	 * @param ch		the file
+	 * @param offset	the position of the block in the file
+	 * @param map		if true, blocks of {@link #DOUBLE} and {@link #OFFHEAP} stores are memory-mapped read-only and
+	 * 					returned as {@link #OFFHEAP} store, i.e. a mapped {@link #DOUBLE} store changes its mode.
+	 * 					Nothing is copied and the weights are paged in by the OS on first access. The file is never
+	 * 					modified: the first {@code set} or {@code add} copies all weights to a new direct buffer.
+	 * 					Otherwise and for the other modes the weights are read into a new store of the same mode.
+	 * @return the store
+	 */
+	public static WeightStore readBinary(int mode, int length, FileChannel ch, long offset, boolean map)
+			throws IOException {
+		switch (mode) {
+			case DOUBLE:
+			case OFFHEAP:
+				if (map && length <= Integer.MAX_VALUE / Double.BYTES) {
+					DoubleBuffer w = ch.map(FileChannel.MapMode.READ_ONLY, offset, 8L * length)
+							.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+					return new OffHeapStore(w, length);
+				}
+				WeightStore ws = (mode==DOUBLE) ? new DoubleStore(new double[length]) : new OffHeapStore(length);
+				BlockReader in = new BlockReader(ch, offset);
+				for (int k=0; k<length; k++) ws.set(k, in.getDouble());
+				return ws;
+			case FLOAT:
+				return FloatStore.readBinary(length, new BlockReader(ch, offset));
+			case SPARSE:
+				return PagedStore.readBinary(length, new BlockReader(ch, offset));
+			default: throw new RuntimeException("[WeightStore] Unknown LUT mode "+mode);
+		}
+	}
+
+	/**
+	 * the size of the windows mapped by {@link BlockReader} (only changed by tests)
+	 */
+	static long WINDOW_BYTES = 1L << 30;
+
+	/**
+	 * Sequential little-endian reader for a block in a file. It maps windows of at most {@link #WINDOW_BYTES} (1 GB),
+	 * so that blocks larger than 2 GB can be read as well.
+	 */
+	private static final class BlockReader {
+		private final FileChannel ch;
+		private long pos;
+		private ByteBuffer win = ByteBuffer.allocate(0);
+
+		BlockReader(FileChannel ch, long offset) {
+			this.ch = ch;
+			this.pos = offset;
+		}
+
+		private ByteBuffer window(int bytes) throws IOException {
+			if (win.remaining() < bytes) {
+				pos -= win.remaining();		// the tail of the old window is the start of the new one
+				long size = Math.min(WINDOW_BYTES, ch.size() - pos);
+				win = ch.map(FileChannel.MapMode.READ_ONLY, pos, size).order(ByteOrder.LITTLE_ENDIAN);
+				pos += size;
+			}
+			return win;
+		}
+
+		double getDouble() throws IOException { return window(Double.BYTES).getDouble(); }
+
+		float getFloat() throws IOException { return window(Float.BYTES).getFloat(); }
+
+		int getInt() throws IOException { return window(Integer.BYTES).getInt(); }
+	}
+
+	/**
+	 * @return the weights as {@code double[]}. For {@link #DOUBLE} this is the underlying array, for the other modes
+	 * 		it is a copy (only meant for analysis, not for the training loop).
+	 */
+	public double[] toArray() {
+		double[] arr = new double[length()];
+		for (int k=0; k<arr.length; k++) arr[k] = get(k);
+		return arr;
+	}
+
+	private static final class DoubleStore extends WeightStore {
+		private final double[] w;
+
+		private static final long serialVersionUID = 12L;
+
+		DoubleStore(double[] w) {
+			this.w = w;
+		}
+
+		@Override
+		public double get(int k) { return w[k]; }
+
+		@Override
+		public void set(int k, double val) { w[k] = val; }
+
+		@Override
+		public void add(int k, double dW) { w[k] += dW; }
+
+		@Override
+		public int length() { return w.length; }
+
+		@Override
+		public int getMode() { return DOUBLE; }
+
+		@Override
+		public long memoryBytes() { return 8L * w.length; }
+
+		@Override
+		public double[] toArray() { return w; }
+	}
+
+	private static final class FloatStore extends WeightStore {
+		private final float[] w;
+
+		private static final long serialVersionUID = 12L;
+
+		FloatStore(int length) {
+			this.w = new float[length];
+		}
+
+		@Override
+		public double get(int k) { return w[k]; }
+
+		@Override
+		public void set(int k, double val) { w[k] = (float) val; }
+
+		@Override
+		public void add(int k, double dW) { w[k] += (float) dW; }
+
+		@Override
+		public int length() { return w.length; }
+
+		@Override
+		public int getMode() { return FLOAT; }
+
+		@Override
+		public long memoryBytes() { return 4L * w.length; }
+
+		@Override
+		public long binaryBytes() { return 4L * w.length; }
+
+		@Override
+		public void writeBinary(WritableByteChannel ch) throws IOException {
+			ByteBuffer buf = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			for (float v : w) {
+				if (!buf.hasRemaining()) flush(ch, buf);
+				buf.putFloat(v);
+			}
+			flush(ch, buf);
+		}
+
+		static FloatStore readBinary(int length, BlockReader in) throws IOException {
+			FloatStore ws = new FloatStore(length);
+			for (int k=0; k<length; k++) ws.w[k] = in.getFloat();
+			return ws;
+		}
+	}
+
+	/**
+	 * The weights live in a direct {@link ByteBuffer} (or in a read-only memory-mapped file region, see
+	 * {@link WeightStore#readBinary(int, int, FileChannel, long, boolean)}, which is copied to a direct buffer on the
+	 * first write). Since direct buffers are not
+	 * serializable, the weights are written and read element-wise in {@link #writeObject(ObjectOutputStream)} and
+	 * {@link #readObject(ObjectInputStream)}.
+	 */
+	private static final class OffHeapStore extends WeightStore {
+		private final int length;
+		private transient DoubleBuffer w;
+
+		private static final long serialVersionUID = 12L;
+
+		OffHeapStore(int length) {
+			if (length > Integer.MAX_VALUE / Double.BYTES)
+				throw new RuntimeException("[WeightStore] LUT with "+length+" weights is too large for off-heap mode");
+			this.length = length;
+			allocate();
+		}
+
+		OffHeapStore(DoubleBuffer w, int length) {
+			this.length = length;
+			this.w = w;
+		}
+
+		private void allocate() {
+			w = ByteBuffer.allocateDirect(length * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		}
+
+		@Override
+		public double get(int k) { return w.get(k); }
+
+		/**
+		 * @return the buffer for writing: a read-only (mapped) buffer is replaced by a direct copy first
+		 */
+		private DoubleBuffer writable() {
+			DoubleBuffer b = w;
+			return b.isReadOnly() ? copyMapped() : b;
+		}
+
+		private synchronized DoubleBuffer copyMapped() {
+			if (w.isReadOnly()) {
+				DoubleBuffer b = ByteBuffer.allocateDirect(length * Double.BYTES).order(ByteOrder.nativeOrder())
+						.asDoubleBuffer();
+				b.put(w.duplicate().clear());
+				w = b;
+			}
+			return w;
+		}
+
+		@Override
+		public void set(int k, double val) { writable().put(k, val); }
+
+		@Override
+		public void add(int k, double dW) {
+			DoubleBuffer b = writable();
+			b.put(k, b.get(k) + dW);
+		}
+
+		@Override
+		public int length() { return length; }
+
+		@Override
+		public int getMode() { return OFFHEAP; }
+
+		@Override
+		public long memoryBytes() { return 8L * length; }
+
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			out.defaultWriteObject();
+			for (int k=0; k<length; k++) out.writeDouble(w.get(k));
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			allocate();
+			for (int k=0; k<length; k++) w.put(k, in.readDouble());
+		}
+	}
+
+	/**
+	 * Two-level paged table: {@code pages[k >> PAGE_BITS]} holds the weights of page {@code k >> PAGE_BITS} or is
+	 * null, if none of them was written since the last {@link #fill(double)}. Unallocated pages read as
+	 * {@code fillVal}. The page directory has a fixed size, so that parallel (Hogwild-style) updates never see a
+	 * resize. If two threads allocate the same page at the same time, one of the two updates may get lost, which
+	 * is tolerated like all other Hogwild races.
+	 */
+	private static final class PagedStore extends WeightStore {
+		static final int PAGE_BITS = 8;
+		private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+		private final int length;
+		private final double[][] pages;
+		private double fillVal = 0.0;
+
+		private static final long serialVersionUID = 12L;
+
+		PagedStore(int length) {
+			this.length = length;
+			this.pages = new double[(int) (((long) length + PAGE_MASK) >> PAGE_BITS)][];
+		}
+
+		private double[] page(int k) {
+			double[] p = pages[k >> PAGE_BITS];
+			if (p == null) {
+				p = new double[PAGE_SIZE];
+				if (fillVal != 0.0) Arrays.fill(p, fillVal);
+				pages[k >> PAGE_BITS] = p;
+			}
+			return p;
+		}
+
+		@Override
+		public double get(int k) {
+			double[] p = pages[k >> PAGE_BITS];
+			return (p == null) ? fillVal : p[k & PAGE_MASK];
+		}
+
+		@Override
+		public void set(int k, double val) {
+			if (val == fillVal && pages[k >> PAGE_BITS] == null) return;
+			page(k)[k & PAGE_MASK] = val;
+		}
+
+		@Override
+		public void add(int k, double dW) {
+			if (dW == 0.0) return;
+			page(k)[k & PAGE_MASK] += dW;
+		}
+
+		@Override
+		public int length() { return length; }
+
+		@Override
+		public int getMode() { return SPARSE; }
+
+		@Override
+		public long memoryBytes() {
+			long bytes = 8L * pages.length;				// page directory (approx., compressed oops take 4 bytes)
+			for (double[] p : pages)
+				if (p != null) bytes += 8L * PAGE_SIZE + 16;
+			return bytes;
+		}
+
+		/**
+		 * Set all weights to {@code val}, this releases all pages
+		 */
+		@Override
+		public void fill(double val) {
+			Arrays.fill(pages, null);
+			fillVal = val;
+		}
+
+		@Override
+		public int[] nonZeroIndices() {
+			int count = 0;
+			for (int pi = 0; pi < pages.length; pi++)
+				count += countNonZero(pi);
+			int[] res = new int[count];
+			int pos = 0;
+			for (int pi = 0; pi < pages.length; pi++) {
+				if (pages[pi] == null) {
+					if (fillVal != 0.0)
+						for (int k = pi << PAGE_BITS, n = Math.min(length, k + PAGE_SIZE); k < n; k++) res[pos++] = k;
+				} else {
+					for (int k = pi << PAGE_BITS, n = Math.min(length, k + PAGE_SIZE); k < n; k++)
+						if (pages[pi][k & PAGE_MASK] != 0.0) res[pos++] = k;
+				}
+			}
+			return res;
+		}
+
+		private int countNonZero(int pi) {
+			int start = pi << PAGE_BITS, n = Math.min(length, start + PAGE_SIZE) - start;
+			if (pages[pi] == null) return (fillVal != 0.0) ? n : 0;
+			int count = 0;
+			for (int k = 0; k < n; k++)
+				if (pages[pi][k] != 0.0) count++;
+			return count;
+		}
+
+		/**
+		 * Block layout: {@code fillVal} (double), number of allocated pages p (int), 0 (int), the p page numbers
+		 * (int, padded to a multiple of 8 bytes), the p pages ({@link #PAGE_SIZE} doubles each)
+		 */
+		@Override
+		public long binaryBytes() {
+			long p = numPages();
+			return 16 + ((4 * p + 7) & ~7L) + 8L * PAGE_SIZE * p;
+		}
+
+		@Override
+		public void writeBinary(WritableByteChannel ch) throws IOException {
+			ByteBuffer buf = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			int p = numPages();
+			buf.putDouble(fillVal).putInt(p).putInt(0);
+			for (int pi = 0; pi < pages.length; pi++) {
+				if (pages[pi] == null) continue;
+				if (!buf.hasRemaining()) flush(ch, buf);
+				buf.putInt(pi);
+			}
+			if (p % 2 == 1) {
+				if (!buf.hasRemaining()) flush(ch, buf);
+				buf.putInt(0);
+			}
+			for (double[] page : pages) {
+				if (page == null) continue;
+				for (double v : page) {
+					if (!buf.hasRemaining()) flush(ch, buf);
+					buf.putDouble(v);
+				}
+			}
+			flush(ch, buf);
+		}
+
+		static PagedStore readBinary(int length, BlockReader in) throws IOException {
+			PagedStore ws = new PagedStore(length);
+			ws.fillVal = in.getDouble();
+			int[] pageNum = new int[in.getInt()];
+			in.getInt();
+			for (int k = 0; k < pageNum.length; k++) pageNum[k] = in.getInt();
+			if (pageNum.length % 2 == 1) in.getInt();
+			for (int pi : pageNum) {
+				double[] page = new double[PAGE_SIZE];
+				for (int k = 0; k < PAGE_SIZE; k++) page[k] = in.getDouble();
+				ws.pages[pi] = page;
+			}
+			return ws;
+		}
+
+		/**
+		 * @return the number of allocated pages
+		 */
+		int numPages() {
+			int count = 0;
+			for (double[] p : pages)
+				if (p != null) count++;
+			return count;
+		}
+	}
+}
@@ -2,13 +2,16 @@ package controllers.TD.ntuple4;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.Random;
 
+import controllers.TD.ntuple2.EligTrace;
+import controllers.TD.ntuple2.IndexSet;
 import controllers.TD.ntuple2.NTuple2;
+import controllers.TD.ntuple2.WeightStore;
 import games.BoardVector;
 import games.StateObsWithBoardVector;
 import games.StateObservation;
@@ -71,18 +74,20 @@ public class NTuple4 implements Serializable {
 
 	private final int[] nTuple;
 	private final int[] posVals; // posVals[i] = # of possible values for cell i of BoardVector
-	private final double[] lut;
-	private transient double[] tcN = null;
-	private transient double[] tcA = null;
-	private transient double[] tcFactorArray = null;
+	private double[] lut;				// only needed to load agents saved before lutStore was introduced
+	private WeightStore lutStore;		// the LUT weights, see ParNT#getLutMode()
+	private transient WeightStore tcN = null;
+	private transient WeightStore tcA = null;
+	private transient WeightStore tcFactorArray = null;
 
-	// indexList is needed in update(): if a certain index of the LUT is
+	// indexSet is needed in update(): if a certain index of the LUT is
 	// invoked more than once during a weight update for state s_k (multiple calls to updateNew(), 
 	// if there are equivalent states (symmetric to s_k)), then it is updated only *once*. This 
-	// is realized by remembering the already visited indices in indexList.
+	// is realized by remembering the already visited indices in indexSet (an epoch-stamped
+	// primitive set, cleared in O(1) by clearIndices()).
 	// It ensures that an update with ALPHA=1.0 changes the LUT in such a way that a subsequent
 	// call getScoreI() returns a value identical to the target of that update.
-	private transient LinkedList<Integer> indexList = new LinkedList<>();
+	private transient IndexSet indexSet = new IndexSet(8);
 
 	// /WK/
 	private transient double[] dWArray=null;		// recommended weight changes
@@ -125,23 +130,21 @@ public class NTuple4 implements Serializable {
 		rand = new Random();
 		this.nTuple = nTuple.clone();
 		this.posVals = posVals.clone();
-		int L=1;
-		for (int j : nTuple) L *= posVals[j];
-		lut = new double[L];
+		int[] cellPosVals = new int[nTuple.length];
+		for (int k=0; k<nTuple.length; k++) cellPosVals[k] = posVals[nTuple[k]];
+		lutStore = WeightStore.create(ntPar.getLutMode(), WeightStore.lutLength(cellPosVals));
 		if (TC) {
-			tcN = new double[lut.length]; // matrix N in TC
-			tcA = new double[lut.length]; // matrix A in TC
-			tcFactorArray = new double[lut.length]; // tcFactor=|N|/A
+			int mode = lutStore.getMode();
+			tcN = WeightStore.create(mode, lutStore.length()); // matrix N in TC
+			tcA = WeightStore.create(mode, lutStore.length()); // matrix A in TC
+			tcFactorArray = WeightStore.create(mode, lutStore.length()); // tcFactor=|N|/A
 			//tcDampArray = new double[lut.length]; // /WK/ for NEW_WK
 			//dWArray = new double[lut.length];	// for accumulating TC (tcImm==false)
 			
 			// initializing N and A matrices and tcFactor=|N|/A
-			for (int i = 0; i < lut.length; i++) {
-				tcN[i] = INIT;
-				tcA[i] = INIT;
-				tcFactorArray[i] = 1.0;
-				//tcDampArray[i] = 1.0;			
-			}
+			tcN.fill(INIT);
+			tcA.fill(INIT);
+			tcFactorArray.fill(1.0);
 		}
 		
 //		if (DW_DBG) {
@@ -154,22 +157,31 @@ public class NTuple4 implements Serializable {
 //			trainCounter = new int[lut.length];
 	}
 
+	/**
+	 * Agents saved before {@link WeightStore} was introduced have their weights in {@code lut}: wrap them.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (lutStore==null) {
+			lutStore = WeightStore.wrap(lut);
+			lut = null;
+		}
+	}
+
 	public boolean instantiateAfterLoading() {
-		indexList = new LinkedList<>();
+		indexSet = new IndexSet(8);
 		if (TC) {
-			tcN = new double[lut.length]; // matrix N in TC
-			tcA = new double[lut.length]; // matrix A in TC
-			tcFactorArray = new double[lut.length]; // tcFactor=|N|/A
+			int mode = lutStore.getMode();
+			tcN = WeightStore.create(mode, lutStore.length()); // matrix N in TC
+			tcA = WeightStore.create(mode, lutStore.length()); // matrix A in TC
+			tcFactorArray = WeightStore.create(mode, lutStore.length()); // tcFactor=|N|/A
 			//tcDampArray = new double[lut.length]; // /WK/ for NEW_WK
 			//dWArray = new double[lut.length];	// for accumulating TC (tcImm==false)
 			
 			// initializing N and A matrices and tcFactor=|N|/A
-			for (int i = 0; i < lut.length; i++) {
-				tcN[i] = INIT;
-				tcA[i] = INIT;
-				tcFactorArray[i] = 1.0;
-				//tcDampArray[i] = 1.0;			
-			}
+			tcN.fill(INIT);
+			tcA.fill(INIT);
+			tcFactorArray.fill(1.0);
 		}
 		return true;
 	}
@@ -182,7 +194,7 @@ public class NTuple4 implements Serializable {
 	 *            carrying 0 ("O"), 1 (empty) or 2 ("X") in each element)
 	 * @return the corresponding index into the LUT
 	 */
-	private int getIndex(int[] board) {
+	public int getIndex(int[] board) {
 		int index = 0;
 		int Q=1; 		// Q = posVals[P[0]]*...*posVals[P[i]] in i-loop below
 		for (int n_i : nTuple) {
@@ -202,8 +214,8 @@ public class NTuple4 implements Serializable {
 	 *            If {@code false}, all weights are set to 0.0.
 	 */
 	public void initWeights(boolean random) {
-		for (int i = 0; i < lut.length; i++)
-			lut[i] = (random ? EPS * (rand.nextDouble() * 2 - 1) : 0.0);
+		for (int i = 0; i < lutStore.length(); i++)
+			lutStore.set(i, (random ? EPS * (rand.nextDouble() * 2 - 1) : 0.0));
 	}
 
     /**
@@ -219,7 +231,7 @@ public class NTuple4 implements Serializable {
 	 */
 	public double getScore(int[] board) {
 		int Index = getIndex(board);
-		double score = lut[Index];
+		double score = lutStore.get(Index);
 		
 //		final double MAXSCORE = 3932156; 
 //		System.out.println(Index + " ["+score*MAXSCORE+"]");  //debug
@@ -244,9 +256,16 @@ public class NTuple4 implements Serializable {
 	 * @see NTuple4ValueFunc#update(StateObsWithBoardVector, int, int, double, double, boolean, boolean)
 	 */
 	public void updateNew(int[] board, double alphaM, double delta, double e /*, double LAMBDA*/) {
-		int index = getIndex(board);
-//		Integer indexI = index;
+		updateIndex(getIndex(board), alphaM, delta, e);
+	}
 
+	/**
+	 * Same as {@link #updateNew(int[], double, double, double)}, but for an already calculated LUT index
+	 * (e.g. cached in {@link EligTrace})
+	 *
+	 * @param index  the LUT index from {@link #getIndex(int[])}
+	 */
+	public void updateIndex(int index, double alphaM, double delta, double e) {
 		double tcFactor = getTcFactor(index);	// returns 1 if (!TC)
 				
 		double rW = delta * e;					// recommended weight change
@@ -262,10 +281,11 @@ public class NTuple4 implements Serializable {
 
 //		if (useIndexList) {		// useIndexList==true is the recommended choice
 			if (!TC || (TC && tcImm)) {
-				if (!indexList.contains(index))
-					lut[index] += dW;				
-			}		
-			indexList.add(index);
+				if (indexSet.add(index))
+					lutStore.add(index, dW);				
+			} else {
+				indexSet.add(index);
+			}
 //		} 
 
 //		if (TC)
@@ -281,15 +301,15 @@ public class NTuple4 implements Serializable {
 	 */
 	private void setTcFactor(int index, double accum) {
 		if (TC) {
-			tcN[index] += accum;
-			tcA[index] += Math.abs(accum);
+			tcN.add(index, accum);
+			tcA.add(index, Math.abs(accum));
 
 			if (tcImm) {
-				double arg = (double) Math.abs(tcN[index]) / tcA[index];
+				double arg = Math.abs(tcN.get(index)) / tcA.get(index);
 				if (tcEXP) {
 					arg = Math.exp(tcBeta*(arg-1));
 				}
-				tcFactorArray[index] = arg;
+				tcFactorArray.set(index, arg);
 			} 
 		}
 	}
@@ -297,8 +317,8 @@ public class NTuple4 implements Serializable {
 	// currently not used
 	@Deprecated
 	public void weightDecay(double factor) {
-		for (int k=0; k<lut.length; k++)
-			lut[k] *= factor;
+		for (int k=0; k<lutStore.length(); k++)
+			lutStore.set(k, lutStore.get(k)*factor);
 	}
 	
 	/**
@@ -307,20 +327,34 @@ public class NTuple4 implements Serializable {
 	 * @return the kth weight for this NTuple
 	 */
 	public double getWeight(int k) {
-		assert (k >= 0 && k < lut.length) : " k is not a valid LUT index";
-		return lut[k];
+		assert (k >= 0 && k < lutStore.length()) : " k is not a valid LUT index";
+		return lutStore.get(k);
 	}
 
+	/**
+	 * @return the LUT weights. If the LUT mode is not {@link WeightStore#DOUBLE}, this is a copy.
+	 */
 	public double[] getWeights() {
-		return lut;
+		return lutStore.toArray();
 	}
 	
-	public double[] getTcFactorArray() {
+	public WeightStore getWeightStore() {
+		return lutStore;
+	}
+	
+	/**
+	 * @return the TC factors, null if not (yet) present (TC off or before {@link #instantiateAfterLoading()})
+	 */
+	public WeightStore getTcFactorStore() {
 		return tcFactorArray;
 	}
+
+	public double[] getTcFactorArray() {
+		return (tcFactorArray==null) ? null : tcFactorArray.toArray();
+	}
 	
 	public double getTcFactor(int Index) {
-		return (TC) ? tcFactorArray[Index] : 1.0;
+		return (TC) ? tcFactorArray.get(Index) : 1.0;
 	}
 	
 	public boolean getTc() {
@@ -332,7 +366,7 @@ public class NTuple4 implements Serializable {
 	}
 
 	public void clearIndices() {
-		indexList.clear();
+		indexSet.clear();
 	}
 
 //	public int getCountP(int k) {
@@ -363,7 +397,7 @@ public class NTuple4 implements Serializable {
 	 * @return the length of the LUT for this NTuple
 	 */
 	public int getLutLength() {
-		return lut.length;
+		return lutStore.length();
 	}
 
 	public int getPosVals(int i) {
@@ -383,9 +417,9 @@ public class NTuple4 implements Serializable {
 			//for (int i = 0; i < lut.length; i++)
 			//	tcFactorArray[i] = (double) Math.abs(tcN[i]) / tcA[i];
 
-			for (int i = 0; i < lut.length; i++) {
-				tcFactorArray[i] = Math.abs(tcN[i]) / tcA[i];
-				lut[i] += tcFactorArray[i]* dWArray[i];				// ??correct to update lut here?? TODO
+			for (int i = 0; i < lutStore.length(); i++) {
+				tcFactorArray.set(i, Math.abs(tcN.get(i)) / tcA.get(i));
+				lutStore.add(i, tcFactorArray.get(i)* dWArray[i]);	// ??correct to update lut here?? TODO
 				dWArray[i]=0.0;
 			}
 		}
@@ -410,12 +444,12 @@ public class NTuple4 implements Serializable {
 			e.printStackTrace();
 		}
 		if (tableN!=null) {
-			tableN.println("" +Arrays.toString(tcN));
+			tableN.println("" +Arrays.toString(tcN.toArray()));
 			tableN.close();
 		}
 
 		if (tableA!=null) {
-			tableA.println("" +Arrays.toString(tcA));
+			tableA.println("" +Arrays.toString(tcA.toArray()));
 			tableA.close();
 		}
 
@@ -441,17 +475,17 @@ public class NTuple4 implements Serializable {
 
 	public int lutHashSum() {
 		int hs=0; 
-		for (int i=0; i<lut.length; i++) if (lut[i]>0) hs += i;
+		for (int i=0; i<lutStore.length(); i++) if (lutStore.get(i)>0) hs += i;
 		return (hs%100);
 	}
 	public double lutSum() {
 		double ls=0;
-		for (double lut_i : lut) ls += lut_i;
+		for (int i=0; i<lutStore.length(); i++) ls += lutStore.get(i);
 		return ls;
 	}
 	public double lutSumAbs() {
 		double ls=0;
-		for (double lut_i : lut) ls += Math.abs(lut_i);
+		for (int i=0; i<lutStore.length(); i++) ls += Math.abs(lutStore.get(i));
 		return ls;
 	}
 }
@@ -8,13 +8,14 @@ import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.commons.math3.stat.descriptive.rank.Min;
 import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 
+import controllers.TD.ntuple2.EligTrace;
+import controllers.TD.ntuple2.WeightStore;
 import games.BoardVector;
 import games.StateObsWithBoardVector;
 import games.StateObservation;
@@ -79,7 +80,7 @@ public class NTuple4ValueFunc implements Serializable {
 	// elements needed for TD(lambda)-update with finite horizon, 
 	// see update(int[],int,double,double):
 	private int horizon=0;
-	private transient LinkedList<EligStates>[] eList;
+	private transient EligTrace[] eList;
 
 	private final boolean PRINTNTUPLES = false;	// /WK/ control the file printout of n-tuples (when loading agents)
 	private final DecimalFormat frmS = new DecimalFormat("+0.00000;-0.00000");
@@ -125,12 +126,12 @@ public class NTuple4ValueFunc implements Serializable {
 		this.xnf = xnf;
 		this.numPlayers = xnf.getNumPlayers();
 		this.numOutputs = numOutputs;
-		this.eList = new LinkedList[this.numPlayers];
-		for (int ie=0; ie<eList.length; ie++) eList[ie] = new LinkedList<>();
 		this.tdAgt = parent;
 		
 		if (nTuplesI!=null) {
 			this.numTuples = nTuplesI.length;
+			this.eList = new EligTrace[this.numPlayers];
+			for (int ie=0; ie<eList.length; ie++) eList[ie] = new EligTrace(numTuples, horizon);
 			initNTuples(nTuplesI, posVals, randInitWeights, tcPar, numCells);
 		} else {
 			throw new RuntimeException("Error: nTuplesI not initialized");
@@ -160,8 +161,8 @@ public class NTuple4ValueFunc implements Serializable {
 	}
 
 	public boolean instantiateAfterLoading() {
-		this.eList = new LinkedList[this.numPlayers];
-		for (int ie=0; ie<eList.length; ie++) eList[ie] = new LinkedList<>();
+		this.eList = new EligTrace[this.numPlayers];
+		for (int ie=0; ie<eList.length; ie++) eList[ie] = new EligTrace(numTuples, horizon);
 		for (int i = 0; i < numTuples; i++) {
 			for (int o=0; o<numOutputs; o++) {
 				for (int k=0; k<numPlayers; k++) {
@@ -258,6 +259,94 @@ public class NTuple4ValueFunc implements Serializable {
 		return (hasSigmoid() ? Math.tanh(score) : score);
 	}
 
+	/**
+	 * Get the action-value function Q for all actions {@code acts} in state {@code curSOWB} in one call. Same as
+	 * calling {@link #getQFunc(StateObsWithBoardVector, int, Types.ACTIONS)} for each action, but the equivalent
+	 * boards are calculated only once.
+	 *
+	 * @param curSOWB	the state
+	 * @param player	the player who has to move in {@code curSOWB} (0,...,N-1)
+	 * @param acts		the actions
+	 * @return the Q values, one for each action in {@code acts}
+	 */
+	public double[] getQFuncs(StateObsWithBoardVector curSOWB, int player, List<Types.ACTIONS> acts) {
+		int i, j;
+		double[] qValues = new double[acts.size()];
+		boolean sigmoid = hasSigmoid();
+
+		// Get equivalent boards (including self)
+		BoardVector[] equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
+
+		for (int k = 0; k < acts.size(); k++) {
+			int[] equivAction = xnf.symmetryActions(acts.get(k).toInt());
+			double score = 0.0;
+			for (i = 0; i < numTuples; i++) {
+				for (j = 0; j < equiv.length; j++) {
+					score += nTuples[equivAction[j]][player][i].getScore(equiv[j].bvec);
+				}
+			}
+			qValues[k] = (sigmoid ? Math.tanh(score) : score);
+		}
+		return qValues;
+	}
+
+	/**
+	 * Get the values V(s'|p) of all afterstates s' of state {@code so} in one call, where p is the player to
+	 * move in {@code so}. For each action {@code acts.get(k)} the afterstate is generated from a copy of {@code so}
+	 * and scored with the same summation as in {@link #getScoreI(StateObsWithBoardVector, int)}. The per-call
+	 * lookups of {@link #getScoreI(StateObsWithBoardVector, int)} are done only once for all siblings.
+	 * <p>
+	 * Actions with {@link Types.ACTIONS#isEqualToInverseOfLastAction(StateObservation)} (only relevant for
+	 * RubiksCube) are skipped: Their {@code nextSO[k]} is null and their value is {@code Double.NaN}.
+	 * Game-over afterstates get the value 0 (no expected future rewards).
+	 *
+	 * @param so			the parent state
+	 * @param acts			the actions available in {@code so}
+	 * @param afterstate	if true, generate s' with {@link StateObservation#advanceDeterministic(Types.ACTIONS)}
+	 * 						(the caller has to call {@link StateObservation#advanceNondeterministic()} afterwards,
+	 * 						if needed), else with {@link StateObservation#advance(Types.ACTIONS)}
+	 * @param nextSO		on output, {@code nextSO[k]} holds the state generated by {@code acts.get(k)} (or null,
+	 * 						if skipped). Has to have at least {@code acts.size()} elements.
+	 * @return the values V(s'|p), one for each action in {@code acts}
+	 *
+	 * @see TDNTuple4Agt#getNextAction2(StateObservation, boolean, boolean)
+	 */
+	public double[] getAfterstateScores(StateObservation so, List<Types.ACTIONS> acts, boolean afterstate,
+										StateObservation[] nextSO) {
+		int i, j;
+		double[] scores = new double[acts.size()];
+		boolean useSymmetry = getUSESYMMETRY();
+		int nSym = getNSym();
+		boolean sigmoid = hasSigmoid();
+		NTuple4[] tuples = nTuples[0][so.getPlayer()];
+
+		for (int k = 0; k < acts.size(); k++) {
+			Types.ACTIONS act = acts.get(k);
+			if (act.isEqualToInverseOfLastAction(so)) {
+				nextSO[k] = null;
+				scores[k] = Double.NaN;
+				continue;
+			}
+			StateObservation newSO = so.copy();
+			if (afterstate) {
+				newSO.advanceDeterministic(act);
+			} else {
+				newSO.advance(act);
+			}
+			nextSO[k] = newSO;
+			if (newSO.isGameOver())
+				continue;		// scores[k] = 0.0
+
+			BoardVector[] equiv = getSymBoards2(new StateObsWithBoardVector(newSO, xnf), useSymmetry, nSym);
+			double score = 0.0;
+			for (i = 0; i < numTuples; i++)
+				for (j = 0; j < equiv.length; j++)
+					score += tuples[i].getScore(equiv[j].bvec);
+			scores[k] = (sigmoid ? Math.tanh(score) : score);
+		}
+		return scores;
+	}
+
 	/**
 	 * Get the equivalent positions to one board. The first one 
 	 * is the board itself. The other can be generated
@@ -554,38 +643,35 @@ public class NTuple4ValueFunc implements Serializable {
 
 		alphaM = ALPHA / (numTuples*equiv.length); 
 
-		// construct new EligStates object, add it at head of LinkedList eList[ie] and remove 
-		// from the list the element 'beyond horizon' t_0 = t-horizon (if any).
-		// The LinkedList to use is either always the same one (ie=0, if ELIST_PP==false) or 
-		// the list kept for each specific player 'player' (if ELIST_PP==true):
+		// add a new entry at the head of ring buffer eList[ie] and drop the entry 'beyond horizon'
+		// t_0 = t-horizon (if any). The LUT indices of all n-tuples and all equivalent boards are
+		// calculated only here, once per state, and cached in the entry.
+		// The ring buffer to use is either always the same one (ie=0, if ELIST_PP==false) or
+		// the one kept for each specific player 'player' (if ELIST_PP==true):
 		int ie = (ELIST_PP ? player : 0);
-		EligStates elem = new EligStates(equiv,equivAction,e);
-		eList[ie].addFirst(elem);
 		assert (horizon>0) : "[NTuple4ValueFunc.update] Error: horizon is 0 !";
-		if (eList[ie].size()>horizon) eList[ie].pollLast();
-		
-		// iterate over all list elements in horizon  (at most h+1 elements from t down to t_0):
-		ListIterator<EligStates> iter = eList[ie].listIterator();		
-		lamFactor=1;  // holds 1, LAMBDA, LAMBDA^2,... in successive passes through while-loop
-		while(iter.hasNext()) {
-			elem=iter.next();
-			equiv=elem.equiv;
-			equivAction=elem.equivAction;
-//			printEquivs(equiv,equivAction);		// debug (TTT only)
-			//System.out.println(eList[ie].size()+" "+lamFactor+"   ["+ equiv[0]+"]");	// debug
+		EligTrace trace = eList[ie];
+		int slot = trace.addFirst(equiv.length, equivAction, e, horizon);
+		for (i = 0; i < numTuples; i++) {
+			NTuple4 ntuple = nTuples[0][0][i];	// LUT index is the same for all outputs and players
+			for (j = 0; j < equiv.length; j++)
+				trace.setIndex(slot, i, j, ntuple.getIndex(equiv[j].bvec));
+		}
+
+		// iterate over all trace entries in horizon  (at most h+1 entries from t down to t_0):
+		lamFactor=1;  // holds 1, LAMBDA, LAMBDA^2,... in successive passes through for-loop
+		for (int k = 0; k < trace.size(); k++) {
+			slot = trace.slot(k);
+			int numEquiv = trace.getNumEquiv(slot);
+			equivAction = trace.getEquivAction(slot);
 			assert (lamFactor >= tdAgt.getParTD().getHorizonCut()) 
 					: "Error: lamFactor < ParTD.getHorizonCut";
-			e = lamFactor*elem.sigDeriv;
+			e = lamFactor*trace.getSigDeriv(slot);
 			for (i = 0; i < numTuples; i++) {
 				nTuples[output][player][i].clearIndices();
-				for (j = 0; j < equiv.length; j++) {
-					// this assertion is only valid for TicTacToe, where each action should be 
-					// on an empty field which is coded as '1' here:
-					//assert (equiv[j][equivAction[j]]==1) : "Oops, action TicTacToe not viable";
-					
+				for (j = 0; j < numEquiv; j++) {
 					out = (QMODE ? equivAction[j] : output);
-//					System.out.print("(i,j)=("+i+","+j+"):  ");		//debug
-					nTuples[out][player][i].updateNew(equiv[j].bvec, alphaM, delta, e);
+					nTuples[out][player][i].updateIndex(trace.getIndex(slot, i, j), alphaM, delta, e);
 				}
 			}
 			lamFactor *= getLambda(); 
@@ -696,8 +782,8 @@ public class NTuple4ValueFunc implements Serializable {
 
 
 	public void clearEligList() {
-		for (LinkedList<EligStates> eligStates : eList)
-			eligStates.clear();
+		for (EligTrace trace : eList)
+			trace.clear();
 	}
 	
 	public void clearEligList(NTuple4Agt.EligType m_elig) {
@@ -712,19 +798,6 @@ public class NTuple4ValueFunc implements Serializable {
 	}
 
 	
-	// class EligStates is needed in update(int[],int,int,double,double,boolean)
-	private class EligStates implements Serializable {
-		BoardVector[] equiv;
-		int[] equivAction;
-		double sigDeriv;
-		
-		EligStates(BoardVector[] equiv, int[] equivAction, double sigDeriv) {
-			this.equiv=equiv.clone();
-			this.equivAction=(equivAction==null ? null : equivAction.clone());
-			this.sigDeriv=sigDeriv;
-		}
-	}
-
 	//
 	// Debug only: 
 	//
@@ -855,53 +928,35 @@ public class NTuple4ValueFunc implements Serializable {
 														// res[2]: quantiles of tcdat;
 		System.arraycopy(per, 0, res[0], 0, per.length);
 		
-		int count = 0;
+		long count = 0;
 		NTuple4[] ntuples = this.getNTuples();
 		for (NTuple4 ntuple : ntuples) {
 			count += ntuple.getLutLength();
 		}
 		
-		// data is an array big enough to hold all LUT data. It will be filled below with all 
-		// active LUT weights (i.e. LUT  != 0.0). This distinction between active and 
-		// inactive weights works of course only, if LUTs are initialized with 0.0.
-		double[] data = new double[count];		
-		double[] tcdat = new double[count];
-		double[] lut;
-		double[] tcf=null;
-		int i, pos=0;
-		
-		// --- this is fast, but has the disadvantage that many zeros are included --> 
-		// --- 25%- 50%- and 75%-quantiles tend to be exactly zero
-		// --- (the zeros come from the fact that many weights are never visited in training)
-//		for (i=0,len=0; i<ntuples.length; i++) {
-//			len = ntuples[i].getLutLength();
-//			lut = ntuples[i].getWeights();
-//			assert lut.length==len : "length assertion error";
-//			System.arraycopy(lut, 0, data, pos, len);
-//			pos += len; 
-//		}
-
-		// --- this is slower, but quantiles for active weights are more meaningful
-		// --- and not always 0.0 (!)
+		// --- only the active weights (i.e. LUT != 0.0) are collected, since the quantiles of all weights
+		// --- tend to be exactly zero (many weights are never visited in training). This distinction between
+		// --- active and inactive weights works of course only, if LUTs are initialized with 0.0.
+		// --- WeightStore.nonZeroIndices() visits for sparse LUTs only the allocated pages.
+		int[][] active = new int[ntuples.length][];
+		int i, pos=0, nActive=0;
+		boolean hasTc = false;
 		for (i=0; i<ntuples.length; i++) {
-			lut = ntuples[i].getWeights();
-			tcf = ntuples[i].getTcFactorArray();
-			for (int j=0; j<lut.length; j++) {
-				if (lut[j]!=0) {
-					 if (tcf!=null) tcdat[pos] = tcf[j];
-					data[pos++] = lut[j];
-				}
+			active[i] = ntuples[i].getWeightStore().nonZeroIndices();
+			nActive += active[i].length;
+			hasTc = hasTc || (ntuples[i].getTcFactorStore()!=null);
+		}
+		double[] data = new double[nActive];	// data is an array holding all *active* LUT data.
+		double[] tcdat = new double[nActive];
+		for (i=0; i<ntuples.length; i++) {
+			WeightStore lut = ntuples[i].getWeightStore();
+			WeightStore tcf = ntuples[i].getTcFactorStore();
+			for (int j : active[i]) {
+				if (tcf!=null) tcdat[pos] = tcf.get(j);
+				data[pos++] = lut.get(j);
 			}
 		}
-		int nActive=pos;
 		int pActive = (int) Math.round(((double)nActive)/count*100);
-		  
-		double[] data2 = new double[nActive];	// data2 is an array holding all *active* LUT data.
-		double[] tcdat2 = new double[nActive];
-		System.arraycopy(data, 0, data2, 0, nActive);
-		System.arraycopy(tcdat, 0, tcdat2, 0, nActive);
-		data = data2;
-		tcdat = tcdat2;
 
 		// --- only testing / debug ---
 //		double[] data = {0,1,2,3,4,5,6,7,8,9};
@@ -933,13 +988,12 @@ public class NTuple4ValueFunc implements Serializable {
 		df.applyPattern("+0.0000000;-0.0000000");  
 		System.out.println("[NTuple4ValueFunc.weightAnalysis] " + tdAgt.getClass().getSimpleName() + " ("
 				+count+" weights, "+nActive+" active ("+pActive+"%)): ");
-		//if (tcf==null) System.out.println("WARNING: tcFactorArray is null");
 		System.out.print("             per       LUT    ");
-		System.out.println((tcf==null) ? "" : " / tcFactor");
+		System.out.println((!hasTc) ? "" : " / tcFactor");
 		for (i=0; i<per.length; i++) {
 			System.out.print("   Quantile [" + form.format(per[i]) + "] = "	
 					+df.format(res[1][i]) );			
-			System.out.println((tcf==null) ? "" : " / " +df.format(res[2][i]));
+			System.out.println((!hasTc) ? "" : " / " +df.format(res[2][i]));
 		}
 
 		// print the n-tuple layout to file
@@ -958,9 +1012,8 @@ public class NTuple4ValueFunc implements Serializable {
 	 * @return  res[0]: number of weights, res[1]: number of active weights
 	 */
 	public int[] activeWeights() {
-		int count = 0;
+		long count = 0;
 		NTuple4[] ntuples = this.getNTuples();
-		double[] lut;
 		int i, pos;
 		
 		for (i=0; i<ntuples.length; i++) {
@@ -968,12 +1021,7 @@ public class NTuple4ValueFunc implements Serializable {
 		}
 		
 		for (i=0,pos=0; i<ntuples.length; i++) {
-			lut = ntuples[i].getWeights();
-			for (int j=0; j<lut.length; j++) {
-				if (lut[j]!=0) {
-					pos++;
-				}
-			}
+			pos += ntuples[i].getWeightStore().nonZeroIndices().length;
 		}
 		int nActive=pos;
 		int pActive = (int) Math.round(((double)nActive)/count*100);
@@ -981,7 +1029,7 @@ public class NTuple4ValueFunc implements Serializable {
 		System.out.println("[NTuple4ValueFunc.activeWeights] " + tdAgt.getClass().getSimpleName() + " ("
 				+count+" weights, "+nActive+" active ("+pActive+"%)): ");
 		
-		return new int[]{count,nActive};
+		return new int[]{(int) Math.min(count, Integer.MAX_VALUE),nActive};
 	}
 
 	
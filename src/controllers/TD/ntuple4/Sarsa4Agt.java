@@ -256,6 +256,11 @@ public class Sarsa4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Seri
         VTable = new double[acts.size()];  
         
         assert acts.size()>0 : "Oops, no available action";
+
+        // the Q values of all actions in one call (the board and its symmetries are calculated only once)
+        double[] qValues = (randomSelect) ? null
+        		: m_Net.getQFuncs(new StateObsWithBoardVector(so, m_Net.xnf), so.getPlayer(), acts);
+
         for(i = 0; i < acts.size(); ++i)
         {
     		if (randomSelect) {
@@ -265,8 +270,7 @@ public class Sarsa4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Seri
     			// TODO: currently we cannot mirror in Q-learning the afterstate logic 
     			// that we have optionally in TDNTuple4Agt
     			
-        		StateObsWithBoardVector curSOWB = new StateObsWithBoardVector(so, m_Net.xnf);
-            	qValue = m_Net.getQFunc(curSOWB,so.getPlayer(),acts.get(i));
+            	qValue = qValues[i];
             	
             	// It is a bit funny, that the decision is made based only on qValue, not 
             	// on the reward we might receive for action a=acts.get(i). So an action leading to 
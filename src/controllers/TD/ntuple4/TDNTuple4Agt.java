@@ -216,6 +216,12 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
         VTable = new double[acts.size()];  
         
         assert acts.size()>0 : "Oops, no available action";
+
+        // generate and score all afterstates in one call (V(s') resp. V(s'') from so-perspective, see below)
+        StateObservation[] nextSO = new StateObservation[acts.size()];
+        double[] afterVal = (randomSelect) ? null
+        		: m_Net.getAfterstateScores(so, acts, this.getAFTERSTATE(), nextSO);
+
         for(i = 0; i < acts.size(); ++i)
         {
 			thisAct = acts.get(i);
@@ -231,23 +237,16 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 			if (thisAct.isEqualToInverseOfLastAction(so))
 				continue;	// with next for-pass
 
-        	NewSO = so.copy();
-
     		if (randomSelect) {
     			value = rand.nextDouble();
     		} else {
+    			NewSO = nextSO[i];
+    			value = afterVal[i];
     	        if (this.getAFTERSTATE()) {
     	        	// if parameter "AFTERSTATE" is checked in ParNT, i.e. we use afterstate logic:
-    	        	//
-    	        	NewSO.advanceDeterministic(thisAct); 	// generate the afterstate
-    	        	value = this.getScore(NewSO,so); // this is V(s') from so-perspective
+    	        	// value is V(s') of the afterstate s' from so-perspective
     	            NewSO.advanceNondeterministic(); 
-    	        } else { 
-    	        	// the non-afterstate logic for the case of single moves:
-    	        	//System.out.println("NewSO: "+NewSO.stringDescr()+", act: "+act.toInt()); // DEBUG
-    	            NewSO.advance(acts.get(i));
-    	            value = this.getScore(NewSO,so); // this is V(s'') from the perspective of so
-    	        }
+    	        }	// else: the non-afterstate logic for the case of single moves, value is V(s'') from so-perspective
     	        // both ways of calculating the agent score are the same for deterministic games (s'=s''),
     	        // but they usually differ for nondeterministic games.
 
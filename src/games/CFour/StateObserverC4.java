@@ -206,6 +206,9 @@ public class StateObserverC4 extends ObserverBase implements StateObservation {
 
 		gameOver = isWin = m_C4.canWin(iAction);
 
+		if (zobristValid) zobrist ^= C4Base.rnd[m_Player][iAction*C4Base.ROWCOUNT + m_C4.getColHeight(iAction)];
+		clearChangedCells();
+		addChangedCell(iAction*C4Base.ROWCOUNT + m_C4.getColHeight(iAction));
 		m_C4.putPiece(iAction);
 		if(!gameOver) gameOver = m_C4.isDraw();	// if game is not a win, test on draw
 		
@@ -225,6 +228,20 @@ public class StateObserverC4 extends ObserverBase implements StateObservation {
 //			System.out.println("player="+this.getPlayer()+", moveCounter="+this.getMoveCounter());
 	}
 
+	@Override
+	public long getHash64() {
+		return zobristHash64();
+	}
+
+	/**
+	 * @return the Zobrist key of {@link AlphaBetaAgent#toZobrist(long, long)} for the board. {@link #advance(ACTIONS)}
+	 * 		   updates it with the same random numbers {@code C4Base.rnd}.
+	 */
+	@Override
+	protected long zobristBoard() {
+		return AlphaBetaAgent.toZobrist(m_C4.getField(C4Base.PLAYER1), m_C4.getField(C4Base.PLAYER2));
+	}
+
 	public ArrayList<ACTIONS> getAvailableActions() {
 		return availableActions;
 	}
@@ -258,7 +275,7 @@ public class StateObserverC4 extends ObserverBase implements StateObservation {
 	public int[][] getBoard() {
 		return m_C4.getBoard();
 	}
-	
+
 	/**
 	 * @return 	{0,1} for the player to move next. 
 	 * 			Player 0 is X, the player who starts the game. Player 1 is O.
@@ -7,6 +7,7 @@ import games.BoardVector;
 import games.StateObservation;
 import games.XNTupleBase;
 import games.XNTupleFuncs;
+import tools.Types.ACTIONS;
 
 public class XNTupleFuncsC4 extends XNTupleBase implements XNTupleFuncs, Serializable {
 
@@ -107,6 +108,38 @@ public class XNTupleFuncsC4 extends XNTupleBase implements XNTupleFuncs, Seriali
 		return new BoardVector(bvec);   
 	}
 	
+	/**
+	 * The symmetries of ConnectFour (the vertical mirror flip) are pure cell permutations.
+	 * 
+	 * @return the permutation tables, see {@link XNTupleFuncs#symmetryPermutations()}
+	 */
+	@Override
+	public int[][] symmetryPermutations() {
+		return permutationsFromSymmetryVectors();
+	}
+
+	/**
+	 * A ConnectFour move changes only the cell where the piece dropped (recorded by
+	 * {@link StateObserverC4#advance(ACTIONS)}). In case
+	 * {@link #getNumPositionValues()}{@code ==4}, the cell above becomes 'reachable' (3) as well.
+	 *
+	 * @return the number of changed cells, see {@link XNTupleFuncs#changedCells(StateObservation, int[], int[])}
+	 */
+	@Override
+	public int changedCells(StateObservation so, int[] cells, int[] vals) {
+		assert (so instanceof StateObserverC4);
+		int n = so.getChangedCells(cells);
+		if (n != 1) return n;
+		int cell = cells[0];
+		vals[0] = (so.getPlayer()==0) ? 2 : 1;		// the player who has just moved (piece values 1, 2)
+		if (this.getNumPositionValues()==4 && (cell+1) % C4Base.ROWCOUNT != 0) {
+			cells[1] = cell+1;
+			vals[1] = 3;
+			return 2;
+		}
+		return 1;
+	}
+
 	/**
 	 * Given a board vector from {@link #getBoardVector(StateObservation)} and given that the 
 	 * game has s symmetries, return an array which holds s symmetric board vectors: <ul>
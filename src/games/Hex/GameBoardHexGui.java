@@ -174,7 +174,8 @@ public class GameBoardHexGui {
             g2.setFont(new Font("TimesRoman", Font.PLAIN, HexConfig.HEX_SIZE / 4));
 
             //draw borders of the game board
-            HexUtils.drawOutlines(HexConfig.BOARD_SIZE, COLOR_PLAYER_ONE, COLOR_PLAYER_TWO, g2, m_gb.m_so.getBoard());
+            HexTile[][] board = m_gb.m_so.getBoard();
+            HexUtils.drawOutlines(HexConfig.BOARD_SIZE, COLOR_PLAYER_ONE, COLOR_PLAYER_TWO, g2, board);
 
             HexTile lastPlaced = m_gb.m_so.getLastUpdatedTile();
 
@@ -184,7 +185,7 @@ public class GameBoardHexGui {
             }
             for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
                 for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                    HexTile tile = m_gb.m_so.getBoard()[i][j];
+                    HexTile tile = board[i][j];
                     Color cellColor = getTileColor(tile, showValues);
                     HexUtils.drawHex(tile, g2, cellColor, false);
                     if (showValues && !GRAYSCALE) {
@@ -5,7 +5,13 @@ import games.StateObservation;
 import tools.Types;
 import tools.Types.ACTIONS;
 
+import java.awt.Polygon;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static games.Hex.HexConfig.*;
 
@@ -45,45 +51,61 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
      * become unreadable or you have to provide a special version transformation)
      */
     private static final long serialVersionUID = 12L;
+
+    /**
+     * The serialized fields. {@code board} and {@code lastUpdatedTile} are the HexTile members of game logs saved
+     * before the flat arrays were introduced, they are only read (see {@link #readObject(ObjectInputStream)}).
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("currentPlayer", int.class),
+            new ObjectStreamField("cells", int[].class),
+            new ObjectStreamField("values", double[].class),
+            new ObjectStreamField("lastMove", int.class),
+            new ObjectStreamField("board", HexTile[][].class),
+            new ObjectStreamField("lastUpdatedTile", HexTile.class)
+    };
+
+    /**
+     * Zobrist keys {@code zobristKeys[p][n]} for a stone of player p on tile n. The table grows with the board size.
+     */
+    private static volatile long[][] zobristKeys = zobristTable(4, 2, 0);
+
+    /**
+     * the polygons of the tiles for {@link #getBoard()}, built once for each board size
+     */
+    private static volatile Polygon[] polys = new Polygon[0];
+
     private int currentPlayer;
-    private final HexTile[][] board;
-    private HexTile lastUpdatedTile;
+    private int[] cells;            // the player who owns tile n = i*BOARD_SIZE+j (or PLAYER_NONE)
+    private double[] values;        // the tile values for the GUI (null: all values are NaN)
+    private int lastMove = -1;      // the tile on which the last stone was placed (-1: none)
     private ArrayList<Types.ACTIONS> availableActions;
 
+    /**
+     * Union-find structure over the tiles and 4 virtual edge nodes (see {@link #edge(int, int)}): two stones are in
+     * the same set, if they belong to the same chain. A player has won, if his two edge nodes are in the same set.
+     */
+    private int[] parent;
+    private byte[] rank;
+    private int winner = PLAYER_NONE;      // the player who connected his edges (PLAYER_NONE: nobody)
+
     public StateObserverHex() {
-        board = defaultGameBoard();
+        cells = new int[HexConfig.TILE_COUNT];
+        Arrays.fill(cells, PLAYER_NONE);
+        initUnionFind();
         currentPlayer = HexConfig.PLAYER_ONE;
         setAvailableActions();
     }
 
-    // never used
-//  public StateObserverHex(HexTile[][] table) {
-//        int pieceCount = 0;
-//        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-//            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-//                pieceCount += (table[i][j].getPlayer() == HexConfig.PLAYER_ONE ? 1 : -1);
-//            }
-//        }
-//        currentPlayer = (pieceCount % 2 == 0 ? HexConfig.PLAYER_ONE : PLAYER_TWO);
-//        board = new HexTile[HexConfig.BOARD_SIZE][HexConfig.BOARD_SIZE];
-//        copyTable(table);
-//        setAvailableActions();
-//  }
-
-//  public StateObserverHex(HexTile[][] table, int player, HexTile lastUpdatedTile) {
-//        board = new HexTile[HexConfig.BOARD_SIZE][HexConfig.BOARD_SIZE];
-//        copyTable(table);
-//        currentPlayer = player;
-//        this.lastUpdatedTile = lastUpdatedTile;
-//        setAvailableActions();
-//  }
-    
     public StateObserverHex(StateObserverHex other) {	
     	super(other);
-        board = new HexTile[HexConfig.BOARD_SIZE][HexConfig.BOARD_SIZE];
-        copyTable(other.board);
-        this.currentPlayer =other.currentPlayer;
-        this.lastUpdatedTile = other.lastUpdatedTile;
+        this.cells = other.cells.clone();
+        if (other.values != null) this.values = other.values.clone();
+        this.parent = other.parent.clone();
+        this.rank = other.rank.clone();
+        this.winner = other.winner;
+        this.currentPlayer = other.currentPlayer;
+        this.lastMove = other.lastMove;
 		if (other.availableActions!=null)	// this check is needed when loading older logs
 			this.availableActions = (ArrayList<ACTIONS>) other.availableActions.clone();
 					// note that clone does only clone the ArrayList, but not the contained ACTIONS, they are 
@@ -94,39 +116,63 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
 
     @Override
     public StateObserverHex copy() {
-//    	StateObserverHex soh = new StateObserverHex(board, currentPlayer, lastUpdatedTile);
-//    	soh.m_counter = this.m_counter;
-//      return soh;
     	return new StateObserverHex(this);
     }
 
+    private void initUnionFind() {
+        parent = new int[cells.length + 4];
+        rank = new byte[parent.length];
+        for (int k = 0; k < parent.length; k++) parent[k] = k;
+        winner = PLAYER_NONE;
+    }
+
     /**
-     * Replaces the current game board array by a copy of the array that is passed as the parameter.
-     *
-     * @param table The game board array that is to be copied
+     * @return the virtual node of edge {@code e} (0 or 1) of {@code player}. The edges of PLAYER_ONE are the
+     *         tiles with {@code j==0} and {@code j==BOARD_SIZE-1}, those of PLAYER_TWO the tiles with {@code i==0}
+     *         and {@code i==BOARD_SIZE-1}.
      */
-    private void copyTable(HexTile[][] table) {
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                board[i][j] = table[i][j].copy();
-            }
+    private int edge(int player, int e) {
+        return cells.length + 2 * player + e;
+    }
+
+    private int find(int k) {
+        while (parent[k] != k) {
+            parent[k] = parent[parent[k]];      // path halving
+            k = parent[k];
+        }
+        return k;
+    }
+
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a == b) return;
+        if (rank[a] < rank[b]) {
+            parent[a] = b;
+        } else {
+            parent[b] = a;
+            if (rank[a] == rank[b]) rank[a]++;
         }
     }
 
     /**
-     * @return An empty board array
+     * Join the stone of {@code player} on tile {@code (i,j)} with the chains of its neighbors and with the edges it
+     * touches. Set {@link #winner}, if the edges of {@code player} are connected afterwards.
      */
-    private HexTile[][] defaultGameBoard() {
-        HexTile[][] newBoard = new HexTile[HexConfig.BOARD_SIZE][HexConfig.BOARD_SIZE];
-
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                newBoard[i][j] = new HexTile(i, j);
-                newBoard[i][j].setPoly(HexUtils.createHexPoly(i, j, HexConfig.OFFSET, HexConfig.BOARD_SIZE, HexConfig.HEX_SIZE));
+    private void connect(int i, int j, int player) {
+        int size = HexConfig.BOARD_SIZE;
+        int n = i * size + j;
+        for (int di = -1; di <= 1; di++) {
+            for (int dj = -1; dj <= 1; dj++) {
+                int ni = i + di, nj = j + dj;
+                if (di != dj && HexUtils.isValidTile(ni, nj) && cells[ni * size + nj] == player)
+                    union(n, ni * size + nj);
             }
         }
-
-        return newBoard;
+        int pos = (player == PLAYER_ONE) ? j : i;
+        if (pos == 0) union(n, edge(player, 0));
+        if (pos == size - 1) union(n, edge(player, 1));
+        if (find(edge(player, 0)) == find(edge(player, 1))) winner = player;
     }
 
     @Override
@@ -134,20 +180,15 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
         return determineWinner() != PLAYER_NONE || getNumAvailableActions() == 0;
     }
 
-//    @Override
-//    public Types.WINNER getGameWinner() {
-//        return (determineWinner() == currentPlayer ? Types.WINNER.PLAYER_LOSES : Types.WINNER.PLAYER_WINS);
-//    }
-
     /**
-     * Uses information about the tile on which the last stone has been placed to determine if the chain containing
-     * that stone touches both game board edges that have to be connected. Actual calculation is done in HexUtils.
+     * The chain of the last placed stone connects both edges of its player, if and only if the edge nodes of this
+     * player are in the same set of the union-find structure, which {@link #advance(ACTIONS)} updates. 
      *
-     * @return ID of the player who won the game. ID of HexConfig.PLAYER_NONE if game is not over.
+     * @return ID of the player to move (who has lost), if the game is won by the player who placed the last stone. 
+     * 		   ID of HexConfig.PLAYER_NONE if game is not over.
      */
     private int determineWinner() {
-        Types.WINNER winner = HexUtils.getWinner(getBoard(), getLastUpdatedTile());
-        if (winner == Types.WINNER.PLAYER_WINS) {
+        if (winner != PLAYER_NONE) {
             //Reverse winners, since current player changes after the winning tile was placed
             return (this.getPlayer() == PLAYER_ONE ? PLAYER_ONE : PLAYER_TWO);
         }
@@ -169,13 +210,11 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
         int playerOneTiles = 0;
         int playerTwoTiles = 0;
 
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                if (board[i][j].getPlayer() == PLAYER_ONE) {
-                    playerOneTiles++;
-                } else if (board[i][j].getPlayer() == PLAYER_TWO) {
-                    playerTwoTiles++;
-                }
+        for (int cell : cells) {
+            if (cell == PLAYER_ONE) {
+                playerOneTiles++;
+            } else if (cell == PLAYER_TWO) {
+                playerTwoTiles++;
             }
         }
 
@@ -194,7 +233,7 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
 //                sb.append(' ');
 //            }
             for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                switch (board[i][j].getPlayer()) {
+                switch (cells[i * HexConfig.BOARD_SIZE + j]) {
                     case HexConfig.PLAYER_ONE -> sb.append('B');
                     case PLAYER_TWO -> sb.append('W');
                     default -> sb.append('-');
@@ -250,13 +289,17 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
         int j = actionInt % HexConfig.BOARD_SIZE;
         int i = (actionInt - j) / HexConfig.BOARD_SIZE;
 
-        if (board[i][j].getPlayer() != HexConfig.PLAYER_NONE) {
+        if (cells[actionInt] != HexConfig.PLAYER_NONE) {
             System.out.println("Tile (" + i + ", " + j + ") has already been claimed by a player.");
             return;
         }
-        board[i][j].setPlayer(currentPlayer);
+        cells[actionInt] = currentPlayer;
+        if (zobristValid) zobrist ^= zobristKeys()[currentPlayer][actionInt];
+        clearChangedCells();
+        addChangedCell(actionInt);
+        connect(i, j, currentPlayer);
 
-        lastUpdatedTile = board[i][j];
+        lastMove = actionInt;
         setAvailableActions();            // IMPORTANT: adjust the available actions (have reduced by one)
 		super.incrementMoveCounter();
 
@@ -289,12 +332,9 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
     @Override
     public void setAvailableActions() {
         availableActions = new ArrayList<>();
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                if (board[i][j].getPlayer() == HexConfig.PLAYER_NONE) {
-                    int actionInt = i * HexConfig.BOARD_SIZE + j;
-                    availableActions.add(Types.ACTIONS.fromInt(actionInt));
-                }
+        for (int n = 0; n < cells.length; n++) {
+            if (cells[n] == HexConfig.PLAYER_NONE) {
+                availableActions.add(Types.ACTIONS.fromInt(n));
             }
         }
     }
@@ -306,18 +346,11 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
 
     @Override
     public void storeBestActionInfo(Types.ACTIONS bestAction, double[] valueTable) {
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                board[i][j].setValue(Double.NaN);
-            }
-        }
-
+        clearTileValues();
+        values = new double[cells.length];
+        Arrays.fill(values, Double.NaN);
         for (int k = 0; k < getNumAvailableActions(); ++k) {
-            double val = valueTable[k];
-            int actionInt = getAction(k).toInt();
-            int j = actionInt % HexConfig.BOARD_SIZE;
-            int i = (actionInt - j) / HexConfig.BOARD_SIZE;
-            board[i][j].setValue(val);
+            values[getAction(k).toInt()] = valueTable[k];
         }
     }
 
@@ -325,11 +358,7 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
      * Set all tile values to the default (Double.NaN)
      */
     protected void clearTileValues() {
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                board[i][j].setValue(Double.NaN);
-            }
-        }
+        values = null;
     }
 
     @Override
@@ -342,16 +371,104 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
         return currentPlayer;
     }
 
+    @Override
+    public long getHash64() {
+        return zobristHash64();
+    }
+
+    @Override
+    protected long zobristBoard() {
+        long[][] z = zobristKeys();
+        long h = 0;
+        for (int n = 0; n < cells.length; n++)
+            if (cells[n] != HexConfig.PLAYER_NONE)
+                h ^= z[cells[n]][n];
+        return h;
+    }
+
+    private static long[][] zobristKeys() {
+        long[][] z = zobristKeys;
+        if (z[0].length < HexConfig.TILE_COUNT) zobristKeys = z = zobristTable(4, 2, HexConfig.TILE_COUNT);
+        return z;
+    }
+
+    /**
+     * @param n the tile number {@code i*BOARD_SIZE+j}
+     * @return the player who owns tile n (PLAYER_ONE, PLAYER_TWO or PLAYER_NONE)
+     */
+    public int getCell(int n) {
+        return cells[n];
+    }
+
+    /**
+     * @return a new HexTile array for the board (with polygons and tile values, for the GUI and the features). 
+     *         Changing it does not change this state. 
+     */
     public HexTile[][] getBoard() {
+        HexTile[][] board = new HexTile[HexConfig.BOARD_SIZE][HexConfig.BOARD_SIZE];
+        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
+            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
+                board[i][j] = getTile(i, j);
+            }
+        }
         return board;
     }
 
+    private HexTile getTile(int i, int j) {
+        int n = i * HexConfig.BOARD_SIZE + j;
+        Polygon[] p = polys;
+        if (p.length != cells.length) {
+            p = new Polygon[cells.length];
+            for (int k = 0; k < p.length; k++)
+                p[k] = HexUtils.createHexPoly(k / HexConfig.BOARD_SIZE, k % HexConfig.BOARD_SIZE, HexConfig.OFFSET, 
+                        HexConfig.BOARD_SIZE, HexConfig.HEX_SIZE);
+            polys = p;
+        }
+        return new HexTile(i, j, cells[n], p[n], (values == null) ? Double.NaN : values[n]);
+    }
 
     /**
      * @return The tile on which the last stone was placed
      */
     HexTile getLastUpdatedTile() {
-        return lastUpdatedTile;
+        if (lastMove < 0) return null;
+        return getTile(lastMove / HexConfig.BOARD_SIZE, lastMove % HexConfig.BOARD_SIZE);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField f = out.putFields();
+        f.put("currentPlayer", currentPlayer);
+        f.put("cells", cells);
+        f.put("values", values);
+        f.put("lastMove", lastMove);
+        out.writeFields();
+    }
+
+    /**
+     * Reads states saved with flat arrays as well as older states with a HexTile[][] {@code board} (e.g. in game 
+     * logs). The union-find structure and the available actions are rebuilt.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField f = in.readFields();
+        currentPlayer = f.get("currentPlayer", PLAYER_ONE);
+        HexTile[][] board = (HexTile[][]) f.get("board", null);
+        if (board != null) {
+            int size = board.length;
+            cells = new int[size * size];
+            for (int i = 0; i < size; i++)
+                for (int j = 0; j < size; j++)
+                    cells[i * size + j] = board[i][j].getPlayer();
+            HexTile last = (HexTile) f.get("lastUpdatedTile", null);
+            lastMove = (last == null) ? -1 : last.getCoords().x * size + last.getCoords().y;
+        } else {
+            cells = (int[]) f.get("cells", null);
+            values = (double[]) f.get("values", null);
+            lastMove = f.get("lastMove", -1);
+        }
+        initUnionFind();
+        for (int n = 0; n < cells.length; n++)
+            if (cells[n] != PLAYER_NONE) connect(n / HexConfig.BOARD_SIZE, n % HexConfig.BOARD_SIZE, cells[n]);
+        setAvailableActions();
     }
 
 }
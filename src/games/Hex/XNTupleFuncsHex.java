@@ -61,6 +61,30 @@ public class XNTupleFuncsHex extends XNTupleBase implements XNTupleFuncs, Serial
         return 2;
     }
 
+	/**
+	 * The symmetries of Hex (the 180 rotation) are pure cell permutations.
+	 * 
+	 * @return the permutation tables, see {@link XNTupleFuncs#symmetryPermutations()}
+	 */
+	@Override
+	public int[][] symmetryPermutations() {
+		return permutationsFromSymmetryVectors();
+	}
+
+	/**
+	 * A Hex move changes only the tile of the action.
+	 *
+	 * @return the number of changed cells, see {@link XNTupleFuncs#changedCells(StateObservation, int[], int[])}
+	 */
+	@Override
+	public int changedCells(StateObservation so, int[] cells, int[] vals) {
+		StateObserverHex stateObs = (StateObserverHex) so;
+		int n = so.getChangedCells(cells);
+		for (int r = 0; r < n; r++)
+			vals[r] = stateObs.getCell(cells[r]) + 1;
+		return n;
+	}
+
 	/**
 	 * @return the maximum number of symmetries in this game
 	 */
@@ -74,11 +98,10 @@ public class XNTupleFuncsHex extends XNTupleBase implements XNTupleFuncs, Serial
         // and any other permutation should lead after re-training to
         // identical results as well.
         StateObserverHex stateObs = (StateObserverHex) so;
-        HexTile[] boardVectorTiles = HexUtils.boardToVector(stateObs.getBoard());
-        int[] boardVectorInt = new int[boardVectorTiles.length];
+        int[] boardVectorInt = new int[HexConfig.TILE_COUNT];
 
         for (int i = 0; i < boardVectorInt.length; i++) {
-            boardVectorInt[i] = bmap[boardVectorTiles[i].getPlayer() + 1];
+            boardVectorInt[i] = bmap[stateObs.getCell(i) + 1];
         }
 
         return new BoardVector(boardVectorInt);
@@ -32,6 +32,11 @@ public class StateObserverNim extends ObserverBase implements StateObservation {
 	 */
 	protected static final long serialVersionUID = 12L;
 
+	/**
+	 * Zobrist keys {@code zobristKeys[h][c]} for heap h with c items. The table grows with the heaps and their sizes.
+	 */
+	private static volatile long[][] zobristKeys = zobristTable(6, 0, 0);
+
 	/**
 	 * Construct an object with {@link NimConfig#NUMBER_HEAPS} heaps. Each heap starts with
 	 * {@link NimConfig#HEAP_SIZE} items. Player 0 is the starting player.
@@ -167,9 +172,16 @@ public class StateObserverNim extends ObserverBase implements StateObservation {
 		assert subtractor <= NimConfig.MAX_MINUS : "Oops, cannot take more than "+NimConfig.MAX_MINUS+" items from heap!";
 		assert m_heap[heap]>=subtractor : "Oops, heap "+heap+" has not "+subtractor+" items left!"; 		
 		
+		if (zobristValid) {
+			long[][] z = zobristKeys(m_heap.length, m_heap[heap]);
+			zobrist ^= z[heap][m_heap[heap]] ^ z[heap][m_heap[heap]-subtractor];
+		}
 		m_heap[heap] -= subtractor;
     	
-		if (SORT_IT) Arrays.sort(m_heap);	// still experimental
+		if (SORT_IT) {
+			Arrays.sort(m_heap);	// still experimental
+			zobristValid = false;
+		}
 		
     	setAvailableActions(); 			// IMPORTANT: adjust the available actions (have reduced by one)
     	
@@ -226,6 +238,31 @@ public class StateObserverNim extends ObserverBase implements StateObservation {
 		return m_heap;
 	}
 
+	@Override
+	public long getHash64() {
+		return zobristHash64();
+	}
+
+	@Override
+	protected long zobristBoard() {
+		int maxCount = 0;
+		for (int h : m_heap) maxCount = Math.max(maxCount, h);
+		long[][] z = zobristKeys(m_heap.length, maxCount);
+		long hash = 0;
+		for (int i = 0; i < m_heap.length; i++) hash ^= z[i][m_heap[i]];
+		return hash;
+	}
+
+	private static long[][] zobristKeys(int heaps, int maxCount) {
+		long[][] z = zobristKeys;
+		if (z.length < heaps || z[0].length <= maxCount) {
+			int rows = Math.max(z.length, heaps);
+			int cols = (z.length == 0) ? maxCount + 1 : Math.max(z[0].length, maxCount + 1);
+			zobristKeys = z = zobristTable(6, rows, cols);
+		}
+		return z;
+	}
+
 	public int getHeapSum() {
 		int s=0;
 		for (int h : m_heap) s+=h;
@@ -78,6 +78,16 @@ public class XNTupleFuncsNim3P extends XNTupleBase implements XNTupleFuncs, Seri
 		return new BoardVector(((StateObserverNim3P) so).getHeaps());   
 	}
 	
+	/**
+	 * The symmetries of Nim (only the identity) are pure cell permutations.
+	 * 
+	 * @return the permutation tables, see {@link XNTupleFuncs#symmetryPermutations()}
+	 */
+	@Override
+	public int[][] symmetryPermutations() {
+		return permutationsFromSymmetryVectors();
+	}
+
 	/**
 	 * Given a board vector from {@link #getBoardVector(StateObservation)} and given that the 
 	 * game has s symmetries, return an array which holds s symmetric board vectors: <ul>
@@ -1,6 +1,7 @@
 package games;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import controllers.PlayAgent;
 import tools.ScoreTuple;
@@ -31,6 +32,27 @@ abstract public class ObserverBase implements StateObservation {
     protected double[] storedValues = null;
     protected double storedMaxScore;
 
+	/**
+	 * The Zobrist hash of the board (without the player to move) for games which override {@link #getHash64()} with
+	 * {@link #zobristHash64()}. It is updated in {@code advance} as long as {@code zobristValid} is true, and is
+	 * computed with {@link #zobristBoard()} on the first call of {@link #getHash64()} (also after loading a state).
+	 */
+	protected transient long zobrist;
+	protected transient boolean zobristValid = false;
+
+	/**
+	 * The cells changed by the last {@code advance}, for games which record them with {@link #clearChangedCells()}
+	 * and {@link #addChangedCell(int)} (see {@link #getChangedCells(int[])}). Null, if not recorded (also in a copy
+	 * or after loading a state).
+	 */
+	private transient int[] changedCells = null;
+	private transient int numChangedCells = 0;
+
+	/**
+	 * random keys for the player to move, used by {@link #zobristHash64()}
+	 */
+	private static final long[] ZOBRIST_PLAYER = zobristTable(0x5eed, 1, 8)[0];
+
 	/**
 	 * The list of last moves in an episode. Each move is stored as {@link Integer} {@code iAction}.
 	 */
@@ -48,6 +70,8 @@ abstract public class ObserverBase implements StateObservation {
 		this.m_roundOver = other.m_roundOver;
 		this.lastMoves = (ArrayList<Integer>) other.lastMoves.clone();		// WK: bug fix, added missing .clone()
 		this.storedMaxScore = other.storedMaxScore;
+		this.zobrist = other.zobrist;
+		this.zobristValid = other.zobristValid;
 		this.storedActBest = other.storedActBest;
 		if (other.storedActions!=null) this.storedActions = other.storedActions.clone();
 		if (other.storedValues!=null) this.storedValues = other.storedValues.clone();
@@ -383,6 +407,85 @@ abstract public class ObserverBase implements StateObservation {
 	 */
 	abstract public String stringDescr();
 
+	/**
+	 * Start the record of the cells changed by {@code advance}: forget the cells of the previous move.
+	 */
+	protected void clearChangedCells() {
+		if (changedCells == null) changedCells = new int[8];
+		numChangedCells = 0;
+	}
+
+	/**
+	 * Record a cell changed by {@code advance} (after {@link #clearChangedCells()}).
+	 */
+	protected void addChangedCell(int cell) {
+		if (numChangedCells == changedCells.length) changedCells = Arrays.copyOf(changedCells, 2 * numChangedCells);
+		changedCells[numChangedCells++] = cell;
+	}
+
+	/**
+	 * Default implementation: the cells recorded in {@code advance} with {@link #clearChangedCells()} and
+	 * {@link #addChangedCell(int)}, or -1 if the game does not record them.
+	 */
+	public int getChangedCells(int[] cells) {
+		if (changedCells == null) return -1;
+		System.arraycopy(changedCells, 0, cells, 0, numChangedCells);
+		return numChangedCells;
+	}
+
+	/**
+	 * Default implementation: FNV-1a hash of {@link #stringDescr()} and the player to move. Games with a Zobrist table
+	 * override it with {@link #zobristHash64()}, which avoids building the string.
+	 *
+	 * @return the hash of the board and the player to move
+	 */
+	public long getHash64() {
+		long h = 0xcbf29ce484222325L;
+		final String s = stringDescr();
+		for (int i = 0; i < s.length(); i++) {
+			h ^= s.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= getPlayer();
+		h *= 0x100000001b3L;
+		return h;
+	}
+
+	/**
+	 * @return the hash {@code zobrist} of the board, XOR-ed with a key for the player to move. Derived classes which
+	 * 		   call it have to override {@link #zobristBoard()} and to update {@code zobrist} in {@code advance}.
+	 */
+	protected long zobristHash64() {
+		if (!zobristValid) {
+			zobrist = zobristBoard();
+			zobristValid = true;
+		}
+		return zobrist ^ ZOBRIST_PLAYER[getPlayer() & 7];
+	}
+
+	/**
+	 * @return the Zobrist hash of the board, computed from scratch (the XOR of the keys for all occupied cells)
+	 */
+	protected long zobristBoard() {
+		throw new RuntimeException("zobristBoard() needs to be overridden by games which call zobristHash64()");
+	}
+
+	/**
+	 * @return a table of Zobrist keys: {@code rows*cols} random 64-bit numbers. Entry {@code [r][c]} depends only
+	 * 		   on {@code seed, r, c} (SplitMix64), so a larger table for the same seed extends a smaller one.
+	 */
+	public static long[][] zobristTable(long seed, int rows, int cols) {
+		long[][] table = new long[rows][cols];
+		for (int r = 0; r < rows; r++)
+			for (int c = 0; c < cols; c++) {
+				long z = seed * 0x9E3779B97F4A7C15L + ((long) r << 32) + c + 1;
+				z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+				z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+				table[r][c] = z ^ (z >>> 31);
+			}
+		return table;
+	}
+
 	/**
 	 * 
 	 * @return a string representation of action {@code act}
@@ -3,7 +3,6 @@ package games.Othello;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 
@@ -74,158 +73,130 @@ public class BaseOthello implements Serializable
 	}
 
 	/**
-	 * Used to determine availableActions
+	 * Bitboards: bit {@code n} of a {@code long} stands for board cell {@code (i,j)} with {@code n = 8*i+j}
+	 * (the action number of this cell). A position is given by two bitboards, one for the discs of each player.
+	 * <p>
+	 * Moving one cell in one of the 8 directions is a shift by {@link #SHIFTS}{@code [d]} (left shift for 
+	 * positive, right shift for negative values). The cells that would wrap around to the other side of the 
+	 * board are masked out with {@link #MASKS}{@code [d]}.
 	 */
-	public static final Modifier[] modifier = {
-			new Modifier(-1,-1), 
-			new Modifier(0,-1), 
-			new Modifier(+1,-1),
-			new Modifier(-1,0),
-			new Modifier(+1,0),
-			new Modifier(-1,+1),
-			new Modifier(0,+1),
-			new Modifier(+1,+1)
-	};
-
-	private static class Modifier{
-		int x,y;
-		public Modifier(int x, int y)
-		{
-			this.x = x;
-			this.y = y;
-		}
+	private static final long NOT_COL_0 = 0xFEFEFEFEFEFEFEFEL;	// all cells except those in column 0
+	private static final long NOT_COL_7 = 0x7F7F7F7F7F7F7F7FL;	// all cells except those in column 7
+	private static final int[] SHIFTS = { -9, -8, -7, -1, +1, +7, +8, +9 };
+	private static final long[] MASKS = { NOT_COL_7, -1L, NOT_COL_0, NOT_COL_7, NOT_COL_0, NOT_COL_7, -1L, NOT_COL_0 };
+
+	private static long shift(long b, int d) {
+		int s = SHIFTS[d];
+		return ((s > 0) ? (b << s) : (b >>> -s)) & MASKS[d];
 	}
 
-	public static void deepCopyGameState(int[][] toCopy, int[][] result)
+	/**
+	 * @param own	bitboard of the player to move
+	 * @param opp	bitboard of the opponent
+	 * @return the bitboard of all legal moves for the player to move: empty cells from which a line of 
+	 * 		   opponent discs, closed by an own disc, starts in at least one direction
+	 */
+	public static long legalMoves(long own, long opp)
 	{
-		for(int i = 0; i < toCopy.length; i++)
-		{
-			for(int j = 0; j < toCopy[i].length; j++)
-			{
-				result[i][j] = toCopy[i][j]; 
-			}
+		long empty = ~(own | opp);
+		long moves = 0;
+		for (int d = 0; d < 8; d++) {
+			long t = shift(own, d) & opp;
+			for (int k = 0; k < 5; k++)		// a line of opponent discs has at most 6 cells
+				t |= shift(t, d) & opp;
+			moves |= shift(t, d) & empty;
 		}
+		return moves;
 	}
 
 	/**
-	 * 
-	 * @param currentGameState the game state of the board
-	 * @param player who has to place a token   0 = Black    1 = White
-	 * @return returns an ArrayList with all possible Actions from which can be picked from.
+	 * @param own	bitboard of the player to move
+	 * @param opp	bitboard of the opponent
+	 * @param n		the cell where the player to move places a disc
+	 * @return the bitboard of the opponent discs that are flipped by this move
 	 */
-	public static ArrayList<ACTIONS> possibleActions(int[][] currentGameState, int player)
+	public static long flips(long own, long opp, int n)
 	{
-//		System.out.println("Call to possibleActions");
-		ArrayList<ACTIONS> retVal = new ArrayList<ACTIONS>();
-		for(int i = 0, n = 0; i < currentGameState.length; i++) {
-			for(int j = 0; j < currentGameState[0].length; j++, n++)
-			{
-				if(currentGameState[i][j] == ConfigOthello.EMPTY) {
-					if(isLegalAction(currentGameState,i,j,player)) {
-						
-						retVal.add(new ACTIONS(n));
-					}
-				}
-					
+		long m = 1L << n;
+		long flipped = 0;
+		for (int d = 0; d < 8; d++) {
+			long f = 0;
+			long x = shift(m, d);
+			while ((x & opp) != 0) {
+				f |= x;
+				x = shift(x, d);
 			}
+			if ((x & own) != 0) flipped |= f;
 		}
-		return retVal;
+		return flipped;
 	}
 
 	/**
-	 * 2 = Empty 1 = white 0 = Black
-	 * @param cgs currentGameState[i][j]
-	 * @param i index
-	 * @param j index
-	 * @param player who has to place a token   0 = Black    1 = White
-	 * @return
+	 * @param table	board position table with entries BLACK, WHITE or EMPTY
+	 * @param player	BLACK or WHITE
+	 * @return the bitboard of the discs of {@code player} in {@code table}
 	 */
-	private static boolean isLegalAction(int[][] cgs, int i, int j, int player) 
+	public static long tableToBits(int[][] table, int player)
 	{
-		for(Modifier x : modifier) {
-			int setX = (i+x.x), setY = (j+x.y);
-			if(inBounds((setX),(setY))) {
-				if(cgs[setX][setY] == getOpponent(player)) {
-					if(validateAction(cgs,(setX),(setY),x,player)) return true;
-				}
-			}
-		}
-		return false;
+		long b = 0;
+		for (int i = 0, n = 0; i < ConfigOthello.BOARD_SIZE; i++)
+			for (int j = 0; j < ConfigOthello.BOARD_SIZE; j++, n++)
+				if (table[i][j] == player) b |= 1L << n;
+		return b;
 	}
 
 	/**
-	 * Iterative method to find the own stone in a given row
-	 * @param cgs 			current game state int[][] {-1,0,1}
-	 * @param i 			index of current game state
-	 * @param j				index of current game state
-	 * @param x				modifier to iterate through cell.
-	 * @param playerColor	integer -1 or 1 representing the actual player.
-	 * @return
+	 * @param moves	a bitboard
+	 * @return an ArrayList with an action for each bit set in {@code moves} (in ascending order)
 	 */
-	private static boolean validateAction(int[][] cgs, int i, int j, Modifier x, int player) 
+	public static ArrayList<ACTIONS> bitsToActions(long moves)
+	{
+		ArrayList<ACTIONS> retVal = new ArrayList<ACTIONS>(Long.bitCount(moves));
+		for (long b = moves; b != 0; b &= b - 1)
+			retVal.add(new ACTIONS(Long.numberOfTrailingZeros(b)));
+		return retVal;
+	}
+
+	public static void deepCopyGameState(int[][] toCopy, int[][] result)
 	{
-		while(inBounds(i+x.x,j+x.y))
+		for(int i = 0; i < toCopy.length; i++)
 		{
-			if(cgs[(i+x.x)][(j+x.y)] == player) return true;
-			if(cgs[(i+x.x)][(j+x.y)] == ConfigOthello.EMPTY) return false; 
-			
-			i += x.x;
-			j += x.y;
+			for(int j = 0; j < toCopy[i].length; j++)
+			{
+				result[i][j] = toCopy[i][j]; 
+			}
 		}
-		return false;
 	}
 
 	/**
-	 * Used to advance the game state. Checking for all modifiers (see above)
-	 *  to find an opponent stone,
-	 * then adding them to the flipList until an own stone has been found.
+	 * 
+	 * @param currentGameState the game state of the board
+	 * @param player who has to place a token   0 = Black    1 = White
+	 * @return returns an ArrayList with all possible Actions from which can be picked from.
+	 */
+	public static ArrayList<ACTIONS> possibleActions(int[][] currentGameState, int player)
+	{
+		long own = tableToBits(currentGameState, player);
+		long opp = tableToBits(currentGameState, getOpponent(player));
+		return bitsToActions(legalMoves(own, opp));
+	}
+
+	/**
+	 * Used to advance the game state: flip all opponent discs enclosed by the disc placed on {@code (i,j)}
+	 * and an own disc (the disc on {@code (i,j)} itself is not set).
 	 * @param cgs current game state
 	 * @param i index
 	 * @param j index
 	 * @param player player 
 	 */
 	public static void flip(int[][] cgs, int i, int j, int player){
-		HashSet<Modifier> flipSet = new HashSet<Modifier>();
-		for(Modifier x : modifier) {
-			flipSet.clear();
-			boolean flipping = false;
-			int setX = i;
-			int setY = j;
-			while(inBounds(setX += x.x, setY += x.y))
-			{
-				if(cgs[setX][setY] == ConfigOthello.EMPTY) {
-					break;
-				}
-
-				if(cgs[setX][setY] == getOpponent(player)) {
-					flipSet.add(new Modifier(setX, setY));
-				}
-				if(cgs[setX][setY] == player)								
-				{
-					flipping = true;
-					break;
-				}
-			}
-			if(flipping)
-			{
-				for(Modifier y : flipSet)
-				{
-					cgs[y.x][y.y] = player;
-				}
-			}
+		long flipped = flips(tableToBits(cgs, player), tableToBits(cgs, getOpponent(player)), i*ConfigOthello.BOARD_SIZE + j);
+		for (long b = flipped; b != 0; b &= b - 1) {
+			int n = Long.numberOfTrailingZeros(b);
+			cgs[n / ConfigOthello.BOARD_SIZE][n % ConfigOthello.BOARD_SIZE] = player;
 		}
 	}
 
-	/**
-	 * @param row	index representing int[row]
-	 * @param col	index representing int[x][col]
-	 * @return		boolean if the given integers are in our board
-	 */
-	private static boolean inBounds(int row, int col)
-	{
-		return 0 <= row && row < ConfigOthello.BOARD_SIZE && 0 <= col && col <  ConfigOthello.BOARD_SIZE;
-	}
-
 	/**
 	 * Returns the opponent of a given player
 	 * @param player 
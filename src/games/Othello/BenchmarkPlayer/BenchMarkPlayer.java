@@ -70,10 +70,10 @@ public class BenchMarkPlayer extends AgentBase implements PlayAgent, Serializabl
 		double scorePlayer=0;
 		for(int i = 0; i < 8; i++) {
 			for(int j = 0; j < 8; j++) {
-				if(so.getCurrentGameState()[i][j] == player) {
+				if(so.getCell(i* ConfigOthello.BOARD_SIZE + j) == player) {
 					scorePlayer += ConfigOthello.BENCHMARKPLAYERMAPPING[mode][i* ConfigOthello.BOARD_SIZE + j];
 				}
-				else if(so.getCurrentGameState()[i][j] == opponent) {
+				else if(so.getCell(i* ConfigOthello.BOARD_SIZE + j) == opponent) {
 					scorePlayer -= 
 						ConfigOthello.BENCHMARKPLAYERMAPPING[mode][i* ConfigOthello.BOARD_SIZE + j];
 				}
@@ -405,11 +405,12 @@ public class FeatureOthello implements Feature, Serializable{
 		assert (sob instanceof StateObserverOthello);
 		StateObserverOthello so = (StateObserverOthello) sob;
 		double[] retVal = new double[5];
-		retVal[0] = controllStartingBlock(so.getCurrentGameState(), so.getPlayer()) - controllStartingBlock(so.getCurrentGameState(), BaseOthello.getOpponent(so.getPlayer()));
-		retVal[1] = controllVerticallyLine(so.getCurrentGameState(), so.getPlayer()) - controllVerticallyLine(so.getCurrentGameState(), BaseOthello.getOpponent(so.getPlayer()));
-		retVal[2] = controllHorizontally(so.getCurrentGameState(), so.getPlayer()) - controllHorizontally(so.getCurrentGameState(), BaseOthello.getOpponent(so.getPlayer()));
-		retVal[3] = controllCornerBlockThreeXThree(so.getCurrentGameState(), so.getPlayer()) - controllCornerBlockThreeXThree(so.getCurrentGameState(), BaseOthello.getOpponent(so.getPlayer()));
-		retVal[4] = controllCornerBlockTwoXFive(so.getCurrentGameState(), so.getPlayer()) - controllCornerBlockTwoXFive(so.getCurrentGameState(), BaseOthello.getOpponent(so.getPlayer()));
+		int[][] cgs = so.getCurrentGameState();
+		retVal[0] = controllStartingBlock(cgs, so.getPlayer()) - controllStartingBlock(cgs, BaseOthello.getOpponent(so.getPlayer()));
+		retVal[1] = controllVerticallyLine(cgs, so.getPlayer()) - controllVerticallyLine(cgs, BaseOthello.getOpponent(so.getPlayer()));
+		retVal[2] = controllHorizontally(cgs, so.getPlayer()) - controllHorizontally(cgs, BaseOthello.getOpponent(so.getPlayer()));
+		retVal[3] = controllCornerBlockThreeXThree(cgs, so.getPlayer()) - controllCornerBlockThreeXThree(cgs, BaseOthello.getOpponent(so.getPlayer()));
+		retVal[4] = controllCornerBlockTwoXFive(cgs, so.getPlayer()) - controllCornerBlockTwoXFive(cgs, BaseOthello.getOpponent(so.getPlayer()));
 		return retVal;
 	}
 
@@ -624,7 +625,7 @@ public class FeatureOthello implements Feature, Serializable{
 		double[] retVal = new double[64];
 		for(int i=0, z=0; i < ConfigOthello.BOARD_SIZE; i++) {
 			for(int j=0; j < ConfigOthello.BOARD_SIZE; j++, z++) {
-				retVal[z] = so.getCurrentGameState()[i][j];
+				retVal[z] = so.getCell(z);
 			}
 		}
 		return retVal;
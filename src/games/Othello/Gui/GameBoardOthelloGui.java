@@ -225,12 +225,12 @@ public class GameBoardOthelloGui extends JFrame {
 				board[i][j].setBackground(ConfigOthello.BOARDCOLOR);
 				board[i][j].setBorder((sot.getLastMove() == (i * ConfigOthello.BOARD_SIZE + j)));
 				board[i][j].setText("");
-				if(sot.getCurrentGameState()[i][j] == ConfigOthello.WHITE) {
+				if(sot.getCell(i * ConfigOthello.BOARD_SIZE + j) == ConfigOthello.WHITE) {
 					board[i][j].setBackground(Color.WHITE);
 					board[i][j].setText("");
 					counterWhite++;
 				}
-				else if(sot.getCurrentGameState()[i][j] == ConfigOthello.BLACK) {
+				else if(sot.getCell(i * ConfigOthello.BOARD_SIZE + j) == ConfigOthello.BLACK) {
 					board[i][j].setBackground(Color.BLACK);
 					board[i][j].setText("");
 					counterBlack++;
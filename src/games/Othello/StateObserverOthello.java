@@ -6,6 +6,10 @@ import tools.Types;
 import tools.Types.ACTIONS;
 import tools.Types.WINNER;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.util.ArrayList;
 /**
  * This class holds valid Othello game state objects. It is coded
@@ -49,6 +53,9 @@ import java.util.ArrayList;
  *
  *     col 0   1   2   3   4   5   6   7
  *  </pre>
+ *  Internally, the board is held in two bitboards (one {@code long} for each player, bit {@code n} stands for the 
+ *  cell with action number {@code n}), see {@link BaseOthello#legalMoves(long, long)}. The int[8][8] array is only 
+ *  built on request by {@link #getCurrentGameState()}.
  */
 public class StateObserverOthello extends ObserverBase{
 
@@ -57,28 +64,39 @@ public class StateObserverOthello extends ObserverBase{
 	public static final long serialVersionUID = 12L;
 	private static final double REWARD_NEGATIVE = -1, REWARD_POSITIVE = 1;
 	
-	protected int[][] currentGameState;
+	/**
+	 * The serialized fields. {@code currentGameState} is the board of agents and logs saved before the bitboards 
+	 * were introduced, it is only read (see {@link #readObject(ObjectInputStream)}).
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("black", long.class),
+			new ObjectStreamField("white", long.class),
+			new ObjectStreamField("playerNextMove", int.class),
+			new ObjectStreamField("countBlack", int.class),
+			new ObjectStreamField("countWhite", int.class),
+			new ObjectStreamField("turn", int.class),
+			new ObjectStreamField("currentGameState", int[][].class)
+	};
+
+	/**
+	 * Zobrist keys {@code ZOBRIST[p][n]} for a disc of player p (BLACK or WHITE) on cell n
+	 */
+	private static final long[][] ZOBRIST = zobristTable(3, 2, 64);
+
+	private long black, white;		// bitboards with the discs of BLACK and WHITE
+	private long moves;				// bitboard with the legal moves of playerNextMove
 	private int playerNextMove; 	// the player to move in the current state
 	private int countBlack, countWhite;	// probably never really needed
-	private ArrayList<ACTIONS> availableActions = new ArrayList<ACTIONS>();
+	private ArrayList<ACTIONS> availableActions;	// built from moves when needed, null if not yet built
 //	public ArrayList<Integer> lastMoves;		// this is now in ObserverBase
 	private int turn;
 	
 	public StateObserverOthello()
 	{
 		super();
-		currentGameState= new int[ConfigOthello.BOARD_SIZE][ConfigOthello.BOARD_SIZE];
-		for(int i = 0; i < 8; i++) {
-			for(int j = 0; j < 8; j++)
-			{
-				currentGameState[i][j] = ConfigOthello.EMPTY;
-			}
-		}
-		currentGameState[3][3] = 1;
-		currentGameState[3][4] = BaseOthello.getOpponent(1);
-		currentGameState[4][3] = BaseOthello.getOpponent(1);
-		currentGameState[4][4] = 1;
-//		BaseOthello.deepCopyGameState(ConfigOthello.DEBUG[2], currentGameState);
+		white = (1L << 27) | (1L << 36);		// cells (3,3) and (4,4)
+		black = (1L << 28) | (1L << 35);		// cells (3,4) and (4,3)
+//		setCurrentGameState(ConfigOthello.DEBUG[2]);
 		playerNextMove = getOpponent(1);	// /WK/ the correct choice
 		countBlack = 2;
 		countWhite = 2;
@@ -90,24 +108,15 @@ public class StateObserverOthello extends ObserverBase{
 	public StateObserverOthello(StateObserverOthello other)
 	{
 		super(other);		// copy members m_counter, lastMoves and stored*
-		this.currentGameState= new int[ConfigOthello.BOARD_SIZE][ConfigOthello.BOARD_SIZE];
-		BaseOthello.deepCopyGameState(other.currentGameState, currentGameState);
-		// /WK/ wouldn't "this.currentGameState = other.currentGameState.clone();" do the same as the preceding two lines? 
-		//      No, that would not work, because it would not do a deep copy on int[][], it would only make a new int[8]
-		//      and hang the lines [0],...,[7] from other.currentGameState into this. What would work really 'deep':
-		// for (int i=0; i<ConfigOthello.BOARD_SIZE; i++) this.currentGameState[i] = other.currentGameState[i].clone(); 
-		//      but this is not faster, even slightly slower than the above deepCopyGameState. 
-		//		Anyhow, the real time-burner was 'this.setAvailableActions()' below, and we made the code 16x faster (!!)
-		// 	 	by simply cloning other.availableActions instead 
+		this.black = other.black;
+		this.white = other.white;
+		this.moves = other.moves;
 		this.playerNextMove = other.playerNextMove;
 		this.countBlack = other.countBlack;
 		this.countWhite = other.countWhite;
 		this.turn = other.turn;
-		if (other.availableActions!=null)	// this check is needed when loading older logs
-			this.availableActions = (ArrayList<ACTIONS>) other.availableActions.clone();
-					// Note that clone does only clone the ArrayList, but not the contained ACTIONS, they are 
-					// just copied by reference. However, these ACTIONS are never altered, so it is o.k.
-//		this.setAvailableActions();		// this as replacement for availableActions.clone() would be very slow!
+		// availableActions stays null: it is built from moves only if needed (many copies in a tree search are
+		// only advanced, never asked for their action list)
 	}
 	
 	// never used:
@@ -127,8 +136,8 @@ public class StateObserverOthello extends ObserverBase{
      */
 	public ArrayList<ACTIONS> getAllAvailableActions(){
 		ArrayList<ACTIONS> retVal = new ArrayList<>();
-		for(int i = 0, n = 0; i < currentGameState.length; i++) {
-			for(int j = 0; j < currentGameState[i].length; j++,n++)
+		for(int i = 0, n = 0; i < ConfigOthello.BOARD_SIZE; i++) {
+			for(int j = 0; j < ConfigOthello.BOARD_SIZE; j++,n++)
 			{
 				if(n != 27 && n != 28 && n != 35 && n != 36) 	
 				// WK 2019-06-15: 1st fix: comment the preceding line out as bug fix for Sarsa: 
@@ -159,12 +168,7 @@ public class StateObserverOthello extends ObserverBase{
 	 */
 	@Override
 	public boolean isGameOver() {
-//		return (BaseOthello.possibleActions(currentGameState, playerNextMove).size() == 0 ) &&
-//				(BaseOthello.possibleActions(currentGameState, getOpponent(playerNextMove)).size() == 0);
-		// /WK/ this does the same as above, but should be faster (possibleActions is a costly method):
-		if  (availableActions.size() == 0 ) 
-			return (BaseOthello.possibleActions(currentGameState, getOpponent(playerNextMove)).size() == 0);
-		return false;
+		return moves == 0 && BaseOthello.legalMoves(opponentBits(), ownBits()) == 0;
 	}
 
 	@Override
@@ -188,31 +192,16 @@ public class StateObserverOthello extends ObserverBase{
 	public WINNER winStatus() {
 		assert isGameOver() :"Game isn't over";
 		//assert this.getPlayer()==this.playerNextMove : "Oops, this.getPlayer() differs from playerNextMove!";
-		int countPlayer = 0, countOpponent = 0;
-		for(int i = 0; i < ConfigOthello.BOARD_SIZE; i++)
-		{
-			for( int j = 0; j < ConfigOthello.BOARD_SIZE; j++)
-			{
-				if(currentGameState[i][j] == this.getPlayer()) countPlayer++;
-				if(currentGameState[i][j] == (this.getOpponent(this.getPlayer()))) countOpponent++;
-			}
-		}
+		int countPlayer = Long.bitCount(ownBits());
+		int countOpponent = Long.bitCount(opponentBits());
 		if(countPlayer > countOpponent) return WINNER.PLAYER_WINS;
 		else if(countPlayer == countOpponent) return WINNER.TIE;
 		return WINNER.PLAYER_LOSES;
 	}
 
 	public void setPieceCounters() {
-		this.countBlack=0;
-		this.countWhite=0;
-		for(int i = 0; i < ConfigOthello.BOARD_SIZE; i++)
-		{
-			for( int j = 0; j < ConfigOthello.BOARD_SIZE; j++)
-			{
-				if(currentGameState[i][j] == 0) this.countBlack++;
-				if(currentGameState[i][j] == 1) this.countWhite++;
-			}
-		}
+		this.countBlack = Long.bitCount(black);
+		this.countWhite = Long.bitCount(white);
 	}
 	
 	@Override
@@ -232,17 +221,17 @@ public class StateObserverOthello extends ObserverBase{
 
 	@Override
 	public int getNumAvailableActions() {
-		return availableActions.size();
+		return Long.bitCount(moves);
 	}
 
 	/**
-	 * updating the ArrayList, which contains all possible actions for the actual 
+	 * updating the bitboard of the possible actions for the actual 
 	 * players move.
 	 */
 	@Override
 	public void setAvailableActions() {
-		availableActions.clear();
-		availableActions = BaseOthello.possibleActions(currentGameState, playerNextMove);
+		moves = BaseOthello.legalMoves(ownBits(), opponentBits());
+		availableActions = null;
 	}
 	/**
 	 * 
@@ -251,11 +240,17 @@ public class StateObserverOthello extends ObserverBase{
 	 */
 	@Override
 	public ACTIONS getAction(int i) {
-		return availableActions.get(i);
+		return getAvailableActions().get(i);
 	}
 
+	/**
+	 * @return the possible actions for the actual players move in ascending order. The list is built from the 
+	 * 		   bitboard of the possible actions on the first call after a state change.
+	 */
 	@Override
 	public ArrayList<ACTIONS> getAvailableActions() {
+		if (availableActions == null)
+			availableActions = BaseOthello.bitsToActions(moves);
 		return availableActions;
 	}
 
@@ -267,7 +262,8 @@ public class StateObserverOthello extends ObserverBase{
 	 */
 	public boolean isLegalAction(ACTIONS act)
 	{
-		return availableActions.contains(act);
+		int n = act.toInt();
+		return n >= 0 && n < 64 && (moves & (1L << n)) != 0;
 	}
 	
 	/**
@@ -278,29 +274,40 @@ public class StateObserverOthello extends ObserverBase{
 	@Override
 	public void advance(ACTIONS action) {
 		int iAction = action.toInt();
-		int j = iAction % ConfigOthello.BOARD_SIZE;
-		int i = (iAction-j) / ConfigOthello.BOARD_SIZE;
-		BaseOthello.flip(currentGameState, i, j, playerNextMove);
-		currentGameState[i][j] = playerNextMove;
-		int prevPlayer = playerNextMove;
+		long own = ownBits(), opp = opponentBits();
+		long flipped = BaseOthello.flips(own, opp, iAction);
+		own |= flipped | (1L << iAction);
+		opp &= ~flipped;
+		if (zobristValid) {
+			long[] zOwn = ZOBRIST[playerNextMove], zOpp = ZOBRIST[getOpponent(playerNextMove)];
+			zobrist ^= zOwn[iAction];
+			for (long b = flipped; b != 0; b &= b - 1) {
+				int n = Long.numberOfTrailingZeros(b);
+				zobrist ^= zOwn[n] ^ zOpp[n];
+			}
+		}
+		clearChangedCells();
+		addChangedCell(iAction);
+		for (long b = flipped; b != 0; b &= b - 1)
+			addChangedCell(Long.numberOfTrailingZeros(b));
+		if (playerNextMove == ConfigOthello.BLACK) {
+			black = own; white = opp;
+		} else {
+			white = own; black = opp;
+		}
 		
 		// Set playerNextMove.
 		// The normal case: if the opponent of playerNextMove (playerNextMove is the player who just advanced) has 
 		// possible actions, then playerNextMove will become this opponent. If however the opponent has no possible
 		// moves, he has to pass, and playerNextMove will stay at the value it has (and the next advance
 		// will be done by the same playerNextMove):
-		availableActions = BaseOthello.possibleActions(currentGameState, this.getOpponent(playerNextMove));
-		if(availableActions.size() > 0 ) {
+		moves = BaseOthello.legalMoves(opp, own);
+		if (moves != 0) {
 			playerNextMove = getOpponent(playerNextMove);  // the normal case
+		} else {
+			moves = BaseOthello.legalMoves(own, opp);	// the possible actions of the player who has just moved
 		}
-
-		if (playerNextMove==prevPlayer)
-			setAvailableActions();	// yes, we have to call possibleActions (inside setAvailableActions) a 2nd time
-									// in the rare cases where playerNextMove is identical prevPlayer (there was no 
-									// possible next move for opponent AND the possible actions for prevPlayer have
-									// changed).
-									// In all other cases we can skip setAvailableActions: the member availableActions
-									// calculated above is valid!
+		availableActions = null;
 		super.addToLastMoves(action);
 		super.incrementMoveCounter();
 		turn++;
@@ -338,38 +345,63 @@ public class StateObserverOthello extends ObserverBase{
 
 	@Override
 	public String stringDescr() {
-		String sout = "";
-		for(int i = 0; i < ConfigOthello.BOARD_SIZE; i++) {
-			for(int j = 0; j < ConfigOthello.BOARD_SIZE; j++) {
-				sout += (currentGameState[i][j] == BaseOthello.getOpponent(1)) ? "O" : (currentGameState[i][j] == +1) ? "X": "-";
-			}
+		StringBuilder sout = new StringBuilder(64);
+		for(int n = 0; n < 64; n++) {
+			int cell = getCell(n);
+			sout.append((cell == ConfigOthello.BLACK) ? 'O' : (cell == ConfigOthello.WHITE) ? 'X' : '-');
 		}
-		return sout;
+		return sout.toString();
 	}
 
 	public void toString2() {
 		
-		for(int i = 0; i < ConfigOthello.BOARD_SIZE; i++) {
+		for(int i = 0, n = 0; i < ConfigOthello.BOARD_SIZE; i++) {
 			System.out.println();
-			for(int j = 0; j < ConfigOthello.BOARD_SIZE; j++) {
-				System.out.printf( currentGameState[i][j] +" ");
+			for(int j = 0; j < ConfigOthello.BOARD_SIZE; j++, n++) {
+				System.out.printf( getCell(n) +" ");
 			}
 		}
 	}
 	
 	public String toEdaxString() {
-		String sout = "";	
-		for(int i = 0; i < ConfigOthello.BOARD_SIZE; i++) {
-			for(int j = 0; j < ConfigOthello.BOARD_SIZE; j++) {
-				sout += ConfigOthello.EDAX_STRING[currentGameState[i][j]]; 
-			}
+		StringBuilder sout = new StringBuilder(65);
+		for(int n = 0; n < 64; n++) {
+			sout.append(ConfigOthello.EDAX_STRING[getCell(n)]); 
 		}
-		sout += ConfigOthello.EDAX_STRING[this.getPlayer()];		// last char: player to move next
-//		System.out.println(sout);
-		return sout;
+		sout.append(ConfigOthello.EDAX_STRING[this.getPlayer()]);		// last char: player to move next
+		return sout.toString();
+	}
+	
+	/**
+	 * @param n	the action number {@code 8*i+j} of cell {@code (i,j)}
+	 * @return the content of the cell: BLACK, WHITE or EMPTY
+	 */
+	public int getCell(int n) {
+		long m = 1L << n;
+		return ((black & m) != 0) ? ConfigOthello.BLACK : ((white & m) != 0) ? ConfigOthello.WHITE : ConfigOthello.EMPTY;
+	}
+
+	/**
+	 * @return a new int[8][8] array with the board (BLACK, WHITE or EMPTY in each cell). Changing it does not 
+	 * 		   change this state. 
+	 */
+	public int[][] getCurrentGameState(){
+		int[][] cgs = new int[ConfigOthello.BOARD_SIZE][ConfigOthello.BOARD_SIZE];
+		for(int i = 0, n = 0; i < ConfigOthello.BOARD_SIZE; i++)
+			for(int j = 0; j < ConfigOthello.BOARD_SIZE; j++, n++)
+				cgs[i][j] = getCell(n);
+		return cgs;
 	}
 	
-	public int[][] getCurrentGameState(){return currentGameState;}
+	/**
+	 * Set the board from an int[8][8] array (BLACK, WHITE or EMPTY in each cell). The possible actions are 
+	 * <b>not</b> updated, call {@link #setAvailableActions()} after the player to move is set.
+	 */
+	protected void setCurrentGameState(int[][] cgs) {
+		black = BaseOthello.tableToBits(cgs, ConfigOthello.BLACK);
+		white = BaseOthello.tableToBits(cgs, ConfigOthello.WHITE);
+		zobristValid = false;
+	}
 	
 	/**
 	 * Helper Method
@@ -379,7 +411,8 @@ public class StateObserverOthello extends ObserverBase{
 	 */
 	public String getCurrentGameState(int i, int j)
 	{
-		return currentGameState[i][j] == 0 ? "Empty" : currentGameState[i][j]  == 1 ? "White" : "Black";
+		int cell = getCell(i*ConfigOthello.BOARD_SIZE + j);
+		return cell == 0 ? "Empty" : cell  == 1 ? "White" : "Black";
 	}
 	
 	// WK now needed to get the right playerNextMove for AsStateObserverOthello (!)
@@ -388,6 +421,19 @@ public class StateObserverOthello extends ObserverBase{
 		this.playerNextMove = p;
 	}
 	
+	@Override
+	public long getHash64() {
+		return zobristHash64();
+	}
+
+	@Override
+	protected long zobristBoard() {
+		long h = 0;
+		for (long b = black; b != 0; b &= b - 1) h ^= ZOBRIST[ConfigOthello.BLACK][Long.numberOfTrailingZeros(b)];
+		for (long b = white; b != 0; b &= b - 1) h ^= ZOBRIST[ConfigOthello.WHITE][Long.numberOfTrailingZeros(b)];
+		return h;
+	}
+
 	public int getOpponent(int player)
 	{
 		return BaseOthello.getOpponent(player);
@@ -398,4 +444,43 @@ public class StateObserverOthello extends ObserverBase{
 	public void setCountWhite(int w) {countWhite = w;}
 	public void setCountBlack(int b) {countBlack = b;}
 	public int getTurn() { return turn; }
+
+	private long ownBits() {
+		return (playerNextMove == ConfigOthello.BLACK) ? black : white;
+	}
+
+	private long opponentBits() {
+		return (playerNextMove == ConfigOthello.BLACK) ? white : black;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField f = out.putFields();
+		f.put("black", black);
+		f.put("white", white);
+		f.put("playerNextMove", playerNextMove);
+		f.put("countBlack", countBlack);
+		f.put("countWhite", countWhite);
+		f.put("turn", turn);
+		out.writeFields();
+	}
+
+	/**
+	 * Reads states saved with bitboards as well as older states with an int[8][8] board {@code currentGameState}
+	 * (e.g. in game logs). 
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField f = in.readFields();
+		int[][] cgs = (int[][]) f.get("currentGameState", null);
+		if (cgs != null) {
+			setCurrentGameState(cgs);
+		} else {
+			black = f.get("black", 0L);
+			white = f.get("white", 0L);
+		}
+		playerNextMove = f.get("playerNextMove", 0);
+		countBlack = f.get("countBlack", 0);
+		countWhite = f.get("countWhite", 0);
+		turn = f.get("turn", 0);
+		setAvailableActions();
+	}
 }
\ No newline at end of file
@@ -119,12 +119,10 @@ public class XNTupleFuncsOthello extends XNTupleBase implements XNTupleFuncs, Se
 	@Override
 	public BoardVector getBoardVector(StateObservation so) {
 		assert ( so instanceof StateObserverOthello);
-		int[][] gameState = ((StateObserverOthello) so).getCurrentGameState();
+		StateObserverOthello sob = (StateObserverOthello) so;
 		int[] retVal = new int[getNumCells()];
-		for(int i = 0, n = 0; i < ConfigOthello.BOARD_SIZE; i++){
-			for(int j = 0; j < ConfigOthello.BOARD_SIZE; j++, n++)
-				retVal[n] = gameState[i][j];
-		}
+		for(int n = 0; n < retVal.length; n++)
+			retVal[n] = sob.getCell(n);
 		if (this.getNumPositionValues()==4) {
 			ArrayList<ACTIONS> availActs = so.getAvailableActions();
             for(int i = 0; i < availActs.size(); ++i) {
@@ -134,6 +132,34 @@ public class XNTupleFuncsOthello extends XNTupleBase implements XNTupleFuncs, Se
 		return new BoardVector(retVal);
 	}
 	
+	/**
+	 * The symmetries of Othello (4 rotations * 2 mirrors) are pure cell permutations.
+	 * 
+	 * @return the permutation tables, see {@link XNTupleFuncs#symmetryPermutations()}
+	 */
+	@Override
+	public int[][] symmetryPermutations() {
+		return permutationsFromSymmetryVectors();
+	}
+
+	/**
+	 * An Othello move changes the cell of the action and the flipped discs (both recorded by
+	 * {@link StateObserverOthello#advance(ACTIONS)}). In case {@link #getNumPositionValues()}{@code ==4} the marks
+	 * for the available actions change all over the board, so we return -1.
+	 *
+	 * @return the number of changed cells, see {@link XNTupleFuncs#changedCells(StateObservation, int[], int[])}
+	 */
+	@Override
+	public int changedCells(StateObservation so, int[] cells, int[] vals) {
+		if (this.getNumPositionValues()==4) return -1;
+		assert (so instanceof StateObserverOthello);
+		StateObserverOthello sob = (StateObserverOthello) so;
+		int n = so.getChangedCells(cells);
+		for (int r = 0; r < n; r++)
+			vals[r] = sob.getCell(cells[r]);
+		return n;
+	}
+
 	/**
 	 * Given a board vector from {@link #getBoardVector(StateObservation)} and given that the 
 	 * game has s symmetries, return an array which holds s symmetric board vectors: <ul>
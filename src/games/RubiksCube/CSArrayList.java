@@ -159,7 +159,7 @@ public class CSArrayList extends ArrayList<CubeState> {
 								CubeState twin = this.findTwin(cS1);
 								if (!silent) {
 									System.out.print("Duplicate paths to state "+cS1.toString()+" ! ");
-									System.out.println(" cS1: "+cS1.twistSeq+", twin(Dnext): "+twin.twistSeq);
+									System.out.println(" cS1: "+cS1.getTwistSeq()+", twin(Dnext): "+twin.getTwistSeq());
 								}
 								if (doAssert) {
 									assert (cS1.assertTwistSequence()==true) : "Wrong twist sequence in cS1";
@@ -177,7 +177,7 @@ public class CSArrayList extends ArrayList<CubeState> {
 							prevCounter++;
 							if (!silent) {
 								System.out.print("This is an element of previous distance set: "+cS1.toString()+" ! ");
-								System.out.println(" cS1: "+cS1.twistSeq);
+								System.out.println(" cS1: "+cS1.getTwistSeq());
 							}
 						    CubeState twin = Dprev.findTwin(cS1);
 						    if (doAssert) Dprev.assertSetInD(set,"Dprev");
@@ -218,7 +218,7 @@ public class CSArrayList extends ArrayList<CubeState> {
 	    while (it2.hasNext()) {
 		    CubeState cset = (CubeState)it2.next();
 		    boolean pred = cset.assertTwistSequence();
-		    assert (pred==true) : "Error: sequence "+cset.twistSeq+" differs for CubeState "+cset.print();
+		    assert (pred==true) : "Error: sequence "+cset.getTwistSeq()+" differs for CubeState "+cset.print();
         } 
 	}
 	
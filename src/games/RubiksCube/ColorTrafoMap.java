@@ -129,7 +129,7 @@ public class ColorTrafoMap extends Hashtable<Integer,ColorTrafo> implements Seri
 	    	// it is (currently) difficult to give the right values for 
 	    	// dS.lastTwist and dS.twistSequence, so we set them to empty values ('not known'):
 	    	dS.lastTwist = Twist.ID;
-	    	dS.twistSeq = "";
+	    	dS.clearTwistSeq();
 	    	CubieTriple where = dS.locate(ygr);		// find new location of ygr-cubie
 	    	CubeState trafo = (CubeState)hmRots.get(where.loc[0]);
 	    	if (trafo==null) throw new RuntimeException("Key 'where' not found!");
@@ -1,11 +1,17 @@
 package games.RubiksCube;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.text.DecimalFormat;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Hashtable;
 
 import games.BoardVector;
+import games.ObserverBase;
 
 /**
  * Class CubeState represents a certain cube state. It comes in four different types (member {@code type}), two
@@ -34,9 +40,10 @@ import games.BoardVector;
  * Its member {@code lastTwist} stores the last twist action (U,L,F,D,R,B) performed on this cube
  * (ID if none or not known). For 2x2x2 pocket cube only U,L,F are needed and allowed.
  * <p>
- * Its member {@code twistSequence} stores the twist sequence needed for generating this 
- * state from the default cube {@code def}, e.g. "L2U1" for {@code def.LTw(2).UTw(1)}. <br>
- * ({@code twistSequence=""} if the twist sequence is not known, e.g. because CubeState was 
+ * Its members {@code twists} and {@code numTwists} store the twist sequence needed for generating this 
+ * state from the default cube {@code def}, one byte per twist. {@link #getTwistSeq()} returns it as string, 
+ * e.g. "L2U1" for {@code def.LTw(2).UTw(1)}. <br>
+ * ({@code getTwistSeq()=""} if the twist sequence is not known, e.g. because CubeState was 
  * generated by color symmetry transformation) 
  * <p>
  * CubeState has member functions {@link #uTr(int)}, {@link #lTr(int)}, {@link #fTr(int)} for whole-cube 
@@ -103,9 +110,9 @@ abstract public class CubeState implements Serializable {
 	Type type = Type.COLOR_P;
 	Twist lastTwist = Twist.ID;
 	int lastTimes = 0;
-	String twistSeq = "";   // e.g. "L2U1" means that 
-							//		(CubeState.makeCubeState()).LTw(2).UTw(1) 
-							// produces this. ("": not known).
+	private byte[] twists = NO_TWISTS;	// twists[k] = 4*ordinal+times of the k-th twist, e.g. {L2,U1} means that 
+	private int numTwists = 0;			//		(CubeState.makeCubeState()).LTw(2).UTw(1) 
+										// produces this. (numTwists=0: not known).
 	int minTwists = -1;		// minimum number of twists needed to solve this state (-1: not known)
 	
 	/**
@@ -115,6 +122,29 @@ abstract public class CubeState implements Serializable {
 	 */
 	private static final long  serialVersionUID = 12L;
 
+	/**
+	 * The serialized fields. {@code twistSeq} is the twist sequence string of agents and logs saved before the 
+	 * twist buffer was introduced, it is only read (see {@link #readObject(ObjectInputStream)}).
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("fcol", int[].class),
+			new ObjectStreamField("sloc", int[].class),
+			new ObjectStreamField("type", Type.class),
+			new ObjectStreamField("lastTwist", Twist.class),
+			new ObjectStreamField("lastTimes", int.class),
+			new ObjectStreamField("minTwists", int.class),
+			new ObjectStreamField("twists", byte[].class),
+			new ObjectStreamField("twistSeq", String.class)
+	};
+
+	private static final byte[] NO_TWISTS = new byte[0];
+	private static final Twist[] TWISTS = Twist.values();
+
+	/**
+	 * Zobrist keys {@code ZOBRIST[i][c]} for value {@code c} in {@code fcol[i]}
+	 */
+	private static final long[][] ZOBRIST = ObserverBase.zobristTable(7, 48, 48);
+
 	/**
 	 * {@code invF, invL, invU} are the <b>inverse</b> transformations for {@link #FTw()}, {@link #LTw()}, {@link #UTw()}.<br>
 	 * That is, {@code fcol[invF[i]]} is the color which cubie face {@code i} gets after {@link #FTw()} transformation.
@@ -134,6 +164,14 @@ abstract public class CubeState implements Serializable {
 			tforU = null, tforL = null, tforF = null,
 			tforD = null, tforR = null, tforB = null;
 
+	/**
+	 * {@code invTw[t][k]} and {@code tforTw[t][k]} are the inverse and forward transformations for {@code k} 
+	 * quarter twists (k=0,1,2,3) of the face with {@link Twist} ordinal {@code t}, i.e. {@code invTw[3][2]} is 
+	 * {@link #invF} applied twice. They are composed in {@link #generateForwardTs()}, so that each twist 
+	 * {@link #FTw(int)} (and similar) needs only a single pass over {@link #fcol} and {@link #sloc}.
+	 */
+	private static int[][][] invTw = null, tforTw = null;
+
 	public CubeState() {
 		// empty, just a stub for  derived classes
 	}
@@ -181,7 +219,8 @@ abstract public class CubeState implements Serializable {
 		this.type = cs.type;
 		this.lastTwist = cs.lastTwist;
 		this.lastTimes = cs.lastTimes;
-		this.twistSeq = cs.twistSeq;
+		this.twists = (cs.numTwists == 0) ? NO_TWISTS : Arrays.copyOf(cs.twists, cs.numTwists + 4);
+		this.numTwists = cs.numTwists;
 		this.minTwists = cs.minTwists;
 		this.fcol = cs.fcol.clone();
 		this.sloc = cs.sloc.clone();
@@ -219,6 +258,26 @@ abstract public class CubeState implements Serializable {
 			tforR[i] = invR[invR[invR[i]]];
 			tforB[i] = invB[invB[invB[i]]];
 		}
+
+		int[][] inv  = {null, invU, invL, invF, invD, invR, invB};
+		int[][] tfor = {null, tforU, tforL, tforF, tforD, tforR, tforB};
+		int[][][] invK = new int[inv.length][4][];
+		int[][][] tforK = new int[inv.length][4][];
+		for (int t=1; t<inv.length; t++) {
+			invK[t][0] = new int[invF.length];
+			tforK[t][0] = new int[invF.length];
+			for (int i=0; i<invF.length; i++) invK[t][0][i] = tforK[t][0][i] = i;
+			for (int k=1; k<4; k++) {
+				invK[t][k] = new int[invF.length];
+				tforK[t][k] = new int[invF.length];
+				for (int i=0; i<invF.length; i++) {
+					invK[t][k][i] = invK[t][k-1][inv[t][i]];		// fcol[invK[t][k][i]] is the color after k twists
+					tforK[t][k][i] = tfor[t][tforK[t][k-1][i]];	// the location after k twists
+				}
+			}
+		}
+		tforTw = tforK;
+		invTw = invK;
 	}
 
 	//
@@ -348,64 +407,67 @@ abstract public class CubeState implements Serializable {
 	 * U-face twist, {@code times} * 90 counter-clockwise
 	 */
 	public CubeState UTw(int times) {
-		for (int i=0; i<times; i++) this.UTw();
-		this.twistSeq = this.twistSeq + "U"+times;
-		this.lastTwist = Twist.U;
-		this.lastTimes = times;
-		return this;
+		return twist(Twist.U, times);
 	}
 	
 	/**
 	 * L-face twist, {@code times} * 90 counter-clockwise
 	 */
 	public CubeState LTw(int times) {
-		for (int i=0; i<times; i++) this.LTw();
-		this.twistSeq = this.twistSeq + "L"+times;
-		this.lastTwist = Twist.L;
-		this.lastTimes = times;
-		return this;
+		return twist(Twist.L, times);
 	}
 	
 	/**
 	 * F-face twist, {@code times} * 90 counter-clockwise
 	 */
 	public CubeState FTw(int times) {
-		for (int i=0; i<times; i++) this.FTw();
-		this.twistSeq = this.twistSeq + "F"+times;
-		this.lastTwist = Twist.F;
-		this.lastTimes = times;
-		return this;
+		return twist(Twist.F, times);
 	}
 
 	/**
 	 * U-face twist, {@code times} * 90 counter-clockwise
 	 */
 	public CubeState DTw(int times) {
-		for (int i=0; i<times; i++) this.DTw();
-		this.twistSeq = this.twistSeq + "D"+times;
-		this.lastTwist = Twist.D;
-		this.lastTimes = times;
-		return this;
+		return twist(Twist.D, times);
 	}
 
 	/**
 	 * L-face twist, {@code times} * 90 counter-clockwise
 	 */
 	public CubeState RTw(int times) {
-		for (int i=0; i<times; i++) this.RTw();
-		this.twistSeq = this.twistSeq + "R"+times;
-		this.lastTwist = Twist.R;
-		this.lastTimes = times;
-		return this;
+		return twist(Twist.R, times);
 	}
 
 	/**
 	 * F-face twist, {@code times} * 90 counter-clockwise
 	 */
 	public CubeState BTw(int times) {
-		for (int i=0; i<times; i++) this.BTw();
-		this.twistSeq = this.twistSeq + "B"+times;
-		this.lastTwist = Twist.B;
+		return twist(Twist.B, times);
+	}
+
+	/**
+	 * Twist face {@code T}, {@code times} * 90 counter-clockwise, with the composed transformations 
+	 * {@link #invTw} and {@link #tforTw}, and append the twist to the twist sequence.
+	 * <p>
+	 * {@link #fcol} and {@link #sloc} are replaced by new arrays (not changed in place).
+	 */
+	private CubeState twist(Twist T, int times) {
+		if (invTw == null || invTw[1][0].length != fcol.length) {
+			// the transformations are not yet generated or were generated for the other cube type
+			CubeStateFactory.generateInverseTs();
+			generateForwardTs();
+		}
+		int[] inv = invTw[T.ordinal()][times & 3];
+		int[] tfor = tforTw[T.ordinal()][times & 3];
+		int[] f = new int[fcol.length];
+		int[] s = new int[sloc.length];
+		for (int i=0; i<f.length; i++) f[i] = fcol[inv[i]];
+		for (int i=0; i<s.length; i++) s[i] = tfor[sloc[i]];
+		this.fcol = f;
+		this.sloc = s;
+		if (numTwists == twists.length) twists = Arrays.copyOf(twists, 2*numTwists + 8);
+		twists[numTwists++] = (byte) (4*T.ordinal() + (times & 3));
+		this.lastTwist = T;
 		this.lastTimes = times;
 		return this;
 	}
@@ -509,47 +571,49 @@ abstract public class CubeState implements Serializable {
 		return s;	
 	}
 	
+	/**
+	 * @return the twist sequence which generates this state from the default cube, e.g. "L2U1" for 
+	 * 		   {@code def.LTw(2).UTw(1)} ("" if not known)
+	 */
 	public String getTwistSeq() {
-		return this.twistSeq;
+		StringBuilder sb = new StringBuilder(2*numTwists);
+		for (int k=0; k<numTwists; k++)
+			sb.append(TWISTS[twists[k] >> 2]).append(twists[k] & 3);
+		return sb.toString();
+	}
+
+	/**
+	 * @return the length of the twist sequence (0 if not known)
+	 */
+	public int getNumTwists() {
+		return numTwists;
+	}
+
+	/**
+	 * Set the twist sequence to 'not known' (e.g. after a color transformation)
+	 */
+	public CubeState clearTwistSeq() {
+		this.twists = NO_TWISTS;
+		this.numTwists = 0;
+		return this;
 	}
 	
 	/**
-	 * Check that {@code this.twistSeq} matches with {@code this.fcol}.
+	 * Check that the twist sequence {@link #getTwistSeq()} matches with {@code this.fcol}.
 	 * 
-	 * @return true, if applying {@code this.twistSeq} to the solved cube yields the  
+	 * @return true, if applying the twist sequence to the solved cube yields the  
 	 * same cube state as stored in {@code this.fcol}.<br>
-	 * If {@code this.twistSeq=""} (not known), then return always true. 
+	 * If the twist sequence is "" (not known), then return always true. 
 	 */
 	public boolean assertTwistSequence() {
 		CubeStateFactory csFactory = new CubeStateFactory();
 		CubeState tst = csFactory.makeCubeState();
-		Twist T=Twist.ID;
-		int times;
-		String tw = this.twistSeq;
-		if (tw.equals("")) // 'this' is from color transformation, we cannot perform check:  
+		if (numTwists==0) // 'this' is from color transformation, we cannot perform check:  
 			return true;
-//		if (twistSeq.equals("L2U1")) {
-//			int dummy=1;
-//		}
-		while(tw.length()>0) {
-			if (tw.startsWith("U")) T=Twist.U;
-			if (tw.startsWith("L")) T=Twist.L;
-			if (tw.startsWith("F")) T=Twist.F;
-			if (tw.startsWith("D")) T=Twist.D;
-			if (tw.startsWith("R")) T=Twist.R;
-			if (tw.startsWith("B")) T=Twist.B;
-			assert (tw.length()>1);
-			times = (int)(tw.charAt(1)-48);
+		for (int k=0; k<numTwists; k++) {
+			int times = twists[k] & 3;
 			assert (1<=times && times<=3);
-			switch(T) {
-				case U: tst.UTw(times); break;
-				case L: tst.LTw(times); break;
-				case F: tst.FTw(times); break;
-				case D: tst.DTw(times); break;
-				case R: tst.RTw(times); break;
-				case B: tst.BTw(times); break;
-			}
-			tw =  (tw.length()>2) ? tw.substring(2,tw.length()) : "";				
+			tst.twist(TWISTS[twists[k] >> 2], times);
 		}
 		return this.equals(tst);
 	}
@@ -600,7 +664,51 @@ abstract public class CubeState implements Serializable {
 	 */
 	@Override
 	public int hashCode() {
-		return this.toString().hashCode();
+		return Long.hashCode(getHash64());
+	}
+
+	/**
+	 * @return a 64-bit Zobrist hash of {@link #fcol} (the content of {@link #toString()}). It is computed from
+	 * 		   scratch, since a twist moves most of the stickers.
+	 */
+	public long getHash64() {
+		long h = 0;
+		for (int i = 0; i < fcol.length; i++) h ^= ZOBRIST[i][fcol[i]];
+		return h;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField f = out.putFields();
+		f.put("fcol", fcol);
+		f.put("sloc", sloc);
+		f.put("type", type);
+		f.put("lastTwist", lastTwist);
+		f.put("lastTimes", lastTimes);
+		f.put("minTwists", minTwists);
+		f.put("twists", Arrays.copyOf(twists, numTwists));
+		out.writeFields();
+	}
+
+	/**
+	 * Reads states saved with the twist buffer as well as older states with a twist sequence string 
+	 * {@code twistSeq} (e.g. "L2U1").
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField f = in.readFields();
+		fcol = (int[]) f.get("fcol", null);
+		sloc = (int[]) f.get("sloc", null);
+		type = (Type) f.get("type", Type.COLOR_P);
+		lastTwist = (Twist) f.get("lastTwist", Twist.ID);
+		lastTimes = f.get("lastTimes", 0);
+		minTwists = f.get("minTwists", -1);
+		twists = (byte[]) f.get("twists", null);
+		if (twists == null) {
+			String tw = (String) f.get("twistSeq", "");
+			twists = new byte[tw.length()/2];
+			for (int k=0; k<twists.length; k++)
+				twists[k] = (byte) (4*Twist.valueOf(tw.substring(2*k, 2*k+1)).ordinal() + (tw.charAt(2*k+1)-'0'));
+		}
+		numTwists = twists.length;
 	}
 } // class CubeState
    
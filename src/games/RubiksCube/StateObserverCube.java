@@ -86,7 +86,7 @@ public class StateObserverCube extends ObserverBase implements StateObservation
 		m_state = csFactory.makeCubeState(other.m_state);
 		numAllActions = (CubeConfig.cubeType== CubeConfig.CubeType.POCKET) ? 9 : 18;
 		m_action = new ACTIONS(numAllActions);		// numAllActions (9 or 18) codes 'not known'
-		setAvailableActions();
+		acts.addAll(other.acts);		// the available actions do not depend on m_state
 	}
 	
 	public StateObserverCube copy() {
@@ -124,7 +124,7 @@ public class StateObserverCube extends ObserverBase implements StateObservation
 
     @Override
 	public boolean isLegalState() {
-    	if (!m_state.twistSeq.equals("")) {
+    	if (m_state.getNumTwists() > 0) {
     		return m_state.assertTwistSequence();
     	}
 		return true;
@@ -379,6 +379,14 @@ public class StateObserverCube extends ObserverBase implements StateObservation
 	 */
 	@Override
 	public int hashCode() {
-		return this.m_state.toString().hashCode();
+		return this.m_state.hashCode();
+	}
+
+	/**
+	 * @return the hash {@link CubeState#getHash64()} of the cube (there is only one player)
+	 */
+	@Override
+	public long getHash64() {
+		return this.m_state.getHash64();
 	}
 }
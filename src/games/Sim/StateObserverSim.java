@@ -1,5 +1,9 @@
 package games.Sim;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
 
@@ -14,15 +18,18 @@ import tools.Types;
 
 /**
  * This class holds any valid Sim game state. It is coded
- * as array {@link Link2}{@code [] lFrom}, where {@code lFrom[i]} carries all links from node {@code i} 
- * to all nodes with higher index than {@code i}. Each link can be 
+ * as bitmasks {@code int[] adj}, where bit {@code j} of {@code adj[p*numNodes+i]} is set, if player Pp owns 
+ * the link between node {@code i} and node {@code j} (the link is stored in both directions). 
+ * {@link #getLinkFromTo(int, int)} returns for each link 
  * <ul>
  * <li>= 0 for an empty link,
  * <li>= 1 for a P0 link,
  * <li>= 2 for a P1 link,
  * <li>= 3 for a P2 link (in the 3-player variant),
  * </ul>
- * where Pi refers to player i=0,1[,2]. 
+ * where Pi refers to player i=0,1[,2]. With the bitmasks, the test for a triangle of player Pp over the link 
+ * (a,b) is just {@code adj[p*numNodes+a] & adj[p*numNodes+b]}, and {@link #copy()} copies a single int array. 
+ * (Before, the links were coded as array {@link Link2}{@code [] lFrom}, which is still read from older logs.)
  * <p>
  * P0 starts the game.
  * <p>
@@ -51,7 +58,8 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 	private int numNodes;
 	private int numPlayers;
 	private int player;			// 0,1 in 2-player variant;   0,1,2 in 3-player variant
-	private Link2[] lFrom;
+	private int[] adj;			// adj[p*numNodes+i]: bitmask of the nodes linked to node i by player p
+	private transient int numTaken;		// number of occupied links
 	/**
 	 * The list of available actions
 	 */
@@ -69,6 +77,26 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 	private int[] lastNodes = {-1,-1,-1};
 	
 	private static final long serialVersionUID = 12L;	//Serial number
+
+	/**
+	 * The serialized fields. {@code lFrom} holds the links of logs saved before the bitmasks were introduced, 
+	 * it is only read (see {@link #readObject(ObjectInputStream)}).
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("numNodes", int.class),
+			new ObjectStreamField("numPlayers", int.class),
+			new ObjectStreamField("player", int.class),
+			new ObjectStreamField("adj", int[].class),
+			new ObjectStreamField("availableActions", ArrayList.class),
+			new ObjectStreamField("lastNodes", int[].class),
+			new ObjectStreamField("finalSim", FinalSim.class),
+			new ObjectStreamField("lFrom", Link2[].class)
+	};
+
+	/**
+	 * Zobrist keys {@code zobristKeys[p][k]} for link k taken by player p. The table grows with the number of links.
+	 */
+	private static volatile long[][] zobristKeys = zobristTable(5, 3, 0);
 	private FinalSim finalSim;
 
 	StateObserverSim() 
@@ -85,8 +113,8 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 		this.player = other.player;
 		this.finalSim = new FinalSim(other.finalSim);
 
-		setupLinks(other.numNodes);
-		copyLinks(other.lFrom);
+		this.adj = other.adj.clone();
+		this.numTaken = other.numTaken;
 		
 		if (other.availableActions!=null)	// this check is needed when loading older logs
 			this.availableActions = (ArrayList<ACTIONS>) other.availableActions.clone();
@@ -116,30 +144,22 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 
 	private void setupLinks(int numberOfNodes)
 	{
-		lFrom = new Link2[numberOfNodes];
-		for(int i = 0; i < numberOfNodes; i++)
-			lFrom[i] = new Link2(i,numberOfNodes);
-	}
-	
-	private void copyLinks(Link2[] links)
-	{
-		for(int i = 0; i < numNodes; i++)
-			this.lFrom[i] = new Link2(links[i]);
+		adj = new int[numPlayers*numberOfNodes];
+		numTaken = 0;
 	}
 	
+	/**
+	 * @return true, if the last link taken closes a triangle of {@code player}. Then {@code lastNodes[2]} is set
+	 * 		to the (lowest) node completing the triangle.
+	 */
 	public boolean hasLost(int player)
 	{
 		if (lastNodes[0] != lastNodes[1]) {		// if action 'grab the link between these two nodes' is taken
-			for(int i = 0; i < lFrom.length; i++)
-				if(!(i == lastNodes[0] || i == lastNodes[1]))
-				{
-					if(getLinkFromTo(i,lastNodes[0]) == player + 1 && 
-					   getLinkFromTo(i,lastNodes[1]) == player + 1) {
-						lastNodes[2] = i;
-						//System.out.println(this.stringDescr());
-						return true;
-					}
-				}
+			int common = adj[player*numNodes+lastNodes[0]] & adj[player*numNodes+lastNodes[1]];
+			if (common != 0) {		// nodes linked by player to both ends of the last link
+				lastNodes[2] = Integer.numberOfTrailingZeros(common);
+				return true;
+			}
 		}		
 		return false;
 	}
@@ -154,10 +174,7 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 	 */
 	private boolean isFull()
 	{
-		for(Link2 link : lFrom)
-			if(link.hasSpaceLeft())
-				return false;
-		return true;
+		return numTaken == numNodes*(numNodes-1)/2;
 	}
 	
 	@Override
@@ -182,31 +199,36 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 
 	private boolean isLegalState2Player()
 	{
-		int count0 = 0, count1 = 0;			// counti: number of links that player i=0,1 occupies
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++) {
-				if (lFrom[i].getPlayer(j) == 1)
-					count0++;
-				else if (lFrom[i].getPlayer(j) == 2)
-					count1++;
-			}
-		}	
+		int count0 = countLinks(0), count1 = countLinks(1);	// counti: number of links that player i=0,1 occupies
 		return checkIfLegal2(count0,count1);
 	}
 	
+	/**
+	 * @return the number of links occupied by player {@code p}
+	 */
+	private int countLinks(int p)
+	{
+		int count = 0;
+		for(int i = 0; i < numNodes; i++)
+			count += Integer.bitCount(adj[p*numNodes+i]);
+		return count/2;			// each link is stored for both of its nodes
+	}
+	
+	/**
+	 * @return bitmask of the nodes linked to node {@code i} by any player
+	 */
+	private int occupied(int i)
+	{
+		int occ = 0;
+		for(int p = 0; p < numPlayers; p++)
+			occ |= adj[p*numNodes+i];
+		return occ;
+	}
+	
 	private boolean isLegalState3Player()
 	{
-		int count0 = 0, count1 = 0, count2 = 0;		// counti: number of links that player i=0,1,2 occupies
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++) {
-				if (lFrom[i].getPlayer(j) == 1)
-					count0++;
-				else if (lFrom[i].getPlayer(j) == 2)
-					count1++;
-				else if (lFrom[i].getPlayer(j) == 3)
-					count2++;
-			}
-		}
+		int count0 = countLinks(0), count1 = countLinks(1), count2 = countLinks(2);	
+													// counti: number of links that player i=0,1,2 occupies
 		// now count0,1,2 have the # of links occupied by player P0,1,2
 		
 		if (finalSim.getLoser()==-1) 
@@ -318,9 +340,10 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 		availableActions.clear();
 		int action = 0;
 		
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++) {
-				if (lFrom[i].getPlayer(j) == 0)					// all empty links are available actions
+		for(int i = 0; i < numNodes -1 ; i++) {
+			int occ = occupied(i);
+			for(int j = i+1; j < numNodes; j++) {
+				if ((occ & (1 << j)) == 0)					// all empty links are available actions
 					availableActions.add(Types.ACTIONS.fromInt(action));
 				action++;
 			}
@@ -334,14 +357,9 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 
     @Override
 	public ArrayList<ACTIONS> getAllAvailableActions() {
-		int action = 0;
         ArrayList<ACTIONS> allActions = new ArrayList<>();
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++) {
-				allActions.add(Types.ACTIONS.fromInt(action));
-				action++;
-			}
-		}       
+		for(int action = 0; action < numNodes*(numNodes-1)/2; action++)
+			allActions.add(Types.ACTIONS.fromInt(action));
         return allActions;
 	}
 	
@@ -355,8 +373,9 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 		super.advanceBase(action);		//		includes addToLastMoves(action)
 		int iAction = action.toInt();
 		
+		if (zobristValid) zobrist ^= zobristKeys(numNodes)[player][iAction];
 		setAction(iAction);
-		setAvailableActions();		// IMPORTANT: adjust the available actions (have reduced by one)
+		availableActions.remove(action);	// IMPORTANT: adjust the available actions (have reduced by one)
 		
 		finalSim.checkIfPlayerLost();
 		
@@ -371,6 +390,31 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 		return player;
 	}
 
+	@Override
+	public long getHash64() {
+		return zobristHash64();
+	}
+
+	@Override
+	protected long zobristBoard() {
+		long[][] z = zobristKeys(numNodes);
+		long h = 0;
+		for(int i = 0, k = 0; i < numNodes -1 ; i++) {
+			for(int j = i+1; j < numNodes; j++,k++) {
+				int p = getLinkFromTo(i,j);
+				if (p != 0) h ^= z[p-1][k];
+			}
+		}
+		return h;
+	}
+
+	private static long[][] zobristKeys(int nodes) {
+		long[][] z = zobristKeys;
+		int numLinks = nodes*(nodes-1)/2;
+		if (z[0].length < numLinks) zobristKeys = z = zobristTable(5, 3, numLinks);
+		return z;
+	}
+
 	@Override
 	public int getNumPlayers() {
 		return numPlayers;
@@ -404,9 +448,9 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 		String[] str = new String[4];
 		str[0] = "_"; str[1]="0"; str[2]="1";str[3]="2" ;
 		
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++) {
-				sout.append(str[lFrom[i].getPlayer(j)]);
+		for(int i = 0; i < numNodes -1 ; i++) {
+			for(int j = i+1; j < numNodes; j++) {
+				sout.append(str[getLinkFromTo(i,j)]);
 			}
 		}
 		
@@ -418,12 +462,12 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 		String[] str = new String[4];
 		str[0] = "-"; str[1]="0"; str[2]="1";str[3]="2" ;
 		
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = 0; j < lFrom.length; j++) {
-				if (j <= lFrom[i].getNode()) {
+		for(int i = 0; i < numNodes -1 ; i++) {
+			for(int j = 0; j < numNodes; j++) {
+				if (j <= i) {
 					sout.append(" ");
 				} else {
-					sout.append(str[lFrom[i].getPlayer(j)]);
+					sout.append(str[getLinkFromTo(i,j)]);
 				}
 			}
 			sout.append("\n");
@@ -433,51 +477,48 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 
 	void setAction(int action)
 	{
-		int k = 0;
-		
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++,k++) {
-				if(k == action)	{
-					lFrom[i].setPlayer(j, player + 1);
-					setLastNodes(i,j);
-					return;
-				}
-			}
+		assert (0 <= action && action < numNodes*(numNodes-1)/2) : "Invalid action: " + action;
+		int i = 0, k = action;
+		while (k >= numNodes-1-i) {		// node i has the numNodes-1-i links to the nodes i+1,...,numNodes-1
+			k -= numNodes-1-i;
+			i++;
 		}
+		int j = i+1+k;
+		adj[player*numNodes+i] |= 1 << j;
+		adj[player*numNodes+j] |= 1 << i;
+		numTaken++;
+		setLastNodes(i,j);
 	}
 
 	public boolean isLegalAction(ACTIONS act)
 	{
 		int iAction = act.toInt();
+		if (iAction < 0 || iAction >= numNodes*(numNodes-1)/2) return false;
 		
-		for(int i=0, k=0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++,k++) {
-				if(k == iAction && lFrom[i].getPlayer(j) == 0)
-					return true;
-			}
+		int i = 0, k = iAction;
+		while (k >= numNodes-1-i) {
+			k -= numNodes-1-i;
+			i++;
 		}
-		
-		return false;
+		return (occupied(i) & (1 << (i+1+k))) == 0;
 	}
 	
 	public int inputToActionInt(int n1, int n2)
 	{
 		if (n1>n2) return inputToActionInt(n2,n1);
 		
-		for(int i=0, k=0; i < lFrom.length -1 ; i++) {
-			for(int j = i+1; j < lFrom.length; j++,k++) {
-				if(n1 == i && n2 == j)
-					return k;
-			}
-		}
-		
-		throw new RuntimeException("No action fits to n1="+n1+", n2="+n2+" !");
-//		return -1;
+		if (n1 < 0 || n1 == n2 || n2 >= numNodes)
+			throw new RuntimeException("No action fits to n1="+n1+", n2="+n2+" !");
+		return n1*(2*numNodes-n1-1)/2 + n2-n1-1;	// the links of nodes 0,...,n1-1 come first
 	}
 
+	/**
+	 * @return the player 1,2,3 who owns the link between node {@code i} and node {@code j}. 0 if link is empty.
+	 */
 	public int getLinkFromTo(int i, int j) {
-		if (i>j) return lFrom[j].getPlayer(i);
-		return lFrom[i].getPlayer(j);
+		for (int p = 0; p < numPlayers; p++)
+			if ((adj[p*numNodes+i] & (1 << j)) != 0) return p+1;
+		return 0;
 	}
 	
 	public int getNumNodes()
@@ -501,6 +542,51 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 			lastNodes[1] = y;
 	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField f = out.putFields();
+		f.put("numNodes", numNodes);
+		f.put("numPlayers", numPlayers);
+		f.put("player", player);
+		f.put("adj", adj);
+		f.put("availableActions", availableActions);
+		f.put("lastNodes", lastNodes);
+		f.put("finalSim", finalSim);
+		out.writeFields();
+	}
+
+	/**
+	 * Reads states saved with bitmasks as well as older states with links {@link Link2}{@code [] lFrom} 
+	 * (e.g. in game logs).
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField f = in.readFields();
+		numNodes = f.get("numNodes", ConfigSim.NUM_NODES);
+		numPlayers = f.get("numPlayers", ConfigSim.NUM_PLAYERS);
+		player = f.get("player", 0);
+		availableActions = (ArrayList<ACTIONS>) f.get("availableActions", new ArrayList<>());
+		lastNodes = (int[]) f.get("lastNodes", new int[]{-1,-1,-1});
+		finalSim = (FinalSim) f.get("finalSim", null);
+		Link2[] lFrom = (Link2[]) f.get("lFrom", null);
+		if (lFrom != null) {
+			adj = new int[numPlayers*numNodes];
+			for(int i = 0; i < numNodes -1 ; i++) {
+				for(int j = i+1; j < numNodes; j++) {
+					int p = lFrom[i].getPlayer(j);
+					if (p != 0) {
+						adj[(p-1)*numNodes+i] |= 1 << j;
+						adj[(p-1)*numNodes+j] |= 1 << i;
+					}
+				}
+			}
+		} else {
+			adj = (int[]) f.get("adj", null);
+		}
+		numTaken = 0;
+		for(int p = 0; p < numPlayers; p++)
+			numTaken += countLinks(p);
+	}
+
 	/**
 	 *  This class holds information about the final outcome of a Sim episode: is the game over or not, who is winner, 
 	 *  who is loser, what are the rewards for all players at end-of-game. 
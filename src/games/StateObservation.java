@@ -83,6 +83,32 @@ public interface StateObservation extends Serializable{
 	 */
 	String stringDescr();
 
+	/**
+	 * A 64-bit hash of the current state: of the board (as given by {@link #stringDescr()}) <b>and</b> the player to
+	 * move. States which differ in one of them should get different hashes (up to rare collisions). Search agents
+	 * use it as key for transposition tables and caches instead of {@link #stringDescr()}.
+	 * <p>
+	 * {@link ObserverBase} provides a default implementation which hashes {@link #stringDescr()}. Games with a cheap
+	 * incremental Zobrist hash override it, see {@link ObserverBase#zobristHash64()}.
+	 *
+	 * @return the hash
+	 */
+	long getHash64();
+
+	/**
+	 * The board cells changed by the last {@link #advance(ACTIONS)} (or {@link #advanceDeterministic(ACTIONS)}) that
+	 * produced this state: the cell of the placed piece and e.g. in Othello the flipped cells. The cells are numbered
+	 * as in the game's board vector ({@link XNTupleFuncs#getBoardVector(StateObservation)}).
+	 * <p>
+	 * {@link ObserverBase} provides a default implementation which returns the cells recorded in {@code advance} or
+	 * -1 (not known). Only valid directly after {@code advance}, a copy of the state does not know them.
+	 *
+	 * @param cells	on output, the changed cells (has to have room for all cells of the board)
+	 * @return the number of changed cells, or -1 if they are not known
+	 * @see XNTupleFuncs#changedCells(StateObservation, int[], int[])
+	 */
+	int getChangedCells(int[] cells);
+
 	/**
 	 * 
 	 * @return a string representation of action {@code act}
@@ -33,6 +33,11 @@ public class StateObserverTTT extends ObserverBase implements StateObservation {
 	 */
 	private static final long serialVersionUID = 12L;
 
+	/**
+	 * Zobrist keys {@code ZOBRIST[p][n]} for a piece of player p (0: X, 1: O) on cell n
+	 */
+	private static final long[][] ZOBRIST = zobristTable(1, 2, 9);
+
 	public StateObserverTTT() {
 		super();
 		m_Table = new int[3][3]; 
@@ -194,6 +199,9 @@ public class StateObserverTTT extends ObserverBase implements StateObservation {
 		
 		assert m_Table[i][j]==0 : "The desired move would alter an already occupied field!";
     	m_Table[i][j] = m_Player;
+    	if (zobristValid) zobrist ^= ZOBRIST[getPlayer()][iAction];
+    	clearChangedCells();
+    	addChangedCell(iAction);
     	
     	setAvailableActions(); 		// IMPORTANT: adjust the available actions (have reduced by one)
     	
@@ -251,6 +259,20 @@ public class StateObserverTTT extends ObserverBase implements StateObservation {
 		return availableActions.get(i);
 	}
 
+	@Override
+	public long getHash64() {
+		return zobristHash64();
+	}
+
+	@Override
+	protected long zobristBoard() {
+		long h = 0;
+		for (int i = 0; i < 3; i++)
+			for (int j = 0; j < 3; j++)
+				if (m_Table[i][j] != 0) h ^= ZOBRIST[(-m_Table[i][j]+1)/2][3*i+j];
+		return h;
+	}
+
 	public int[][] getTable() {
 		return m_Table;
 	}
@@ -105,6 +105,30 @@ public class XNTupleFuncsTTT extends XNTupleBase implements XNTupleFuncs, Serial
 		return new BoardVector(bvec);   
 	}
 	
+	/**
+	 * The symmetries of TicTacToe (4 rotations * 2 flips) are pure cell permutations.
+	 * 
+	 * @return the permutation tables, see {@link XNTupleFuncs#symmetryPermutations()}
+	 */
+	@Override
+	public int[][] symmetryPermutations() {
+		return permutationsFromSymmetryVectors();
+	}
+
+	/**
+	 * A TicTacToe move changes only the cell of the action.
+	 *
+	 * @return the number of changed cells, see {@link XNTupleFuncs#changedCells(StateObservation, int[], int[])}
+	 */
+	@Override
+	public int changedCells(StateObservation so, int[] cells, int[] vals) {
+		int[][] table = ((StateObserverTTT) so).getTable();
+		int n = so.getChangedCells(cells);
+		for (int r = 0; r < n; r++)
+			vals[r] = table[cells[r]/3][cells[r]%3]+1;
+		return n;
+	}
+
 	/**
 	 * Given a board vector from {@link #getBoardVector(StateObservation)} and given that the 
 	 * game has s symmetries, return an array which holds at most s symmetric board vectors: <ul>
@@ -533,15 +533,18 @@ public class XArenaFuncs {
 			qa = pa;
 		}
 
-		// Wrap the agent with MCTS lookahead if the mcts wrapper iterations count ist greater then zero.
-		if(oPar.getWrapperMCTSIterations() > 0){
-			qa = new MCTSWrapperAgent(
+		// Wrap the agent with MCTS lookahead if the mcts wrapper iterations count or time budget is greater than zero.
+		if(oPar.getWrapperMCTSIterations() > 0 || oPar.getWrapperMCTSTimeMS() > 0){
+			MCTSWrapperAgent wa = new MCTSWrapperAgent(
 				oPar.getWrapperMCTSIterations(),
 				oPar.getWrapperMCTS_PUCT(),
 				new PlayAgentApproximator(qa),
 				"MCTS-Wrapped "+qa.getName(),
-					oPar.getStopEval()
+					oPar.getStopEval(),
+				oPar.getWrapperMCTSThreads()
             );
+			wa.setTimeBudgetMS(oPar.getWrapperMCTSTimeMS());
+			qa = wa;
 		}
 
 		return qa;
@@ -641,14 +644,14 @@ public class XArenaFuncs {
 		// TDNTupleAgt.pstream = new PrintStream(new
 		// FileOutputStream("debug-TDNT.txt"));
 
+		boolean parTrain = isParallelTrain(pa);
+		int stopOffset = (parTrain) ? 0 : 1;	// parallel training advances gameNum in blocks up to a multiple of numEval
 		long startTime = System.currentTimeMillis();
 		gb.initialize();
 		while (pa.getGameNum() < pa.getMaxGameNum()) {
-			StateObservation so = soSelectStartState(gb, xab.oPar[n].getChooseStart01(), pa);
+			StateObservation so = trainEpisodes(pa, gb, xab.oPar[n].getChooseStart01(), numEval);
 
-			pa.trainAgent(so);
-
-			if (doTrainStatistics)
+			if (doTrainStatistics && !parTrain)
 				collectTrainStats(tsList, pa, so);
 
 			gameNum = pa.getGameNum();
@@ -688,7 +691,7 @@ public class XArenaFuncs {
 				startTime = System.currentTimeMillis();
 			}
 
-			if (stopTest > 0 && (gameNum - 1) % numEval == 0 && stopEval > 0) {
+			if (stopTest > 0 && (gameNum - stopOffset) % numEval == 0 && stopEval > 0) {
 				// construct 'qa' anew (possibly wrapped agent for eval)
 				qa = wrapAgent(n, pa, xab.oPar[n], xab.maxnPar[n], gb.getStateObs());
 
@@ -750,12 +753,55 @@ public class XArenaFuncs {
 		double movesSecond   = actionNum / totalTrainSec;    
 						// average number of moves per second since start of this training 
 						// (counting only training time, excluding evaluation time)
+		double episodesSecond = gameNum / totalTrainSec;
 		DecimalFormat frm1 = new DecimalFormat("#0.00");
 		System.out.println("moves/s: "+frm1.format(movesSecond)+" [(#trainAgent-calls)/(total time spent in trainAgent)]. ");
+		System.out.println("episodes/s: "+frm1.format(episodesSecond)+" [with "
+				+ (parTrain ? ((TDNTuple3Agt) pa).getParNT().getNumTrainThreads() : 1) + " train thread(s)]. ");
 
 		return pa;
 	}
 
+	/**
+	 * Train {@code pa} for the next episode(s), each starting from a state selected with 
+	 * {@link #soSelectStartState(GameBoard, boolean, PlayAgent)}.
+	 * <p>
+	 * If {@link #isParallelTrain(PlayAgent)} is true, all episodes up to the next multiple of {@code numEval} 
+	 * (but not beyond {@code pa.getMaxGameNum()}) are trained concurrently with 
+	 * {@link TDNTuple3Agt#trainAgentParallel(List)}. Otherwise, exactly one episode is trained with 
+	 * {@link PlayAgent#trainAgent(StateObservation)}.
+	 * 
+	 * @param pa			the agent to train
+	 * @param gb			the game board, needed for start state selection
+	 * @param chooseStart01	whether to select a random start state
+	 * @param numEval		the evaluation interval
+	 * @return the start state of the (last) episode
+	 */
+	public StateObservation trainEpisodes(PlayAgent pa, GameBoard gb, boolean chooseStart01, int numEval) {
+		StateObservation so;
+		if (isParallelTrain(pa)) {
+			int numEpi = Math.min(numEval - pa.getGameNum() % numEval, pa.getMaxGameNum() - pa.getGameNum());
+			ArrayList<StateObservation> soList = new ArrayList<>();
+			for (int k=0; k<numEpi; k++)
+				soList.add(soSelectStartState(gb, chooseStart01, pa));
+			((TDNTuple3Agt) pa).trainAgentParallel(soList);
+			so = soList.get(numEpi-1);
+		} else {
+			so = soSelectStartState(gb, chooseStart01, pa);
+			pa.trainAgent(so);
+		}
+		return so;
+	}
+
+	/**
+	 * @param pa the agent
+	 * @return true, if {@code pa} is a {@link TDNTuple3Agt} with more than one train thread
+	 * 		   (see {@link ParNT#getNumTrainThreads()})
+	 */
+	public static boolean isParallelTrain(PlayAgent pa) {
+		return (pa instanceof TDNTuple3Agt) && ((TDNTuple3Agt) pa).getParNT().getNumTrainThreads() > 1;
+	}
+
 	private StateObservation soSelectStartState(GameBoard gb, boolean chooseStart01, PlayAgent pa) {
 		StateObservation so;
 		if (chooseStart01) {
@@ -896,9 +942,7 @@ public class XArenaFuncs {
 			long startTime = System.currentTimeMillis();
 			gb.initialize();
 			while (pa.getGameNum() < pa.getMaxGameNum()) {
-				StateObservation so = soSelectStartState(gb, xab.oPar[n].getChooseStart01(), pa);
-
-				pa.trainAgent(so);
+				trainEpisodes(pa, gb, xab.oPar[n].getChooseStart01(), numEval);
 
 				gameNum = pa.getGameNum();
 				if (gameNum % numEval == 0) { // || gameNum==1) {
@@ -1087,8 +1131,10 @@ public class XArenaFuncs {
 				long startTNano = System.nanoTime();
 				actBest = paVector.pavec[player].getNextAction2(so.partialState(), false, nextMoveSilent);
 				long endTNano = System.nanoTime();
-				if (nextTimes != null)
+				if (nextTimes != null) {
 					nextTimes[player].addNewTimeNS(endTNano - startTNano);
+					nextTimes[player].addIterations(paVector.pavec[player].getLastIterations(), endTNano - startTNano);
+				}
 				so.advance(actBest);
 
 
@@ -1,6 +1,7 @@
 package games;
 
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.HashSet;
 
 import agentIO.LoadSaveGBG;
@@ -21,6 +22,8 @@ abstract public class XNTupleBase implements Serializable, XNTupleFuncs {
      */
     private static final long serialVersionUID = 42L;
 
+    private transient int[][] symPerm = null;		// cache for permutationsFromSymmetryVectors()
+
     public XNTupleBase() {	}
 
 	/**
@@ -89,6 +92,52 @@ abstract public class XNTupleBase implements Serializable, XNTupleFuncs {
 	@Override
 	abstract public BoardVector[] symmetryVectors(BoardVector boardVector, int n);
 
+	/**
+	 * The default for games whose symmetries are no pure cell permutations: return {@code null}. Games with pure
+	 * cell permutations override this with {@link #permutationsFromSymmetryVectors()}.
+	 */
+	@Override
+	public int[][] symmetryPermutations() {
+		return null;
+	}
+
+	/**
+	 * The default for games which do not report the changed cells: return -1 (the board vectors are then compared
+	 * cell by cell).
+	 */
+	@Override
+	public int changedCells(StateObservation so, int[] cells, int[] vals) {
+		return -1;
+	}
+
+	/**
+	 * Derive the permutation tables for {@link #symmetryPermutations()} once from
+	 * {@link #symmetryVectors(BoardVector, int)} applied to {@link #makeBoardVectorEachCellDifferent()}.
+	 * Only valid for games where all symmetries are pure cell permutations, independent of the state.
+	 *
+	 * @return {@code perm[s][i]}, the cell of the original board vector which goes into cell {@code i} of
+	 * 		symmetry vector {@code s}
+	 */
+	protected int[][] permutationsFromSymmetryVectors() {
+		if (symPerm==null) {
+			BoardVector bv = makeBoardVectorEachCellDifferent();
+			HashMap<Integer,Integer> cellOf = new HashMap<>();
+			for (int i=0; i<bv.bvec.length; i++) cellOf.put(bv.bvec[i], i);
+			BoardVector[] equiv = symmetryVectors(bv, 0);
+			int[][] perm = new int[equiv.length][bv.bvec.length];
+			for (int s=0; s<equiv.length; s++) {
+				for (int i=0; i<perm[s].length; i++) {
+					Integer cell = cellOf.get(equiv[s].bvec[i]);
+					if (cell==null)
+						throw new RuntimeException("[XNTupleBase] symmetry "+s+" is not a pure cell permutation");
+					perm[s][i] = cell;
+				}
+			}
+			symPerm = perm;
+		}
+		return symPerm;
+	}
+
 	@Override
 	abstract public int[] symmetryActions(int actionKey);
 
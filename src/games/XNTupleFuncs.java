@@ -1,5 +1,6 @@
 package games;
 
+import controllers.TD.ntuple2.IncrementalIndex;
 import controllers.TD.ntuple2.NTuple2ValueFunc;
 import controllers.TD.ntuple2.NTupleFactory;
 import controllers.TD.ntuple2.SarsaAgt;
@@ -107,6 +108,40 @@ public interface XNTupleFuncs {
 	 * object in order to construct the symmetric board vectors.)
 	 */
 	BoardVector[] symmetryVectors(StateObsWithBoardVector curSOWB, int n);
+
+	/**
+	 * If all symmetries of the game are pure cell permutations (no change of position values, independent of the
+	 * state), return them as permutation tables {@code perm}, such that for every board vector {@code bv}
+	 * <pre>
+	 * 		symmetryVectors(bv,0)[s].bvec[i] == bv.bvec[perm[s][i]] </pre>
+	 * {@code perm[0]} is the identity. With these tables, {@link NTuple2ValueFunc} calculates the LUT indices of all
+	 * symmetric boards directly from the original board, without materializing the symmetric board vectors.
+	 * <p>
+	 * Games whose symmetries are no pure cell permutations (or depend on the state or pick random symmetries)
+	 * return {@code null}. Then {@link #symmetryVectors(StateObsWithBoardVector, int)} is used.
+	 *
+	 * @return the permutation tables {@code perm[s][i]} or {@code null}
+	 *
+	 * @see XNTupleBase#permutationsFromSymmetryVectors()
+	 */
+	int[][] symmetryPermutations();
+
+	/**
+	 * Optional: Report the cells of the board vector changed by the move that produced {@code so} (the cells
+	 * recorded by its {@code advance}, see {@link StateObservation#getChangedCells(int[])}) and their new position
+	 * values. Cells not reported must have the same position value in the board vectors before and after the move.
+	 * <p>
+	 * With this information, {@link NTuple2ValueFunc} adjusts the LUT indices of the parent state only for the
+	 * n-tuples containing a changed cell (see {@link IncrementalIndex}), without building the board vector of
+	 * {@code so}. Games which cannot provide the cells cheaply return -1. Then the board vector of {@code so} is
+	 * built and compared cell by cell with the parent's.
+	 *
+	 * @param so	the state (or afterstate) directly after the move
+	 * @param cells	on output, the changed cells (indices into the board vector, room for all cells)
+	 * @param vals	on output, {@code vals[r]} is the position value of {@code cells[r]} in the board vector of {@code so}
+	 * @return the number of changed cells, or -1 if not known
+	 */
+	int changedCells(StateObservation so, int[] cells, int[] vals);
 	
 	/**
 	 * Given a certain board array of symmetric (equivalent) states for state <b>{@code so}</b> 
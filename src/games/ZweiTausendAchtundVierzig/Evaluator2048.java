@@ -81,8 +81,9 @@ public class Evaluator2048 extends Evaluator {
         List<StateObserver2048> stateObservers = new ArrayList<>();
 
 
-        if(	m_PlayAgent.getName().equals("MCTS Expectimax") ) {
-            //async for MCTS Expectimax agents 
+        if(	m_PlayAgent instanceof MCTSExpectimaxAgt ) {
+            //async for MCTS Expectimax agents (each of them may search in addition several trees in parallel, 
+            //see ParMCTSE#getNumTrees)
             List<Callable<StateObserver2048>> callables = new ArrayList<>();
             MCTSExpectimaxAgt mctsExpectimaxAgt = (MCTSExpectimaxAgt) m_PlayAgent;
 
@@ -99,7 +100,7 @@ public class Evaluator2048 extends Evaluator {
 
                     // we need a new agent for every eval thread, since MCTSExpectimaxAgt is
                     // not thread-safe in its method getNextAction2:
-                    playAgent = new MCTSExpectimaxAgt("MCTS Expectimax", mctsExpectimaxAgt.params);
+                    playAgent = new MCTSExpectimaxAgt(mctsExpectimaxAgt.getName(), mctsExpectimaxAgt.params);
  
                     while (!so.isGameOver()) {
                         Types.ACTIONS action = playAgent.getNextAction2(so.partialState(), false, true);
@@ -313,11 +314,12 @@ public class Evaluator2048 extends Evaluator {
             agentSettings = "\nROLLOUTDEPTH: " + mcAgent.getParMC().getRolloutDepth() +
                     "\nITERATIONS: " + mcAgent.getParMC().getNumIter() +
                     "\nNUMBERAGENTS: " + mcAgent.getParMC().getNumAgents();
-        } else if(m_PlayAgent.getName().equals("MCTS Expectimax")) {
+        } else if(m_PlayAgent instanceof MCTSExpectimaxAgt) {
             MCTSExpectimaxAgt mctsExpectimaxAgt = (MCTSExpectimaxAgt) m_PlayAgent;
             agentSettings = "\nROLLOUTDEPTH: " + mctsExpectimaxAgt.params.getRolloutDepth() +
                     "\nITERATIONS: " + mctsExpectimaxAgt.params.getNumIter() +
-                    "\nMAXNODES:" + mctsExpectimaxAgt.params.getMaxNodes();
+                    "\nMAXNODES:" + mctsExpectimaxAgt.params.getMaxNodes() +
+                    "\nNUMBERTREES:" + mctsExpectimaxAgt.params.getNumTrees();
         }
 
         return "\n\nSettings:" +
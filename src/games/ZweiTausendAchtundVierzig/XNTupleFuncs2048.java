@@ -112,6 +112,16 @@ public class XNTupleFuncs2048 extends XNTupleBase implements XNTupleFuncs, Seria
 		}
 	}
 	
+	/**
+	 * The symmetries of 2048 (4 rotations * 2 flips) are pure cell permutations.
+	 * 
+	 * @return the permutation tables, see {@link XNTupleFuncs#symmetryPermutations()}
+	 */
+	@Override
+	public int[][] symmetryPermutations() {
+		return permutationsFromSymmetryVectors();
+	}
+
 	/**
 	 * Given a board vector from {@link #getBoardVector(StateObservation)} and given that the 
 	 * game has s symmetries, return an array which holds s symmetric board vectors: <ul>
@@ -69,7 +69,7 @@ public final class AsStateObserverOthello extends StateObserverOthello {
     }
 
     private void updateCurrentGameState() {
-        currentGameState = _gbgState.toArray2D();
+        setCurrentGameState(_gbgState.toArray2D());
         setPlayer(_gbgState.player().toInt());  // /WK/ needed to set playerNextMove 
         										// (used in many places in StateObserverOthello) !
         setAvailableActions();		// /WK/ needed to fix the availableActions-bug !
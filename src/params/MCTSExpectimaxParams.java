@@ -24,6 +24,7 @@ import java.io.Serializable;
  * <li> <b>Rollout Depth</b>[150] MCTSE rollout depth  
  * <li> <b>Max Nodes</b>	[500] max number of nodes that expand() can create  
  * <li> <b>Number Agents</b>[  1] number of agents for majority vote  
+ * <li> <b>Number Trees</b>	[  1] number of trees searched in parallel (root-parallel ensemble)  
  * </ul>
  * The defaults are defined in {@link ParMCTSE}. 
  * 
@@ -58,6 +59,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 	private JLabel rollout_L;
 	private JLabel maxNodes_L;
 	private JLabel numAgents_L;
+	private JLabel numTrees_L;
 	private JLabel verbose_L;
 	private JTextField numIter_T;
 	private JTextField kUCT_T;
@@ -67,6 +69,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 	private JTextField rollout_T;
 	private JTextField maxNodes_T;
 	private JTextField numAgents_T;
+	private JTextField numTrees_T;
 	private JTextField verbose_T;
 	private JCheckBox alternateVersion_CB;
 	private JCheckBox enableHeuristics_CB;
@@ -107,6 +110,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		
 		maxNodes_L = new JLabel("Max Nodes");
 		numAgents_L = new JLabel("Number Agents");
+		numTrees_L = new JLabel("Number Trees");
 		alternateVersion_CB = new JCheckBox("alternate Version (~4% faster)", ParMCTSE.DEFAULT_ALTERNATEVERSION);
 		enableHeuristics_CB = new JCheckBox("enable Heuristics", ParMCTSE.DEFAULT_ENABLEHEURISTICS);
 		numIter_T = new JTextField(ParMCTSE.DEFAULT_ITERATIONS+"");
@@ -116,6 +120,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		rollout_T = new JTextField(ParMCTSE.DEFAULT_ROLLOUTDEPTH+"");
 		maxNodes_T = new JTextField(ParMCTSE.DEFAULT_MAXNODES+"");
 		numAgents_T = new JTextField(ParMCTSE.DEFAULT_NUMAGENTS+ "");
+		numTrees_T = new JTextField(ParMCTSE.DEFAULT_NUMTREES+ "");
 		verbose_T = new JTextField(ParMCTSE.DEFAULT_VERBOSITY+"");		 
 		normalize = new JCheckBox();
 		mPanel = new JPanel();		// put the inner buttons into panel oPanel. This panel
@@ -133,6 +138,8 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		normalize_L.setToolTipText(TIPNORMALIZEL);
 		maxNodes_L.setToolTipText("Max number of tree nodes");
 		numAgents_L.setToolTipText("Number of agents for majority Vote");
+		numTrees_L.setToolTipText("<html>Number of trees searched in parallel for each move, each with 'Iterations' iterations.<br>"
+				+ "Their root statistics are merged (root-parallel ensemble). 1: a single tree</html>");
 
 
 		setLayout(new BorderLayout(10,0));				// rows,columns,hgap,vgap
@@ -188,7 +195,12 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		naPanel.add(numAgents_T);
 		mPanel.add(naPanel);
 
-//		mPanel.add(new Canvas());
+		JPanel ntPanel = new JPanel(new GridLayout(0,2,10,10));
+		ntPanel.add(numTrees_L);
+		ntPanel.add(numTrees_T);
+		mPanel.add(ntPanel);
+
+		mPanel.add(new Canvas());
 		
 		mPanel.add(alternateVersion_CB);
 		mPanel.add(enableHeuristics_CB);	
@@ -244,6 +256,9 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 	public int getNumAgents()  {
 		return Integer.valueOf(numAgents_T.getText());
 	}
+	public int getNumTrees()  {
+		return Integer.valueOf(numTrees_T.getText());
+	}
 	public int getVerbosity() {
 		return Integer.valueOf(verbose_T.getText()).intValue();
 	}
@@ -286,6 +301,9 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 	public void setNumAgents(int value) { 
 		numAgents_T.setText(value+""); 
 	}
+	public void setNumTrees(int value) { 
+		numTrees_T.setText(value+""); 
+	}
 	public void setAlternateVersion(boolean value) {
 		alternateVersion_CB.setSelected(value);
 	}
@@ -310,6 +328,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		setNormalize(tp.getNormalize());
 		setMaxNodes(tp.getMaxNodes());						
 		setNumAgents(tp.getNumAgents());					
+		setNumTrees(tp.getNumTrees());
 		setAlternateVersion(tp.getAlternateVersion());	
 		setEnableHeuristics(tp.getEnableHeuristics());
 		setSelectMode(tp.getSelectMode());
@@ -330,6 +349,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		setNormalize(tp.getNormalize());
 		setMaxNodes(tp.getMaxNodes());					
 		setNumAgents(tp.getNumAgents());					
+		setNumTrees(tp.getNumTrees());
 		setAlternateVersion(tp.getAlternateVersion());	
 		setEnableHeuristics(tp.getEnableHeuristics());
 		setSelectMode(tp.getSelectMode());
@@ -31,6 +31,12 @@ import controllers.MCTS.SingleMCTSPlayer;
  * <li> <b>K (UCT)</b>: 	[1.414] parameter K in UCT rule  
  * <li> <b>Tree Depth</b>: 	[ 10] MCTS tree depth 
  * <li> <b>Rollout Depth</b>[200] MCTS rollout depth  
+ * <li> <b>Time [ms]</b>: 	[  0] time budget per move in milliseconds (0: always use all iterations)
+ * <li> <b>Reuse tree</b>: 	[false] continue the search in the subtree of the moves played since the last move
+ * <li> <b>Trees</b>: 		[  1] number of independent trees searched in parallel (root-parallel ensemble)
+ * <li> <b>Max nodes</b>: 	[  0] maximum number of nodes per tree (0: no limit)
+ * <li> <b>Store states</b>: [true] whether each node stores its state or the states are recomputed from the root
+ * <li> <b>Rollouts</b>: 	[  1] number of rollouts per selected leaf, played in parallel (leaf-parallel MCTS)
  * </ul>
  * The defaults are defined in {@link ParMCTS}. 
  * 
@@ -47,6 +53,21 @@ public class MCTSParams extends Frame implements Serializable
 	private static final String TIPROLLOUTL = "maximum rollout depth (random moves from a leaf)";
 	private static final String TIPNORMALIZEL = "Normalize rollout value q(reward) to range [0,1]";
 	private static final String TIPSELECTORL = "Which selector to use in tree policy";
+	private static final String TIPTIMEBUDGETL = "<html>Time budget per move in milliseconds: stop the search after this time,<br>"
+			+ "after 'Iterations' iterations or when the best action cannot be overtaken any more.<br>"
+			+ "0: always perform 'Iterations' iterations"
+			+ "</html>";
+	private static final String TIPNUMTREESL = "<html>Number of independent trees searched in parallel, each with 'Iterations' iterations<br>"
+			+ "(root-parallel ensemble, the root statistics of all trees are merged). 1: a single tree"
+			+ "</html>";
+	private static final String TIPMAXNODESL = "Maximum number of nodes per tree (0: no limit). If reached, no more nodes are expanded";
+	private static final String TIPSTORESTATESL = "<html>If checked, each node stores its state. Else only the root does and the other states<br>"
+			+ "are recomputed by replaying the actions from the root (less memory, deterministic games only)"
+			+ "</html>";
+	private static final String TIPNUMROLLOUTSL = "<html>Number of rollouts from each selected leaf, played in parallel. Their averaged<br>"
+			+ "value is backed up (leaf-parallel MCTS). 1: a single rollout"
+			+ "</html>";
+	private static final String TIPREUSETREEL = "Keep the subtree below the moves played since the last call and continue the search in it";
 	private static final String TIPVERBOSET = "<html>0: print nothing,<br>"
 			+ "1: one line per MCTS call, <br>"
 			+ "2: for each child (=action) one line, <br>"
@@ -64,13 +85,25 @@ public class MCTSParams extends Frame implements Serializable
 	JLabel rollout_L;
 	JLabel verbose_L;
 	JLabel normalize_L;
+	JLabel timeBudget_L;
+	JLabel reuseTree_L;
+	JLabel numTrees_L;
+	JLabel maxNodes_L;
+	JLabel storeStates_L;
+	JLabel numRollouts_L;
 	JTextField numIter_T;
 	JTextField kUCT_T;
 	JTextField epsGreedy_T;
 	JTextField treedep_T;
 	JTextField rollout_T;
 	JTextField verbose_T;
+	JTextField timeBudget_T;
+	JTextField numTrees_T;
+	JTextField maxNodes_T;
+	JTextField numRollouts_T;
 	JCheckBox normalize;
+	JCheckBox reuseTree;
+	JCheckBox storeStates;
 	JComboBox choiceSelector;
 	JPanel mPanel;
 
@@ -91,13 +124,27 @@ public class MCTSParams extends Frame implements Serializable
 		kUCT_L = new JLabel("K (UCT)");
 		epsGreedy_L = new JLabel("epsilon (greedy)");
 		normalize_L = new JLabel("Normalize: ");
+		timeBudget_L = new JLabel("Time [ms]");
+		reuseTree_L = new JLabel("Reuse tree: ");
+		numTrees_L = new JLabel("Trees");
+		maxNodes_L = new JLabel("Max nodes");
+		storeStates_L = new JLabel("Store states: ");
+		numRollouts_L = new JLabel("Rollouts");
 		numIter_T = new JTextField(ParMCTS.DEFAULT_NUM_ITERS+"");			
 		treedep_T = new JTextField(ParMCTS.DEFAULT_TREE_DEPTH+"");		 
 		rollout_T = new JTextField(ParMCTS.DEFAULT_ROLLOUT_DEPTH+"");		 
 		verbose_T = new JTextField(ParMCTS.DEFAULT_VERBOSITY+"");		 
 		kUCT_T = new JTextField(ParMCTS.DEFAULT_K+"");					// 
 		epsGreedy_T = new JTextField(ParMCTS.DEFAULT_EPSILONGREEDY+"");					// 
+		timeBudget_T = new JTextField(ParMCTS.DEFAULT_TIME_BUDGET_MS+"");
+		numTrees_T = new JTextField(ParMCTS.DEFAULT_NUM_TREES+"");
+		maxNodes_T = new JTextField(ParMCTS.DEFAULT_MAX_NODES+"");
+		numRollouts_T = new JTextField(ParMCTS.DEFAULT_NUM_ROLLOUTS+"");
 		normalize = new JCheckBox();
+		reuseTree = new JCheckBox();
+		reuseTree.setSelected(ParMCTS.DEFAULT_REUSE_TREE);
+		storeStates = new JCheckBox();
+		storeStates.setSelected(ParMCTS.DEFAULT_STORE_STATES);
 		choiceSelector = new JComboBox(selTypeString);
 		choiceSelector.addActionListener(new ActionListener(){
 			@Override
@@ -120,6 +167,12 @@ public class MCTSParams extends Frame implements Serializable
 		epsGreedy_L.setToolTipText(TIPEPSILONGREEDY);
 		normalize_L.setToolTipText(TIPNORMALIZEL);
 		selector_L.setToolTipText(TIPSELECTORL);
+		timeBudget_L.setToolTipText(TIPTIMEBUDGETL);
+		reuseTree_L.setToolTipText(TIPREUSETREEL);
+		numTrees_L.setToolTipText(TIPNUMTREESL);
+		maxNodes_L.setToolTipText(TIPMAXNODESL);
+		storeStates_L.setToolTipText(TIPSTORESTATESL);
+		numRollouts_L.setToolTipText(TIPNUMROLLOUTSL);
 		
 		setLayout(new BorderLayout(10,0));				// rows,columns,hgap,vgap
 		mPanel.setLayout(new GridLayout(0,4,10,10));		
@@ -147,10 +200,20 @@ public class MCTSParams extends Frame implements Serializable
 //		mPanel.add(new Canvas());
 //		mPanel.add(new Canvas());
 
-		mPanel.add(new Canvas());	// add empty row to balance height of fields
-		mPanel.add(new Canvas());
-		mPanel.add(new Canvas());
-		mPanel.add(new Canvas());
+		mPanel.add(timeBudget_L);
+		mPanel.add(timeBudget_T);
+		mPanel.add(reuseTree_L);
+		mPanel.add(reuseTree);
+
+		mPanel.add(numTrees_L);
+		mPanel.add(numTrees_T);
+		mPanel.add(maxNodes_L);
+		mPanel.add(maxNodes_T);
+
+		mPanel.add(storeStates_L);
+		mPanel.add(storeStates);
+		mPanel.add(numRollouts_L);
+		mPanel.add(numRollouts_T);
 
 		add(mPanel,BorderLayout.CENTER);
 		
@@ -203,6 +266,24 @@ public class MCTSParams extends Frame implements Serializable
 	public boolean getNormalize() {
 		return normalize.isSelected();
 	}
+	public int getTimeBudgetMS() {
+		return Integer.valueOf(timeBudget_T.getText()).intValue();
+	}
+	public boolean getReuseTree() {
+		return reuseTree.isSelected();
+	}
+	public int getNumTrees() {
+		return Integer.valueOf(numTrees_T.getText()).intValue();
+	}
+	public int getMaxNodes() {
+		return Integer.valueOf(maxNodes_T.getText()).intValue();
+	}
+	public boolean getStoreStates() {
+		return storeStates.isSelected();
+	}
+	public int getNumRollouts() {
+		return Integer.valueOf(numRollouts_T.getText()).intValue();
+	}
 	public void setNumIter(int value) {
 		numIter_T.setText(value+"");
 	}
@@ -227,6 +308,24 @@ public class MCTSParams extends Frame implements Serializable
 	public void setNormalize(boolean state) {
 		normalize.setSelected(state);
 	}
+	public void setTimeBudgetMS(int value) {
+		timeBudget_T.setText(value+"");
+	}
+	public void setReuseTree(boolean state) {
+		reuseTree.setSelected(state);
+	}
+	public void setNumTrees(int value) {
+		numTrees_T.setText(value+"");
+	}
+	public void setMaxNodes(int value) {
+		maxNodes_T.setText(value+"");
+	}
+	public void setStoreStates(boolean state) {
+		storeStates.setSelected(state);
+	}
+	public void setNumRollouts(int value) {
+		numRollouts_T.setText(value+"");
+	}
 	
 	/**
 	 * Needed to restore the param tab with the parameters from a re-loaded agent
@@ -241,6 +340,12 @@ public class MCTSParams extends Frame implements Serializable
 		setVerbosity(tp.getVerbosity());
 		setNormalize(tp.getNormalize());
 		setSelectMode(tp.getSelectMode());
+		setTimeBudgetMS(tp.getTimeBudgetMS());
+		setReuseTree(tp.getReuseTree());
+		setNumTrees(tp.getNumTrees());
+		setMaxNodes(tp.getMaxNodes());
+		setStoreStates(tp.getStoreStates());
+		setNumRollouts(tp.getNumRollouts());
 //		System.out.println("numIter= "+tp.getNumIter());
 //		System.out.println("k_UCT= "+tp.getK_UCT());
 		enableUCTPart();
@@ -259,6 +364,12 @@ public class MCTSParams extends Frame implements Serializable
 		setVerbosity(tp.getVerbosity());
 		setNormalize(tp.getNormalize());
 		setSelectMode(tp.getSelectMode());
+		setTimeBudgetMS(tp.getTimeBudgetMS());
+		setReuseTree(tp.getReuseTree());
+		setNumTrees(tp.getNumTrees());
+		setMaxNodes(tp.getMaxNodes());
+		setStoreStates(tp.getStoreStates());
+		setNumRollouts(tp.getNumRollouts());
 		enableUCTPart();
 	}
 	
@@ -18,6 +18,7 @@ import javax.swing.JTextField;
 
 import controllers.TD.ntuple2.SarsaAgt;
 import controllers.TD.ntuple2.TDNTuple3Agt;
+import controllers.TD.ntuple2.WeightStore;
 import games.Arena;
 import games.Nim.ArenaNim2P;
 import games.Nim.NimConfig;
@@ -45,6 +46,8 @@ public class NTParams extends Frame implements Serializable {
 	private static final String TIPUSESYMMETRY = "If checked, use symmetries when training n-tuple agent";
 	private static final String TIPAFTERSTATE = "If checked, use afterstate logic [Jaskowski16] when training n-tuple agent";
 	private static final String TIPNSYMMETRY = "number of symmetries to use (0: all symmetries)";
+	private static final String TIPTRAINTHREADS = "number of threads for parallel training on a shared n-tuple network (1: sequential training)";
+	private static final String TIPLUTMODE = "storage of the LUT weights: double[], float[] (half memory), off-heap (no GC load) or sparse (pages allocated on first write; used automatically for very long n-tuples)";
 
 	private static String[] tcFactorString = { "Immediate", "Accumulating" };
 	private static String[] tcTransferString = { "id", "TC EXP" };
@@ -76,6 +79,8 @@ public class NTParams extends Frame implements Serializable {
 	JLabel UseSymmetryL;
 	JLabel NSymL;
 	JLabel AfterStateL;
+	JLabel TrainThreadsL;
+	JLabel LutModeL;
 
 	public JTextField tcInitT;
 	public JTextField tcIntervalT;
@@ -83,6 +88,7 @@ public class NTParams extends Frame implements Serializable {
 	public JTextField NTupleNumT;
 	public JTextField NTupleSizeT;
 	public JTextField NSymT;
+	public JTextField TrainThreadsT;
 
 	public JCheckBox TempCoC;
 	public JCheckBox RandomnessC;
@@ -95,6 +101,7 @@ public class NTParams extends Frame implements Serializable {
 	public JComboBox NTupleTypeCo;
 	public JComboBox NTupleFixCo;
 	public JComboBox PlotWghtCo;
+	public JComboBox LutModeCo;
 
 	JPanel ntPanel;
 
@@ -132,6 +139,10 @@ public class NTParams extends Frame implements Serializable {
 		AfterStateL.setToolTipText(TIPAFTERSTATE);
 		NSymL = new JLabel("nSym");
 		NSymL.setToolTipText(TIPNSYMMETRY);
+		TrainThreadsL = new JLabel("train threads");
+		TrainThreadsL.setToolTipText(TIPTRAINTHREADS);
+		LutModeL = new JLabel("LUT mode");
+		LutModeL.setToolTipText(TIPLUTMODE);
 		
 		// These are the initial defaults 
 		// (Other game- and agent-specific defaults are in setParamDefaults, which is called
@@ -148,6 +159,7 @@ public class NTParams extends Frame implements Serializable {
 		NTupleSizeT = new JTextField(ParNT.DEFAULT_NTUPLE_LEN+"");
 		NTupleSizeT.setEnabled(false);
 		NTupleFixL.setEnabled(true);
+		TrainThreadsT = new JTextField(ParNT.DEFAULT_TRAIN_THREADS+"");
 
 		TempCoC = new JCheckBox();
 		TempCoC.setSelected(false);
@@ -201,6 +213,8 @@ public class NTParams extends Frame implements Serializable {
 		NTupleFixCo.setEnabled(true); 
 		PlotWghtCo = new JComboBox(plotWghtString);
 		PlotWghtCo.setEnabled(true); 
+		LutModeCo = new JComboBox(WeightStore.MODE_NAMES);
+		LutModeCo.setSelectedIndex(ParNT.DEFAULT_LUT_MODE);
 		
 		ntPanel = new JPanel();		// put the inner buttons into panel ntPanel. This panel
 									// can be handed over to a tab of a JTabbedPane object
@@ -254,8 +268,12 @@ public class NTParams extends Frame implements Serializable {
 		ntPanel.add(NTupleSizeT);
 		ntPanel.add(NSymL);
 		ntPanel.add(NSymT);
-//		ntPanel.add(new Canvas());
-//		ntPanel.add(new Canvas());
+
+		// eighth row
+		ntPanel.add(TrainThreadsL);
+		ntPanel.add(TrainThreadsT);
+		ntPanel.add(LutModeL);
+		ntPanel.add(LutModeCo);
 		
 		add(ntPanel,BorderLayout.CENTER);
 	
@@ -292,6 +310,8 @@ public class NTParams extends Frame implements Serializable {
 		NSymT.setEnabled(enable);
 		AfterStateC.setEnabled(enable);
 		AfterStateL.setEnabled(true);
+		TrainThreadsT.setEnabled(enable);
+		LutModeCo.setEnabled(enable);
 
 	}
 	
@@ -455,6 +475,14 @@ public class NTParams extends Frame implements Serializable {
 		return AfterStateC.isSelected();
 	}
 	
+	public int getNumTrainThreads() {
+		return Integer.parseInt(TrainThreadsT.getText());
+	}
+
+	public int getLutMode() {
+		return LutModeCo.getSelectedIndex();
+	}
+
 	public int getNtupleNumber() {
 		return Integer.parseInt(NTupleNumT.getText());
 	}
@@ -529,6 +557,14 @@ public class NTParams extends Frame implements Serializable {
 		AfterStateC.setSelected(useAfterstate);
 	}
 	
+	public void setNumTrainThreads(int numTrainThreads) {
+		TrainThreadsT.setText(""+numTrainThreads);
+	}
+
+	public void setLutMode(int lutMode) {
+		LutModeCo.setSelectedIndex(lutMode);
+	}
+
 	public void setNtupleNumber(int numTuple) {
 		NTupleNumT.setText(""+numTuple);
 	}
@@ -571,6 +607,8 @@ public class NTParams extends Frame implements Serializable {
 		setFixedNtupleMode(nt.getFixedNtupleMode());
 		setUSESYMMETRY(nt.getUSESYMMETRY());
 		setAFTERSTATE(nt.getAFTERSTATE());
+		setNumTrainThreads(nt.getNumTrainThreads());
+		setLutMode(nt.getLutMode());
 
 		enableAfterState(nt.getAFTERSTATE());
 		enableTcTransferPart();
@@ -598,6 +636,8 @@ public class NTParams extends Frame implements Serializable {
 		setUSESYMMETRY(nt.getUSESYMMETRY());
 		setNSym(nt.getNSym());
 		setAFTERSTATE(nt.getAFTERSTATE());
+		setNumTrainThreads(nt.getNumTrainThreads());
+		setLutMode(nt.getLutMode());
 		
 		enableAfterState(nt.getAFTERSTATE());
 		enableTcTransferPart();
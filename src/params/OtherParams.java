@@ -72,6 +72,8 @@ public class OtherParams extends Frame {
 	JLabel wNply_L;
 	JLabel wMCTS_L;
 	JLabel wMCTSpUCT_L;
+	JLabel wMCTSThreads_L;
+	JLabel wMCTSTime_L;
 	JLabel pMin_L;
 	JLabel pMax_L;
 	JLabel rBuf_L;
@@ -82,6 +84,8 @@ public class OtherParams extends Frame {
 	public JTextField wNply_T;
 	public JTextField wMCTS_T;
 	public JTextField wMCTSpUCT_T;
+	public JTextField wMCTSThreads_T;
+	public JTextField wMCTSTime_T;
 	public JTextField pMin_T;
 	public JTextField pMax_T;
 	public Checkbox chooseS01;
@@ -111,6 +115,8 @@ public class OtherParams extends Frame {
 		wNply_T = new JTextField("0"); 		//
 		wMCTS_T = new JTextField("0"); 		//
 		wMCTSpUCT_T = new JTextField("1"); 		//
+		wMCTSThreads_T = new JTextField("1"); 	//
+		wMCTSTime_T = new JTextField("0"); 		//
 		pMin_T = new JTextField("1");		//
 		pMax_T = new JTextField("6");		//
 		numEval_L = new JLabel("numEval");
@@ -123,6 +129,8 @@ public class OtherParams extends Frame {
 		wNply_L = new JLabel("Wrapper nPly");
 		wMCTS_L = new JLabel("Wrapper MCTS");
 		wMCTSpUCT_L = new JLabel("PUCT for Wrapper MCTS");
+		wMCTSThreads_L = new JLabel("Threads for Wrapper MCTS");
+		wMCTSTime_L = new JLabel("Time [ms] for Wrapper MCTS");
 		pMin_L = new JLabel("pMin");
 		pMax_L = new JLabel("pMax");
 		rBuf_L = new JLabel("Replay buffer");
@@ -154,6 +162,9 @@ public class OtherParams extends Frame {
 		wMCTS_L.setToolTipText(
 				"Wrapper MCTS look ahead (for play, compete, eval).");
 		wMCTSpUCT_L.setToolTipText("PUCT value for MCTS Wrapper.");
+		wMCTSThreads_L.setToolTipText("Number of threads searching the MCTS Wrapper tree in parallel (1: sequential search).");
+		wMCTSTime_L.setToolTipText("<html>Time budget per move for MCTS Wrapper in ms: stop after this time, after 'Wrapper MCTS'<br>"
+				+ "iterations or when the best action cannot be overtaken any more. 0: always use all iterations.</html>");
 		pMin_L.setToolTipText(
 				"RubiksCube: min. number of initial twists (during traing and eval)");
 		pMax_L.setToolTipText(
@@ -232,8 +243,8 @@ public class OtherParams extends Frame {
 		oPanel.add(wNply_L);
 		oPanel.add(wNply_T);
 
-		oPanel.add(new Canvas());
-		oPanel.add(new Canvas());
+		oPanel.add(wMCTSThreads_L);
+		oPanel.add(wMCTSThreads_T);
 
 		if (m_arena.getGameName().equals("RubiksCube")) {
 			oPanel.add(pMin_L);
@@ -257,6 +268,11 @@ public class OtherParams extends Frame {
 			oPanel.add(new Canvas());
 		}
 
+		oPanel.add(wMCTSTime_L);
+		oPanel.add(wMCTSTime_T);
+		oPanel.add(new Canvas());
+		oPanel.add(new Canvas());
+
 		add(oPanel, BorderLayout.CENTER);
 		add(ok, BorderLayout.SOUTH);
 
@@ -319,6 +335,14 @@ public class OtherParams extends Frame {
 		return Double.parseDouble(wMCTSpUCT_T.getText());
 	}
 
+	public int getWrapperMCTSThreads() {
+		return Integer.parseInt(wMCTSThreads_T.getText());
+	}
+
+	public int getWrapperMCTSTimeMS() {
+		return Integer.parseInt(wMCTSTime_T.getText());
+	}
+
 	public int getpMinRubiks() {
 		return Integer.valueOf(pMin_T.getText()).intValue();
 	}
@@ -414,6 +438,14 @@ public class OtherParams extends Frame {
 		wMCTSpUCT_T.setText(value + "");
 	}
 
+	public void setWrapperMCTSThreads(final int value) {
+		wMCTSThreads_T.setText(value + "");
+	}
+
+	public void setWrapperMCTSTimeMS(final int value) {
+		wMCTSTime_T.setText(value + "");
+	}
+
 	public void setpMinRubiks(int value) {
 		pMin_T.setText(value + "");
 	}
@@ -459,6 +491,8 @@ public class OtherParams extends Frame {
 		this.setStopEval(op.getStopEval());
 		this.setWrapperNPly(op.getWrapperNPly());
 		this.setWrapperMCTSIterations(op.getWrapperMCTSIterations());
+		this.setWrapperMCTSThreads(op.getWrapperMCTSThreads());
+		this.setWrapperMCTSTimeMS(op.getWrapperMCTSTimeMS());
 		this.setpMinRubiks(op.getpMinRubiks());
 		this.setpMaxRubiks(op.getpMaxRubiks());
 		this.chooseS01.setState(op.getChooseStart01());
@@ -21,6 +21,40 @@ public class ParMCTS implements Serializable {
     public static final double DEFAULT_EPSILONGREEDY = 0.05;
     public static final int DEFAULT_VERBOSITY = 0;
     public static final int DEFAULT_SELECT_MODE = 0;	// 0:[UCT], 1:[eps-greedy], 2:[roulette wheel]
+	/**
+	 * timeBudgetMS = time per move in milliseconds. If &gt; 0, the search stops after this time (or after 
+	 * numIters iterations, whichever comes first) or as soon as the best action cannot be overtaken any more. 
+	 * If 0, the search performs always numIters iterations. 
+	 */
+    public static final int DEFAULT_TIME_BUDGET_MS = 0;
+	/**
+	 * reuseTree: if true, keep the subtree below the moves actually played since the last call and continue the 
+	 * search from it (see {@link controllers.MCTS.SingleMCTSPlayer#initReuse(games.StateObservation)}).
+	 * If false, build a new tree for every move.
+	 */
+    public static final boolean DEFAULT_REUSE_TREE = false;
+	/**
+	 * numTrees = number of independent trees of the root-parallel ensemble (see 
+	 * {@link controllers.MCTS.SingleMCTSPlayer#run(tools.ElapsedCpuTimer, double[])}). Each tree performs numIters
+	 * iterations in its own thread. If 1, a single tree is searched.
+	 */
+    public static final int DEFAULT_NUM_TREES = 1;
+	/**
+	 * maxNodes = maximum number of nodes of a tree. If reached, the search does not expand further nodes, it rolls
+	 * out from the node reached instead. If 0, the tree size is not limited.
+	 */
+    public static final int DEFAULT_MAX_NODES = 0;
+	/**
+	 * storeStates: if true, each tree node stores its state. If false, only the root stores its state and the 
+	 * states of the other nodes are recomputed in each iteration by replaying the actions from the root (less 
+	 * memory for large trees, only for deterministic games).
+	 */
+    public static final boolean DEFAULT_STORE_STATES = true;
+	/**
+	 * numRollouts = number of rollouts from each selected leaf, played in parallel (leaf-parallel MCTS). Their 
+	 * averaged value is backed up. If 1, a single rollout is played in the search thread.
+	 */
+    public static final int DEFAULT_NUM_ROLLOUTS = 1;
     private int numIters = DEFAULT_NUM_ITERS;
 	private int rolloutDepth = DEFAULT_ROLLOUT_DEPTH;
     private int treeDepth = DEFAULT_TREE_DEPTH;
@@ -29,6 +63,12 @@ public class ParMCTS implements Serializable {
     private int verbose = DEFAULT_VERBOSITY; 
     private boolean useNormalize = true;
     private int selectMode = DEFAULT_SELECT_MODE;
+    private int timeBudgetMS = DEFAULT_TIME_BUDGET_MS;	// 0 in agents saved before
+    private boolean reuseTree = DEFAULT_REUSE_TREE;		// false in agents saved before
+    private int numTrees = DEFAULT_NUM_TREES;			// 0 in agents saved before, treated as 1
+    private int maxNodes = DEFAULT_MAX_NODES;			// 0 in agents saved before
+    private boolean noStoreStates = !DEFAULT_STORE_STATES;	// negated, so that it is false in agents saved before
+    private int numRollouts = DEFAULT_NUM_ROLLOUTS;		// 0 in agents saved before, treated as 1
 
     /**
      * This member is only constructed when the constructor {@link #ParMCTS(boolean) ParMCTS(boolean withUI)} 
@@ -67,6 +107,12 @@ public class ParMCTS implements Serializable {
 		this.verbose = tp.getVerbosity();
 		this.useNormalize = tp.getNormalize();
 		this.selectMode = tp.getSelectMode();
+		this.timeBudgetMS = tp.getTimeBudgetMS();
+		this.reuseTree = tp.getReuseTree();
+		this.numTrees = tp.getNumTrees();
+		this.maxNodes = tp.getMaxNodes();
+		this.noStoreStates = !tp.getStoreStates();
+		this.numRollouts = tp.getNumRollouts();
 		
 		if (msparams!=null)
 			msparams.setFrom(this);
@@ -81,6 +127,12 @@ public class ParMCTS implements Serializable {
 		this.verbose = tp.getVerbosity();
 		this.useNormalize = tp.getNormalize();
 		this.selectMode = tp.getSelectMode();
+		this.timeBudgetMS = tp.getTimeBudgetMS();
+		this.reuseTree = tp.getReuseTree();
+		this.numTrees = tp.getNumTrees();
+		this.maxNodes = tp.getMaxNodes();
+		this.noStoreStates = !tp.getStoreStates();
+		this.numRollouts = tp.getNumRollouts();
 		
 		if (msparams!=null)
 			msparams.setFrom(this);
@@ -124,6 +176,36 @@ public class ParMCTS implements Serializable {
 	public boolean getNormalize() {
 		return useNormalize;
 	}
+	/**
+	 * @return the time budget per move in milliseconds (0: no time budget, always {@link #getNumIter()} iterations)
+	 */
+	public int getTimeBudgetMS() {
+		return timeBudgetMS;
+	}
+	public boolean getReuseTree() {
+		return reuseTree;
+	}
+	/**
+	 * @return the number of trees of the root-parallel ensemble (1: a single tree)
+	 */
+	public int getNumTrees() {
+		return Math.max(1, numTrees);
+	}
+	/**
+	 * @return the maximum number of nodes of a tree (0: no limit)
+	 */
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+	public boolean getStoreStates() {
+		return !noStoreStates;
+	}
+	/**
+	 * @return the number of parallel rollouts per selected leaf (1: a single rollout)
+	 */
+	public int getNumRollouts() {
+		return Math.max(1, numRollouts);
+	}
 
 	public void setNumIter(int numIters) {
 		this.numIters = numIters;
@@ -172,6 +254,42 @@ public class ParMCTS implements Serializable {
 		if (msparams!=null)
 			msparams.setNormalize(bNorm);
 	}
+
+	public void setTimeBudgetMS(int timeBudgetMS) {
+		this.timeBudgetMS = timeBudgetMS;
+		if (msparams!=null)
+			msparams.setTimeBudgetMS(timeBudgetMS);
+	}
+
+	public void setReuseTree(boolean reuseTree) {
+		this.reuseTree = reuseTree;
+		if (msparams!=null)
+			msparams.setReuseTree(reuseTree);
+	}
+
+	public void setNumTrees(int numTrees) {
+		this.numTrees = numTrees;
+		if (msparams!=null)
+			msparams.setNumTrees(numTrees);
+	}
+
+	public void setMaxNodes(int maxNodes) {
+		this.maxNodes = maxNodes;
+		if (msparams!=null)
+			msparams.setMaxNodes(maxNodes);
+	}
+
+	public void setStoreStates(boolean storeStates) {
+		this.noStoreStates = !storeStates;
+		if (msparams!=null)
+			msparams.setStoreStates(storeStates);
+	}
+
+	public void setNumRollouts(int numRollouts) {
+		this.numRollouts = numRollouts;
+		if (msparams!=null)
+			msparams.setNumRollouts(numRollouts);
+	}
 	
 	/**
 	 * Set sensible parameters for a specific agent and specific game. By "sensible
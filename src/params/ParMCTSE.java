@@ -20,6 +20,7 @@ import java.io.Serializable;
  * <li> <b>Rollout Depth</b>[150] MCTSE rollout depth  
  * <li> <b>Max Nodes</b>	[500] max number of nodes that expand() can create  
  * <li> <b>Number Agents</b>[  1] number of agents for majority vote  
+ * <li> <b>Number Trees</b>	[  1] number of trees searched in parallel (root-parallel ensemble)  
  * </ul>
  * The defaults are defined in this class. 
  * 
@@ -44,6 +45,7 @@ public class ParMCTSE implements Serializable
     public static final boolean DEFAULT_ENABLEHEURISTICS = false;
     public static final boolean DEFAULT_NORMALIZE = true;
     public static final int DEFAULT_NUMAGENTS = 1;                      //number Agents for majority vote
+    public static final int DEFAULT_NUMTREES = 1;                       //number of trees searched in parallel for one move
     public static final int DEFAULT_SELECT_MODE = 0;	// 0:[UCT], 1:[eps-greedy], 2:[roulette wheel]
     private int numIters = DEFAULT_ITERATIONS;
 	private int rolloutDepth = DEFAULT_ROLLOUTDEPTH;
@@ -55,6 +57,7 @@ public class ParMCTSE implements Serializable
     private boolean useNormalize = DEFAULT_NORMALIZE;
     private int maxNodes = DEFAULT_MAXNODES; 
     private int numAgents = DEFAULT_NUMAGENTS;
+    private int numTrees = DEFAULT_NUMTREES;			// 0 in agents saved before, treated as 1
     private boolean alternateVersion = DEFAULT_ALTERNATEVERSION;
     private boolean enableHeuristics = DEFAULT_ENABLEHEURISTICS;
 
@@ -106,6 +109,7 @@ public class ParMCTSE implements Serializable
 		this.setEpsGreedy(tp.getEpsGreedy());
 		setMaxNodes(tp.getMaxNodes());						
 		setNumAgents(tp.getNumAgents());					
+		setNumTrees(tp.getNumTrees());
 		setVerbosity(tp.getVerbosity());
 		setAlternateVersion(tp.getAlternateVersion());	
 		setEnableHeuristics(tp.getEnableHeuristics());
@@ -129,6 +133,7 @@ public class ParMCTSE implements Serializable
 		this.setEpsGreedy(tp.getEpsGreedy());
 		setMaxNodes(tp.getMaxNodes());						
 		setNumAgents(tp.getNumAgents());					
+		setNumTrees(tp.getNumTrees());
 		setVerbosity(tp.getVerbosity());
 		setAlternateVersion(tp.getAlternateVersion());	
 		setEnableHeuristics(tp.getEnableHeuristics());
@@ -181,6 +186,12 @@ public class ParMCTSE implements Serializable
 	public int getNumAgents()  {
 		return this.numAgents;
 	}
+	/**
+	 * @return the number of trees searched in parallel for one move (1: a single tree)
+	 */
+	public int getNumTrees()  {
+		return Math.max(1, this.numTrees);
+	}
 	public boolean getAlternateVersion() {
 		return this.alternateVersion;
 	}
@@ -234,6 +245,11 @@ public class ParMCTSE implements Serializable
 		if (meparams!=null)
 			meparams.setNumAgents(value);
 	}
+	public void setNumTrees(int value) { 
+		numTrees = value; 
+		if (meparams!=null)
+			meparams.setNumTrees(value);
+	}
 	public void setAlternateVersion(boolean value) {
 		alternateVersion = value;
 		if (meparams!=null)
@@ -6,6 +6,7 @@ import javax.swing.JPanel;
 
 import controllers.TD.ntuple2.SarsaAgt;
 import controllers.TD.ntuple2.TDNTuple3Agt;
+import controllers.TD.ntuple2.WeightStore;
 import games.Arena;
 import games.Nim.ArenaNim2P;
 import games.Nim.NimConfig;
@@ -28,6 +29,8 @@ public class ParNT implements Serializable {
     public static int DEFAULT_NTUPLE_NUM=10;  
     public static int DEFAULT_NTUPLE_LEN=6;  
     public static int DEFAULT_FIXED_NTUPLE=1;  
+    public static int DEFAULT_TRAIN_THREADS=1;
+    public static int DEFAULT_LUT_MODE=WeightStore.DOUBLE;
     
     private double tcInit = DEFAULT_TC_INIT;
     private boolean tc = false;
@@ -44,6 +47,8 @@ public class ParNT implements Serializable {
     private boolean useSymmetry = true;
     private int nSym= 0;							// 0: use all symmetries, if useSymmetry==true
     private boolean afterState = false;
+    private int numTrainThreads = DEFAULT_TRAIN_THREADS;	// >1: parallel (Hogwild) training in TDNTuple3Agt
+    private int lutMode = DEFAULT_LUT_MODE;			// storage of LUT weights: 0: double[], 1: float[], 2: off-heap
     
     /**
      * This member is only constructed when the constructor {@link #ParNT(boolean) ParNT(boolean withUI)} 
@@ -89,6 +94,8 @@ public class ParNT implements Serializable {
 		this.useSymmetry = nt.getUSESYMMETRY();
 		this.nSym = nt.getNSym();
 		this.afterState = nt.getAFTERSTATE();
+		this.numTrainThreads = nt.getNumTrainThreads();
+		this.lutMode = nt.getLutMode();
 
 		if (ntparams!=null)
 			ntparams.setFrom(this);
@@ -110,6 +117,8 @@ public class ParNT implements Serializable {
 		this.useSymmetry = nt.getUSESYMMETRY();
 		this.nSym = nt.getNSym();
 		this.afterState = nt.getAFTERSTATE();
+		this.numTrainThreads = nt.getNumTrainThreads();
+		this.lutMode = nt.getLutMode();
 
 		if (ntparams!=null)
 			ntparams.setFrom(this);
@@ -198,6 +207,24 @@ public class ParNT implements Serializable {
 		return afterState;
 	}
 
+	/**
+	 * @return the number of worker threads for training {@link TDNTuple3Agt}. If &gt; 1, the training episodes run
+	 * 		concurrently on a shared n-tuple network (Hogwild-style), see
+	 * 		{@link TDNTuple3Agt#trainAgentParallel(java.util.List)}
+	 */
+	public int getNumTrainThreads() {
+		return Math.max(numTrainThreads, 1);	// older agents without this member have numTrainThreads==0
+	}
+
+	/**
+	 * @return the storage mode for the LUT weights of each n-tuple, one of {@link WeightStore#DOUBLE},
+	 * 		{@link WeightStore#FLOAT}, {@link WeightStore#OFFHEAP}, {@link WeightStore#SPARSE}. LUTs longer than
+	 * 		{@link WeightStore#SPARSE_THRESHOLD} are always sparse.
+	 */
+	public int getLutMode() {
+		return lutMode;
+	}
+
 	public int getPlotWeightMethod() {
 		if (ntparams!=null)
 			return ntparams.getPlotWeightMethod();
@@ -285,6 +312,18 @@ public class ParNT implements Serializable {
 		this.afterState = afterState;
 	}
 
+	public void setNumTrainThreads(int numTrainThreads) {
+		this.numTrainThreads = numTrainThreads;
+		if (ntparams!=null)
+			ntparams.setNumTrainThreads(numTrainThreads);
+	}
+
+	public void setLutMode(int lutMode) {
+		this.lutMode = lutMode;
+		if (ntparams!=null)
+			ntparams.setLutMode(lutMode);
+	}
+
 	/**
 	 * Set sensible parameters for a specific agent and specific game. By "sensible
 	 * parameters" we mean parameter producing good results.
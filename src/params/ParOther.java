@@ -27,6 +27,8 @@ public class ParOther implements Serializable {
     public static int DEFAULT_WRAPPER_NPLY = 0;
     public static int DEFAULT_WRAPPER_MCTS_ITERATIONS = 0;
     public static double DEFAULT_WRAPPER_MCTS_PUCT = 1;
+    public static int DEFAULT_WRAPPER_MCTS_THREADS = 1;
+    public static int DEFAULT_WRAPPER_MCTS_TIME_MS = 0;
 	public static int DEFAULT_PMIN_RUBIKS = 1;
     public static int DEFAULT_PMAX_RUBIKS = 6;
 
@@ -39,6 +41,8 @@ public class ParOther implements Serializable {
     private int wrapperNply = DEFAULT_WRAPPER_NPLY;
 	private int wrapperMCTSIterations = DEFAULT_WRAPPER_MCTS_ITERATIONS;
 	private double wrapperMCTS_PUCT = DEFAULT_WRAPPER_MCTS_PUCT;
+	private int wrapperMCTSThreads = DEFAULT_WRAPPER_MCTS_THREADS;	// 0 in agents saved before, treated as 1
+	private int wrapperMCTSTimeMS = DEFAULT_WRAPPER_MCTS_TIME_MS;	// 0 in agents saved before
 	private int pMinRubiks = DEFAULT_PMIN_RUBIKS;	// only relevant for RubiksCube, see CubeConfig.pMin
 	private int pMaxRubiks = DEFAULT_PMAX_RUBIKS;	// only relevant for RubiksCube, see CubeConfig.pMax
 	private boolean chooseStart01 = false;
@@ -86,6 +90,8 @@ public class ParOther implements Serializable {
 		this.wrapperNply = op.getWrapperNPly();
 		this.wrapperMCTSIterations = op.getWrapperMCTSIterations();
 		this.wrapperMCTS_PUCT = op.getWrapperMCTS_PUCT();
+		this.wrapperMCTSThreads = op.getWrapperMCTSThreads();
+		this.wrapperMCTSTimeMS = op.getWrapperMCTSTimeMS();
 		this.pMinRubiks = op.getpMinRubiks();
 		this.pMaxRubiks = op.getpMaxRubiks();
 		this.chooseStart01 = op.getChooseStart01();
@@ -108,6 +114,8 @@ public class ParOther implements Serializable {
 		this.wrapperNply = op.getWrapperNPly();
 		this.wrapperMCTSIterations = op.getWrapperMCTSIterations();
 		this.wrapperMCTS_PUCT = op.getWrapperMCTS_PUCT();
+		this.wrapperMCTSThreads = op.getWrapperMCTSThreads();
+		this.wrapperMCTSTimeMS = op.getWrapperMCTSTimeMS();
 		this.pMinRubiks = op.getpMinRubiks();
 		this.pMaxRubiks = op.getpMaxRubiks();
 		this.chooseStart01 = op.getChooseStart01();
@@ -183,6 +191,21 @@ public class ParOther implements Serializable {
 		return wrapperMCTS_PUCT;
 	}
 
+	/**
+	 * @return the number of threads for the tree-parallel search of the MCTS wrapper (1: sequential search)
+	 */
+	public int getWrapperMCTSThreads() {
+		return Math.max(1, wrapperMCTSThreads);
+	}
+
+	/**
+	 * @return the time budget per move in milliseconds for the MCTS wrapper (0: always perform
+	 * {@link #getWrapperMCTSIterations()} iterations)
+	 */
+	public int getWrapperMCTSTimeMS() {
+		return wrapperMCTSTimeMS;
+	}
+
 	public int getpMinRubiks() { return pMinRubiks;	}
 
 	public int getpMaxRubiks() { return pMaxRubiks;	}
@@ -274,6 +297,18 @@ public class ParOther implements Serializable {
 			otparams.setWrapperMCTS_PUCT(puct);
 	}
 
+	public void setWrapperMCTSThreads(final int nThreads) {
+		this.wrapperMCTSThreads = nThreads;
+		if (otparams!=null)
+			otparams.setWrapperMCTSThreads(nThreads);
+	}
+
+	public void setWrapperMCTSTimeMS(final int timeMS) {
+		this.wrapperMCTSTimeMS = timeMS;
+		if (otparams!=null)
+			otparams.setWrapperMCTSTimeMS(timeMS);
+	}
+
 	public void setpMinRubiks(int pMinRubiks) {
 		this.pMinRubiks = pMinRubiks;
 		if (otparams!=null)
@@ -0,0 +1,375 @@
+package starters;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+import controllers.MCTS.MCTSAgentT;
+import controllers.MCTSWrapper.MCTS;
+import controllers.MCTSWrapper.MCTSNode;
+import controllers.MCTSWrapper.passStates.GameStateIncludingPass;
+import controllers.MCTSWrapper.stateApproximation.PlayAgentApproximator;
+import controllers.TD.ntuple2.NTuple2ValueFunc;
+import controllers.TD.ntuple2.NTupleFactory;
+import controllers.TD.ntuple2.TDNTuple3Agt;
+import games.Arena;
+import games.GameBoard;
+import games.StateObsWithBoardVector;
+import games.StateObservation;
+import games.XNTupleFuncs;
+import params.ParMCTS;
+import params.ParNT;
+import params.ParOther;
+import params.ParTD;
+import tools.Types;
+
+/**
+ * Micro benchmarks for the hot paths of games and agents, in the spirit of JMH (warm-up and measurement iterations
+ * of fixed duration, throughput in ops/s with a 99.9% confidence interval), but without a dependency on the JMH
+ * library. The results can be written as JSON in the format of JMH ({@code -rf json}), so that runs can be compared
+ * with the usual JMH tools.
+ * <p>
+ * Benchmarks (each runs on the states of a few random games of the selected game):
+ * <ul>
+ * <li> {@code copyAdvance}: {@link StateObservation#copy()} followed by {@link StateObservation#advance(Types.ACTIONS)}
+ * <li> {@code availableActions}: {@link StateObservation#setAvailableActions()}
+ * <li> {@code ntupleScore}: {@link NTuple2ValueFunc#getScoreI(StateObsWithBoardVector, int)} of a
+ * 		{@link TDNTuple3Agt} with the default n-tuples
+ * <li> {@code ntupleUpdate}: {@link NTuple2ValueFunc#updateWeightsTD(StateObsWithBoardVector, int, double, double,
+ * 		double, StateObservation)}
+ * <li> {@code mctsIteration}: one iteration of {@link MCTSAgentT} (ops = iterations)
+ * <li> {@code mctsWrapperIteration}: one call of {@link MCTS#search(MCTSNode, int)} with the {@link TDNTuple3Agt} as
+ * 		approximator (only 1- and 2-player deterministic games)
+ * <li> {@code selfPlayEpisode}: one training episode {@link TDNTuple3Agt#trainAgent(StateObservation)} (at most
+ * 		{@link #EPISODE_LENGTH} moves)
+ * </ul>
+ *
+ * @see GBGBatch
+ */
+public class GBGBenchmark {
+
+	public static final String[] DEFAULT_GAMES = {"TicTacToe", "ConnectFour", "Othello", "Hex", "2048", "RubiksCube",
+			"Sim", "Nim"};
+	public static final String[] BENCHMARKS = {"copyAdvance", "availableActions", "ntupleScore", "ntupleUpdate",
+			"mctsIteration", "mctsWrapperIteration", "selfPlayEpisode"};
+
+	/**
+	 * maximum number of moves in a self-play episode (needed for RubiksCube and 2048, where an untrained agent
+	 * plays long episodes)
+	 */
+	public static int EPISODE_LENGTH = 200;
+	private static final int NUM_RANDOM_GAMES = 20;
+	private static final int MCTS_ITER = 100;
+
+	private int warmupIterations = 3;
+	private int measurementIterations = 5;
+	private long iterationMs = 1000;
+
+	/**
+	 * One benchmark operation, called repeatedly during an iteration
+	 */
+	interface Op {
+		/**
+		 * @return the number of operations done in this call
+		 */
+		long run();
+	}
+
+	/**
+	 * The result of one benchmark (one game, one benchmark name)
+	 */
+	public static class Result {
+		public final String benchmark;
+		public final String game;
+		public final double[] rawData;		// ops/s of each measurement iteration
+		public final double score;
+		public final double scoreError;
+
+		Result(String benchmark, String game, double[] rawData) {
+			this.benchmark = benchmark;
+			this.game = game;
+			this.rawData = rawData;
+			int n = rawData.length;
+			this.score = Arrays.stream(rawData).average().orElse(Double.NaN);
+			if (n > 1) {
+				double var = Arrays.stream(rawData).map(x -> (x - score) * (x - score)).sum() / (n - 1);
+				double t = new TDistribution(n - 1).inverseCumulativeProbability(1 - 0.001 / 2);
+				this.scoreError = t * Math.sqrt(var / n);
+			} else {
+				this.scoreError = Double.NaN;
+			}
+		}
+	}
+
+	/**
+	 * Syntax:
+	 * <pre>
+	 * GBGBenchmark [-games g1,g2,...] [-bench b1,b2,...] [-wi n] [-i n] [-t ms] [-rff results.json] </pre>
+	 * Examples:
+	 * <pre>
+	 * GBGBenchmark
+	 * GBGBenchmark -games Othello,ConnectFour -bench ntupleScore,ntupleUpdate -i 10 -rff base.json
+	 * </pre>
+	 * @param args <br>
+	 * 		{@code -games}: comma-separated game names (default: {@link #DEFAULT_GAMES}) <br>
+	 * 		{@code -bench}: comma-separated benchmark names (default: all of {@link #BENCHMARKS}) <br>
+	 * 		{@code -wi}: number of warm-up iterations (default 3) <br>
+	 * 		{@code -i}: number of measurement iterations (default 5) <br>
+	 * 		{@code -t}: duration of each iteration in ms (default 1000) <br>
+	 * 		{@code -rff}: JSON result file in JMH format (default: no file)
+	 */
+	public static void main(String[] args) throws IOException {
+		GBGBenchmark bm = new GBGBenchmark();
+		String[] games = DEFAULT_GAMES;
+		String[] benchmarks = BENCHMARKS;
+		String jsonFile = null;
+		for (int k = 0; k < args.length; k++) {
+			if (k + 1 == args.length) {
+				System.err.println("[GBGBenchmark.main] missing value for " + args[k]);
+				System.exit(1);
+			}
+			switch (args[k]) {
+				case "-games" -> games = args[++k].split(",");
+				case "-bench" -> benchmarks = args[++k].split(",");
+				case "-wi" -> bm.warmupIterations = Integer.parseInt(args[++k]);
+				case "-i" -> bm.measurementIterations = Integer.parseInt(args[++k]);
+				case "-t" -> bm.iterationMs = Long.parseLong(args[++k]);
+				case "-rff" -> jsonFile = args[++k];
+				default -> {
+					System.err.println("[GBGBenchmark.main] unknown option " + args[k]);
+					System.exit(1);
+				}
+			}
+		}
+
+		List<Result> results = new ArrayList<>();
+		for (String game : games)
+			results.addAll(bm.runGame(game, benchmarks));
+		bm.printResults(results);
+		if (jsonFile != null) bm.writeJson(results, jsonFile);
+		System.exit(0);
+	}
+
+	public GBGBenchmark() { }
+
+	/**
+	 * @param warmupIterations		number of warm-up iterations
+	 * @param measurementIterations	number of measurement iterations
+	 * @param iterationMs			duration of each iteration in ms
+	 */
+	public GBGBenchmark(int warmupIterations, int measurementIterations, long iterationMs) {
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationMs = iterationMs;
+	}
+
+	/**
+	 * Run the benchmarks {@code benchmarks} for game {@code selectedGame}.
+	 *
+	 * @return the results, one per benchmark applicable to the game
+	 */
+	public List<Result> runGame(String selectedGame, String[] benchmarks) {
+		Random rand = new Random(42);
+		String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+		Arena arena = GBGBatch.setupSelectedGame(selectedGame, scaPar);
+		GameBoard gb = arena.makeGameBoard();
+		XNTupleFuncs xnf = arena.makeXNTupleFuncs();
+		boolean isCube = selectedGame.equals("RubiksCube");
+
+		// the states of a few random games (RubiksCube: scrambled start states, since the default is solved)
+		ArrayList<StateObservation> states = new ArrayList<>();
+		for (int g = 0; g < NUM_RANDOM_GAMES; g++) {
+			StateObservation so = isCube ? gb.chooseStartState() : gb.getDefaultStartState();
+			for (int m = 0; !so.isGameOver() && m < EPISODE_LENGTH; m++) {
+				states.add(so.copy());
+				ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+				so.advance(acts.get(rand.nextInt(acts.size())));
+			}
+		}
+		StateObservation[] sArr = states.toArray(new StateObservation[0]);
+		StateObservation so0 = sArr[0];
+
+		ParNT ntPar = new ParNT();
+		ParOther oPar = new ParOther();
+		oPar.setEpisodeLength(EPISODE_LENGTH);
+		int[][] nTuples;
+		try {
+			nTuples = new NTupleFactory().makeNTupleSet(ntPar, xnf);
+		} catch (Exception e) {
+			throw new RuntimeException("[GBGBenchmark] could not create n-tuples for " + selectedGame, e);
+		}
+		TDNTuple3Agt tdAgt = new TDNTuple3Agt("TDNT3", new ParTD(), ntPar, oPar, nTuples, xnf, 1000);
+		NTuple2ValueFunc net = tdAgt.getNTupleValueFunc();
+
+		List<Result> results = new ArrayList<>();
+		for (String bench : benchmarks) {
+			Op op = makeOp(bench, sArr, so0, gb, xnf, tdAgt, net, rand, isCube);
+			if (op == null) {
+				System.out.println("[GBGBenchmark] " + selectedGame + ": " + bench + " not applicable");
+				continue;
+			}
+			Result res = measure(bench, selectedGame, op);
+			System.out.printf(Locale.UK, "[GBGBenchmark] %-12s %-22s %14.1f +- %10.1f ops/s%n",
+					selectedGame, bench, res.score, res.scoreError);
+			results.add(res);
+		}
+		return results;
+	}
+
+	private Op makeOp(String bench, StateObservation[] sArr, StateObservation so0, GameBoard gb, XNTupleFuncs xnf,
+					  TDNTuple3Agt tdAgt, NTuple2ValueFunc net, Random rand, boolean isCube) {
+		int[] pos = {0};		// cyclic position in sArr
+		switch (bench) {
+			case "copyAdvance":
+				return () -> {
+					StateObservation so = sArr[pos[0]++ % sArr.length].copy();
+					ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+					so.advance(acts.get(rand.nextInt(acts.size())));
+					return 1;
+				};
+			case "availableActions":
+				return () -> {
+					sArr[pos[0]++ % sArr.length].setAvailableActions();
+					return 1;
+				};
+			case "ntupleScore": {
+				StateObsWithBoardVector[] sowb = boardVectors(sArr, xnf);
+				return () -> {
+					int k = pos[0]++ % sowb.length;
+					net.getScoreI(sowb[k], sArr[k].getPlayer());
+					return 1;
+				};
+			}
+			case "ntupleUpdate": {
+				StateObsWithBoardVector[] sowb = boardVectors(sArr, xnf);
+				return () -> {
+					int k = pos[0]++ % sowb.length;
+					if (k == 0) net.clearEligList();
+					net.updateWeightsTD(sowb[k], sArr[k].getPlayer(), 0.0, 0.1, 0.0, sArr[k]);
+					return 1;
+				};
+			}
+			case "mctsIteration": {
+				if (!so0.isDeterministicGame()) return null;
+				ParMCTS mcPar = new ParMCTS();
+				mcPar.setNumIter(MCTS_ITER);
+				MCTSAgentT mcts = new MCTSAgentT("MCTS", so0, mcPar);
+				return () -> {
+					mcts.getNextAction2(sArr[pos[0]++ % sArr.length].partialState(), false, true);
+					return MCTS_ITER;
+				};
+			}
+			case "mctsWrapperIteration": {
+				if (!so0.isDeterministicGame() || so0.getNumPlayers() > 2) return null;
+				MCTS mcts = new MCTS(new PlayAgentApproximator(tdAgt), 1.0, -1);
+				MCTSNode[] root = {null};
+				return () -> {
+					if (root[0] == null || pos[0] % MCTS_ITER == 0)	// a new tree every MCTS_ITER iterations
+						root[0] = new MCTSNode(new GameStateIncludingPass(sArr[(pos[0] / MCTS_ITER) % sArr.length]));
+					pos[0]++;
+					mcts.search(root[0], 0);
+					return 1;
+				};
+			}
+			case "selfPlayEpisode":
+				return () -> {
+					tdAgt.trainAgent(isCube ? gb.chooseStartState() : gb.getDefaultStartState());
+					return 1;
+				};
+			default:
+				throw new RuntimeException("[GBGBenchmark] Unknown benchmark " + bench);
+		}
+	}
+
+	private static StateObsWithBoardVector[] boardVectors(StateObservation[] sArr, XNTupleFuncs xnf) {
+		StateObsWithBoardVector[] sowb = new StateObsWithBoardVector[sArr.length];
+		for (int k = 0; k < sArr.length; k++) sowb[k] = new StateObsWithBoardVector(sArr[k], xnf);
+		return sowb;
+	}
+
+	/**
+	 * Run {@code warmupIterations} + {@code measurementIterations} iterations of {@code iterationMs} each. An
+	 * iteration calls {@code op} until the time is over.
+	 */
+	private Result measure(String bench, String game, Op op) {
+		double[] raw = new double[measurementIterations];
+		for (int it = 0; it < warmupIterations + measurementIterations; it++) {
+			long ops = 0;
+			long start = System.nanoTime();
+			long end = start + iterationMs * 1000000L;
+			long now;
+			do {
+				ops += op.run();
+				now = System.nanoTime();
+			} while (now < end);
+			if (it >= warmupIterations) raw[it - warmupIterations] = ops / ((now - start) * 1e-9);
+		}
+		return new Result(bench, game, raw);
+	}
+
+	public void printResults(List<Result> results) {
+		System.out.println();
+		System.out.printf("%-35s %-12s %5s %16s %14s  %s%n", "Benchmark", "(game)", "Cnt", "Score", "Error", "Units");
+		for (Result r : results)
+			System.out.printf(Locale.UK, "%-35s %-12s %5d %16.3f +- %12.3f  ops/s%n", "GBGBenchmark." + r.benchmark,
+					r.game, r.rawData.length, r.score, r.scoreError);
+	}
+
+	/**
+	 * Write the results in the JSON format of JMH (one entry per benchmark and game, the game is the benchmark
+	 * parameter {@code game}).
+	 */
+	public void writeJson(List<Result> results, String fileName) throws IOException {
+		try (PrintWriter pw = new PrintWriter(new FileWriter(fileName))) {
+			pw.println("[");
+			for (int k = 0; k < results.size(); k++) {
+				Result r = results.get(k);
+				StringBuilder raw = new StringBuilder();
+				for (int i = 0; i < r.rawData.length; i++)
+					raw.append(i == 0 ? "" : ", ").append(num(r.rawData[i]));
+				pw.println("    {");
+				pw.println("        \"jmhVersion\" : \"none (GBGBenchmark)\",");
+				pw.println("        \"benchmark\" : \"starters.GBGBenchmark." + r.benchmark + "\",");
+				pw.println("        \"mode\" : \"thrpt\",");
+				pw.println("        \"threads\" : 1,");
+				pw.println("        \"forks\" : 1,");
+				pw.println("        \"jvm\" : \"" + jsonEscape(System.getProperty("java.home")) + "\",");
+				pw.println("        \"jdkVersion\" : \"" + System.getProperty("java.version") + "\",");
+				pw.println("        \"warmupIterations\" : " + warmupIterations + ",");
+				pw.println("        \"warmupTime\" : \"" + iterationMs + " ms\",");
+				pw.println("        \"measurementIterations\" : " + measurementIterations + ",");
+				pw.println("        \"measurementTime\" : \"" + iterationMs + " ms\",");
+				pw.println("        \"params\" : {");
+				pw.println("            \"game\" : \"" + jsonEscape(r.game) + "\"");
+				pw.println("        },");
+				pw.println("        \"primaryMetric\" : {");
+				pw.println("            \"score\" : " + num(r.score) + ",");
+				pw.println("            \"scoreError\" : " + num(r.scoreError) + ",");
+				pw.println("            \"scoreConfidence\" : [ " + num(r.score - r.scoreError) + ", "
+						+ num(r.score + r.scoreError) + " ],");
+				pw.println("            \"scoreUnit\" : \"ops/s\",");
+				pw.println("            \"rawData\" : [ [ " + raw + " ] ]");
+				pw.println("        },");
+				pw.println("        \"secondaryMetrics\" : {");
+				pw.println("        }");
+				pw.println("    }" + (k < results.size() - 1 ? "," : ""));
+			}
+			pw.println("]");
+		}
+	}
+
+	private static String num(double x) {
+		return Double.isNaN(x) ? "\"NaN\"" : String.format(Locale.UK, "%.6f", x);
+	}
+
+	private static String jsonEscape(String s) {
+		return s.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+}
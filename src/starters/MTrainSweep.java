@@ -312,9 +312,7 @@ public class MTrainSweep {
         gb.initialize();
         while (pa.getGameNum()<pa.getMaxGameNum())
         {
-            StateObservation so = soSelectStartState(gb,xab.oPar[n].getChooseStart01(), pa);
-
-            pa.trainAgent(so);
+            t_Game.m_xfun.trainEpisodes(pa, gb, xab.oPar[n].getChooseStart01(), numEval);
 
             gameNum = pa.getGameNum();
             if (gameNum%numEval==0 ) { //|| gameNum==1) {
@@ -375,16 +373,6 @@ public class MTrainSweep {
         return pa;
     }
 
-    private StateObservation soSelectStartState(GameBoard gb, boolean chooseStart01, PlayAgent pa) {
-        StateObservation so;
-        if (chooseStart01) {
-            so = gb.chooseStartState(pa);
-        } else {
-            so = gb.getDefaultStartState();
-        }
-        return so;
-    }
-
     protected PlayAgent wrapAgent(int n, PlayAgent pa, ParOther oPar, ParMaxN mPar, StateObservation so)
     {
         PlayAgent qa;
@@ -0,0 +1,133 @@
+package agentIO;
+
+import controllers.PlayAgent;
+import games.GameBoard;
+import games.StateObservation;
+import org.junit.Test;
+import starters.GBGBatch;
+import tools.Types;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test the binary agent file format {@link BinaryAgentFile}: Convert agents from {@code .agt.zip} to {@code .agt.bin}
+ * and back, load them (memory-mapped and not) via {@link LoadSaveGBG#loadGBGAgent(String)} and check that they
+ * produce identical value tables on the states of random games. Report file sizes and load times.
+ */
+public class BinaryAgentFileTest extends GBGBatch {
+    String[] gameArr = {"TicTacToe", "ConnectFour", "Othello", "Othello"};
+    String[] agtFileArr = {"multiTest.agt.zip", "TCL-EXP-NT3-al37-lam000-6000k-epsfin0.stub.agt.zip",
+            "TCL3-fixed6_250k-lam05_P4_H001-diff2-FAm.agt.zip", "MCTS-1000.zip.agt.zip"};
+    boolean[] deterministic = {true, true, true, false};
+    int numStates = 30;
+
+    @Test
+    public void roundTripTest() throws Exception {
+        Random rand = new Random(42);
+
+        for (int i = 0; i < gameArr.length; i++) {
+            String selectedGame = gameArr[i];
+            String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+            t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+            GameBoard gb = t_Game.makeGameBoard();
+            String zipPath = Types.GUI_DEFAULT_DIR_AGENT + "/" + selectedGame + "/" + agtFileArr[i];
+            File binFile = File.createTempFile("BinaryAgentFileTest", BinaryAgentFile.EXTENSION);
+            File zipFile2 = File.createTempFile("BinaryAgentFileTest", ".agt.zip");
+            binFile.deleteOnExit();
+            zipFile2.deleteOnExit();
+
+            long t0 = System.nanoTime();
+            PlayAgent pa = t_Game.tdAgentIO.loadGBGAgent(zipPath);
+            long t1 = System.nanoTime();
+            assert pa != null : "could not load " + zipPath;
+            assert !BinaryAgentFile.isBinaryAgentFile(new File(zipPath));
+
+            BinaryAgentFile.convert(zipPath, binFile.getPath());
+            assert BinaryAgentFile.isBinaryAgentFile(binFile);
+            long t2 = System.nanoTime();
+            PlayAgent pb = t_Game.tdAgentIO.loadGBGAgent(binFile.getPath());     // memory-mapped
+            long t3 = System.nanoTime();
+            PlayAgent pc = BinaryAgentFile.load(binFile.getPath(), false);
+            BinaryAgentFile.convert(binFile.getPath(), zipFile2.getPath());
+            PlayAgent pd = t_Game.tdAgentIO.loadGBGAgent(zipFile2.getPath());
+            for (PlayAgent p : new PlayAgent[]{pb, pc, pd}) {
+                assert p != null : "could not load converted agent";
+                assert p.getClass() == pa.getClass() : "agent class differs: " + p.getClass().getName();
+                assert p.stringDescr().equals(pa.stringDescr()) : "stringDescr differs";
+            }
+
+            if (deterministic[i]) {
+                int count = 0;
+                while (count < numStates) {
+                    StateObservation so = gb.getDefaultStartState();
+                    while (!so.isGameOver() && count < numStates) {
+                        double[] vt = pa.getNextAction2(so.partialState(), false, true).getVTable();
+                        for (PlayAgent p : new PlayAgent[]{pb, pc, pd})
+                            assert Arrays.equals(vt, p.getNextAction2(so.partialState(), false, true).getVTable())
+                                    : selectedGame + ": value table differs for " + so.stringDescr();
+                        count++;
+                        ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                        so.advance(acts.get(rand.nextInt(acts.size())));
+                    }
+                }
+            }
+
+            System.out.printf("[roundTripTest] %-12s %-52s: .agt.zip %9d bytes, load %7.1f ms | .agt.bin %9d bytes, load %7.1f ms%n",
+                    selectedGame, agtFileArr[i], new File(zipPath).length(), (t1 - t0) * 1e-6,
+                    binFile.length(), (t3 - t2) * 1e-6);
+        }
+    }
+
+    /**
+     * Save a memory-mapped agent onto its own file and load it again: the weights have to be intact.
+     */
+    @Test
+    public void saveMappedTest() throws Exception {
+        Random rand = new Random(42);
+        int i = 2;      // Othello
+        String selectedGame = gameArr[i];
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);
+        GameBoard gb = t_Game.makeGameBoard();
+        String zipPath = Types.GUI_DEFAULT_DIR_AGENT + "/" + selectedGame + "/" + agtFileArr[i];
+        File binFile = File.createTempFile("BinaryAgentFileTest", BinaryAgentFile.EXTENSION);
+        binFile.deleteOnExit();
+
+        PlayAgent pa = t_Game.tdAgentIO.loadGBGAgent(zipPath);
+        BinaryAgentFile.convert(zipPath, binFile.getPath());
+        long length = binFile.length();
+        PlayAgent pb = BinaryAgentFile.load(binFile.getPath(), true);
+        BinaryAgentFile.save(pb, binFile.getPath());        // overwrite the file pb is mapped from
+        assert binFile.length() == length : "file length differs after saving onto the mapped file";
+        PlayAgent pc = BinaryAgentFile.load(binFile.getPath(), true);
+
+        StateObservation so = gb.getDefaultStartState();
+        for (int count = 0; count < numStates && !so.isGameOver(); count++) {
+            double[] vt = pa.getNextAction2(so.partialState(), false, true).getVTable();
+            for (PlayAgent p : new PlayAgent[]{pb, pc})
+                assert Arrays.equals(vt, p.getNextAction2(so.partialState(), false, true).getVTable())
+                        : selectedGame + ": value table differs for " + so.stringDescr();
+            ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+            so.advance(acts.get(rand.nextInt(acts.size())));
+        }
+        System.out.println("[saveMappedTest] ... OK");
+    }
+
+    @Test
+    public void badFileTest() throws Exception {
+        File f = File.createTempFile("BinaryAgentFileTest", BinaryAgentFile.EXTENSION);
+        f.deleteOnExit();
+        assert !BinaryAgentFile.isBinaryAgentFile(f) : "empty file is no binary agent file";
+        boolean thrown = false;
+        try {
+            BinaryAgentFile.load(f.getPath(), true);
+        } catch (java.io.IOException e) {
+            thrown = true;
+        }
+        assert thrown : "loading an empty file should throw an IOException";
+        System.out.println("[badFileTest] ... OK");
+    }
+}
@@ -0,0 +1,91 @@
+package controllers.MCTS;
+
+import TournamentSystem.TSTimeStorage;
+import controllers.MCTSWrapper.MCTSWrapperAgent;
+import controllers.MCTSWrapper.stateApproximation.PlayAgentApproximator;
+import controllers.PlayAgent;
+import controllers.PlayAgtVector;
+import games.StateObservation;
+import games.XArenaFuncs;
+import org.junit.Test;
+import params.ParMCTS;
+import starters.GBGBatch;
+import tools.Types;
+
+/**
+ * Tests for the time-budgeted, anytime search of {@link MCTSWrapperAgent} and {@link MCTSAgentT}: the time per move
+ * has to stay within the budget (plus a tolerance for one iteration and the JVM), the search has to stop early when
+ * the best action is decided, and the achieved iterations per second are recorded in {@link TSTimeStorage}.
+ */
+public class AnytimeSearchTest extends GBGBatch {
+    String[] gameArr = {"Othello", "ConnectFour"};
+    String[] agtFileArr = {"TCL3-fixed6_250k-lam05_P4_H001-diff2-FAm.agt.zip",
+            "TCL-EXP-NT3-al37-lam000-6000k-epsfin0.stub.agt.zip"};
+    int[] budgetArr = {20, 50};
+    int maxIter = 1000000;      // practically no iteration limit, only the time budget counts
+    double toleranceMS = 100;   // tolerance for the last iteration, JIT and garbage collection
+
+    /**
+     * Play MCTSWrapperAgent with time budget against itself and check that the maximum time per move is within the
+     * budget (plus tolerance). Report the iterations per second and the share of moves stopped early.
+     */
+    @Test
+    public void wrapperTimeBudgetTest() throws Exception {
+        for (int g = 0; g < gameArr.length; g++) {
+            String selectedGame = gameArr[g];
+            String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+            t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+            PlayAgent pa = t_Game.tdAgentIO.loadGBGAgent(Types.GUI_DEFAULT_DIR_AGENT + "/" + selectedGame + "/" + agtFileArr[g]);
+            assert pa != null : "could not load " + agtFileArr[g];
+            StateObservation so = t_Game.makeGameBoard().getDefaultStartState();
+            for (int budget : budgetArr) {
+                MCTSWrapperAgent wa = new MCTSWrapperAgent(maxIter, 1.0, new PlayAgentApproximator(pa),
+                        "MCTS-Wrapped " + pa.getName(), -1);
+                wa.setTimeBudgetMS(budget);
+                TSTimeStorage[] times = {new TSTimeStorage(), new TSTimeStorage()};
+                XArenaFuncs.competeNPlayer(new PlayAgtVector(wa, wa), so, 1, 0, times);
+                checkTimes(selectedGame + ", MCTSWrapperAgent", budget, times);
+            }
+        }
+    }
+
+    /**
+     * The same for MCTSAgentT on TicTacToe, where many positions are decided early. In addition, without time budget
+     * the search has to perform exactly the given number of iterations.
+     */
+    @Test
+    public void mctsTimeBudgetTest() {
+        String selectedGame = "TicTacToe";
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+        StateObservation so = t_Game.makeGameBoard().getDefaultStartState();
+
+        ParMCTS parMCTS = new ParMCTS();
+        parMCTS.setNumIter(500);
+        MCTSAgentT mcts = new MCTSAgentT("MCTS", so, parMCTS);
+        mcts.getNextAction2(so.partialState(), false, true);
+        assert mcts.getLastIterations() == 500 : "without time budget: " + mcts.getLastIterations() + " iterations";
+
+        for (int budget : budgetArr) {
+            parMCTS = new ParMCTS();
+            parMCTS.setNumIter(maxIter);
+            parMCTS.setTimeBudgetMS(budget);
+            mcts = new MCTSAgentT("MCTS", so, parMCTS);
+            TSTimeStorage[] times = {new TSTimeStorage(), new TSTimeStorage()};
+            XArenaFuncs.competeNPlayer(new PlayAgtVector(mcts, mcts), so, 2, 0, times);
+            checkTimes(selectedGame + ", MCTSAgentT", budget, times);
+        }
+    }
+
+    private void checkTimes(String label, int budget, TSTimeStorage[] times) {
+        double maxMS = Math.max(times[0].getMaxTimeForGameMS(), times[1].getMaxTimeForGameMS());
+        double avgMS = (times[0].getAverageTimeForGameMS() + times[1].getAverageTimeForGameMS()) / 2;
+        double itPerSec = (times[0].getAverageIterationsPerSec() + times[1].getAverageIterationsPerSec()) / 2;
+        double minMS = Math.min(times[0].getMinTimeForGameMS(), times[1].getMinTimeForGameMS());
+        System.out.printf("[AnytimeSearchTest] %-30s budget=%3d ms: time/move avg %6.1f, min %6.1f, max %6.1f ms, " +
+                "%8.0f iterations/sec%n", label, budget, avgMS, minMS, maxMS, itPerSec);
+        assert maxMS < budget + toleranceMS : label + ": move took " + maxMS + " ms with budget " + budget + " ms";
+        assert itPerSec > 0 : label + ": no iterations per second recorded";
+        assert minMS < budget : label + ": no move stopped before the time budget";
+    }
+}
@@ -0,0 +1,63 @@
+package controllers.MCTS;
+
+import games.StateObservation;
+import org.junit.Test;
+import params.ParMCTS;
+import starters.GBGBatch;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests for the root-parallel ensemble of {@link MCTSAgentT} ({@link ParMCTS#getNumTrees()}): all trees have to
+ * perform their iterations and the returned action has to be the one with the best merged value. Report the
+ * iterations per second on Hex and Othello as a function of the number of trees.
+ */
+public class MCTSEnsembleTest extends GBGBatch {
+    String[] gameArr = {"Hex", "Othello"};
+    int numIter = 500;
+    int numStates = 4;
+
+    @Test
+    public void ensembleTest() {
+        Random rand = new Random(42);
+        System.out.println("[ensembleTest] " + Runtime.getRuntime().availableProcessors() + " cores");
+        for (String selectedGame : gameArr) {
+            String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+            t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+            StateObservation startSO = t_Game.makeGameBoard().getDefaultStartState();
+            ArrayList<StateObservation> states = new ArrayList<>();
+            while (states.size() < numStates) {
+                StateObservation so = startSO.copy();
+                int numMoves = 2 + rand.nextInt(8);
+                for (int m = 0; m < numMoves && !so.isGameOver(); m++) {
+                    ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                    so.advance(acts.get(rand.nextInt(acts.size())));
+                }
+                if (!so.isGameOver() && so.getNumAvailableActions() > 1) states.add(so);
+            }
+
+            MCTSAgentT warmUp = new MCTSAgentT("MCTS", startSO, new ParMCTS());
+            for (StateObservation so : states) warmUp.getNextAction2(so.partialState(), false, true);
+
+            for (int nTrees : new int[]{1, 2, 4, 8}) {
+                ParMCTS parMCTS = new ParMCTS();
+                parMCTS.setNumIter(numIter);
+                parMCTS.setNumTrees(nTrees);
+                MCTSAgentT mcts = new MCTSAgentT("MCTS", startSO, parMCTS);
+                long t0 = System.nanoTime();
+                for (StateObservation so : states) {
+                    Types.ACTIONS_VT act = mcts.getNextAction2(so.partialState(), false, true);
+                    assert mcts.getLastIterations() == nTrees * numIter : "iterations missing";
+                    double[] vTable = act.getVTable();
+                    int k = so.getAvailableActions().indexOf(act);
+                    for (double v : vTable) assert v <= vTable[k] : "action has not the best merged value";
+                    assert act.getVBest() == vTable[k] : "vBest is not the value of the action";
+                }
+                double perSec = (double) numStates * nTrees * numIter / ((System.nanoTime() - t0) * 1e-9);
+                System.out.printf("[ensembleTest] %-8s trees=%d: %8.0f iterations/sec%n", selectedGame, nTrees, perSec);
+            }
+        }
+    }
+}
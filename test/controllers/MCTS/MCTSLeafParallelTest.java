@@ -0,0 +1,68 @@
+package controllers.MCTS;
+
+import games.StateObservation;
+import org.junit.Test;
+import params.ParMCTS;
+import starters.GBGBatch;
+import tools.ElapsedCpuTimer;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests for the leaf-parallel rollouts of {@link SingleTreeNode} ({@link ParMCTS#getNumRollouts()}): each iteration
+ * has to play all its rollouts (in Othello and Sim every rollout ends with game over) and the search has to return a
+ * valid action. Report the rollouts per second as a function of the number of rollouts per leaf.
+ */
+public class MCTSLeafParallelTest extends GBGBatch {
+    String[] gameArr = {"Othello", "Sim"};
+    int numIter = 300;
+    int numStates = 4;
+
+    @Test
+    public void leafParallelTest() {
+        Random rand = new Random(42);
+        System.out.println("[leafParallelTest] " + Runtime.getRuntime().availableProcessors() + " cores");
+        for (String selectedGame : gameArr) {
+            String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+            t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+            StateObservation startSO = t_Game.makeGameBoard().getDefaultStartState();
+            ArrayList<StateObservation> states = new ArrayList<>();
+            while (states.size() < numStates) {
+                StateObservation so = startSO.copy();
+                int numMoves = 2 + rand.nextInt(6);
+                for (int m = 0; m < numMoves && !so.isGameOver(); m++) {
+                    ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                    so.advance(acts.get(rand.nextInt(acts.size())));
+                }
+                if (!so.isGameOver() && so.getNumAvailableActions() > 1) states.add(so.partialState());
+            }
+
+            for (int rep = 0; rep < 2; rep++) {     // rep 0 is warm-up
+                for (int nRollouts : new int[]{1, 2, 4, 8}) {
+                    ParMCTS parMCTS = new ParMCTS();
+                    parMCTS.setNumIter(numIter);
+                    parMCTS.setNumRollouts(nRollouts);
+                    MCTSAgentT mcts = new MCTSAgentT("MCTS", startSO, parMCTS);
+                    SingleMCTSPlayer player = new SingleMCTSPlayer(mcts, new Random(42), parMCTS);
+                    long t0 = System.nanoTime();
+                    for (StateObservation so : states) {
+                        double[] vTable = new double[so.getNumAvailableActions() + 1];
+                        player.initActions(so);
+                        player.init(so);
+                        int action = player.run(new ElapsedCpuTimer(), vTable);
+                        assert action >= 0 && action < so.getNumAvailableActions() : "invalid action " + action;
+                        assert player.getNRolloutFinished() == numIter * nRollouts :
+                                "rollouts missing: " + player.getNRolloutFinished();
+                        for (double v : vTable) assert v <= vTable[vTable.length - 1] : "vTable[K] is not the maximum";
+                    }
+                    double perSec = (double) numStates * numIter * nRollouts / ((System.nanoTime() - t0) * 1e-9);
+                    if (rep == 1)
+                        System.out.printf("[leafParallelTest] %-8s rollouts=%d: %8.0f rollouts/sec%n",
+                                selectedGame, nRollouts, perSec);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package controllers.MCTS;
+
+import games.StateObservation;
+import org.junit.Test;
+import params.ParMCTS;
+import starters.GBGBatch;
+import tools.ElapsedCpuTimer;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests for the node cap ({@link ParMCTS#getMaxNodes()}) and for the trees without stored states
+ * ({@link ParMCTS#getStoreStates()}) of {@link SingleMCTSPlayer}: the tree may not grow beyond the cap, and a search
+ * without stored states has to give exactly the same tree statistics as the search with stored states (same seed).
+ * Report the time and the heap increase per search for both variants.
+ */
+public class MCTSNodeCapTest extends GBGBatch {
+    String[] gameArr = {"TicTacToe", "ConnectFour", "Hex"};
+    int numIter = 2000;
+    int numStates = 4;
+
+    @Test
+    public void nodeCapTest() {
+        for (String selectedGame : gameArr) {
+            ArrayList<StateObservation> states = makeStates(selectedGame);
+            for (int maxNodes : new int[]{0, 100, 500}) {
+                ParMCTS parMCTS = new ParMCTS();
+                parMCTS.setNumIter(numIter);
+                parMCTS.setMaxNodes(maxNodes);
+                int nodes = 0;
+                for (StateObservation so : states) {
+                    SingleMCTSPlayer player = search(so, parMCTS, 42, new double[so.getNumAvailableActions() + 1]);
+                    assert player.getLastIterations() == numIter : "iterations missing";
+                    if (maxNodes > 0)
+                        assert player.getNumTreeNodes() <= maxNodes : "node cap exceeded: " + player.getNumTreeNodes();
+                    nodes = Math.max(nodes, player.getNumTreeNodes());
+                }
+                if (maxNodes > 0) assert nodes == maxNodes : "tree did not grow up to the cap";
+                System.out.printf("[nodeCapTest] %-12s maxNodes=%4d: at most %5d nodes%n", selectedGame, maxNodes, nodes);
+            }
+        }
+    }
+
+    @Test
+    public void storeStatesTest() {
+        Runtime rt = Runtime.getRuntime();
+        for (String selectedGame : gameArr) {
+            ArrayList<StateObservation> states = makeStates(selectedGame);
+            for (StateObservation so : states) {
+                double[][] vTable = new double[2][so.getNumAvailableActions() + 1];
+                int[] action = new int[2];
+                for (int s = 0; s < 2; s++) {
+                    ParMCTS parMCTS = new ParMCTS();
+                    parMCTS.setNumIter(numIter);
+                    parMCTS.setStoreStates(s == 0);
+                    action[s] = newPlayer(so, parMCTS, 42).run(new ElapsedCpuTimer(), vTable[s]);
+                }
+                assert action[0] == action[1] : "actions differ with and without stored states";
+                for (int i = 0; i < vTable[0].length; i++)
+                    assert vTable[0][i] == vTable[1][i] : "vTable differs with and without stored states";
+            }
+
+            for (boolean storeStates : new boolean[]{true, false}) {
+                ParMCTS parMCTS = new ParMCTS();
+                parMCTS.setNumIter(numIter);
+                parMCTS.setStoreStates(storeStates);
+                long bytes = 0;
+                long t0 = System.nanoTime();
+                for (StateObservation so : states) {
+                    System.gc();
+                    long used = rt.totalMemory() - rt.freeMemory();
+                    SingleMCTSPlayer player = search(so, parMCTS, 42, new double[so.getNumAvailableActions() + 1]);
+                    System.gc();
+                    bytes += rt.totalMemory() - rt.freeMemory() - used;
+                    assert player.getNumTreeNodes() > 1;
+                }
+                double ms = (System.nanoTime() - t0) * 1e-6 / numStates;
+                System.out.printf("[storeStatesTest] %-12s storeStates=%-5b: %7.1f ms, %7.1f kB per search%n",
+                        selectedGame, storeStates, ms, bytes / 1024.0 / numStates);
+            }
+        }
+    }
+
+    /**
+     * Tree reuse without stored states: the subtree for the moves played is reused only if it belongs to the
+     * actual state, not for another state with the same last move, player to move and number of actions.
+     */
+    @Test
+    public void reuseTest() {
+        String selectedGame = "TicTacToe";
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);
+        StateObservation startSO = t_Game.makeGameBoard().getDefaultStartState();
+        for (boolean storeStates : new boolean[]{true, false}) {
+            ParMCTS parMCTS = new ParMCTS();
+            parMCTS.setNumIter(numIter);
+            parMCTS.setStoreStates(storeStates);
+            StateObservation so = advance(startSO, 0);
+            MCTSAgentT mcts = new MCTSAgentT("MCTS", so, parMCTS);
+            SingleMCTSPlayer player = new SingleMCTSPlayer(mcts, new Random(42), parMCTS);
+            player.initActions(so);
+            player.initReuse(so);
+            player.run(new ElapsedCpuTimer(), new double[so.getNumAvailableActions() + 1]);
+
+            // X at 4, O at 1: the same last move as X at 0, O at 1, but another state
+            player.initReuse(advance(startSO, 4, 1));
+            assert player.getLastReusedNodes() == 0 : "subtree of another state reused";
+
+            player.initReuse(so);
+            player.run(new ElapsedCpuTimer(), new double[so.getNumAvailableActions() + 1]);
+            player.initReuse(advance(startSO, 0, 1));
+            assert player.getLastReusedNodes() > 1 : "subtree not reused";
+            System.out.printf("[reuseTest] %-12s storeStates=%-5b: %5d nodes reused ... OK%n",
+                    selectedGame, storeStates, player.getLastReusedNodes());
+        }
+    }
+
+    private static StateObservation advance(StateObservation so, int... moves) {
+        so = so.copy();
+        for (int m : moves) so.advance(Types.ACTIONS.fromInt(m));
+        return so;
+    }
+
+    /**
+     * @return a player with seed {@code seed} after one search for {@code so} (the tree is kept in the player)
+     */
+    private SingleMCTSPlayer search(StateObservation so, ParMCTS parMCTS, long seed, double[] vTable) {
+        SingleMCTSPlayer player = newPlayer(so, parMCTS, seed);
+        player.run(new ElapsedCpuTimer(), vTable);
+        return player;
+    }
+
+    /**
+     * @return a player with seed {@code seed} and a new tree for {@code so}
+     */
+    private SingleMCTSPlayer newPlayer(StateObservation so, ParMCTS parMCTS, long seed) {
+        MCTSAgentT mcts = new MCTSAgentT("MCTS", so, parMCTS);
+        SingleMCTSPlayer player = new SingleMCTSPlayer(mcts, new Random(seed), parMCTS);
+        player.initActions(so);
+        player.init(so);
+        return player;
+    }
+
+    private ArrayList<StateObservation> makeStates(String selectedGame) {
+        Random rand = new Random(42);
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+        StateObservation startSO = t_Game.makeGameBoard().getDefaultStartState();
+        ArrayList<StateObservation> states = new ArrayList<>();
+        while (states.size() < numStates) {
+            StateObservation so = startSO.copy();
+            int numMoves = rand.nextInt(4);
+            for (int m = 0; m < numMoves && !so.isGameOver(); m++) {
+                ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                so.advance(acts.get(rand.nextInt(acts.size())));
+            }
+            if (!so.isGameOver() && so.getNumAvailableActions() > 1) states.add(so.partialState());
+        }
+        return states;
+    }
+}
@@ -0,0 +1,102 @@
+package controllers.MCTS;
+
+import controllers.PlayAgtVector;
+import games.StateObservation;
+import games.XArenaFuncs;
+import org.junit.Test;
+import params.ParMCTS;
+import starters.GBGBatch;
+import tools.ScoreTuple;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests for the subtree reuse of {@link MCTSAgentT} ({@link ParMCTS#getReuseTree()}): the reused subtree has to be
+ * consistent and has to be dropped when it exceeds the node cap, and MCTSAgentT with reuse and half the iterations
+ * is compared with MCTSAgentT without reuse.
+ */
+public class MCTSReuseTreeTest extends GBGBatch {
+
+    /**
+     * Play episodes of MCTSAgentT with reuse against a random agent. The agent has to reuse nodes of its last tree
+     * (the root visits of the reused tree are checked by the assertions in SingleTreeNode.mctsSearch). With a node
+     * cap of 1, no nodes may be reused.
+     */
+    @Test
+    public void reuseTest() {
+        String[] gameArr = {"TicTacToe", "ConnectFour"};
+        int oldMax = SingleMCTSPlayer.MAX_REUSE_NODES;
+        Random rand = new Random(42);
+        try {
+            for (String selectedGame : gameArr) {
+                String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+                t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+                StateObservation startSO = t_Game.makeGameBoard().getDefaultStartState();
+                ParMCTS parMCTS = new ParMCTS();
+                parMCTS.setNumIter(1000);
+                parMCTS.setReuseTree(true);
+                MCTSAgentT mcts = new MCTSAgentT("MCTS", startSO, parMCTS);
+
+                for (int maxNodes : new int[]{oldMax, 1}) {
+                    SingleMCTSPlayer.MAX_REUSE_NODES = maxNodes;
+                    long reused = 0;
+                    int moves = 0;
+                    for (int k = 0; k < 4; k++) {
+                        mcts.resetAgent();
+                        StateObservation so = startSO.copy();
+                        while (!so.isGameOver()) {
+                            if (so.getPlayer() == k % 2) {
+                                so.advance(mcts.getNextAction2(so.partialState(), false, true));
+                                int n = mcts.getLastReusedNodes();
+                                if (maxNodes == 1) assert n == 0 : "node cap exceeded";
+                                reused += n;
+                                moves++;
+                            } else {
+                                ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                                so.advance(acts.get(rand.nextInt(acts.size())));
+                            }
+                        }
+                    }
+                    if (maxNodes > 1) assert reused > 0 : selectedGame + ": no nodes reused";
+                    System.out.printf("[reuseTest] %-12s cap=%7d: %.1f nodes reused per move%n",
+                            selectedGame, maxNodes, (double) reused / moves);
+                }
+            }
+        } finally {
+            SingleMCTSPlayer.MAX_REUSE_NODES = oldMax;
+        }
+    }
+
+    /**
+     * MCTSAgentT with reuse and {@code iter/2} iterations plays against MCTSAgentT without reuse and {@code iter}
+     * iterations on ConnectFour, in both roles. Reported is the score of the reuse agent (0.5: equal strength).
+     */
+    @Test
+    public void strengthTest() {
+        String selectedGame = "ConnectFour";
+        int iter = 2000;
+        int numEpisodes = 5;
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+        StateObservation so = t_Game.makeGameBoard().getDefaultStartState();
+
+        ParMCTS parReuse = new ParMCTS();
+        parReuse.setNumIter(iter / 2);
+        parReuse.setReuseTree(true);
+        ParMCTS parPlain = new ParMCTS();
+        parPlain.setNumIter(iter);
+        MCTSAgentT reuse = new MCTSAgentT("MCTS-reuse", so, parReuse);
+        MCTSAgentT plain = new MCTSAgentT("MCTS", so, parPlain);
+
+        double score = 0;
+        for (int p = 0; p < 2; p++) {       // p: role of the reuse agent
+            PlayAgtVector paVector = new PlayAgtVector(reuse, plain).shift(p);
+            ScoreTuple sc = XArenaFuncs.competeNPlayer(paVector, so, numEpisodes, 0, null);
+            score += (sc.scTup[p] + 1) / 4;
+        }
+        System.out.printf("[strengthTest] %s: score of reuse agent (iter=%d) vs. agent without reuse (iter=%d): %.2f%n",
+                selectedGame, iter / 2, iter, score);
+    }
+}
@@ -0,0 +1,69 @@
+package controllers.MCTSExpectimax;
+
+import games.StateObservation;
+import org.junit.Test;
+import params.ParMCTSE;
+import starters.GBGBatch;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests for the root-parallel ensemble of {@link MCTSExpectimaxAgt} ({@link ParMCTSE#getNumTrees()}) on 2048: all
+ * trees have to perform their iterations, the root statistics of each tree have to be consistent and the returned
+ * action has to be the one with the best merged value. Report the iterations per second as a function of the number
+ * of trees.
+ */
+public class MCTSEEnsembleTest extends GBGBatch {
+    String selectedGame = "2048";
+    int numIter = 1000;
+    int numStates = 5;
+
+    @Test
+    public void ensembleTest() {
+        Random rand = new Random(42);
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+        StateObservation startSO = t_Game.makeGameBoard().getDefaultStartState();
+        ArrayList<StateObservation> states = new ArrayList<>();
+        while (states.size() < numStates) {
+            StateObservation so = startSO.copy();
+            int numMoves = 20 + rand.nextInt(100);
+            for (int m = 0; m < numMoves && !so.isGameOver(); m++) {
+                ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                so.advance(acts.get(rand.nextInt(acts.size())));
+            }
+            if (!so.isGameOver() && so.getNumAvailableActions() > 1) states.add(so);
+        }
+        System.out.println("[ensembleTest] " + Runtime.getRuntime().availableProcessors() + " cores");
+
+        for (int rep = 0; rep < 2; rep++) {     // rep 0 is warm-up
+            for (int nTrees : new int[]{1, 2, 4, 8}) {
+                ParMCTSE parMCTSE = new ParMCTSE();
+                parMCTSE.setNumIter(numIter);
+                parMCTSE.setNumTrees(nTrees);
+                MCTSExpectimaxAgt mctse = new MCTSExpectimaxAgt("MCTS Expectimax", parMCTSE);
+                long t0 = System.nanoTime();
+                for (StateObservation so : states) {
+                    Types.ACTIONS_VT act = mctse.getNextAction2(so.partialState(), false, true);
+                    MCTSEChanceNode root = mctse.getPlayer().getRootNode();
+                    assert root.iterations == numIter : "iterations missing in the first tree";
+                    int cVisits = 0;
+                    for (int i = 0; i < root.numChildren; i++) cVisits += root.childrenNodes[i].visits;
+                    assert cVisits == root.visits : "children visits do not match the root visits";
+                    int k = so.getAvailableActions().indexOf(act);
+                    assert k >= 0 : "action " + act.toInt() + " is not available";
+                    if (nTrees > 1) {
+                        double[] vTable = act.getVTable();
+                        for (double v : vTable) assert v <= vTable[k] : "action has not the best merged value";
+                        assert act.getVBest() == vTable[k] : "vBest is not the value of the action";
+                    }
+                }
+                double perSec = (double) numStates * nTrees * numIter / ((System.nanoTime() - t0) * 1e-9);
+                if (rep == 1)
+                    System.out.printf("[ensembleTest] %s trees=%d: %8.0f iterations/sec%n", selectedGame, nTrees, perSec);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package controllers.MCTSWrapper;
+
+import controllers.MCTSWrapper.passStates.GameStateIncludingPass;
+import controllers.MCTSWrapper.stateApproximation.Approximator;
+import controllers.MCTSWrapper.stateApproximation.PlayAgentApproximator;
+import controllers.PlayAgent;
+import games.GameBoard;
+import games.StateObservation;
+import org.junit.Test;
+import starters.GBGBatch;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests for the search with batched leaf evaluation {@link MCTS#searchBatch(MCTSNode, int, int)}: batch size 1 has to
+ * give exactly the sequential search, larger batches have to leave a consistent tree. Report the iterations per
+ * second on Othello as a function of the batch size.
+ */
+public class MCTSBatchSearchTest extends GBGBatch {
+    String selectedGame = "Othello";
+    String agtFile = "TCL3-fixed6_250k-lam05_P4_H001-diff2-FAm.agt.zip";
+    int numStates = 5;
+    int iterations = 1000;
+    double c_puct = 1.0;
+
+    @Test
+    public void batchSearchTest() throws Exception {
+        Random rand = new Random(42);
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+        GameBoard gb = t_Game.makeGameBoard();
+        PlayAgent pa = t_Game.tdAgentIO.loadGBGAgent(Types.GUI_DEFAULT_DIR_AGENT + "/" + selectedGame + "/" + agtFile);
+        assert pa != null : "could not load " + agtFile;
+        Approximator approximator = new PlayAgentApproximator(pa);
+        MCTS mcts = new MCTS(approximator, c_puct, -1);
+
+        ArrayList<StateObservation> states = new ArrayList<>();
+        while (states.size() < numStates) {
+            StateObservation so = gb.getDefaultStartState();
+            int numMoves = 10 + rand.nextInt(30);
+            for (int m = 0; m < numMoves && !so.isGameOver(); m++) {
+                ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                if (acts.size() > 0) so.advance(acts.get(rand.nextInt(acts.size())));
+                else so.passToNextPlayer();
+            }
+            if (!so.isGameOver() && so.getNumAvailableActions() > 0) states.add(so);
+        }
+
+        // batch size 1 is the sequential search
+        for (StateObservation so : states) {
+            MCTSNode seq = new MCTSNode(new GameStateIncludingPass(so));
+            for (int i = 0; i < iterations; i++) mcts.search(seq, 0);
+            MCTSNode bat = new MCTSNode(new GameStateIncludingPass(so));
+            mcts.searchBatch(bat, iterations, 1);
+            for (int i = 0; i < so.getNumAvailableActions(); i++) {
+                assert seq.getN(i) == bat.getN(i) : "N differs for batch size 1";
+                assert seq.getQ(i) == bat.getQ(i) : "Q differs for batch size 1";
+            }
+        }
+
+        for (int batchSize : new int[]{1, 4, 8, 16, 32}) {
+            for (int rep = 0; rep < 2; rep++) {     // rep 0 is warm-up
+                long t0 = System.nanoTime();
+                for (StateObservation so : states) {
+                    MCTSNode root = new MCTSNode(new GameStateIncludingPass(so));
+                    mcts.searchBatch(root, iterations, batchSize);
+                    checkNode(root);
+                }
+                double perSec = numStates * iterations / ((System.nanoTime() - t0) * 1e-9);
+                if (rep == 1)
+                    System.out.printf("[batchSearchTest] %s, batch size %2d: %8.0f iterations/sec (%d cores)%n",
+                            selectedGame, batchSize, perSec, Runtime.getRuntime().availableProcessors());
+            }
+        }
+    }
+
+    /**
+     * No virtual loss is left and N(s) is the sum of N(s,a) in all nodes of the tree
+     */
+    private void checkNode(MCTSNode node) {
+        if (!node.isExpanded()) return;
+        int sum = 0;
+        for (int i = 0; i < node.gameState.getAvailableActionsIncludingPassActions().length; i++) {
+            assert node.getVirtualLoss(i) == 0 : "virtual loss left after search";
+            sum += node.getN(i);
+            if (node.getChild(i) != null) checkNode(node.getChild(i));
+        }
+        assert sum == node.getTotalVisits() : "N(s) differs from sum of N(s,a)";
+    }
+}
@@ -0,0 +1,145 @@
+package controllers.MCTSWrapper;
+
+import controllers.MCTSWrapper.passStates.ApplicableAction;
+import controllers.MCTSWrapper.passStates.GameStateIncludingPass;
+import controllers.MCTSWrapper.stateApproximation.Approximator;
+import controllers.MCTSWrapper.stateApproximation.PlayAgentApproximator;
+import controllers.PlayAgent;
+import games.GameBoard;
+import games.StateObservation;
+import org.junit.Test;
+import starters.GBGBatch;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test that {@link MCTSNode} with its primitive slot arrays performs exactly the same search as the former
+ * {@code HashMap}-based node, which is reproduced here in {@link RefNode} and {@link #refSearch(RefNode)}.
+ * Report the time per MCTS iteration for both.
+ */
+public class MCTSNodeTest extends GBGBatch {
+    String selectedGame = "Othello";
+    String agtFile = "TCL3-fixed6_250k-lam05_P4_H001-diff2-FAm.agt.zip";
+    int numStates = 10;
+    int iterations = 1000;
+    double c_puct = 1.0;
+
+    @Test
+    public void sameSearchTest() throws Exception {
+        Random rand = new Random(42);
+        double oldEPS = ConfigWrapper.EPS;
+
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+        GameBoard gb = t_Game.makeGameBoard();
+        PlayAgent pa = t_Game.tdAgentIO.loadGBGAgent(Types.GUI_DEFAULT_DIR_AGENT + "/" + selectedGame + "/" + agtFile);
+        assert pa != null : "could not load " + agtFile;
+        Approximator approximator = new PlayAgentApproximator(pa);
+        MCTS mcts = new MCTS(approximator, c_puct, -1);
+
+        // random states in the middle of an Othello game
+        ArrayList<StateObservation> states = new ArrayList<>();
+        while (states.size() < numStates) {
+            StateObservation so = gb.getDefaultStartState();
+            int numMoves = 10 + rand.nextInt(30);
+            for (int m = 0; m < numMoves && !so.isGameOver(); m++) {
+                ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                if (acts.size() > 0) so.advance(acts.get(rand.nextInt(acts.size())));
+                else so.passToNextPlayer();
+            }
+            if (!so.isGameOver() && so.getNumAvailableActions() > 0) states.add(so);
+        }
+
+        long newTime = 0, refTime = 0;
+        try {
+            for (double EPS : new double[]{1e-8, 0.0}) {
+                ConfigWrapper.EPS = EPS;
+                for (StateObservation so : states) {
+                    this.approximator = approximator;
+                    RefNode ref = new RefNode(new GameStateIncludingPass(so));
+                    long t0 = System.nanoTime();
+                    for (int i = 0; i < iterations; i++) refSearch(ref);
+                    long t1 = System.nanoTime();
+                    MCTSNode node = new MCTSNode(new GameStateIncludingPass(so));
+                    for (int i = 0; i < iterations; i++) mcts.search(node, 0);
+                    long t2 = System.nanoTime();
+                    refTime += t1 - t0;
+                    newTime += t2 - t1;
+
+                    ApplicableAction[] acts = node.gameState.getAvailableActionsIncludingPassActions();
+                    int sum = 0;
+                    for (int i = 0; i < acts.length; i++) {
+                        int id = acts[i].getId();
+                        assert node.getN(i) == ref.visitCounts.getOrDefault(id, 0) : "N differs for action " + id;
+                        assert node.getQ(i) == ref.meanValues.getOrDefault(id, 0.0) : "Q differs for action " + id;
+                        sum += node.getN(i);
+                    }
+                    assert sum == node.getTotalVisits() : "cached N(s) differs from sum of N(s,a)";
+                    int best = node.mostVisitedSlot();
+                    int maxN = ref.visitCounts.values().stream().max(Integer::compare).orElseThrow();
+                    assert node.getN(best) == maxN : "mostVisitedSlot is not a most visited action";
+                }
+            }
+        } finally {
+            ConfigWrapper.EPS = oldEPS;
+        }
+        System.out.printf("[sameSearchTest] %d states x 2 EPS x %d iterations: HashMap node %.2f us/iter, " +
+                        "array node %.2f us/iter%n", numStates, iterations,
+                refTime * 1e-3 / (2 * numStates * iterations), newTime * 1e-3 / (2 * numStates * iterations));
+    }
+
+    // --- reference: the former HashMap-based node and the corresponding search ---
+
+    private Approximator approximator;
+
+    private static final class RefNode {
+        final GameStateIncludingPass gameState;
+        final Map<Integer, RefNode> childNodes = new HashMap<>();
+        final Map<Integer, Double> moveProbabilities = new HashMap<>();
+        final Map<Integer, Double> meanValues = new HashMap<>();
+        final Map<Integer, Integer> visitCounts = new HashMap<>();
+        boolean expanded;
+
+        RefNode(GameStateIncludingPass gameState) {
+            this.gameState = gameState;
+        }
+    }
+
+    private double refSearch(RefNode node) {
+        final int sign = node.gameState.getNumPlayers() == 1 ? (+1) : (-1);
+        if (node.gameState.isFinalGameState())
+            return sign * node.gameState.getFinalGameScore();
+        if (!node.expanded) {
+            var vp = node.gameState.getApproximatedValueAndMoveProbabilities(approximator);
+            var actions = node.gameState.getAvailableActionsIncludingPassActions();
+            for (int i = 0; i < vp.element2.length; i++) node.moveProbabilities.put(actions[i].getId(), vp.element2[i]);
+            node.expanded = true;
+            return sign * vp.element1;
+        }
+
+        var bestValue = Double.NEGATIVE_INFINITY;
+        ApplicableAction bestAction = null;
+        for (final var a : node.gameState.getAvailableActionsIncludingPassActions()) {
+            var value = node.meanValues.getOrDefault(a.getId(), 0.0) + c_puct * node.moveProbabilities.getOrDefault(a.getId(), 0.0)
+                    * Math.sqrt(node.visitCounts.values().stream().mapToInt(it -> it).sum() + ConfigWrapper.EPS)
+                    / (1 + node.visitCounts.getOrDefault(a.getId(), 0));
+            if (value > bestValue) {
+                bestValue = value;
+                bestAction = a;
+            }
+        }
+        final var action = bestAction;
+        RefNode child = node.childNodes.computeIfAbsent(action.getId(), id -> new RefNode(node.gameState.advance(action)));
+
+        final var childValue = refSearch(child);
+        final int visitCount = node.visitCounts.getOrDefault(action.getId(), 0);
+        final double meanValue = node.meanValues.getOrDefault(action.getId(), 0.0);
+        node.meanValues.put(action.getId(), (visitCount * meanValue + childValue) / (visitCount + 1));
+        node.visitCounts.put(action.getId(), visitCount + 1);
+        return sign * childValue;
+    }
+}
@@ -0,0 +1,136 @@
+package controllers.MCTSWrapper;
+
+import TournamentSystem.TSTimeStorage;
+import controllers.MCTSWrapper.passStates.GameStateIncludingPass;
+import controllers.MCTSWrapper.stateApproximation.Approximator;
+import controllers.MCTSWrapper.stateApproximation.PlayAgentApproximator;
+import controllers.PlayAgent;
+import controllers.PlayAgtVector;
+import games.GameBoard;
+import games.StateObservation;
+import games.XArenaFuncs;
+import org.junit.Test;
+import starters.GBGBatch;
+import tools.ScoreTuple;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests for the tree-parallel search of {@link MCTSWrapperAgent} ({@link MCTS#searchParallel(MCTSNode, int, int)}):
+ * consistency of the tree statistics after a parallel search and a benchmark of playing strength against wall-clock
+ * time on Othello and ConnectFour.
+ */
+public class MCTSWrapperParallelTest extends GBGBatch {
+    String[] gameArr = {"Othello", "ConnectFour"};
+    String[] agtFileArr = {"TCL3-fixed6_250k-lam05_P4_H001-diff2-FAm.agt.zip",
+            "TCL-EXP-NT3-al37-lam000-6000k-epsfin0.stub.agt.zip"};
+    double c_puct = 1.0;
+
+    /**
+     * After a parallel search with several threads, each node must look as after a sequential search: no virtual
+     * loss is left, N(s) is the sum of N(s,a), and a child reached N(s,a) times was expanded once and visited
+     * N(s,a)-1 times (unless it is a final state). The root is visited iterations-1 times.
+     */
+    @Test
+    public void treeConsistencyTest() throws Exception {
+        int iterations = 2000;
+        Random rand = new Random(42);
+        for (int g = 0; g < gameArr.length; g++) {
+            PlayAgent pa = loadAgent(gameArr[g], agtFileArr[g]);
+            Approximator approximator = new PlayAgentApproximator(pa);
+            GameBoard gb = t_Game.makeGameBoard();
+            MCTS mcts = new MCTS(approximator, c_puct, -1);
+            for (int nThreads : new int[]{1, 4}) {
+                StateObservation so = randomState(gb, rand);
+                MCTSNode root = new MCTSNode(new GameStateIncludingPass(so));
+                mcts.searchParallel(root, iterations, nThreads);
+                assert root.getTotalVisits() == iterations - 1 : "root visited " + root.getTotalVisits() + " times";
+                int numNodes = checkNode(root);
+                System.out.println("[treeConsistencyTest] " + gameArr[g] + ", nThreads=" + nThreads + ": "
+                        + numNodes + " nodes ... OK");
+            }
+        }
+    }
+
+    private int checkNode(MCTSNode node) {
+        int numNodes = 1;
+        if (!node.isExpanded()) return numNodes;
+        int sum = 0;
+        for (int i = 0; i < node.gameState.getAvailableActionsIncludingPassActions().length; i++) {
+            assert node.getVirtualLoss(i) == 0 : "virtual loss left after search";
+            sum += node.getN(i);
+            MCTSNode child = node.getChild(i);
+            if (child == null) {
+                assert node.getN(i) == 0 : "visited action without child";
+                continue;
+            }
+            if (!child.gameState.isFinalGameState())
+                assert child.getTotalVisits() == node.getN(i) - 1 : "child visits do not match N(s,a)";
+            numNodes += checkNode(child);
+        }
+        assert sum == node.getTotalVisits() : "N(s) differs from sum of N(s,a)";
+        return numNodes;
+    }
+
+    /**
+     * Benchmark playing strength against wall-clock time: A sequential MCTSWrapperAgent with {@code baseIter}
+     * iterations plays against MCTSWrapperAgents with {@code nThreads} threads and {@code nThreads*baseIter}
+     * iterations (same wall-clock time per move on {@code nThreads} idle cores), in both roles. Reported are the win
+     * rate of the parallel agent and the time per move of both agents. On a machine with fewer cores than
+     * {@code nThreads} the time per move of the parallel agent grows accordingly.
+     */
+    @Test
+    public void strengthVsTimeBenchmark() throws Exception {
+        int baseIter = 100;
+        int numEpisodes = 2;
+        int[] threadsArr = {1, 2, 4, 8};
+        System.out.println("[strengthVsTimeBenchmark] " + Runtime.getRuntime().availableProcessors() + " cores");
+        for (int g = 0; g < gameArr.length; g++) {
+            PlayAgent pa = loadAgent(gameArr[g], agtFileArr[g]);
+            StateObservation so = t_Game.makeGameBoard().getDefaultStartState();
+            MCTSWrapperAgent base = new MCTSWrapperAgent(baseIter, c_puct, new PlayAgentApproximator(pa),
+                    "MCTS-Wrapped " + pa.getName(), -1);
+            for (int nThreads : threadsArr) {
+                MCTSWrapperAgent par = new MCTSWrapperAgent(nThreads * baseIter, c_puct,
+                        new PlayAgentApproximator(pa), "MCTS-Wrapped " + pa.getName(), -1, nThreads);
+                double winrate = 0;
+                TSTimeStorage[] times = {new TSTimeStorage(), new TSTimeStorage()};
+                for (int p = 0; p < 2; p++) {       // p: role of the parallel agent
+                    PlayAgtVector paVector = new PlayAgtVector(par, base).shift(p);
+                    TSTimeStorage[] roleTimes = {new TSTimeStorage(), new TSTimeStorage()};
+                    ScoreTuple sc = XArenaFuncs.competeNPlayer(paVector, so, numEpisodes, 0, roleTimes);
+                    winrate += (sc.scTup[p] + 1) / 4;
+                    times[0] = (p == 0) ? roleTimes[0] : roleTimes[1];
+                    times[1] = (p == 0) ? roleTimes[1] : roleTimes[0];
+                }
+                System.out.printf("[strengthVsTimeBenchmark] %-12s threads=%d, iter=%4d: winrate vs. iter=%d: %.2f, " +
+                                "%.1f ms/move (sequential: %.1f ms/move)%n", gameArr[g], nThreads, nThreads * baseIter,
+                        baseIter, winrate, times[0].getAverageTimeForGameMS(), times[1].getAverageTimeForGameMS());
+            }
+        }
+    }
+
+    private PlayAgent loadAgent(String selectedGame, String agtFile) throws Exception {
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+        PlayAgent pa = t_Game.tdAgentIO.loadGBGAgent(Types.GUI_DEFAULT_DIR_AGENT + "/" + selectedGame + "/" + agtFile);
+        assert pa != null : "could not load " + agtFile;
+        return pa;
+    }
+
+    private StateObservation randomState(GameBoard gb, Random rand) {
+        StateObservation so;
+        do {
+            so = gb.getDefaultStartState();
+            int numMoves = 5 + rand.nextInt(10);
+            for (int m = 0; m < numMoves && !so.isGameOver(); m++) {
+                ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                if (acts.size() > 0) so.advance(acts.get(rand.nextInt(acts.size())));
+                else so.passToNextPlayer();
+            }
+        } while (so.isGameOver() || so.getNumAvailableActions() == 0);
+        return so;
+    }
+}
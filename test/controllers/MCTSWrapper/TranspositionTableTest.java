@@ -0,0 +1,150 @@
+package controllers.MCTSWrapper;
+
+import controllers.MCTSWrapper.stateApproximation.Approximator;
+import controllers.MCTSWrapper.stateApproximation.PlayAgentApproximator;
+import controllers.MCTSWrapper.utils.Tuple;
+import controllers.PlayAgent;
+import games.GameBoard;
+import games.StateObservation;
+import org.junit.Test;
+import starters.GBGBatch;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Tests for {@link TranspositionTable} in {@link MCTSWrapperAgent}: the table itself (lookup, bounded size,
+ * replacement of the less visited node) and the approximator calls saved per move on Othello and ConnectFour.
+ */
+public class TranspositionTableTest extends GBGBatch {
+    String[] gameArr = {"Othello", "ConnectFour"};
+    String[] agtFileArr = {"TCL3-fixed6_250k-lam05_P4_H001-diff2-FAm.agt.zip",
+            "TCL-EXP-NT3-al37-lam000-6000k-epsfin0.stub.agt.zip"};
+    int iterations = 1000;
+    int numMoves = 20;
+
+    @Test
+    public void tableTest() {
+        TranspositionTable tt = new TranspositionTable(5);
+        assert tt.capacity() == 8 : "capacity is not rounded up to a power of 2";
+        MCTSNode[] nodes = new MCTSNode[100];
+        for (int k = 0; k < nodes.length; k++) {
+            nodes[k] = new MCTSNode(null);
+            assert tt.getOrPut(k, nodes[k]) == nodes[k];
+            assert tt.get(k) == nodes[k];
+            assert tt.getOrPut(k, new MCTSNode(null)) == nodes[k] : "existing node not returned";
+        }
+        int found = 0;
+        for (int k = 0; k < nodes.length; k++)
+            if (tt.get(k) != null) {
+                assert tt.get(k) == nodes[k] : "wrong node for key " + k;
+                found++;
+            }
+        assert found <= tt.capacity() : "table holds more nodes than its capacity";
+        assert tt.getReplacements() > 0;
+        tt.clear();
+        for (int k = 0; k < nodes.length; k++) assert tt.get(k) == null : "clear failed";
+        System.out.println("[tableTest] " + found + " of " + nodes.length + " nodes in table of capacity "
+                + tt.capacity() + " ... OK");
+    }
+
+    /**
+     * For the states of a random game, count the approximator calls of one move of MCTSWrapperAgent without and
+     * with transposition table. Each iteration ends with one call, so the number of calls stays the same. But
+     * without the table, some calls evaluate a state which was already evaluated in the same search (reached by
+     * another move order). These are the calls saved by the table: With it, each state is evaluated only once.
+     */
+    @Test
+    public void callsSavedTest() throws Exception {
+        int oldTTSize = ConfigWrapper.TT_SIZE;
+        boolean oldUseLast = ConfigWrapper.USELASTMCTS;
+        Random rand = new Random(42);
+        try {
+            ConfigWrapper.USELASTMCTS = false;      // a new tree for each move, so that the calls are comparable
+            for (int g = 0; g < gameArr.length; g++) {
+                String selectedGame = gameArr[g];
+                String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+                t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+                GameBoard gb = t_Game.makeGameBoard();
+                PlayAgent pa = t_Game.tdAgentIO.loadGBGAgent(Types.GUI_DEFAULT_DIR_AGENT + "/" + selectedGame + "/" + agtFileArr[g]);
+                assert pa != null : "could not load " + agtFileArr[g];
+                CountingApproximator approximator = new CountingApproximator(new PlayAgentApproximator(pa));
+
+                ConfigWrapper.TT_SIZE = 0;
+                MCTSWrapperAgent plain = new MCTSWrapperAgent(iterations, 1.0, approximator, "plain", -1);
+                ConfigWrapper.TT_SIZE = 1 << 16;
+                MCTSWrapperAgent trans = new MCTSWrapperAgent(iterations, 1.0, approximator, "tt", -1);
+
+                long callsPlain = 0, callsTrans = 0, dupPlain = 0, dupTrans = 0, hits = 0;
+                int moves = 0;
+                StateObservation so = gb.getDefaultStartState();
+                while (moves < numMoves && !so.isGameOver()) {
+                    approximator.reset();
+                    plain.getNextAction2(so.partialState(), false, true);
+                    callsPlain += approximator.calls;
+                    dupPlain += approximator.duplicates;
+                    approximator.reset();
+                    Types.ACTIONS_VT act = trans.getNextAction2(so.partialState(), false, true);
+                    callsTrans += approximator.calls;
+                    dupTrans += approximator.duplicates;
+                    hits += trans.getTranspositionTable().getHits();
+                    double sum = 0;
+                    for (double v : act.getVTable()) sum += v;
+                    assert Math.abs(sum - 1.0) < 1e-9 : "vTable is no distribution";
+                    moves++;
+                    ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                    so.advance(acts.get(rand.nextInt(acts.size())));
+                }
+                assert dupPlain > 0 : selectedGame + ": no transpositions found";
+                assert dupTrans == 0 : selectedGame + ": states evaluated twice despite transposition table";
+                System.out.printf("[callsSavedTest] %-12s %d iterations: approximator calls per move %.1f, " +
+                                "repeated evaluations per move %.1f without and %.1f with transposition table " +
+                                "(%.1f%% of the calls saved, %.1f table hits per move)%n",
+                        selectedGame, iterations, (double) callsTrans / moves, (double) dupPlain / moves,
+                        (double) dupTrans / moves, 100.0 * dupPlain / callsPlain, (double) hits / moves);
+            }
+        } finally {
+            ConfigWrapper.TT_SIZE = oldTTSize;
+            ConfigWrapper.USELASTMCTS = oldUseLast;
+        }
+    }
+
+    /**
+     * counts the calls and the calls for states that were evaluated before (since the last reset)
+     */
+    private static final class CountingApproximator implements Approximator {
+        private final Approximator inner;
+        private final HashSet<String> seen = new HashSet<>();
+        long calls;
+        long duplicates;
+
+        CountingApproximator(Approximator inner) {
+            this.inner = inner;
+        }
+
+        void reset() {
+            seen.clear();
+            calls = duplicates = 0;
+        }
+
+        @Override
+        public Tuple<Double, double[]> predict(StateObservation stateObservation) {
+            calls++;
+            if (!seen.add(stateObservation.stringDescr() + stateObservation.getPlayer() + "," + stateObservation.getMoveCounter()))
+                duplicates++;
+            return inner.predict(stateObservation);
+        }
+
+        @Override
+        public double getScore(StateObservation sob) {
+            return inner.getScore(sob);
+        }
+
+        @Override
+        public String getName() {
+            return inner.getName();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package controllers.TD.ntuple2;
+
+import games.*;
+import org.junit.Test;
+import params.ParNT;
+import params.ParOther;
+import params.ParTD;
+import starters.GBGBatch;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test the batched afterstate scoring {@link NTuple2ValueFunc#getAfterstateScores(StateObservation, java.util.List, boolean, StateObservation[])}
+ * and {@link NTuple2ValueFunc#getQFuncs(StateObsWithBoardVector, int, java.util.List)}: For states from random games,
+ * the batched values must be identical to the values from the single-state methods
+ * {@link TDNTuple3Agt#getScore(StateObservation, StateObservation)} and
+ * {@link NTuple2ValueFunc#getQFunc(StateObsWithBoardVector, int, Types.ACTIONS)}. Also compare the time for all
+ * afterstates of a state.
+ */
+public class AfterstateScoresTest extends GBGBatch {
+    String[] gameArr = {"2048", "ConnectFour", "Hex", "Nim", "Othello", "RubiksCube", "Sim", "TicTacToe"};
+    String[] qGameArr = {"ConnectFour", "Hex", "Othello", "TicTacToe"};
+    int numGames = 20;
+
+    @Test
+    public void afterstateScoresTest() throws Exception {
+        Random rand = new Random(42);
+
+        for (String selectedGame : gameArr) {
+            String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+            t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+            GameBoard gb = t_Game.makeGameBoard();
+            XNTupleFuncs xnf = t_Game.makeXNTupleFuncs();
+            ParNT ntPar = new ParNT();
+            if (selectedGame.equals("Sim")) ntPar.setNSym(1);     // Sim's symmetryVectors picks random symmetries
+            int[][] nTuples = new NTupleFactory().makeNTupleSet(ntPar, xnf);
+            TDNTuple3Agt agt = new TDNTuple3Agt("TDNT3", new ParTD(), ntPar, new ParOther(), nTuples, xnf, 1000);
+            for (NTuple2 nt : agt.getNTupleValueFunc().getNTuples()) nt.initWeights(true);
+            NTuple2ValueFunc net = agt.getNTupleValueFunc();
+            NTuple2ValueFunc qNet = null;       // Q-learning net (one output per action), only for games in qGameArr
+            if (Arrays.asList(qGameArr).contains(selectedGame)) {
+                ArrayList<Types.ACTIONS> allActs = gb.getDefaultStartState().getAllAvailableActions();
+                SarsaAgt sarsa = new SarsaAgt("Sarsa", new ParTD(), ntPar, new ParOther(), nTuples, xnf, allActs, 1000);
+                qNet = sarsa.getNTupleValueFunc();
+                for (NTuple2 nt : qNet.getNTuples()) nt.initWeights(true);
+            }
+
+            // collect the states of a few random games
+            ArrayList<StateObservation> states = new ArrayList<>();
+            for (int g = 0; g < numGames; g++) {
+                StateObservation so = gb.getDefaultStartState();
+                if (selectedGame.equals("RubiksCube")) so = gb.chooseStartState();
+                for (int m = 0; !so.isGameOver() && m < 50; m++) {
+                    states.add(so.copy());
+                    ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                    so.advance(acts.get(rand.nextInt(acts.size())));
+                }
+            }
+
+            boolean[] afterstateArr = {false, true};
+            for (boolean afterstate : afterstateArr) {
+                for (StateObservation so : states) {
+                    ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                    StateObservation[] nextSO = new StateObservation[acts.size()];
+                    double[] scores = net.getAfterstateScores(so, acts, afterstate, nextSO);
+                    for (int k = 0; k < acts.size(); k++) {
+                        if (acts.get(k).isEqualToInverseOfLastAction(so)) {
+                            assert nextSO[k] == null : selectedGame + ": skipped action has a state";
+                            continue;
+                        }
+                        if (!afterstate && !so.isDeterministicGame()) continue;    // advance() is random
+                        StateObservation newSO = so.copy();
+                        if (afterstate) newSO.advanceDeterministic(acts.get(k)); else newSO.advance(acts.get(k));
+                        assert newSO.stringDescr().equals(nextSO[k].stringDescr()) : selectedGame + ": states differ";
+                        assert agt.getScore(newSO, so) == scores[k] : selectedGame + ": scores differ for action " + k;
+                    }
+                    if (qNet != null) {
+                        StateObsWithBoardVector curSOWB = new StateObsWithBoardVector(so, xnf);
+                        double[] qValues = qNet.getQFuncs(curSOWB, so.getPlayer(), acts);
+                        for (int k = 0; k < acts.size(); k++)
+                            assert qNet.getQFunc(curSOWB, so.getPlayer(), acts.get(k)) == qValues[k]
+                                    : selectedGame + ": Q values differ for action " + k;
+                    }
+                }
+            }
+
+            // timing: minimum over several repetitions (the first ones are warm-up)
+            double t1 = Double.MAX_VALUE, t2 = Double.MAX_VALUE;
+            for (int rep = 0; rep < 10; rep++) {
+                long s0 = System.nanoTime();
+                for (StateObservation so : states) {
+                    for (Types.ACTIONS act : so.getAvailableActions()) {
+                        if (act.isEqualToInverseOfLastAction(so)) continue;
+                        StateObservation newSO = so.copy();
+                        newSO.advanceDeterministic(act);
+                        agt.getScore(newSO, so);
+                    }
+                }
+                long s1 = System.nanoTime();
+                for (StateObservation so : states) {
+                    ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                    net.getAfterstateScores(so, acts, true, new StateObservation[acts.size()]);
+                }
+                long s2 = System.nanoTime();
+                t1 = Math.min(t1, (s1 - s0) * 1e-6);
+                t2 = Math.min(t2, (s2 - s1) * 1e-6);
+            }
+            System.out.printf("[afterstateScoresTest] %-12s %5d states ... OK   single %8.2f ms, batched %8.2f ms, speed-up %5.2f%n",
+                    selectedGame, states.size(), t1, t2, t1 / t2);
+        }
+    }
+
+    /**
+     * Test {@link XNTupleFuncs#changedCells(StateObservation, int[], int[])} (the cells recorded in {@code advance}):
+     * the reported values must be those of the board vector after the move, and all cells not reported must have the
+     * same value in the board vectors before and after the move. A copy does not know the changed cells.
+     */
+    @Test
+    public void changedCellsTest() {
+        Random rand = new Random(42);
+
+        for (String selectedGame : gameArr) {
+            String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+            t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+            GameBoard gb = t_Game.makeGameBoard();
+            XNTupleFuncs xnf = t_Game.makeXNTupleFuncs();
+            int numMoves = 0, numReported = 0;
+            for (int g = 0; g < numGames; g++) {
+                StateObservation so = gb.getDefaultStartState();
+                for (int m = 0; !so.isGameOver() && m < 50; m++) {
+                    int[] prevBoard = xnf.getBoardVector(so).bvec;
+                    for (Types.ACTIONS act : so.getAvailableActions()) {
+                        StateObservation newSO = so.copy();
+                        newSO.advanceDeterministic(act);
+                        int[] cells = new int[xnf.getNumCells()];
+                        int[] vals = new int[xnf.getNumCells()];
+                        int n = xnf.changedCells(newSO, cells, vals);
+                        numMoves++;
+                        assert xnf.changedCells(newSO.copy(), cells, vals) == -1 : "a copy reports changed cells";
+                        if (n < 0) continue;
+                        numReported++;
+                        int[] nextBoard = xnf.getBoardVector(newSO).bvec;
+                        boolean[] reported = new boolean[nextBoard.length];
+                        for (int r = 0; r < n; r++) {
+                            reported[cells[r]] = true;
+                            assert vals[r] == nextBoard[cells[r]] : selectedGame + ": wrong value for cell " + cells[r];
+                        }
+                        for (int c = 0; c < nextBoard.length; c++)
+                            assert reported[c] || prevBoard[c] == nextBoard[c]
+                                    : selectedGame + ": cell " + c + " changed, but is not reported";
+                    }
+                    ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                    so.advance(acts.get(rand.nextInt(acts.size())));
+                }
+            }
+            System.out.printf("[changedCellsTest] %-12s changed cells reported for %d of %d moves ... OK%n",
+                    selectedGame, numReported, numMoves);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package controllers.TD.ntuple2;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * Test {@link IndexSet} against {@link HashSet} and benchmark it against the {@link LinkedList}-based duplicate-index
+ * tracking formerly used in {@link NTuple2#updateNew(int[], double, double, double)}.
+ */
+public class IndexSetTest {
+
+    @Test
+    public void correctnessTest() {
+        Random rand = new Random(42);
+        IndexSet iset = new IndexSet(8);
+        HashSet<Integer> hset = new HashSet<>();
+        for (int state = 0; state < 10000; state++) {
+            iset.clear();
+            hset.clear();
+            int k = 1 + rand.nextInt(state % 100 == 0 ? 1000 : 16);   // sometimes many indices, to test grow()
+            for (int j = 0; j < k; j++) {
+                int index = rand.nextInt(2 * k);
+                assert iset.add(index) == hset.add(index) : "add() differs for index " + index;
+            }
+            assert iset.size() == hset.size() : "size differs";
+            for (int index = 0; index < 2 * k; index++)
+                assert iset.contains(index) == hset.contains(index) : "contains() differs for index " + index;
+        }
+        System.out.println("[IndexSetTest] correctnessTest ... OK");
+    }
+
+    /**
+     * Simulate the update pattern of an n-tuple: per state, {@code numEquiv} symmetric indices (with duplicates)
+     * are checked and added, then the set is cleared. Compare the time of {@link LinkedList} and {@link IndexSet}.
+     */
+    @Test
+    public void benchmarkTest() {
+        int[] numEquivArr = {1, 2, 8, 24, 720};     // e.g. Nim, ConnectFour, Othello, RubiksCube, Sim(6 nodes)
+        int numIndices = 10000000;
+        Random rand = new Random(42);
+
+        for (int numEquiv : numEquivArr) {
+            int numStates = numIndices / numEquiv;
+            int[] indices = new int[numStates * numEquiv];
+            for (int i = 0; i < indices.length; i++) indices[i] = rand.nextInt(numEquiv + 1) * 7919;
+
+            long hits1 = 0, hits2 = 0;
+            for (int rep = 0; rep < 2; rep++) {     // rep 0 is warm-up
+                long t0 = System.nanoTime();
+                LinkedList<Integer> indexList = new LinkedList<>();
+                hits1 = 0;
+                for (int s = 0, i = 0; s < numStates; s++) {
+                    indexList.clear();
+                    for (int j = 0; j < numEquiv; j++, i++) {
+                        Integer indexI = indices[i];
+                        if (!indexList.contains(indexI)) hits1++;
+                        indexList.add(indexI);
+                    }
+                }
+                long t1 = System.nanoTime();
+                IndexSet indexSet = new IndexSet(8);
+                hits2 = 0;
+                for (int s = 0, i = 0; s < numStates; s++) {
+                    indexSet.clear();
+                    for (int j = 0; j < numEquiv; j++, i++) {
+                        if (indexSet.add(indices[i])) hits2++;
+                    }
+                }
+                long t2 = System.nanoTime();
+                if (rep == 1)
+                    System.out.printf("[IndexSetTest] numEquiv=%4d: LinkedList %7.1f ms, IndexSet %7.1f ms, speed-up %6.2f%n",
+                            numEquiv, (t1 - t0) * 1e-6, (t2 - t1) * 1e-6, ((double) (t1 - t0)) / (t2 - t1));
+            }
+            assert hits1 == hits2 : "different number of first visits: " + hits1 + " vs. " + hits2;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package controllers.TD.ntuple2;
+
+import games.*;
+import org.junit.Test;
+import params.ParNT;
+import starters.GBGBatch;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Test the symmetry permutations {@link XNTupleFuncs#symmetryPermutations()} for every game implementing
+ * {@link XNTupleFuncs}: For states from random games, the permuted board must be identical to the symmetric board
+ * from {@link XNTupleFuncs#symmetryVectors(StateObsWithBoardVector, int)}, and the score of each {@link NTuple2}
+ * calculated directly from the original board must be identical to the score of the symmetric board.
+ */
+public class NTuple2SymmetryTest extends GBGBatch {
+    String[] gameArr = {"2048", "ConnectFour", "Hex", "Nim", "Nim3P", "Othello", "RubiksCube", "Sim", "TicTacToe"};
+    int numGames = 20;
+    int numTuples = 5;
+    int tupleLen = 4;
+
+    @Test
+    public void permutationTest() {
+        Random rand = new Random(42);
+
+        for (String selectedGame : gameArr) {
+            String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+            t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+            GameBoard gb = t_Game.makeGameBoard();
+            XNTupleFuncs xnf = t_Game.makeXNTupleFuncs();
+            int[][] perm = xnf.symmetryPermutations();
+            if (perm == null) {
+                System.out.println("[permutationTest] " + selectedGame + ": symmetries are no cell permutations");
+                continue;
+            }
+            assert perm.length == xnf.getNumSymmetries() : selectedGame + ": wrong number of permutations";
+
+            // a few random n-tuples with random weights:
+            NTuple2[] nt = new NTuple2[numTuples];
+            for (int k = 0; k < numTuples; k++) {
+                ArrayList<Integer> cells = new ArrayList<>();
+                for (int c = 0; c < xnf.getNumCells(); c++) cells.add(c);
+                Collections.shuffle(cells, rand);
+                int[] tuple = new int[Math.min(tupleLen, cells.size())];
+                for (int i = 0; i < tuple.length; i++) tuple[i] = cells.get(i);
+                nt[k] = new NTuple2(tuple, xnf.getNumPositionValues(), new ParNT());
+                nt[k].initWeights(true);
+                nt[k].setSymmetryPermutations(perm);
+            }
+
+            int numStates = 0;
+            for (int g = 0; g < numGames; g++) {
+                StateObservation so = gb.getDefaultStartState();
+                while (true) {
+                    checkState(so, xnf, perm, nt, selectedGame);
+                    numStates++;
+                    if (so.isGameOver()) break;
+                    ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                    so.advance(acts.get(rand.nextInt(acts.size())));
+                }
+            }
+            System.out.println("[permutationTest] " + selectedGame + ": " + perm.length + " symmetries, "
+                    + numStates + " states ... OK");
+        }
+    }
+
+    private void checkState(StateObservation so, XNTupleFuncs xnf, int[][] perm, NTuple2[] nt, String game) {
+        StateObsWithBoardVector curSOWB = new StateObsWithBoardVector(so, xnf);
+        int[] board = curSOWB.getBoardVector().bvec;
+        BoardVector[] equiv = xnf.symmetryVectors(curSOWB, xnf.getNumSymmetries());
+        assert equiv.length == perm.length : game + ": symmetryVectors returns " + equiv.length + " vectors";
+        for (int s = 0; s < perm.length; s++) {
+            for (int i = 0; i < board.length; i++)
+                assert equiv[s].bvec[i] == board[perm[s][i]] : game + ": symmetry " + s + " differs in cell " + i;
+            for (NTuple2 ntuple : nt)
+                assert ntuple.getScore(equiv[s].bvec) == ntuple.getScore(board, s) : game + ": score differs";
+        }
+    }
+}
@@ -7,6 +7,15 @@ import games.*;
 import org.junit.Test;
 import starters.GBGBatch;
 import starters.MTrainSweep;
+import tools.Types;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 
 /**
  * The JUnit tests in this class are not exact, because most agent performances fluctuate a bit due to random variations
@@ -99,6 +108,133 @@ public class TDNTuple3AgtTest extends GBGBatch {
         //retrainAndEval(selectedGame, agtFileE, evalThreshE,-1);        // 4 sec runtime
     }
 
+    /**
+     * Test the parallel (Hogwild-style) training of {@link TDNTuple3Agt}: Retrain the agent from agtFileE with 1, 2
+     * and 4 train threads and check that the agents trained in parallel reach (up to evalTolE) the quick-eval result
+     * of the agent trained with 1 thread. (A TicTacToe retrain of this length does not reliably reach perfect play,
+     * so evalThreshE is not used here.)
+     */
+    @Test
+    public void parallelTrainTest() {
+        String selectedGame = "TicTacToe";
+        int maxGameNum;
+        int[] threadArr = {1, 2, 4};
+        double evalTolE = 0.3;
+        double[] evalQ = new double[threadArr.length];
+        PlayAgent pa;
+
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame,scaPar);   // t_Game is ArenaTrain object
+        GameBoard gb = t_Game.makeGameBoard();		// needed for chooseStartState()
+        MTrainSweep mTrainSweep = new MTrainSweep();
+        setupPaths(agtFileE[0],csvFile);     // builds filePath
+
+        for (int i=0; i<threadArr.length; i++) {
+            boolean res = t_Game.loadAgent(0, filePath);
+            assert res : "\n[TDNTuple3AgtTest] Aborted: agtFile = "+agtFileE[0] + " not found!";
+
+            t_Game.m_xab.ntPar[0].setNumTrainThreads(threadArr[i]);
+            String sAgent = t_Game.m_xab.getSelectedAgent(0);
+            pa = t_Game.m_xfun.fetchAgent(0,sAgent, t_Game.m_xab);
+            maxGameNum = pa.getMaxGameNum();    // epsilon and alpha schedule are tied to the agent's maxGameNum
+
+            pa = mTrainSweep.doSingleTraining(0,0,pa,t_Game,t_Game.m_xab,gb,maxGameNum,0.0,0.0);
+            assert pa.getGameNum()==maxGameNum : "wrong number of episodes: "+pa.getGameNum();
+
+            int qem = t_Game.m_xab.oPar[0].getQuickEvalMode();
+            Evaluator m_evaluatorQ = t_Game.m_xab.m_arena.makeEvaluator(pa,gb,50,qem,-1);
+            m_evaluatorQ.eval(pa);
+            evalQ[i] = m_evaluatorQ.getLastResult();
+            System.out.println(threadArr[i]+" thread(s): evalQ="+evalQ[i]);
+            assert evalQ[i] >= evalQ[0] - evalTolE : "["+agtFileE[0]+"] "+threadArr[i]+" threads: evalQ="+evalQ[i]
+                    +" is more than "+evalTolE+" below the 1-thread result "+evalQ[0];
+        }
+    }
+
+    /**
+     * Test the LUT storage modes of {@link WeightStore}: Train the agent from agtFileE with LUT mode double, float
+     * and off-heap with the same seed and only random moves, so that all three see the same episodes. The off-heap
+     * agent has to give exactly the scores of the double agent, the float agent the same scores up to float
+     * precision. Check also that each agent survives a serialization round trip with identical scores.
+     */
+    @Test
+    public void lutModeTest() throws Exception {
+        String selectedGame = "TicTacToe";
+        int[] modeArr = {WeightStore.DOUBLE, WeightStore.FLOAT, WeightStore.OFFHEAP};
+        double[] tolArr = {0.0, 1e-5, 0.0};     // tolerance against the double scores
+        int numEpisodes = 2000;
+        int numStates = 200;
+
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame,scaPar);   // t_Game is ArenaTrain object
+        GameBoard gb = t_Game.makeGameBoard();
+        setupPaths(agtFileE[0],csvFile);     // builds filePath
+
+        // the states on which the scores are compared: all states of random games
+        Random rand = new Random(42);
+        ArrayList<StateObservation> states = new ArrayList<>();
+        while (states.size() < numStates) {
+            StateObservation so = gb.getDefaultStartState();
+            while (!so.isGameOver()) {
+                states.add(so.copy());
+                ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                so.advance(acts.get(rand.nextInt(acts.size())));
+            }
+        }
+
+        double[][] scores0 = null;
+        for (int i=0; i<modeArr.length; i++) {
+            boolean res = t_Game.loadAgent(0, filePath);
+            assert res : "\n[TDNTuple3AgtTest] Aborted: agtFile = "+agtFileE[0] + " not found!";
+
+            t_Game.m_xab.ntPar[0].setLutMode(modeArr[i]);
+            t_Game.m_xab.ntPar[0].setNumTrainThreads(1);
+            // only random moves, learning from all of them: the episodes do not depend on the (rounded) values
+            t_Game.m_xab.tdPar[0].setEpsilon(1.0);
+            t_Game.m_xab.tdPar[0].setEpsilonFinal(1.0);
+            t_Game.m_xab.oPar[0].setLearnFromRM(true);
+            String sAgent = t_Game.m_xab.getSelectedAgent(0);
+            TDNTuple3Agt ta = (TDNTuple3Agt) t_Game.m_xfun.constructAgent(0,sAgent, t_Game.m_xab);
+            NTuple2 nt = ta.getNTupleValueFunc().getNTuples()[0];
+            assert nt.getWeightStore().getMode()==modeArr[i] : "wrong LUT mode "+nt.getWeightStore().getMode();
+
+            ta.rand = new Random(42);
+            for (int k=0; k<numEpisodes; k++) ta.trainAgent(gb.getDefaultStartState());
+
+            double[][] scores = vTables(ta, states);
+            if (i==0) scores0 = scores;
+            for (int k=0; k<scores.length; k++)
+                for (int j=0; j<scores[k].length; j++)
+                    assert Math.abs(scores[k][j]-scores0[k][j]) <= tolArr[i] : WeightStore.MODE_NAMES[modeArr[i]]
+                            +": score "+scores[k][j]+" differs from double score "+scores0[k][j]
+                            +" for "+states.get(k).stringDescr();
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                oos.writeObject(ta);
+            }
+            TDNTuple3Agt pb;
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+                pb = (TDNTuple3Agt) ois.readObject();
+            }
+            pb.instantiateAfterLoading();
+            double[][] scoresB = vTables(pb, states);
+            for (int k=0; k<scores.length; k++)
+                assert Arrays.equals(scores[k], scoresB[k]) : "scores differ after serialization round trip";
+            System.out.println("[lutModeTest] "+WeightStore.MODE_NAMES[modeArr[i]]+": scores agree with double mode");
+        }
+    }
+
+    /**
+     * @return the value table of {@code pa} for each state in {@code states}
+     */
+    private static double[][] vTables(PlayAgent pa, ArrayList<StateObservation> states) {
+        double[][] vTables = new double[states.size()][];
+        for (int k=0; k<vTables.length; k++)
+            vTables[k] = pa.getNextAction2(states.get(k).partialState(), false, true).getVTable();
+        return vTables;
+    }
+
     /**
      *
      * @param selectedGame  name of the game
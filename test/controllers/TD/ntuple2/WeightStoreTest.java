@@ -0,0 +1,207 @@
+package controllers.TD.ntuple2;
+
+import games.*;
+import org.junit.Test;
+import params.ParNT;
+import starters.GBGBatch;
+import tools.Types;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Test the sparse LUT backend {@link WeightStore#SPARSE} against the dense {@link WeightStore#DOUBLE} store and
+ * compare memory and throughput of both for a long n-tuple on Othello, where most LUT weights are never visited.
+ */
+public class WeightStoreTest extends GBGBatch {
+
+    /**
+     * Apply the same random sequence of get/set/add/fill to a dense and a sparse store; both must agree at all
+     * times, also in {@link WeightStore#nonZeroIndices()} and after a serialization round trip.
+     */
+    @Test
+    public void sparseCorrectnessTest() throws Exception {
+        Random rand = new Random(42);
+        int length = 100000 + 17;          // last page is incomplete
+        WeightStore dense = WeightStore.create(WeightStore.DOUBLE, length);
+        WeightStore sparse = WeightStore.create(WeightStore.SPARSE, length);
+        assert sparse.getMode() == WeightStore.SPARSE;
+        assert sparse.length() == length;
+
+        for (int op = 0; op < 200000; op++) {
+            int k = (rand.nextInt(10) < 8) ? rand.nextInt(1000) : rand.nextInt(length);   // mostly a few pages
+            switch (rand.nextInt(100)) {
+                case 0:
+                    double v = (rand.nextBoolean()) ? 0.0 : 0.5;
+                    dense.fill(v);
+                    sparse.fill(v);
+                    break;
+                default:
+                    if (rand.nextBoolean()) {
+                        double val = (rand.nextInt(4) == 0) ? 0.0 : rand.nextGaussian();
+                        dense.set(k, val);
+                        sparse.set(k, val);
+                    } else {
+                        double dW = rand.nextGaussian();
+                        dense.add(k, dW);
+                        sparse.add(k, dW);
+                    }
+            }
+            assert dense.get(k) == sparse.get(k) : "get(" + k + ") differs after op " + op;
+        }
+        assert Arrays.equals(dense.toArray(), sparse.toArray()) : "toArray() differs";
+        assert Arrays.equals(dense.nonZeroIndices(), sparse.nonZeroIndices()) : "nonZeroIndices() differs";
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(sparse);
+        }
+        WeightStore sparse2;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            sparse2 = (WeightStore) ois.readObject();
+        }
+        assert Arrays.equals(sparse.toArray(), sparse2.toArray()) : "serialization round trip differs";
+        System.out.println("[WeightStoreTest] sparseCorrectnessTest: " + sparse.nonZeroIndices().length
+                + " non-zero weights, serialized size " + bos.size() + " bytes ... OK");
+    }
+
+    /**
+     * LUTs longer than {@link WeightStore#SPARSE_THRESHOLD} are sparse, whatever mode is requested. LUTs that do not
+     * fit into an {@code int} index are rejected.
+     */
+    @Test
+    public void thresholdTest() {
+        int oldThreshold = WeightStore.SPARSE_THRESHOLD;
+        try {
+            WeightStore.SPARSE_THRESHOLD = 1000;
+            assert WeightStore.create(WeightStore.FLOAT, 1000).getMode() == WeightStore.FLOAT;
+            assert WeightStore.create(WeightStore.FLOAT, 1001).getMode() == WeightStore.SPARSE;
+            NTuple2 nt = new NTuple2(new int[]{0, 1, 2, 3, 4, 5, 6}, 3, new ParNT());    // 3^7 = 2187 weights
+            assert nt.getWeightStore().getMode() == WeightStore.SPARSE;
+        } finally {
+            WeightStore.SPARSE_THRESHOLD = oldThreshold;
+        }
+        assert WeightStore.lutLength(4, 15) == (1 << 30);
+        boolean thrown = false;
+        try {
+            WeightStore.lutLength(4, 16);
+        } catch (RuntimeException e) {
+            thrown = true;
+        }
+        assert thrown : "lutLength(4,16) should throw";
+        System.out.println("[WeightStoreTest] thresholdTest ... OK");
+    }
+
+    /**
+     * Write blocks of all modes behind a 4-byte header and read them back with tiny windows of
+     * {@link WeightStore#WINDOW_BYTES}, so that many doubles, floats and ints straddle a window boundary.
+     */
+    @Test
+    public void blockWindowTest() throws Exception {
+        Random rand = new Random(42);
+        long oldWindow = WeightStore.WINDOW_BYTES;
+        Path path = Files.createTempFile("WeightStoreTest", ".bin");
+        try {
+            for (int mode : new int[]{WeightStore.DOUBLE, WeightStore.FLOAT, WeightStore.OFFHEAP, WeightStore.SPARSE}) {
+                WeightStore ws = WeightStore.create(mode, 5000);
+                for (int k = 0; k < 1000; k++) ws.set(rand.nextInt(ws.length()), rand.nextGaussian());
+                try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    ch.write(ByteBuffer.allocate(4));
+                    ws.writeBinary(ch);
+                }
+                for (long window : new long[]{13, 1L << 30}) {
+                    WeightStore.WINDOW_BYTES = window;
+                    WeightStore ws2;
+                    try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+                        ws2 = WeightStore.readBinary(mode, ws.length(), ch, 4, false);
+                    }
+                    assert Arrays.equals(ws.toArray(), ws2.toArray())
+                            : WeightStore.MODE_NAMES[mode] + ": block differs for window " + window;
+                }
+            }
+        } finally {
+            WeightStore.WINDOW_BYTES = oldWindow;
+            Files.delete(path);
+        }
+        System.out.println("[WeightStoreTest] blockWindowTest ... OK");
+    }
+
+    /**
+     * Benchmark dense vs. sparse for one long n-tuple on Othello: random games, for every state the LUT weight of all
+     * symmetric boards is read and updated (as in TD learning). Report memory and the weight accesses per second.
+     */
+    @Test
+    public void sparseBenchmarkTest() {
+        String selectedGame = "Othello";
+        int tupleLen = 12;
+        int numGames = 2000;
+        int[] modeArr = {WeightStore.DOUBLE, WeightStore.SPARSE};
+        Random rand = new Random(42);
+
+        String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+        GameBoard gb = t_Game.makeGameBoard();
+        XNTupleFuncs xnf = t_Game.makeXNTupleFuncs();
+        int[][] perm = xnf.symmetryPermutations();
+
+        ArrayList<Integer> cells = new ArrayList<>();
+        for (int c = 0; c < xnf.getNumCells(); c++) cells.add(c);
+        Collections.shuffle(cells, rand);
+        int[] tuple = new int[tupleLen];
+        for (int i = 0; i < tupleLen; i++) tuple[i] = cells.get(i);
+
+        // the boards of random games, recorded once, so that both modes see the same states
+        ArrayList<int[]> boards = new ArrayList<>();
+        for (int g = 0; g < numGames; g++) {
+            StateObservation so = gb.getDefaultStartState();
+            while (!so.isGameOver()) {
+                boards.add(xnf.getBoardVector(so).bvec);
+                ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                so.advance(acts.get(rand.nextInt(acts.size())));
+            }
+        }
+
+        NTuple2[] nt = new NTuple2[modeArr.length];
+        double[] perSec = new double[modeArr.length];
+        for (int m = 0; m < modeArr.length; m++) {
+            ParNT ntPar = new ParNT();
+            ntPar.setLutMode(modeArr[m]);
+            nt[m] = new NTuple2(tuple, xnf.getNumPositionValues(), ntPar);
+            nt[m].setSymmetryPermutations(perm);
+            assert nt[m].getWeightStore().getMode() == modeArr[m];
+            WeightStore ws = nt[m].getWeightStore();
+            for (int rep = 0; rep < 2; rep++) {     // rep 0 is warm-up
+                long t0 = System.nanoTime();
+                for (int[] board : boards) {
+                    for (int s = 0; s < perm.length; s++) {
+                        int idx = nt[m].getIndex(board, s);
+                        ws.add(idx, 0.001 - 0.01 * ws.get(idx));
+                    }
+                }
+                perSec[m] = boards.size() * perm.length / ((System.nanoTime() - t0) * 1e-9);
+            }
+        }
+        assert Arrays.equals(nt[0].getWeights(), nt[1].getWeights()) : "dense and sparse weights differ";
+
+        int nActive = nt[0].getWeightStore().nonZeroIndices().length;
+        System.out.printf("[sparseBenchmarkTest] %s, %d-tuple, %d weights, %d active (%.2f%%), %d states%n",
+                selectedGame, tupleLen, nt[0].getLutLength(), nActive, 100.0 * nActive / nt[0].getLutLength(),
+                boards.size());
+        for (int m = 0; m < modeArr.length; m++)
+            System.out.printf("[sparseBenchmarkTest] %-7s: %8.1f MB, %6.2f M accesses/s (%4.2f)%n",
+                    WeightStore.MODE_NAMES[modeArr[m]], nt[m].getWeightStore().memoryBytes() / 1e6,
+                    perSec[m] * 1e-6, perSec[m] / perSec[0]);
+    }
+}
@@ -0,0 +1,141 @@
+package games.Hex;
+
+import games.BoardVector;
+import org.junit.Test;
+import tools.Types;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests for the union-find win detection of {@link StateObserverHex}: on random games of several board sizes,
+ * game over, game score and board vector have to be the same as those computed with the HexTile board and
+ * {@link HexUtils#getWinner(HexTile[][], HexTile)}. Report the time for copy + advance + isGameOver, compared with
+ * a copy of the HexTile board + getWinner.
+ */
+public class StateObserverHexTest {
+    int[] sizes = {2, 3, 4, 5, 7, 9};
+    int numGames = 500;
+
+    @Test
+    public void referenceTest() {
+        Random rand = new Random(42);
+        XNTupleFuncsHex xnf = new XNTupleFuncsHex();
+        int oldSize = HexConfig.BOARD_SIZE;
+        try {
+            for (int size : sizes) {
+                setBoardSize(size);
+                int moves = 0, wins = 0;
+                for (int g = 0; g < numGames; g++) {
+                    StateObserverHex so = new StateObserverHex();
+                    while (!so.isGameOver()) {
+                        ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                        if (rand.nextBoolean()) so = so.copy();
+                        so.advance(acts.get(rand.nextInt(acts.size())));
+                        check(so, xnf);
+                        moves++;
+                    }
+                    if (so.getGameScore(so) != 0) wins++;
+                }
+                assert wins == numGames : "Hex cannot end in a draw";
+                System.out.printf("[referenceTest] size %d: %d games, %d moves ... OK%n", size, numGames, moves);
+            }
+        } finally {
+            setBoardSize(oldSize);
+        }
+    }
+
+    @Test
+    public void serializationTest() throws Exception {
+        Random rand = new Random(42);
+        StateObserverHex so = new StateObserverHex();
+        for (int m = 0; m < 10; m++) so.advance(so.getAction(rand.nextInt(so.getNumAvailableActions())));
+        StateObserverHex so2 = serialCopy(so);
+        assert so2.stringDescr().equals(so.stringDescr()) : "board differs after serialization";
+        assert so2.getPlayer() == so.getPlayer() : "player differs after serialization";
+        assert so2.getAvailableActions().equals(so.getAvailableActions()) : "actions differ after serialization";
+        assert so2.getLastUpdatedTile().equals(so.getLastUpdatedTile()) : "last tile differs after serialization";
+        assert !so2.isGameOver();
+
+        while (!so.isGameOver()) so.advance(so.getAction(rand.nextInt(so.getNumAvailableActions())));
+        so2 = serialCopy(so);       // the union-find structure has to be rebuilt
+        assert so2.isGameOver() : "game over is lost after serialization";
+        assert so2.getGameScore(so2) == so.getGameScore(so) : "game score differs after serialization";
+    }
+
+    private static StateObserverHex serialCopy(StateObserverHex so) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(so);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            return (StateObserverHex) ois.readObject();
+        }
+    }
+
+    @Test
+    public void speedTest() {
+        Random rand = new Random(42);
+        int numMoves = 0;
+        long tSO = 0, tRef = 0;
+        for (int r = 0; r < 2; r++) {       // r=0: warm-up
+            numMoves = 0;
+            tSO = tRef = 0;
+            for (int g = 0; g < 4 * numGames; g++) {
+                StateObserverHex so = new StateObserverHex();
+                ArrayList<Types.ACTIONS> moves = new ArrayList<>();
+                long t0 = System.nanoTime();
+                while (!so.isGameOver()) {
+                    so = so.copy();
+                    Types.ACTIONS act = so.getAction(rand.nextInt(so.getNumAvailableActions()));
+                    so.advance(act);
+                    moves.add(act);
+                }
+                tSO += System.nanoTime() - t0;
+
+                // the same game with the former representation: copy of the HexTile board and search from the
+                // last placed tile
+                HexTile[][] board = new StateObserverHex().getBoard();
+                t0 = System.nanoTime();
+                for (int m = 0; m < moves.size(); m++) {
+                    HexTile[][] copy = new HexTile[board.length][board.length];
+                    for (int i = 0; i < board.length; i++)
+                        for (int j = 0; j < board.length; j++) copy[i][j] = board[i][j].copy();
+                    board = copy;
+                    int n = moves.get(m).toInt();
+                    HexTile tile = board[n / HexConfig.BOARD_SIZE][n % HexConfig.BOARD_SIZE];
+                    tile.setPlayer(m % 2);
+                    HexUtils.getWinner(board, tile);
+                }
+                tRef += System.nanoTime() - t0;
+                numMoves += moves.size();
+            }
+        }
+        System.out.printf("[speedTest] size %d, %d moves: %.0f ns per copy + advance + isGameOver " +
+                "(HexTile board + getWinner: %.0f ns)%n", HexConfig.BOARD_SIZE, numMoves,
+                (double) tSO / numMoves, (double) tRef / numMoves);
+    }
+
+    private void check(StateObserverHex so, XNTupleFuncsHex xnf) {
+        HexTile[][] board = so.getBoard();
+        boolean won = HexUtils.getWinner(board, so.getLastUpdatedTile()) == Types.WINNER.PLAYER_WINS;
+        boolean full = so.getNumAvailableActions() == 0;
+        assert so.isGameOver() == (won || full) : "isGameOver differs";
+        double score = won ? HexConfig.REWARD_NEGATIVE : 0;     // the player to move has lost
+        assert so.getGameScore(so) == score : "game score differs";
+        assert so.isLegalState();
+        BoardVector bv = xnf.getBoardVector(so);
+        for (int i = 0, n = 0; i < board.length; i++)
+            for (int j = 0; j < board.length; j++, n++)
+                assert bv.bvec[n] == board[i][j].getPlayer() + 1 : "board vector differs";
+    }
+
+    private static void setBoardSize(int size) {
+        HexConfig.BOARD_SIZE = size;
+        HexConfig.TILE_COUNT = size * size;
+    }
+}
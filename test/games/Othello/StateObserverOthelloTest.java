@@ -0,0 +1,168 @@
+package games.Othello;
+
+import games.BoardVector;
+import org.junit.Test;
+import tools.Types;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests for the bitboard engine of {@link StateObserverOthello}: on random games, the moves, the flips, the passes,
+ * {@link StateObserverOthello#stringDescr()}, {@link StateObserverOthello#toEdaxString()} and
+ * {@link XNTupleFuncsOthello#getBoardVector(games.StateObservation)} have to be identical to those of the former
+ * int[8][8] implementation (which is kept here as reference). Report the time for copy + advance.
+ */
+public class StateObserverOthelloTest {
+    int numGames = 2000;
+
+    @Test
+    public void referenceTest() {
+        Random rand = new Random(42);
+        XNTupleFuncsOthello xnf = new XNTupleFuncsOthello();
+        int moves = 0, passes = 0;
+        for (int g = 0; g < numGames; g++) {
+            StateObserverOthello so = new StateObserverOthello();
+            RefOthello ref = new RefOthello();
+            while (true) {
+                check(so, ref, xnf);
+                if (so.isGameOver()) break;
+                ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                Types.ACTIONS act = acts.get(rand.nextInt(acts.size()));
+                int player = so.getPlayer();
+                if (rand.nextBoolean()) so = so.copy();     // copies start without the action list
+                so.advance(act);
+                ref.advance(act.toInt());
+                if (so.getPlayer() == player) passes++;
+                moves++;
+            }
+            assert ref.actions(ref.player).isEmpty() && ref.actions(1 - ref.player).isEmpty() : "game over too early";
+        }
+        System.out.printf("[referenceTest] %d games, %d moves, %d passes ... OK%n", numGames, moves, passes);
+    }
+
+    @Test
+    public void serializationTest() throws Exception {
+        Random rand = new Random(42);
+        StateObserverOthello so = new StateObserverOthello();
+        for (int m = 0; m < 20; m++) so.advance(so.getAction(rand.nextInt(so.getNumAvailableActions())));
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(so);
+        }
+        StateObserverOthello so2;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            so2 = (StateObserverOthello) ois.readObject();
+        }
+        assert so2.toEdaxString().equals(so.toEdaxString()) : "board or player differs after serialization";
+        assert so2.getAvailableActions().equals(so.getAvailableActions()) : "actions differ after serialization";
+        assert so2.getTurn() == so.getTurn();
+    }
+
+    @Test
+    public void speedTest() {
+        Random rand = new Random(42);
+        int numMoves = 0;
+        long t0 = System.nanoTime();
+        for (int g = 0; g < 20 * numGames; g++) {
+            StateObserverOthello so = new StateObserverOthello();
+            while (!so.isGameOver()) {
+                so = so.copy();
+                so.advance(so.getAction(rand.nextInt(so.getNumAvailableActions())));
+                numMoves++;
+            }
+        }
+        double nsPerMove = (double) (System.nanoTime() - t0) / numMoves;
+        System.out.printf("[speedTest] %d moves, %.0f ns per copy + advance%n", numMoves, nsPerMove);
+    }
+
+    private void check(StateObserverOthello so, RefOthello ref, XNTupleFuncsOthello xnf) {
+        assert so.getPlayer() == ref.player : "player differs";
+        assert so.stringDescr().equals(ref.stringDescr()) : "stringDescr differs";
+        assert so.toEdaxString().equals(ref.toEdaxString()) : "toEdaxString differs";
+        ArrayList<Types.ACTIONS> acts = ref.actions(ref.player);
+        assert so.getAvailableActions().equals(acts) : "actions differ";
+        assert so.getNumAvailableActions() == acts.size();
+        assert so.isGameOver() == (acts.isEmpty() && ref.actions(1 - ref.player).isEmpty()) : "isGameOver differs";
+        int[] bvec = ref.boardVector(xnf.getNumPositionValues());
+        BoardVector bv = xnf.getBoardVector(so);
+        assert Arrays.equals(bv.bvec, bvec) : "board vector differs";
+        assert Arrays.deepEquals(so.getCurrentGameState(), ref.cgs) : "getCurrentGameState differs";
+    }
+
+    /**
+     * the former int[8][8] implementation of the Othello rules
+     */
+    private static final class RefOthello {
+        static final int[][] DIRS = {{-1, -1}, {0, -1}, {1, -1}, {-1, 0}, {1, 0}, {-1, 1}, {0, 1}, {1, 1}};
+        int[][] cgs = new int[8][8];
+        int player = ConfigOthello.BLACK;
+
+        RefOthello() {
+            for (int[] row : cgs) Arrays.fill(row, ConfigOthello.EMPTY);
+            cgs[3][3] = cgs[4][4] = ConfigOthello.WHITE;
+            cgs[3][4] = cgs[4][3] = ConfigOthello.BLACK;
+        }
+
+        ArrayList<Types.ACTIONS> actions(int p) {
+            ArrayList<Types.ACTIONS> retVal = new ArrayList<>();
+            for (int i = 0, n = 0; i < 8; i++)
+                for (int j = 0; j < 8; j++, n++)
+                    if (cgs[i][j] == ConfigOthello.EMPTY) {
+                        boolean legal = false;
+                        for (int[] d : DIRS) legal |= !line(i, j, d, p).isEmpty();
+                        if (legal) retVal.add(new Types.ACTIONS(n));
+                    }
+            return retVal;
+        }
+
+        /**
+         * @return the opponent cells enclosed in direction d by a disc of p placed on (i,j)
+         */
+        ArrayList<int[]> line(int i, int j, int[] d, int p) {
+            ArrayList<int[]> cells = new ArrayList<>();
+            for (int x = i + d[0], y = j + d[1]; x >= 0 && x < 8 && y >= 0 && y < 8; x += d[0], y += d[1]) {
+                if (cgs[x][y] == p) return cells;
+                if (cgs[x][y] == ConfigOthello.EMPTY) break;
+                cells.add(new int[]{x, y});
+            }
+            return new ArrayList<>();
+        }
+
+        void advance(int n) {
+            int i = n / 8, j = n % 8;
+            for (int[] d : DIRS)
+                for (int[] c : line(i, j, d, player)) cgs[c[0]][c[1]] = player;
+            cgs[i][j] = player;
+            if (!actions(1 - player).isEmpty()) player = 1 - player;
+        }
+
+        String stringDescr() {
+            StringBuilder sb = new StringBuilder();
+            for (int[] row : cgs)
+                for (int c : row) sb.append(c == ConfigOthello.BLACK ? "O" : c == ConfigOthello.WHITE ? "X" : "-");
+            return sb.toString();
+        }
+
+        String toEdaxString() {
+            StringBuilder sb = new StringBuilder();
+            for (int[] row : cgs)
+                for (int c : row) sb.append(ConfigOthello.EDAX_STRING[c]);
+            return sb.append(ConfigOthello.EDAX_STRING[player]).toString();
+        }
+
+        int[] boardVector(int numPositionValues) {
+            int[] bvec = new int[64];
+            for (int i = 0, n = 0; i < 8; i++)
+                for (int j = 0; j < 8; j++, n++) bvec[n] = cgs[i][j];
+            if (numPositionValues == 4)
+                for (Types.ACTIONS a : actions(player)) bvec[a.toInt()] = 3;
+            return bvec;
+        }
+    }
+}
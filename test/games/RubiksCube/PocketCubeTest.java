@@ -113,6 +113,100 @@ public class PocketCubeTest {
 
     }
 
+    /**
+     * Twist-table-test:
+     *
+     * Random twist sequences with the composed twist tables ({@code UTw(times)} and similar) have to give the same
+     * {@code fcol} and {@code sloc} as the single 90 twists {@code UTw()}, and the twist buffer has to give the
+     * twist sequence string (also after serialization). Report the time for copy + twist.
+     */
+    @Test
+    public void testTwistTables() throws Exception {
+        init();
+
+        Twist[] twists = (CubeConfig.cubeType == CubeConfig.CubeType.RUBIKS)
+                ? new Twist[]{Twist.U, Twist.L, Twist.F, Twist.D, Twist.R, Twist.B}
+                : new Twist[]{Twist.U, Twist.L, Twist.F};
+        Random rnd = new Random(42);
+        for (int r = 0; r < 200; r++) {
+            CubeState cs = csFactory.makeCubeState();
+            CubeState ref = csFactory.makeCubeState();
+            StringBuilder seq = new StringBuilder();
+            for (int k = 0; k < 1 + rnd.nextInt(20); k++) {
+                Twist T = twists[rnd.nextInt(twists.length)];
+                int times = 1 + rnd.nextInt(3);
+                cs = csFactory.makeCubeState(cs);
+                twist(cs, T, times);
+                for (int i = 0; i < times; i++) quarterTwist(ref, T);
+                seq.append(T).append(times);
+                assert java.util.Arrays.equals(cs.fcol, ref.fcol) : "fcol differs after " + seq;
+                assert java.util.Arrays.equals(cs.sloc, ref.sloc) : "sloc differs after " + seq;
+            }
+            assert cs.getTwistSeq().equals(seq.toString()) : "twist sequence differs: " + cs.getTwistSeq();
+            assert cs.assertTwistSequence() : "twist sequence does not produce the state";
+
+            java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
+            try (java.io.ObjectOutputStream oos = new java.io.ObjectOutputStream(bos)) {
+                oos.writeObject(cs);
+            }
+            CubeState cs2;
+            try (java.io.ObjectInputStream ois = new java.io.ObjectInputStream(
+                    new java.io.ByteArrayInputStream(bos.toByteArray()))) {
+                cs2 = (CubeState) ois.readObject();
+            }
+            assert cs2.isEqual(cs) && cs2.getTwistSeq().equals(seq.toString()) : "cube differs after serialization";
+        }
+
+        int numTwists = 200000;
+        double nsNew = 0, nsRef = 0;
+        for (int w = 0; w < 2; w++) {       // w=0: warm-up
+            CubeState cs = csFactory.makeCubeState();
+            long t0 = System.nanoTime();
+            for (int k = 0; k < numTwists; k++) {
+                if (k % 20 == 0) cs = csFactory.makeCubeState();
+                cs = csFactory.makeCubeState(cs);
+                twist(cs, twists[k % twists.length], 1 + k % 3);
+            }
+            nsNew = (double) (System.nanoTime() - t0) / numTwists;
+            // the former way: single 90 twists with cloned arrays and the twist sequence as string
+            cs = csFactory.makeCubeState();
+            String seq = "";
+            t0 = System.nanoTime();
+            for (int k = 0; k < numTwists; k++) {
+                if (k % 20 == 0) { cs = csFactory.makeCubeState(); seq = ""; }
+                cs = csFactory.makeCubeState(cs);
+                for (int i = 0; i < 1 + k % 3; i++) quarterTwist(cs, twists[k % twists.length]);
+                seq = seq + twists[k % twists.length] + (1 + k % 3);
+            }
+            nsRef = (double) (System.nanoTime() - t0) / numTwists;
+            assert seq.length() > 0;
+        }
+        System.out.printf("[testTwistTables] %s: %.0f ns per copy + twist (single 90 twists: %.0f ns) --> OK%n",
+                CubeConfig.cubeType, nsNew, nsRef);
+    }
+
+    private static void twist(CubeState cs, Twist T, int times) {
+        switch (T) {
+            case U -> cs.UTw(times);
+            case L -> cs.LTw(times);
+            case F -> cs.FTw(times);
+            case D -> cs.DTw(times);
+            case R -> cs.RTw(times);
+            case B -> cs.BTw(times);
+        }
+    }
+
+    private static void quarterTwist(CubeState cs, Twist T) {
+        switch (T) {
+            case U -> cs.UTw();
+            case L -> cs.LTw();
+            case F -> cs.FTw();
+            case D -> cs.DTw();
+            case R -> cs.RTw();
+            case B -> cs.BTw();
+        }
+    }
+
     /**
      * Test that some adjacency sets in representation CUBESTATE and STICKER are as expected.
      */
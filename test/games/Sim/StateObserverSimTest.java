@@ -0,0 +1,161 @@
+package games.Sim;
+
+import org.junit.Test;
+import tools.Types;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests for the bitmask links of {@link StateObserverSim}: on random games with 2 and 3 players and 6 to 15 nodes,
+ * the available actions, the losing triangles, game over and the rewards have to be the same as those of a plain
+ * link matrix (kept here as reference). Report the time for copy + advance.
+ */
+public class StateObserverSimTest {
+    int[] nodesArr = {6, 7, 10, 15};
+    int numGames = 300;
+
+    @Test
+    public void referenceTest() {
+        Random rand = new Random(42);
+        int oldNodes = ConfigSim.NUM_NODES, oldPlayers = ConfigSim.NUM_PLAYERS;
+        String oldCoalition = ConfigSim.COALITION;
+        try {
+            for (String coalition : new String[]{"None", "1-2"}) {
+                for (int numPlayers : new int[]{2, 3}) {
+                    if (numPlayers == 2 && coalition.equals("1-2")) continue;
+                    for (int numNodes : nodesArr) {
+                        ConfigSim.NUM_NODES = numNodes;
+                        ConfigSim.NUM_PLAYERS = numPlayers;
+                        ConfigSim.COALITION = coalition;
+                        int moves = 0;
+                        for (int g = 0; g < numGames; g++) {
+                            StateObserverSim so = new StateObserverSim();
+                            RefSim ref = new RefSim(numNodes, numPlayers);
+                            while (!so.isGameOver()) {
+                                ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                                assert acts.equals(ref.actions()) : "actions differ";
+                                Types.ACTIONS act = acts.get(rand.nextInt(acts.size()));
+                                int player = so.getPlayer();
+                                if (rand.nextBoolean()) so = so.copy();
+                                so.advance(act);
+                                int[] nodes = ref.advance(act.toInt(), player);
+                                assert so.stringDescr().equals(ref.stringDescr()) : "stringDescr differs";
+                                assert so.isLegalState() : "illegal state";
+                                boolean lost = so.hasLost(player);
+                                assert lost == (nodes[2] >= 0) : "hasLost differs";
+                                if (lost) assert so.getLastNodes()[2] == nodes[2] : "losing triangle differs";
+                                moves++;
+                            }
+                            for (int p = 0; p < numPlayers; p++)
+                                assert (int) so.getGameScore(p) == so.getAllRewards()[p] : "rewards differ";
+                        }
+                        System.out.printf("[referenceTest] %d players, coalition %-4s, %2d nodes: %d games, %d moves ... OK%n",
+                                numPlayers, coalition, numNodes, numGames, moves);
+                    }
+                }
+            }
+        } finally {
+            ConfigSim.NUM_NODES = oldNodes;
+            ConfigSim.NUM_PLAYERS = oldPlayers;
+            ConfigSim.COALITION = oldCoalition;
+        }
+    }
+
+    @Test
+    public void serializationTest() throws Exception {
+        Random rand = new Random(42);
+        StateObserverSim so = new StateObserverSim();
+        while (!so.isGameOver()) {
+            StateObserverSim so2 = serialCopy(so);
+            assert so2.stringDescr().equals(so.stringDescr()) : "links differ after serialization";
+            assert so2.getPlayer() == so.getPlayer() : "player differs after serialization";
+            assert so2.getAvailableActions().equals(so.getAvailableActions()) : "actions differ after serialization";
+            so.advance(so.getAction(rand.nextInt(so.getNumAvailableActions())));
+        }
+        StateObserverSim so2 = serialCopy(so);
+        assert so2.isGameOver() : "game over is lost after serialization";
+        assert so2.getGameScore(0) == so.getGameScore(0) : "game score differs after serialization";
+    }
+
+    private static StateObserverSim serialCopy(StateObserverSim so) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(so);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            return (StateObserverSim) ois.readObject();
+        }
+    }
+
+    @Test
+    public void speedTest() {
+        Random rand = new Random(42);
+        int numMoves = 0;
+        long t0 = 0;
+        for (int r = 0; r < 2; r++) {       // r=0: warm-up
+            numMoves = 0;
+            t0 = System.nanoTime();
+            for (int g = 0; g < 20 * numGames; g++) {
+                StateObserverSim so = new StateObserverSim();
+                while (!so.isGameOver()) {
+                    so = so.copy();
+                    so.advance(so.getAction(rand.nextInt(so.getNumAvailableActions())));
+                    numMoves++;
+                }
+            }
+        }
+        double nsPerMove = (double) (System.nanoTime() - t0) / numMoves;
+        System.out.printf("[speedTest] %d nodes, %d moves: %.0f ns per copy + advance%n",
+                ConfigSim.NUM_NODES, numMoves, nsPerMove);
+    }
+
+    /**
+     * a plain link matrix: {@code link[i][j]} is the player 1,2,3 who owns the link between node i and j (0: empty)
+     */
+    private static final class RefSim {
+        int[][] link;
+        int numNodes, numPlayers;
+
+        RefSim(int numNodes, int numPlayers) {
+            this.numNodes = numNodes;
+            this.numPlayers = numPlayers;
+            link = new int[numNodes][numNodes];
+        }
+
+        ArrayList<Types.ACTIONS> actions() {
+            ArrayList<Types.ACTIONS> retVal = new ArrayList<>();
+            for (int i = 0, k = 0; i < numNodes - 1; i++)
+                for (int j = i + 1; j < numNodes; j++, k++)
+                    if (link[i][j] == 0) retVal.add(Types.ACTIONS.fromInt(k));
+            return retVal;
+        }
+
+        /**
+         * @return the nodes i, j of link k and the lowest node completing a triangle of player (-1 if none)
+         */
+        int[] advance(int k, int player) {
+            for (int i = 0, n = 0; i < numNodes - 1; i++)
+                for (int j = i + 1; j < numNodes; j++, n++)
+                    if (n == k) {
+                        link[i][j] = link[j][i] = player + 1;
+                        for (int m = 0; m < numNodes; m++)
+                            if (link[m][i] == player + 1 && link[m][j] == player + 1) return new int[]{i, j, m};
+                        return new int[]{i, j, -1};
+                    }
+            throw new RuntimeException("invalid action " + k);
+        }
+
+        String stringDescr() {
+            String[] str = {"_", "0", "1", "2"};
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < numNodes - 1; i++)
+                for (int j = i + 1; j < numNodes; j++) sb.append(str[link[i][j]]);
+            return sb.toString();
+        }
+    }
+}
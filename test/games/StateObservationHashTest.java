@@ -0,0 +1,71 @@
+package games;
+
+import org.junit.Test;
+import starters.GBGBatch;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Tests for {@link StateObservation#getHash64()}: on the states of random episodes, the incrementally maintained
+ * hash has to be the same as the hash computed from scratch, equal states (board and player to move) have to get
+ * equal hashes, and different states must not collide. Report the time for {@code getHash64()} and for
+ * {@code stringDescr()}.
+ */
+public class StateObservationHashTest extends GBGBatch {
+    String[] gameArr = {"TicTacToe", "ConnectFour", "Othello", "Hex", "Sim", "Nim", "Nim3P", "RubiksCube"};
+    int numEpisodes = 500;
+    int maxMoves = 60;
+
+    @Test
+    public void collisionTest() {
+        Random rand = new Random(42);
+        for (String selectedGame : gameArr) {
+            String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+            t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);   // t_Game is ArenaTrain object
+            GameBoard gb = t_Game.makeGameBoard();
+            HashMap<Long, String> seen = new HashMap<>();
+            ArrayList<StateObservation> states = new ArrayList<>();
+            int numStates = 0;
+            for (int e = 0; e < numEpisodes; e++) {
+                StateObservation so = gb.chooseStartState();     // RubiksCube: a scrambled cube
+                so.getHash64();         // from here on, advance updates the hash incrementally
+                for (int m = 0; m < maxMoves; m++) {
+                    String key = so.stringDescr() + "|" + so.getPlayer();
+                    long hash = so.getHash64();
+                    ObserverBase fresh = (ObserverBase) so.copy();
+                    fresh.zobristValid = false;
+                    assert fresh.getHash64() == hash : selectedGame + ": incremental hash differs for " + key;
+                    String other = seen.putIfAbsent(hash, key);
+                    assert other == null || other.equals(key) : selectedGame + ": collision of " + key + " and " + other;
+                    if (states.size() < 1000) states.add(so.copy());
+                    numStates++;
+                    if (so.isGameOver()) break;
+                    ArrayList<Types.ACTIONS> acts = so.getAvailableActions();
+                    so.advance(acts.get(rand.nextInt(acts.size())));
+                }
+            }
+            HashMap<String, Long> hashOfKey = new HashMap<>();
+            for (HashMap.Entry<Long, String> entry : seen.entrySet())
+                assert hashOfKey.put(entry.getValue(), entry.getKey()) == null : selectedGame + ": equal states, different hashes";
+
+            long sum = 0;
+            double nsHash = 0, nsString = 0;
+            for (int r = 0; r < 2; r++) {       // r=0: warm-up
+                long t0 = System.nanoTime();
+                for (int k = 0; k < 100; k++)
+                    for (StateObservation so : states) sum += so.getHash64();
+                nsHash = (System.nanoTime() - t0) / (100.0 * states.size());
+                t0 = System.nanoTime();
+                for (int k = 0; k < 100; k++)
+                    for (StateObservation so : states) sum += so.stringDescr().hashCode();
+                nsString = (System.nanoTime() - t0) / (100.0 * states.size());
+            }
+            System.out.printf("[collisionTest] %-12s %7d states, %6d different: no collisions. " +
+                    "getHash64 %6.1f ns, stringDescr %7.1f ns (%d)%n", selectedGame, numStates, seen.size(),
+                    nsHash, nsString, sum & 1);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package starters;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Smoke test for {@link GBGBenchmark}: run all benchmarks for a few games with very short iterations and check that
+ * every applicable benchmark delivers a positive throughput and that the JSON result file is written.
+ */
+public class GBGBenchmarkTest {
+    String[] gameArr = {"TicTacToe", "2048", "Nim"};
+
+    @Test
+    public void smokeTest() throws Exception {
+        GBGBenchmark bm = new GBGBenchmark(1, 2, 50);
+        File json = File.createTempFile("GBGBenchmarkTest", ".json");
+        json.deleteOnExit();
+
+        for (String selectedGame : gameArr) {
+            List<GBGBenchmark.Result> results = bm.runGame(selectedGame, GBGBenchmark.BENCHMARKS);
+            int expected = GBGBenchmark.BENCHMARKS.length - (selectedGame.equals("2048") ? 2 : 0);  // no MCTS for 2048
+            assert results.size() == expected : selectedGame + ": " + results.size() + " results";
+            for (GBGBenchmark.Result r : results)
+                assert r.score > 0 && r.rawData.length == 2 : selectedGame + ", " + r.benchmark + ": no throughput";
+            bm.printResults(results);
+            bm.writeJson(results, json.getPath());
+            String content = Files.readString(json.toPath());
+            assert content.contains("\"benchmark\" : \"starters.GBGBenchmark.selfPlayEpisode\"") : "JSON incomplete";
+            assert content.contains("\"game\" : \"" + selectedGame + "\"") : "JSON incomplete";
+        }
+        System.out.println("[GBGBenchmarkTest] smokeTest ... OK");
+    }
+}